@@ -149,6 +149,19 @@ public class MatchingPermission implements Permission, Serializable {
         return true;
     }
 
+    /**
+     * Returns true if whether this permission implies another depends only on the two permissions, in which case
+     * the result can safely be memoized.
+     */
+    public boolean isDeterministic() {
+        for (MatchingPart part : _parts) {
+            if (!part.isDeterministic()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Returns a string escaped so it will be interpreted literally by the matcher.  Specifically it converts all
      * '|' and '*' characters to "\|" and "\*" respectively.
@@ -0,0 +1,100 @@
+package com.bazaarvoice.emodb.auth.permissions;
+
+import com.bazaarvoice.emodb.auth.permissions.matching.ConstantPart;
+import com.bazaarvoice.emodb.auth.permissions.matching.MatchingPart;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.shiro.authz.Permission;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prefix trie over the leading constant parts of a collection of {@link MatchingPermission}s.  A constant part only
+ * implies an identical constant, so when checking whether any permission in the collection implies another only the
+ * permissions along the checked permission's path through the trie need to be evaluated.  For example, when checking
+ * "sor|update|review:testcustomer" a permission starting with "queue|" or "sor|read|" is never evaluated.
+ * <p>
+ * Permissions are indexed on at most their first two parts, typically the context and action, since beyond that
+ * parts are frequently conditions which cannot be indexed.  Permissions which aren't {@link MatchingPermission}s
+ * are always returned as candidates.
+ */
+public class PermissionIndex {
+
+    private static final int MAX_DEPTH = 2;
+
+    private final Node _root = new Node();
+
+    public PermissionIndex(Collection<? extends Permission> permissions) {
+        for (Permission permission : permissions) {
+            add(permission);
+        }
+    }
+
+    private void add(Permission permission) {
+        Node node = _root;
+        if (permission instanceof MatchingPermission) {
+            List<MatchingPart> parts = ((MatchingPermission) permission).getParts();
+            for (int depth = 0; depth < MAX_DEPTH && depth < parts.size() && parts.get(depth) instanceof ConstantPart; depth++) {
+                node = node.getOrCreateChild(((ConstantPart) parts.get(depth)).getValue());
+            }
+        }
+        node._permissions.add(permission);
+    }
+
+    /**
+     * Returns the indexed permissions which may imply the given permission.  No permission which is not returned
+     * implies it.
+     */
+    public List<Permission> getCandidates(Permission permission) {
+        List<Permission> candidates = Lists.newArrayList();
+        if (!(permission instanceof MatchingPermission)) {
+            _root.collectAll(candidates);
+            return candidates;
+        }
+
+        List<MatchingPart> parts = ((MatchingPermission) permission).getParts();
+        Node node = _root;
+        int depth = 0;
+        while (node != null) {
+            // Permissions at this node have no constant part at this depth, so they can't be excluded
+            candidates.addAll(node._permissions);
+
+            if (depth == parts.size()) {
+                // Descendants have a constant part where the permission has none.  A permission with more parts only
+                // implies a shorter one if its remaining parts are wildcards, so none of them are candidates.
+                break;
+            }
+
+            MatchingPart part = parts.get(depth);
+            if (part instanceof ConstantPart) {
+                node = node._children.get(((ConstantPart) part).getValue());
+                depth += 1;
+            } else {
+                // A constant may imply a non-constant part, such as a condition matching a single value
+                for (Node child : node._children.values()) {
+                    child.collectAll(candidates);
+                }
+                break;
+            }
+        }
+        return candidates;
+    }
+
+    private static class Node {
+        private final Map<String, Node> _children = Maps.newHashMap();
+        private final List<Permission> _permissions = Lists.newArrayList();
+
+        private Node getOrCreateChild(String value) {
+            return _children.computeIfAbsent(value, ignore -> new Node());
+        }
+
+        private void collectAll(List<Permission> permissions) {
+            permissions.addAll(_permissions);
+            for (Node child : _children.values()) {
+                child.collectAll(permissions);
+            }
+        }
+    }
+}
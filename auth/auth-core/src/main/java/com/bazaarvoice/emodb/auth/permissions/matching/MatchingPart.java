@@ -23,6 +23,15 @@ abstract public class MatchingPart implements Implier {
      */
     abstract public boolean isAssignable();
 
+    /**
+     * Returns true if whether this part implies another part depends only on the two parts.  Parts which consult
+     * external state, such as metadata which may change, should return false so that authorization decisions
+     * involving them are not memoized.
+     */
+    public boolean isDeterministic() {
+        return true;
+    }
+
     public boolean implies(MatchingPart part, List<MatchingPart> leadingParts) {
         return part.impliedBy(this, leadingParts);
     }
@@ -6,6 +6,7 @@ import com.bazaarvoice.emodb.cachemgr.api.InvalidationScope;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheBuilderSpec;
+import com.google.common.cache.ForwardingCache;
 import org.apache.shiro.cache.AbstractCacheManager;
 import org.apache.shiro.cache.CacheException;
 import org.apache.shiro.subject.SimplePrincipalCollection;
@@ -16,11 +17,17 @@ import java.util.Collection;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.util.Objects.requireNonNull;
 
 /**
  * Implementation of {@link org.apache.shiro.cache.CacheManager} which uses a Guava Cache for storage.
+ * <p>
+ * Each cache keeps a version stamp which is incremented whenever the cache is invalidated, either directly or through
+ * the {@link CacheRegistry}.  Shiro populates its caches by reading a value, loading it from source on a miss, and then
+ * putting the loaded value.  If the cache was invalidated after the miss then the loaded value may be stale, so the
+ * put is discarded.  This makes it safe to trust cached values without re-validating them against the source.
  */
 public class GuavaCacheManager extends AbstractCacheManager implements InvalidatableCacheManager {
     private static Logger _log = LoggerFactory.getLogger(GuavaCacheManager.class);
@@ -57,7 +64,7 @@ public class GuavaCacheManager extends AbstractCacheManager implements Invalidat
                 // First time registering this cache
                 _log.debug("Created {} named {}", cache.getClass().getName(), name);
                 if (_cacheRegistry != null) {
-                    _cacheRegistry.register(name, cache, true);
+                    _cacheRegistry.register(name, newCache.getVersionedCache(), true);
                 }
                 managedCache = newCache;
             } else {
@@ -89,18 +96,53 @@ public class GuavaCacheManager extends AbstractCacheManager implements Invalidat
     private class GuavaCache implements org.apache.shiro.cache.Cache {
         private final String _name;
         private final Cache<String, Object> _cache;
+        // Incremented before every invalidation
+        private final AtomicLong _version = new AtomicLong();
+        // The key and version from this thread's most recent cache miss, consumed by the put which follows it
+        private final ThreadLocal<Miss> _lastMiss = new ThreadLocal<>();
 
         private GuavaCache(String name, Cache<String, Object> cache) {
             _name = name;
             _cache = cache;
         }
 
+        /**
+         * Returns a view of the cache for the {@link CacheRegistry} which increments the version stamp before
+         * invalidating so no value loaded before the invalidation can be put afterward.
+         */
+        private Cache<String, Object> getVersionedCache() {
+            return new ForwardingCache.SimpleForwardingCache<String, Object>(_cache) {
+                @Override
+                public void invalidate(Object key) {
+                    _version.incrementAndGet();
+                    super.invalidate(key);
+                }
+
+                @Override
+                public void invalidateAll(Iterable<?> keys) {
+                    _version.incrementAndGet();
+                    super.invalidateAll(keys);
+                }
+
+                @Override
+                public void invalidateAll() {
+                    _version.incrementAndGet();
+                    super.invalidateAll();
+                }
+            };
+        }
+
         @Override
         public Object get(Object key)
                 throws CacheException {
             if(key == null) return null;
             String stringKey = extractStringKey(key);
+            // Read the version before the value so an invalidation between the two is conservatively observed
+            long version = _version.get();
             Object hit = _cache.getIfPresent(stringKey);
+            if (hit == null) {
+                _lastMiss.set(new Miss(stringKey, version));
+            }
             _log.debug("{} cache hit for key {} in {}", hit == null ? "No " : "Got ", key, _name);
             return hit;
         }
@@ -118,8 +160,27 @@ public class GuavaCacheManager extends AbstractCacheManager implements Invalidat
         public Object put(Object key, Object value)
                 throws CacheException {
             String stringKey = extractStringKey(key);
+            // If the value was loaded following a miss on this thread it is only current if there has been no
+            // invalidation since the miss.
+            long version;
+            Miss miss = _lastMiss.get();
+            if (miss != null && miss._key.equals(stringKey)) {
+                _lastMiss.remove();
+                version = miss._version;
+            } else {
+                version = _version.get();
+            }
+
             Object oldValue = _cache.getIfPresent(stringKey);
+            if (_version.get() != version) {
+                _log.debug("Discarded value for key {} in {} loaded before the cache was invalidated", key, _name);
+                return oldValue;
+            }
             _cache.put(stringKey, value);
+            if (_version.get() != version) {
+                // The cache was invalidated concurrently with the put
+                _cache.invalidate(stringKey);
+            }
             return oldValue;
         }
 
@@ -128,13 +189,15 @@ public class GuavaCacheManager extends AbstractCacheManager implements Invalidat
                 throws CacheException {
             String stringKey = extractStringKey(key);
             Object oldValue = _cache.getIfPresent(stringKey);
-            _cache.invalidate(key);
+            _version.incrementAndGet();
+            _cache.invalidate(stringKey);
             return oldValue;
         }
 
         @Override
         public void clear()
                 throws CacheException {
+            _version.incrementAndGet();
             _cache.invalidateAll();
         }
 
@@ -153,5 +216,14 @@ public class GuavaCacheManager extends AbstractCacheManager implements Invalidat
             return _cache.asMap().values();
         }
     }
-}
 
+    private static class Miss {
+        private final String _key;
+        private final long _version;
+
+        private Miss(String key, long version) {
+            _key = key;
+            _version = version;
+        }
+    }
+}
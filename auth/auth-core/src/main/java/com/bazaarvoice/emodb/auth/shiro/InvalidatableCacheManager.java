@@ -4,6 +4,10 @@ import org.apache.shiro.cache.CacheManager;
 
 /**
  * Extension of shiro CacheManager that permits invalidating its caches by an explicit external call.
+ * <p>
+ * Implementations must discard a value put into a cache if the cache was invalidated since the same thread missed
+ * on the value's key, since the value may have been loaded from source before the change which caused the
+ * invalidation.  This allows cached values to be trusted until invalidated.
  */
 public interface InvalidatableCacheManager extends CacheManager {
 
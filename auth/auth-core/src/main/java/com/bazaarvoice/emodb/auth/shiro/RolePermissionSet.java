@@ -2,13 +2,22 @@ package com.bazaarvoice.emodb.auth.shiro;
 
 import org.apache.shiro.authz.Permission;
 
+import java.util.Collection;
 import java.util.Set;
 
 /**
  * Interface for a set of role permissions.  Used instead of <code>Set&lt;Permission&gt;</code> to allow for a
- * type-safe self-validating implementation used by validating caches.
+ * type-safe implementation which can index its permissions for efficient matching.
  */
 public interface RolePermissionSet {
 
     public Set<Permission> permissions();
+
+    /**
+     * Returns the permissions from this set which may imply the given permission.  Any permission not returned
+     * is guaranteed not to imply it.  By default this returns all permissions.
+     */
+    default Collection<Permission> getPermissionsWhichMayImply(Permission permission) {
+        return permissions();
+    }
 }
@@ -1,27 +1,37 @@
 package com.bazaarvoice.emodb.auth.shiro;
 
 
+import com.bazaarvoice.emodb.auth.permissions.PermissionIndex;
 import org.apache.shiro.authz.Permission;
 
+import java.util.Collection;
 import java.util.Set;
 
 import static java.util.Objects.requireNonNull;
 
 /**
- * Trivial implementation of {@link RolePermissionSet} using a Set.
+ * Trivial implementation of {@link RolePermissionSet} using a Set.  The permissions are indexed so only those which
+ * could imply a permission need to be checked.
  */
 public class SimpleRolePermissionSet implements RolePermissionSet {
 
-    private Set<Permission> _permissions;
+    private final Set<Permission> _permissions;
+    private final PermissionIndex _index;
 
     public SimpleRolePermissionSet(Set<Permission> permissions) {
         _permissions = requireNonNull(permissions, "permissions");
+        _index = new PermissionIndex(permissions);
     }
 
     public Set<Permission> permissions() {
         return _permissions;
     }
 
+    @Override
+    public Collection<Permission> getPermissionsWhichMayImply(Permission permission) {
+        return _index.getCandidates(permission);
+    }
+
     @Override
     public boolean equals(Object o) {
         return this == o || (o instanceof RolePermissionSet && ((RolePermissionSet) o).permissions().equals(_permissions));
@@ -0,0 +1,62 @@
+package com.bazaarvoice.emodb.auth.permissions;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.apache.shiro.authz.Permission;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+
+public class PermissionIndexTest {
+
+    private final MatchingPermission _all = new MatchingPermission("*");
+    private final MatchingPermission _sorAll = new MatchingPermission("sor|*");
+    private final MatchingPermission _sorUpdate = new MatchingPermission("sor|update|table1");
+    private final MatchingPermission _sorRead = new MatchingPermission("sor|read|*");
+    private final MatchingPermission _anySorTable = new MatchingPermission("*|update|table1");
+    private final MatchingPermission _queuePoll = new MatchingPermission("queue|poll|queue1");
+
+    private final PermissionIndex _index = new PermissionIndex(
+            ImmutableList.of(_all, _sorAll, _sorUpdate, _sorRead, _anySorTable, _queuePoll));
+
+    @Test
+    public void testConstantPath() {
+        assertCandidates(new MatchingPermission("sor|update|table1"), _all, _sorAll, _sorUpdate, _anySorTable);
+        assertCandidates(new MatchingPermission("sor|read|table1"), _all, _sorAll, _sorRead, _anySorTable);
+        assertCandidates(new MatchingPermission("queue|poll|queue1"), _all, _queuePoll, _anySorTable);
+        assertCandidates(new MatchingPermission("blob|read|table1"), _all, _anySorTable);
+    }
+
+    @Test
+    public void testShorterPermission() {
+        // Permissions with constant parts beyond the checked permission's parts can't imply it
+        assertCandidates(new MatchingPermission("sor"), _all, _sorAll, _anySorTable);
+    }
+
+    @Test
+    public void testNonConstantPart() {
+        // A constant may imply a wildcard in the checked permission, so every descendant is a candidate
+        assertCandidates(new MatchingPermission("sor|*"), _all, _sorAll, _sorUpdate, _sorRead, _anySorTable);
+    }
+
+    @Test
+    public void testEveryCandidateFound() {
+        List<MatchingPermission> permissions = ImmutableList.of(_all, _sorAll, _sorUpdate, _sorRead, _anySorTable, _queuePoll);
+        for (String check : ImmutableList.of("sor|update|table1", "sor|read|table2", "queue|poll|queue1",
+                "queue|poll|queue2", "blob|update|table1", "sor|*", "*", "sor", "sor|update")) {
+            MatchingPermission permission = new MatchingPermission(check);
+            List<Permission> candidates = _index.getCandidates(permission);
+            for (MatchingPermission indexed : permissions) {
+                if (indexed.implies(permission)) {
+                    assertEquals(candidates.contains(indexed), true, indexed + " implies " + check);
+                }
+            }
+        }
+    }
+
+    private void assertCandidates(Permission permission, Permission... expected) {
+        assertEquals(ImmutableSet.copyOf(_index.getCandidates(permission)), ImmutableSet.copyOf(expected));
+    }
+}
@@ -20,6 +20,8 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertSame;
 
 public class GuavaCacheManagerTest {
@@ -67,4 +69,21 @@ public class GuavaCacheManagerTest {
             executorService.shutdownNow();
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLoadDiscardedAfterInvalidation() {
+        GuavaCacheManager cacheManager = new GuavaCacheManager(null);
+        org.apache.shiro.cache.Cache<String, String> cache = cacheManager.getCache("cacheName");
+
+        // A value loaded before an invalidation is not cached
+        assertNull(cache.get("key"));
+        cache.clear();
+        cache.put("key", "stale");
+        assertNull(cache.get("key"));
+
+        // A value loaded after the invalidation is cached
+        cache.put("key", "value");
+        assertEquals(cache.get("key"), "value");
+    }
+}
@@ -13,7 +13,9 @@ import com.bazaarvoice.emodb.common.json.JsonHelper;
 import com.bazaarvoice.emodb.table.db.Table;
 import com.bazaarvoice.emodb.table.db.astyanax.AstyanaxStorage;
 import com.bazaarvoice.emodb.table.db.astyanax.AstyanaxTable;
+import com.bazaarvoice.emodb.table.db.astyanax.DataCopyCheckpoint;
 import com.bazaarvoice.emodb.table.db.astyanax.DataCopyDAO;
+import com.bazaarvoice.emodb.table.db.astyanax.DataPurgeCheckpoint;
 import com.bazaarvoice.emodb.table.db.astyanax.DataPurgeDAO;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
@@ -403,15 +405,21 @@ public class AstyanaxStorageProvider implements StorageProvider, MetadataProvide
 
     // DataCopyDAO
     @Override
-    public void copy(AstyanaxStorage source, AstyanaxStorage dest, Runnable progress) {
+    public void copy(AstyanaxStorage source, AstyanaxStorage dest, DataCopyCheckpoint checkpoint, Runnable progress) {
         Objects.requireNonNull(source, "source");
         Objects.requireNonNull(dest, "dest");
+        Objects.requireNonNull(checkpoint, "checkpoint");
 
         Iterator<ByteBufferRange> scanIter = source.scanIterator(null);
         while (scanIter.hasNext()) {
             ByteBufferRange range = scanIter.next();
+            int shardId = AstyanaxStorage.getShardId(range.getStart());
+            if (checkpoint.isCopied(shardId)) {
+                continue;
+            }
 //        metadata copy will be conditional for s3 migration
             copyRange(range, source, dest, true, true, progress);
+            checkpoint.copied(shardId);
         }
     }
 
@@ -489,12 +497,13 @@ public class AstyanaxStorageProvider implements StorageProvider, MetadataProvide
 
     // DataPurgeDAO
     @Override
-    public void purge(AstyanaxStorage storage, Runnable progress) {
+    public void purge(AstyanaxStorage storage, DataPurgeCheckpoint checkpoint, Runnable progress) {
 //        metadata purge will be conditional for s3 migration
-        purge(storage, true, true, progress);
+        purge(storage, true, true, checkpoint, progress);
     }
 
-    private void purge(AstyanaxStorage storage, boolean deleteMetadata, boolean deleteData, Runnable progress) {
+    private void purge(AstyanaxStorage storage, boolean deleteMetadata, boolean deleteData, DataPurgeCheckpoint checkpoint,
+                       Runnable progress) {
         BlobPlacement placement = (BlobPlacement) storage.getPlacement();
         CassandraKeyspace keyspace = placement.getKeyspace();
         ColumnFamily<ByteBuffer, Composite> cf = placement.getBlobColumnFamily();
@@ -511,6 +520,10 @@ public class AstyanaxStorageProvider implements StorageProvider, MetadataProvide
         Iterator<ByteBufferRange> scanIter = storage.scanIterator(null);
         while (scanIter.hasNext()) {
             ByteBufferRange keyRange = scanIter.next();
+            int shardId = AstyanaxStorage.getShardId(keyRange.getStart());
+            if (checkpoint.isPurged(shardId)) {
+                continue;
+            }
             Iterator<Row<ByteBuffer, Composite>> rowIter = scanInternal(placement, keyRange, columnRange, unlimited);
             while (rowIter.hasNext()) {
                 Row<ByteBuffer, Composite> row = rowIter.next();
@@ -539,10 +552,13 @@ public class AstyanaxStorageProvider implements StorageProvider, MetadataProvide
                     mutation.discardMutations();
                 }
             }
-        }
-        if (!mutation.isEmpty()) {
-            progress.run();
-            execute(mutation);
+            // Flush the rest of the shard before recording it as purged.
+            if (!mutation.isEmpty()) {
+                progress.run();
+                execute(mutation);
+                mutation.discardMutations();
+            }
+            checkpoint.purged(shardId);
         }
     }
 
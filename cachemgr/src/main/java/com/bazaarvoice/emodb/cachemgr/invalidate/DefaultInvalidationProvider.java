@@ -3,53 +3,83 @@ package com.bazaarvoice.emodb.cachemgr.invalidate;
 import com.bazaarvoice.emodb.cachemgr.api.InvalidationEvent;
 import com.bazaarvoice.emodb.cachemgr.api.InvalidationScope;
 import com.bazaarvoice.emodb.common.dropwizard.lifecycle.LifeCycleRegistry;
+import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.annotation.Timed;
 import com.google.common.base.Function;
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import io.dropwizard.lifecycle.ExecutorServiceManager;
 import io.dropwizard.util.Duration;
 
 import java.util.Collection;
-import java.util.Map;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Sends invalidation events to other servers and data centers.
+ * <p>
+ * Invalidations are coalesced per cache and scope: while a request for a cache is outstanding, further invalidations
+ * of the same cache are merged into a single pending batch, with duplicate keys removed, which is sent as soon as the
+ * outstanding request completes.  This way a burst of invalidations, such as from a series of table DDL operations,
+ * results in at most two requests per server at a time instead of one request per invalidation, while an isolated
+ * invalidation is sent immediately.  Callers still block until their invalidation has been delivered.
+ */
 public class DefaultInvalidationProvider implements RemoteInvalidationProvider {
 
+    private static final int MAX_SEND_THREADS = 16;
+
     private final EndPointProvider _localDataCenterEndPointProvider;
     private final EndPointProvider _foreignDataCenterEndPointProvider;
     private final RemoteInvalidationClient _invalidationClient;
-    private final ExecutorService _executor;
+    private final ListeningExecutorService _executor;
+    private final MetricRegistry _metricRegistry;
+    private final ConcurrentMap<BatchKey, Batcher> _batchers = Maps.newConcurrentMap();
 
     @Inject
     public DefaultInvalidationProvider(LifeCycleRegistry lifeCycle,
                                        @LocalDataCenter EndPointProvider localDataCenterEndPointProvider,
                                        @ForeignDataCenters EndPointProvider foreignDataCenterEndPointProvider,
-                                       RemoteInvalidationClient invalidationClient) {
+                                       RemoteInvalidationClient invalidationClient,
+                                       MetricRegistry metricRegistry) {
         _localDataCenterEndPointProvider = localDataCenterEndPointProvider;
         _foreignDataCenterEndPointProvider = foreignDataCenterEndPointProvider;
         _invalidationClient = invalidationClient;
+        _metricRegistry = metricRegistry;
         _executor = defaultInvalidationExecutor(lifeCycle);
     }
 
-    private static ExecutorService defaultInvalidationExecutor(LifeCycleRegistry lifeCycle) {
+    private static ListeningExecutorService defaultInvalidationExecutor(LifeCycleRegistry lifeCycle) {
         String nameFormat = "CacheMgr Invalidation-%d";
-        ExecutorService executor = Executors.newCachedThreadPool(
-                new ThreadFactoryBuilder().setNameFormat(nameFormat).build());
+        // Batching bounds the queue to one outstanding request per cache, scope and end point
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_SEND_THREADS, MAX_SEND_THREADS, 1, TimeUnit.MINUTES,
+                new LinkedBlockingQueue<>(), new ThreadFactoryBuilder().setNameFormat(nameFormat).build());
+        executor.allowCoreThreadTimeOut(true);
         lifeCycle.manage(new ExecutorServiceManager(executor, Duration.seconds(5), nameFormat));
-        return executor;
+        return MoreExecutors.listeningDecorator(executor);
     }
 
     @Timed(name = "bv.emodb.cachemgr.DefaultInvalidationProvider.invalidateOtherServersInSameDataCenter", absolute = true)
     @Override
     public void invalidateOtherServersInSameDataCenter(InvalidationEvent event) {
         // Flush every individual server in our local data center.
-        sendToAll(_localDataCenterEndPointProvider, InvalidationScope.LOCAL, event);
+        invalidate(InvalidationScope.LOCAL, event);
     }
 
     @Timed(name = "bv.emodb.cachemgr.DefaultInvalidationProvider.invalidateOtherDataCenters", absolute = true)
@@ -57,44 +87,215 @@ public class DefaultInvalidationProvider implements RemoteInvalidationProvider {
     public void invalidateOtherDataCenters(InvalidationEvent event) {
         // Send a request to each foreign data center and ask one server in that data center to, in turn
         // flush all the individual servers in its data center.
-        sendToAll(_foreignDataCenterEndPointProvider, InvalidationScope.DATA_CENTER, event);
+        invalidate(InvalidationScope.DATA_CENTER, event);
+    }
+
+    private void invalidate(InvalidationScope scope, InvalidationEvent event) {
+        BatchKey key = new BatchKey(scope, event.getCache());
+        Batcher batcher = _batchers.get(key);
+        if (batcher == null) {
+            batcher = new Batcher(scope, event.getCache());
+            Batcher existing = _batchers.putIfAbsent(key, batcher);
+            if (existing != null) {
+                batcher = existing;
+            }
+        }
+
+        try {
+            batcher.add(event).get();
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        } catch (InterruptedException e) {
+            throw Throwables.propagate(e);
+        }
     }
 
-    private void sendToAll(EndPointProvider provider, final InvalidationScope scope, final InvalidationEvent event) {
+    private List<ListenableFuture<?>> sendToAll(final InvalidationScope scope, final InvalidationEvent event) {
+        EndPointProvider provider = scope == InvalidationScope.LOCAL ?
+                _localDataCenterEndPointProvider : _foreignDataCenterEndPointProvider;
+
+        final List<ListenableFuture<?>> futures = Lists.newArrayList();
         provider.withEndPoints(new Function<Collection<EndPoint>, Object>() {
             @Override
             public Object apply(Collection<EndPoint> endPoints) {
-                sendToAll(endPoints, scope, event);
+                for (EndPoint endPoint : endPoints) {
+                    futures.add(sendTo(endPoint, scope, event));
+                }
                 return null;
             }
         });
+        return futures;
     }
 
-    private void sendToAll(Collection<EndPoint> endPoints, final InvalidationScope scope, final InvalidationEvent event) {
+    private ListenableFuture<?> sendTo(final EndPoint endPoint, final InvalidationScope scope, final InvalidationEvent event) {
         // Call the function on each end point, each call in a separate thread
-        Map<EndPoint, Future<?>> futures = Maps.newHashMap();
-        for (final EndPoint endPoint : endPoints) {
-            futures.put(endPoint, _executor.submit(new Callable<Void>() {
-                @Override
-                public Void call() throws Exception {
-                    _invalidationClient.invalidateAll(endPoint.getAddress(), scope, event);
-                    return null;
+        return _executor.submit(() -> {
+            try {
+                _invalidationClient.invalidateAll(endPoint.getAddress(), scope, event);
+            } catch (RuntimeException e) {
+                // Ignore hosts that go down while we're waiting for a response.
+                if (endPoint.isValid()) {
+                    throw e;
+                }
+            }
+        });
+    }
+
+    /**
+     * Sends the invalidations for a single cache and scope, allowing at most one request to each end point at a time.
+     */
+    private class Batcher {
+        private final InvalidationScope _scope;
+        private final String _cache;
+        private final String _latencyMetric;
+        private Batch _pending;
+        private boolean _sending;
+
+        Batcher(InvalidationScope scope, String cache) {
+            _scope = scope;
+            _cache = cache;
+            _latencyMetric = MetricRegistry.name("bv.emodb.cachemgr", "DefaultInvalidationProvider", "invalidation-latency-ms",
+                    scope.name().toLowerCase(), cache);
+        }
+
+        ListenableFuture<Void> add(InvalidationEvent event) {
+            Batch batch;
+            synchronized (this) {
+                if (_pending == null) {
+                    _pending = new Batch();
                 }
-            }));
+                _pending.add(event);
+                if (_sending) {
+                    // The pending batch is sent once the current request completes
+                    return _pending._future;
+                }
+                batch = _pending;
+                _pending = null;
+                _sending = true;
+            }
+            send(batch);
+            return batch._future;
         }
 
-        // Check that every call succeeded
-        for (Map.Entry<EndPoint, Future<?>> entry : futures.entrySet()) {
-            EndPoint endPoint = entry.getKey();
-            Future<?> future = entry.getValue();
+        private void send(final Batch batch) {
+            final List<ListenableFuture<?>> futures;
             try {
-                future.get();
-            } catch (Exception e) {
-                // Ignore hosts that go down while we're waiting for a response.
-                if (endPoint.isValid()) {
-                    throw Throwables.propagate(e);
+                futures = sendToAll(_scope, batch.toEvent());
+            } catch (Throwable t) {
+                batch.complete(t);
+                sendNext();
+                return;
+            }
+            // Wait for every call to complete, then check that every call succeeded
+            Futures.addCallback(Futures.successfulAsList(futures), new FutureCallback<Object>() {
+                @Override
+                public void onSuccess(Object result) {
+                    Throwable failure = null;
+                    for (ListenableFuture<?> future : futures) {
+                        try {
+                            future.get();
+                        } catch (ExecutionException e) {
+                            failure = e.getCause();
+                            break;
+                        } catch (Exception e) {
+                            failure = e;
+                            break;
+                        }
+                    }
+                    batch.complete(failure);
+                    sendNext();
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    batch.complete(t);
+                    sendNext();
+                }
+            });
+        }
+
+        private void sendNext() {
+            Batch next;
+            synchronized (this) {
+                next = _pending;
+                _pending = null;
+                _sending = next != null;
+            }
+            if (next != null) {
+                send(next);
+            }
+        }
+
+        /** The invalidations received while the previous request was outstanding. */
+        private class Batch {
+            private final SettableFuture<Void> _future = SettableFuture.create();
+            private final List<InvalidationEvent> _events = Lists.newArrayList();
+            private final List<Long> _startTimes = Lists.newArrayList();
+            private final Set<String> _keys = Sets.newLinkedHashSet();
+            private boolean _all;
+
+            void add(InvalidationEvent event) {
+                _events.add(event);
+                _startTimes.add(System.nanoTime());
+                if (!event.hasKeys()) {
+                    // Invalidating the entire cache subsumes every key
+                    _all = true;
+                    _keys.clear();
+                } else if (!_all) {
+                    for (String key : event.getKeys()) {
+                        _keys.add(key);
+                    }
                 }
             }
+
+            InvalidationEvent toEvent() {
+                InvalidationEvent first = _events.get(0);
+                if (_events.size() == 1) {
+                    return first;
+                }
+                return _all ?
+                        new InvalidationEvent(first.getSource(), _cache, first.getScope()) :
+                        new InvalidationEvent(first.getSource(), _cache, first.getScope(), ImmutableList.copyOf(_keys));
+            }
+
+            void complete(Throwable t) {
+                long now = System.nanoTime();
+                for (long startTime : _startTimes) {
+                    _metricRegistry.histogram(_latencyMetric).update(TimeUnit.NANOSECONDS.toMillis(now - startTime));
+                }
+                if (t == null) {
+                    _future.set(null);
+                } else {
+                    _future.setException(t);
+                }
+            }
+        }
+    }
+
+    private static class BatchKey {
+        private final InvalidationScope _scope;
+        private final String _cache;
+
+        BatchKey(InvalidationScope scope, String cache) {
+            _scope = scope;
+            _cache = cache;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof BatchKey)) {
+                return false;
+            }
+            BatchKey that = (BatchKey) o;
+            return _scope == that._scope && _cache.equals(that._cache);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(_scope, _cache);
         }
     }
 }
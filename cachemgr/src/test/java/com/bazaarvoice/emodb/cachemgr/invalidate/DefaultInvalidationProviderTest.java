@@ -3,19 +3,30 @@ package com.bazaarvoice.emodb.cachemgr.invalidate;
 import com.bazaarvoice.emodb.cachemgr.api.InvalidationEvent;
 import com.bazaarvoice.emodb.cachemgr.api.InvalidationScope;
 import com.bazaarvoice.emodb.common.dropwizard.lifecycle.LifeCycleRegistry;
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Function;
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.mockito.ArgumentCaptor;
 import org.testng.annotations.Test;
 
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
@@ -30,7 +41,7 @@ public class DefaultInvalidationProviderTest {
         EndPointProvider foreign = mock(EndPointProvider.class);
         RemoteInvalidationClient client = mock(RemoteInvalidationClient.class);
 
-        DefaultInvalidationProvider provider = new DefaultInvalidationProvider(lifeCycle, local, foreign, client);
+        DefaultInvalidationProvider provider = new DefaultInvalidationProvider(lifeCycle, local, foreign, client, new MetricRegistry());
         provider.invalidateOtherServersInSameDataCenter(event);
 
         verify(client).invalidateAll("http://local1:8081/tasks/invalidate", InvalidationScope.LOCAL, event);
@@ -49,7 +60,7 @@ public class DefaultInvalidationProviderTest {
         EndPointProvider foreign = getEndPointProvider(getEndPoint("foreign1", true), getEndPoint("foreign2", true));
         RemoteInvalidationClient client = mock(RemoteInvalidationClient.class);
 
-        DefaultInvalidationProvider provider = new DefaultInvalidationProvider(lifeCycle, local, foreign, client);
+        DefaultInvalidationProvider provider = new DefaultInvalidationProvider(lifeCycle, local, foreign, client, new MetricRegistry());
         provider.invalidateOtherDataCenters(event);
 
         verify(client).invalidateAll("http://foreign1:8081/tasks/invalidate", InvalidationScope.DATA_CENTER, event);
@@ -67,7 +78,7 @@ public class DefaultInvalidationProviderTest {
         doThrow(RuntimeException.class).when(client).invalidateAll("http://foreign2:8081/tasks/invalidate", InvalidationScope.DATA_CENTER, event);
 
         DefaultInvalidationProvider provider = new DefaultInvalidationProvider(
-                mock(LifeCycleRegistry.class), mock(EndPointProvider.class), foreign, client);
+                mock(LifeCycleRegistry.class), mock(EndPointProvider.class), foreign, client, new MetricRegistry());
         try {
             provider.invalidateOtherDataCenters(event);
             fail();
@@ -89,13 +100,64 @@ public class DefaultInvalidationProviderTest {
         doThrow(RuntimeException.class).when(client).invalidateAll("http://local1:8081/tasks/invalidate", InvalidationScope.LOCAL, event);
 
         DefaultInvalidationProvider provider = new DefaultInvalidationProvider(
-                mock(LifeCycleRegistry.class), local, mock(EndPointProvider.class), client);
+                mock(LifeCycleRegistry.class), local, mock(EndPointProvider.class), client, new MetricRegistry());
         provider.invalidateOtherServersInSameDataCenter(event);
 
         verify(client).invalidateAll("http://local1:8081/tasks/invalidate", InvalidationScope.LOCAL, event);
         verifyNoMoreInteractions(client);
     }
 
+    @Test
+    public void testCoalescedInvalidation() throws Exception {
+        InvalidationEvent first = new InvalidationEvent(this, "tables", InvalidationScope.GLOBAL, Arrays.asList("a"));
+        InvalidationEvent second = new InvalidationEvent(this, "tables", InvalidationScope.GLOBAL, Arrays.asList("b", "c"));
+        InvalidationEvent third = new InvalidationEvent(this, "tables", InvalidationScope.GLOBAL, Arrays.asList("c", "b", "d"));
+
+        EndPointProvider local = getEndPointProvider(getEndPoint("local1", true));
+        RemoteInvalidationClient client = mock(RemoteInvalidationClient.class);
+
+        // Block the first invalidation until the others have queued up behind it
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            firstStarted.countDown();
+            releaseFirst.await();
+            return null;
+        }).when(client).invalidateAll("http://local1:8081/tasks/invalidate", InvalidationScope.LOCAL, first);
+
+        DefaultInvalidationProvider provider = new DefaultInvalidationProvider(
+                mock(LifeCycleRegistry.class), local, mock(EndPointProvider.class), client, new MetricRegistry());
+
+        Thread firstThread = new Thread(() -> provider.invalidateOtherServersInSameDataCenter(first));
+        firstThread.start();
+        assertTrue(firstStarted.await(10, TimeUnit.SECONDS));
+
+        Thread secondThread = new Thread(() -> provider.invalidateOtherServersInSameDataCenter(second));
+        Thread thirdThread = new Thread(() -> provider.invalidateOtherServersInSameDataCenter(third));
+        secondThread.start();
+        thirdThread.start();
+
+        // Neither queued invalidation completes until the outstanding request finishes
+        secondThread.join(200);
+        assertTrue(secondThread.isAlive());
+        releaseFirst.countDown();
+
+        for (Thread thread : Arrays.asList(firstThread, secondThread, thirdThread)) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+            assertFalse(thread.isAlive());
+        }
+
+        // The two queued invalidations are sent as a single request with duplicate keys removed
+        ArgumentCaptor<InvalidationEvent> captor = ArgumentCaptor.forClass(InvalidationEvent.class);
+        verify(client, times(2)).invalidateAll(eq("http://local1:8081/tasks/invalidate"), eq(InvalidationScope.LOCAL), captor.capture());
+        InvalidationEvent coalesced = captor.getAllValues().get(1);
+        assertEquals(coalesced.getCache(), "tables");
+        List<String> keys = ImmutableList.copyOf(coalesced.getKeys());
+        assertEquals(keys.size(), 3);
+        assertEquals(ImmutableSet.copyOf(keys), ImmutableSet.of("b", "c", "d"));
+        verifyNoMoreInteractions(client);
+    }
+
     private EndPointProvider getEndPointProvider(final EndPoint... endPoints) {
         return new EndPointProvider() {
             @Override
@@ -31,6 +31,17 @@ public class BufferUtils {
         }
     }
 
+    /**
+     * Copies the specified number of bytes in the buffer into a new array.  Does not move the buffer position.
+     */
+    public static byte[] getBytes(ByteBuffer buf, int offset, int length) {
+        buf = buf.duplicate();
+        buf.position(buf.position() + offset);
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return bytes;
+    }
+
     public static int indexOf(ByteBuffer buf, byte b) {
         for (int i = 0; i < buf.remaining(); i++) {
             if (buf.get(buf.position() + i) == b) {
@@ -0,0 +1,81 @@
+package com.bazaarvoice.emodb.client;
+
+import com.bazaarvoice.emodb.common.json.JsonHelper;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.Test;
+
+import javax.ws.rs.core.MediaType;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class EntityHelperTest {
+
+    private static final List<Map<String, Object>> CONTENT = ImmutableList.<Map<String, Object>>of(
+            ImmutableMap.<String, Object>of("~id", "key1", "count", 1234),
+            ImmutableMap.<String, Object>of("~id", "key2", "tags", ImmutableList.of("a", "b")));
+
+    @Test
+    public void testSmileMediaType() {
+        assertEquals(EntityHelper.APPLICATION_X_JACKSON_SMILE_TYPE, MediaType.valueOf(JsonHelper.SMILE_MEDIA_TYPE));
+        assertEquals(EntityHelper.APPLICATION_X_JACKSON_SMILE_TYPE.toString(), JsonHelper.SMILE_MEDIA_TYPE);
+    }
+
+    @Test
+    public void testIsSmile() {
+        assertTrue(EntityHelper.isSmile(EntityHelper.APPLICATION_X_JACKSON_SMILE_TYPE));
+        assertTrue(EntityHelper.isSmile(new MediaType("application", "x-jackson-smile", ImmutableMap.of("q", "0.9"))));
+        assertFalse(EntityHelper.isSmile(MediaType.APPLICATION_JSON_TYPE));
+        assertFalse(EntityHelper.isSmile(null));
+
+        assertTrue(EntityHelper.isJsonOrSmile(MediaType.APPLICATION_JSON_TYPE));
+        assertTrue(EntityHelper.isJsonOrSmile(EntityHelper.APPLICATION_X_JACKSON_SMILE_TYPE));
+        assertFalse(EntityHelper.isJsonOrSmile(MediaType.TEXT_PLAIN_TYPE));
+    }
+
+    @Test
+    public void testGetSmileEntity() throws Exception {
+        Map<String, Object> actual = EntityHelper.getEntity(smile(CONTENT.get(0)), EntityHelper.APPLICATION_X_JACKSON_SMILE_TYPE, Map.class);
+        assertEquals(actual, CONTENT.get(0));
+    }
+
+    @Test
+    public void testGetSmileEntityList() throws Exception {
+        List<Map<String, Object>> actual = EntityHelper.getEntity(smile(CONTENT), EntityHelper.APPLICATION_X_JACKSON_SMILE_TYPE,
+                new TypeReference<List<Map<String, Object>>>() {});
+        assertEquals(actual, CONTENT);
+    }
+
+    @Test
+    public void testStreamSmileEntities() throws Exception {
+        Iterator<Map<String, Object>> actual = EntityHelper.getEntity(smile(CONTENT), EntityHelper.APPLICATION_X_JACKSON_SMILE_TYPE,
+                new TypeReference<Iterator<Map<String, Object>>>() {});
+        assertEquals(ImmutableList.copyOf(actual), CONTENT);
+    }
+
+    @Test
+    public void testJsonEntityWithJsonContentType() throws Exception {
+        Iterator<Map<String, Object>> actual = EntityHelper.getEntity(json(CONTENT), MediaType.APPLICATION_JSON_TYPE,
+                new TypeReference<Iterator<Map<String, Object>>>() {});
+        assertEquals(ImmutableList.copyOf(actual), CONTENT);
+    }
+
+    private static InputStream smile(Object value) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonHelper.writeSmile(out, value);
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    private static InputStream json(Object value) {
+        return new ByteArrayInputStream(JsonHelper.asUtf8Bytes(value));
+    }
+}
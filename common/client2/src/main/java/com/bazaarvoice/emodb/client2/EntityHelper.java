@@ -1,11 +1,15 @@
 package com.bazaarvoice.emodb.client2;
 
+import com.bazaarvoice.emodb.common.json.CustomJsonObjectMapperFactory;
 import com.bazaarvoice.emodb.common.json.JsonHelper;
 import com.bazaarvoice.emodb.common.json.JsonStreamingArrayParser;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.google.common.base.Throwables;
 import com.google.common.collect.PeekingIterator;
 
+import javax.ws.rs.core.MediaType;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.ParameterizedType;
@@ -17,17 +21,48 @@ import java.util.Iterator;
  */
 abstract public class EntityHelper {
 
+    /**
+     * Media type for responses encoded as Smile, a binary equivalent of JSON which is smaller and faster to parse.
+     * Clients may accept this in addition to JSON for large responses; servers which don't support it respond with JSON.
+     * Constructed directly since {@link MediaType#valueOf(String)} requires a JAX-RS implementation on the classpath.
+     */
+    public static final MediaType APPLICATION_X_JACKSON_SMILE_TYPE = new MediaType("application", "x-jackson-smile");
+
+    private static final ObjectMapper SMILE = CustomJsonObjectMapperFactory.build(new SmileFactory());
+
+    /**
+     * Returns true if content of the given media type can be deserialized by this class.
+     */
+    public static boolean isJsonOrSmile(MediaType mediaType) {
+        return MediaType.APPLICATION_JSON_TYPE.equals(mediaType) || isSmile(mediaType);
+    }
+
+    /**
+     * Returns true if content of the given media type is Smile, regardless of any media type parameters.
+     */
+    public static boolean isSmile(MediaType mediaType) {
+        return mediaType != null && JsonHelper.isSmileMediaType(mediaType.getType(), mediaType.getSubtype());
+    }
+
     /**
      * Reads the entity input stream and deserializes the JSON content to the given class.
      */
     public static <T> T getEntity(InputStream in, Class<T> clazz) {
+        return getEntity(in, MediaType.APPLICATION_JSON_TYPE, clazz);
+    }
+
+    /**
+     * Reads the entity input stream and deserializes the content to the given class.  The content is read as Smile
+     * if the content type is Smile, otherwise it is read as JSON.
+     */
+    public static <T> T getEntity(InputStream in, MediaType contentType, Class<T> clazz) {
         if (clazz == InputStream.class) {
             //noinspection unchecked
             return (T) clazz;
         }
 
         try {
-            return JsonHelper.readJson(in, clazz);
+            return isSmile(contentType) ? SMILE.readValue(in, clazz) : JsonHelper.readJson(in, clazz);
         } catch (IOException e) {
             throw Throwables.propagate(e);
         }
@@ -38,20 +73,30 @@ abstract public class EntityHelper {
      * type reference is for an iterator then a {@link JsonStreamingArrayParser} will be returned to stream
      * the deserialized contents to the caller.
      */
-    @SuppressWarnings("unchecked")
     public static <T> T getEntity(InputStream in, TypeReference<T> reference) {
+        return getEntity(in, MediaType.APPLICATION_JSON_TYPE, reference);
+    }
+
+    /**
+     * Same as {@link #getEntity(InputStream, TypeReference)} except the content is read as Smile if the content
+     * type is Smile.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T getEntity(InputStream in, MediaType contentType, TypeReference<T> reference) {
+        boolean smile = isSmile(contentType);
+
         // If the entity type is an iterator then return a streaming iterator to prevent Jackson instantiating
         // the entire response in memory.
         Type type = reference.getType();
         if (type instanceof ParameterizedType &&
                 Iterator.class.isAssignableFrom((Class<?>) ((ParameterizedType) type).getRawType())) {
             Type elementType = ((ParameterizedType) type).getActualTypeArguments()[0];
-            return (T) streamingIterator(in, typeReferenceFrom(elementType));
+            return (T) streamingIterator(in, smile, typeReferenceFrom(elementType));
         }
 
         // Use Jackson to deserialize the input stream.
         try {
-            return JsonHelper.readJson(in, reference);
+            return smile ? SMILE.readValue(in, reference) : JsonHelper.readJson(in, reference);
         } catch (IOException e) {
             throw Throwables.propagate(e);
         }
@@ -69,8 +114,10 @@ abstract public class EntityHelper {
         };
     }
 
-    private static <T> Iterator<T> streamingIterator(InputStream in, TypeReference<T> typeReference) {
-        PeekingIterator<T> iter = new JsonStreamingArrayParser<>(in, typeReference);
+    private static <T> Iterator<T> streamingIterator(InputStream in, boolean smile, TypeReference<T> typeReference) {
+        PeekingIterator<T> iter = smile ?
+                new JsonStreamingArrayParser<>(in, SMILE, typeReference) :
+                new JsonStreamingArrayParser<>(in, typeReference);
 
         // Fetch the first element in the result stream immediately, while still wrapped by the Ostrich retry logic.
         // If we can't get the first element then Ostrich should retry immediately.  If we fail to get subsequent
@@ -107,10 +107,10 @@ public class JerseyEmoResource implements EmoResource {
                 throw new UniformInterfaceException(response);
             }
 
-            if (!response.getType().equals(MediaType.APPLICATION_JSON_TYPE)) {
+            if (!EntityHelper.isJsonOrSmile(response.getType())) {
                 return response.getEntity(responseType);
             }
-            return EntityHelper.getEntity(response.getEntity(InputStream.class), responseType);
+            return EntityHelper.getEntity(response.getEntity(InputStream.class), response.getType(), responseType);
         } catch (UniformInterfaceException e) {
             throw asEmoClientException(e);
         }
@@ -122,11 +122,16 @@ public class JerseyEmoResource implements EmoResource {
      */
     private <T> T send(String method, TypeReference<T> responseType, @Nullable Object entity) {
         try {
-            InputStream responseStream = entity == null ?
-                    builder().method(method, InputStream.class) :
-                    builder().method(method, InputStream.class, entity);
+            ClientResponse response = entity == null ?
+                    builder().method(method, ClientResponse.class) :
+                    builder().method(method, ClientResponse.class, entity);
+
+            if (response.getStatus() >= 300) {
+                throw new UniformInterfaceException(response);
+            }
 
-            return EntityHelper.getEntity(responseStream, responseType);
+            // The response type determines whether the entity is JSON or Smile
+            return EntityHelper.getEntity(response.getEntity(InputStream.class), response.getType(), responseType);
         } catch (UniformInterfaceException e) {
             throw asEmoClientException(e);
         }
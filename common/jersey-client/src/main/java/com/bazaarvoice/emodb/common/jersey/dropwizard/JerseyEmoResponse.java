@@ -5,7 +5,6 @@ import com.bazaarvoice.emodb.client.EntityHelper;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.sun.jersey.api.client.ClientResponse;
 
-import javax.ws.rs.core.MediaType;
 import java.io.InputStream;
 import java.net.URI;
 import java.util.Date;
@@ -58,16 +57,16 @@ public class JerseyEmoResponse implements EmoResponse {
 
     @Override
     public <T> T getEntity(Class<T> clazz) {
-        // Don't attempt to read the entity as JSON unless the header indicates to do so.
-        if (MediaType.APPLICATION_JSON_TYPE.equals(_response.getType())) {
-            return EntityHelper.getEntity(getEntityInputStream(), clazz);
+        // Don't attempt to read the entity as JSON or Smile unless the header indicates to do so.
+        if (EntityHelper.isJsonOrSmile(_response.getType())) {
+            return EntityHelper.getEntity(getEntityInputStream(), _response.getType(), clazz);
         }
         return _response.getEntity(clazz);
     }
 
     @Override
     public <T> T getEntity(TypeReference<T> type) {
-        return EntityHelper.getEntity(getEntityInputStream(), type);
+        return EntityHelper.getEntity(getEntityInputStream(), _response.getType(), type);
     }
 
     @Override
@@ -125,11 +125,11 @@ public class Jersey2EmoResource implements EmoResource {
                 throw new WebApplicationException(response);
             }
 
-            if (!response.getMediaType().equals(MediaType.APPLICATION_JSON_TYPE)) {
+            if (!EntityHelper.isJsonOrSmile(response.getMediaType())) {
                 LOG.error("response type is {} [{}]", responseType.toString(), responseType.toGenericString());
                 return response.readEntity(responseType);
             }
-            return EntityHelper.getEntity(response.readEntity(InputStream.class), responseType);
+            return EntityHelper.getEntity(response.readEntity(InputStream.class), response.getMediaType(), responseType);
         } catch (WebApplicationException e) {
             throw asEmoClientException(e);
         }
@@ -141,11 +141,16 @@ public class Jersey2EmoResource implements EmoResource {
      */
     private <T> T send(String method, TypeReference<T> responseType, @Nullable Object entity) {
         try {
-            InputStream responseStream = entity == null ?
-                    builder().method(method, InputStream.class) :
-                    builder().method(method, Entity.entity(entity, type()), InputStream.class);
+            Response response = entity == null ?
+                    builder().method(method) :
+                    builder().method(method, Entity.entity(entity, type()));
+
+            if (!response.getStatusInfo().getFamily().equals(Response.Status.Family.SUCCESSFUL)) {
+                throw new WebApplicationException(response);
+            }
 
-            return EntityHelper.getEntity(responseStream, responseType);
+            // The response type determines whether the entity is JSON or Smile
+            return EntityHelper.getEntity(response.readEntity(InputStream.class), response.getMediaType(), responseType);
         } catch (WebApplicationException e) {
             throw asEmoClientException(e);
         }
@@ -4,7 +4,6 @@ import com.bazaarvoice.emodb.client2.EmoResponse;
 import com.bazaarvoice.emodb.client2.EntityHelper;
 import com.fasterxml.jackson.core.type.TypeReference;
 
-import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.io.InputStream;
 import java.net.URI;
@@ -58,16 +57,16 @@ public class Jersey2EmoResponse implements EmoResponse {
 
     @Override
     public <T> T getEntity(Class<T> clazz) {
-        // Don't attempt to read the entity as JSON unless the header indicates to do so.
-        if (MediaType.APPLICATION_JSON_TYPE.equals(_response.getMediaType())) {
-            return EntityHelper.getEntity(getEntityInputStream(), clazz);
+        // Don't attempt to read the entity as JSON or Smile unless the header indicates to do so.
+        if (EntityHelper.isJsonOrSmile(_response.getMediaType())) {
+            return EntityHelper.getEntity(getEntityInputStream(), _response.getMediaType(), clazz);
         }
         return _response.readEntity(clazz);
     }
 
     @Override
     public <T> T getEntity(TypeReference<T> type) {
-        return EntityHelper.getEntity(getEntityInputStream(), type);
+        return EntityHelper.getEntity(getEntityInputStream(), _response.getMediaType(), type);
     }
 
     @Override
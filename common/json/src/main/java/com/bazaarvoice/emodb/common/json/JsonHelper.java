@@ -1,11 +1,13 @@
 package com.bazaarvoice.emodb.common.json;
 
 import com.bazaarvoice.emodb.common.json.deferred.LazyJsonModule;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.util.ISO8601Utils;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.google.common.base.Throwables;
 
 import javax.annotation.Nullable;
@@ -24,6 +26,24 @@ public abstract class JsonHelper {
 
     private static final ObjectWriter DEFAULT_WRITER = JSON.writer();
 
+    /** Media type for content encoded as Smile, Jackson's binary equivalent of JSON. */
+    public static final String SMILE_MEDIA_TYPE = "application/x-jackson-smile";
+
+    // Smile is configured identically to JSON so either produces the same values when read back
+    private static final ObjectMapper SMILE = CustomJsonObjectMapperFactory.build(new SmileFactory())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .registerModule(new LazyJsonModule());
+
+    private static final ObjectWriter DEFAULT_SMILE_WRITER = SMILE.writer();
+
+    /**
+     * Returns true if a media type with the given type and subtype is {@link #SMILE_MEDIA_TYPE}.  Parameters are
+     * ignored, so callers with a JAX-RS media type should pass its type and subtype.
+     */
+    public static boolean isSmileMediaType(@Nullable String type, @Nullable String subtype) {
+        return type != null && subtype != null && SMILE_MEDIA_TYPE.equalsIgnoreCase(type + "/" + subtype);
+    }
+
     public static String asJson(Object value) {
         return asJson(value, DEFAULT_WRITER);
     }
@@ -61,6 +81,21 @@ public abstract class JsonHelper {
         writer.writeValue(out, value);
     }
 
+    public static void writeSmile(OutputStream out, Object value)
+            throws IOException {
+        writeJson(out, value, DEFAULT_SMILE_WRITER);
+    }
+
+    public static <T> T readSmile(InputStream in, Class<T> valueType)
+            throws IOException {
+        return SMILE.readValue(in, valueType);
+    }
+
+    public static <T> T readSmile(InputStream in, TypeReference<T> reference)
+            throws IOException {
+        return SMILE.readValue(in, reference);
+    }
+
     public static <T> T fromJson(String string, Class<T> valueType) {
         try {
             return JSON.readValue(string, valueType);
@@ -98,6 +133,12 @@ public abstract class JsonHelper {
         return JSON.readValue(in, reference);
     }
 
+    /** Reads the value at the parser's current token, leaving the parser positioned on the value's last token. */
+    public static <T> T readJson(JsonParser parser, Class<T> valueType)
+            throws IOException {
+        return JSON.readValue(parser, valueType);
+    }
+
     /** Convert from one pojo format to another pojo format. */
     public static <T> T convert(Object source, Class<T> destType) {
         return JSON.convertValue(source, destType);
@@ -137,14 +178,16 @@ public abstract class JsonHelper {
      * <code>JsonHelper.withView(PublicView.class).asJson(instance)</code>
      */
     public static JsonWriterWithViewHelper withView(Class view) {
-        return new JsonWriterWithViewHelper(JSON.writerWithView(view));
+        return new JsonWriterWithViewHelper(JSON.writerWithView(view), SMILE.writerWithView(view));
     }
 
     public static class JsonWriterWithViewHelper {
         private final ObjectWriter _writer;
+        private final ObjectWriter _smileWriter;
 
-        private JsonWriterWithViewHelper(ObjectWriter writer) {
+        private JsonWriterWithViewHelper(ObjectWriter writer, ObjectWriter smileWriter) {
             _writer = writer;
+            _smileWriter = smileWriter;
         }
 
         public String asJson(Object value) {
@@ -159,5 +202,10 @@ public abstract class JsonHelper {
                 throws IOException {
             JsonHelper.writeJson(out, value, _writer);
         }
+
+        public void writeSmile(OutputStream out, Object value)
+                throws IOException {
+            JsonHelper.writeJson(out, value, _smileWriter);
+        }
     }
 }
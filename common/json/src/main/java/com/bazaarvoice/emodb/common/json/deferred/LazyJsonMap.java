@@ -3,17 +3,24 @@ package com.bazaarvoice.emodb.common.json.deferred;
 import com.bazaarvoice.emodb.common.json.JsonHelper;
 import com.bazaarvoice.emodb.common.json.OrderedJson;
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.util.JsonGeneratorDelegate;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.google.common.collect.Maps;
 
 import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
@@ -49,6 +56,11 @@ import static java.util.Objects.requireNonNull;
  * the implementation lazily deserializes the JSON into a <code>Map</code>, which in the end doesn't perform any additional
  * work beyond what would have been done were the JSON deserialized to a <code>Map</code> in the first place.
  *
+ * The JSON can also be provided as the UTF-8 bytes read from the backend, which avoids decoding the bytes into a
+ * <code>String</code> entirely when the map is only serialized.  In this form the first call to {@link #get(Object)}
+ * or {@link #containsKey(Object)} scans the bytes once to index where each top-level value starts, after which scalar
+ * values are decoded individually without deserializing the rest of the object.
+ *
  * This implementation is not thread safe on updates such as {@link #put(String, Object)}.  Because the underlying map
  * may be lazily deserialized a race condition could result in updates being lost if the instance is updated concurrently
  * by multiple threads.
@@ -62,6 +74,8 @@ import static java.util.Objects.requireNonNull;
 @JsonSerialize(using = LazyJsonMapSerializer.class)
 public class LazyJsonMap implements Map<String, Object> {
 
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
     private final AtomicReference<DeserializationState> _deserState;
 
     @JsonCreator
@@ -69,6 +83,14 @@ public class LazyJsonMap implements Map<String, Object> {
         this(new DeserializationState(requireNonNull(json, "json")));
     }
 
+    /**
+     * Creates a map from the UTF-8 encoded bytes of a JSON object.  The array is used directly and must not be
+     * modified afterward.
+     */
+    public LazyJsonMap(byte[] utf8) {
+        this(new DeserializationState(new Utf8Json(requireNonNull(utf8, "utf8"))));
+    }
+
     private LazyJsonMap(DeserializationState deserState) {
         _deserState = new AtomicReference<>(deserState);
     }
@@ -76,20 +98,29 @@ public class LazyJsonMap implements Map<String, Object> {
     /**
      * At any time the map could be in one of two states:
      * <ol>
-     *     <li>JSON string, in which case the state consists of the original JSON string and a map of any updates
-     *         which have been performed on the map, and</li>
+     *     <li>JSON, in which case the state consists of the original JSON as either a string or UTF-8 bytes and a map
+     *         of any updates which have been performed on the map, and</li>
      *     <li>Deserialized, in which case the state consists of the Java Map object representation.</li>
      * </ol>
      */
     private static class DeserializationState {
-        // Initial JSON string attributes
+        // Initial JSON attributes; only one of json or utf8 is set
         private final String json;
+        private final Utf8Json utf8;
         private final Map<String, Object> overrides;
         // Deserialized attributes
         private final Map<String, Object> deserialized;
 
         DeserializationState(String json) {
             this.json = json;
+            this.utf8 = null;
+            this.overrides = Maps.newHashMap();
+            this.deserialized = null;
+        }
+
+        DeserializationState(Utf8Json utf8) {
+            this.json = null;
+            this.utf8 = utf8;
             this.overrides = Maps.newHashMap();
             this.deserialized = null;
         }
@@ -97,6 +128,7 @@ public class LazyJsonMap implements Map<String, Object> {
         DeserializationState(Map<String, Object> deserialized) {
             this.deserialized = deserialized;
             this.json = null;
+            this.utf8 = null;
             this.overrides = null;
         }
 
@@ -109,11 +141,110 @@ public class LazyJsonMap implements Map<String, Object> {
             if (deserialized != null) {
                 copy = new DeserializationState(Maps.newHashMap(deserialized));
             } else {
-                copy = new DeserializationState(json);
+                // The UTF-8 source, including its index, is immutable and can be shared between copies
+                copy = utf8 != null ? new DeserializationState(utf8) : new DeserializationState(json);
                 copy.overrides.putAll(overrides);
             }
             return copy;
         }
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> deserializeJson() {
+            if (utf8 != null) {
+                return JsonHelper.fromUtf8Bytes(utf8.bytes, 0, utf8.bytes.length, Map.class);
+            }
+            return JsonHelper.fromJson(json, new TypeReference<Map<String, Object>>() {});
+        }
+
+        JsonParser createParser(JsonFactory factory) throws IOException {
+            return utf8 != null ? factory.createParser(utf8.bytes) : factory.createParser(json);
+        }
+    }
+
+    /**
+     * UTF-8 encoded JSON object along with an index of the top-level fields which is built on first use.
+     */
+    private static class Utf8Json {
+        private static final byte[] OBJECT_START = {'{'};
+
+        private final byte[] bytes;
+        private volatile Map<String, IndexedValue> index;
+
+        Utf8Json(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        Map<String, IndexedValue> index() {
+            Map<String, IndexedValue> index = this.index;
+            if (index == null) {
+                // Building the index is idempotent, so there's no harm if multiple threads race to build it
+                this.index = index = buildIndex();
+            }
+            return index;
+        }
+
+        private Map<String, IndexedValue> buildIndex() {
+            Map<String, IndexedValue> index = new HashMap<>();
+            try (JsonParser parser = JSON_FACTORY.createParser(bytes)) {
+                checkState(parser.nextToken() == JsonToken.START_OBJECT, "JSON did not contain an object");
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    // Index the field name rather than its value.  Jackson reads a field name and the value which
+                    // follows together, so the value's token location may still be that of the field name.  The field
+                    // name's own location may be that of the separator before it, so advance to its opening quote.
+                    int offset = (int) parser.getTokenLocation().getByteOffset();
+                    while (bytes[offset] != '"') {
+                        offset++;
+                    }
+                    JsonToken token = parser.nextToken();
+                    // Jackson deserializes duplicate keys as last-one-wins, so the index does the same
+                    index.put(field, new IndexedValue(offset, token.isScalarValue()));
+                    if (token.isStructStart()) {
+                        parser.skipChildren();
+                    }
+                }
+            } catch (IOException e) {
+                // Must be malformed JSON.  Other kinds of I/O errors don't get thrown when reading from bytes.
+                throw new IllegalArgumentException(e.toString());
+            }
+            return index;
+        }
+
+        Object decode(IndexedValue value) {
+            // A parser started at the field would read its name as a root-level value, so present the field and
+            // everything after it as the start of an object.  Reading stops at the end of the value, so the remainder
+            // of the object is never parsed.
+            InputStream in = new SequenceInputStream(new ByteArrayInputStream(OBJECT_START),
+                    new ByteArrayInputStream(bytes, value.offset, bytes.length - value.offset));
+            try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+                checkState(parser.nextToken() == JsonToken.START_OBJECT && parser.nextToken() == JsonToken.FIELD_NAME,
+                        "Index did not reference a field");
+                parser.nextToken();
+                return JsonHelper.readJson(parser, Object.class);
+            } catch (IOException e) {
+                // Must be malformed JSON.  Other kinds of I/O errors don't get thrown when reading from bytes.
+                throw new IllegalArgumentException(e.toString());
+            }
+        }
+
+        boolean containsQuote() {
+            for (byte b : bytes) {
+                if (b == '"') {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class IndexedValue {
+        private final int offset;
+        private final boolean scalar;
+
+        IndexedValue(int offset, boolean scalar) {
+            this.offset = offset;
+            this.scalar = scalar;
+        }
     }
 
     /**
@@ -123,7 +254,7 @@ public class LazyJsonMap implements Map<String, Object> {
         // Written as a loop to prevent the need for locking
         DeserializationState deserState;
         while (!(deserState = _deserState.get()).isDeserialized()) {
-            Map<String, Object> deserialized = JsonHelper.fromJson(deserState.json, new TypeReference<Map<String, Object>>() {});
+            Map<String, Object> deserialized = deserState.deserializeJson();
             deserialized.putAll(deserState.overrides);
             DeserializationState newDeserState = new DeserializationState(deserialized);
             _deserState.compareAndSet(deserState, newDeserState);
@@ -140,7 +271,12 @@ public class LazyJsonMap implements Map<String, Object> {
         // If the JSON is empty it will contain only '{', '}', and possibly white space.  If it is not empty it must
         // contain at least one '"' to open the first field name string.  So a shortcut to test emptiness is to check
         // whether '"' does not exist in the string.
-        return deserializationState.overrides.isEmpty() && deserializationState.json.indexOf('"') == -1;
+        if (!deserializationState.overrides.isEmpty()) {
+            return false;
+        }
+        return deserializationState.utf8 != null ?
+                !deserializationState.utf8.containsQuote() :
+                deserializationState.json.indexOf('"') == -1;
     }
 
     @Override
@@ -150,7 +286,13 @@ public class LazyJsonMap implements Map<String, Object> {
             return deserializationState.deserialized.containsKey(key);
         }
         // If the overrides contains the key then we can still hold off on deserializing the map
-        return deserializationState.overrides.containsKey(key) || deserialized().containsKey(key);
+        if (deserializationState.overrides.containsKey(key)) {
+            return true;
+        }
+        if (deserializationState.utf8 != null) {
+            return deserializationState.utf8.index().containsKey(key);
+        }
+        return deserialized().containsKey(key);
     }
 
     @Override
@@ -173,6 +315,17 @@ public class LazyJsonMap implements Map<String, Object> {
         if (deserializationState.overrides.containsKey(key)) {
             return deserializationState.overrides.get(key);
         }
+        if (deserializationState.utf8 != null) {
+            IndexedValue value = deserializationState.utf8.index().get(key);
+            if (value == null) {
+                return null;
+            }
+            // Scalars are immutable and can be decoded on their own.  Objects and arrays may be modified by the
+            // caller, so for those deserialize the whole map so the changes are retained.
+            if (value.scalar) {
+                return deserializationState.utf8.decode(value);
+            }
+        }
         return deserialized().get(key);
     }
 
@@ -237,6 +390,16 @@ public class LazyJsonMap implements Map<String, Object> {
         return deserialized().size();
     }
 
+    /**
+     * Returns true if the generator, or the generator it delegates to, writes JSON text.
+     */
+    private static boolean isJsonGenerator(JsonGenerator generator) {
+        while (generator instanceof JsonGeneratorDelegate) {
+            generator = ((JsonGeneratorDelegate) generator).getDelegate();
+        }
+        return generator instanceof JsonGeneratorImpl;
+    }
+
     /**
      * Writes this record to the provided generator in the most efficient manner possible in the current state.
      */
@@ -249,10 +412,16 @@ public class LazyJsonMap implements Map<String, Object> {
             return;
         }
 
-        if (deserState.overrides.isEmpty()) {
+        // Only a JSON generator can embed the original JSON, other formats such as Smile take the copying path below
+        if (deserState.overrides.isEmpty() && isJsonGenerator(generator)) {
             // With no overrides the most efficient action is to copy the original JSON verbatim.
             try {
-                generator.writeRaw(deserState.json);
+                if (deserState.utf8 != null) {
+                    // Byte-oriented generators copy the bytes as-is; others decode them to a string
+                    generator.writeRaw(new RawUtf8String(deserState.utf8.bytes));
+                } else {
+                    generator.writeRaw(deserState.json);
+                }
                 return;
             } catch (UnsupportedOperationException e) {
                 // Not all parsers are guaranteed to support this.  If this is one then use the default
@@ -267,7 +436,13 @@ public class LazyJsonMap implements Map<String, Object> {
             return;
         }
 
-        try (JsonParser parser = codec.getFactory().createParser(deserState.json)) {
+        // The codec may be for a format other than JSON, in which case the original JSON can't be parsed using its factory
+        JsonFactory factory = codec.getFactory();
+        if (!JsonFactory.FORMAT_NAME_JSON.equals(factory.getFormatName())) {
+            factory = JSON_FACTORY;
+        }
+
+        try (JsonParser parser = deserState.createParser(factory)) {
             checkState(parser.nextToken() == JsonToken.START_OBJECT, "JSON did not contain an object");
             generator.writeStartObject();
 
@@ -0,0 +1,114 @@
+package com.bazaarvoice.emodb.common.json.deferred;
+
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link SerializableString} around raw UTF-8 encoded JSON.  Passing this to
+ * {@link com.fasterxml.jackson.core.JsonGenerator#writeRaw(SerializableString)} lets byte-oriented generators copy
+ * the bytes directly to the output.  Character-oriented generators call {@link #getValue()}, which decodes the bytes
+ * once on demand.
+ *
+ * Only the unquoted forms are meaningful for raw JSON; the quoted forms are supported for completeness.
+ */
+class RawUtf8String implements SerializableString {
+
+    private final byte[] _utf8;
+    private volatile SerializedString _decoded;
+
+    RawUtf8String(byte[] utf8) {
+        _utf8 = utf8;
+    }
+
+    private SerializedString decoded() {
+        SerializedString decoded = _decoded;
+        if (decoded == null) {
+            _decoded = decoded = new SerializedString(new String(_utf8, StandardCharsets.UTF_8));
+        }
+        return decoded;
+    }
+
+    @Override
+    public String getValue() {
+        return decoded().getValue();
+    }
+
+    @Override
+    public int charLength() {
+        return decoded().charLength();
+    }
+
+    @Override
+    public char[] asQuotedChars() {
+        return decoded().asQuotedChars();
+    }
+
+    @Override
+    public byte[] asUnquotedUTF8() {
+        return _utf8;
+    }
+
+    @Override
+    public byte[] asQuotedUTF8() {
+        return decoded().asQuotedUTF8();
+    }
+
+    @Override
+    public int appendQuotedUTF8(byte[] buffer, int offset) {
+        return decoded().appendQuotedUTF8(buffer, offset);
+    }
+
+    @Override
+    public int appendQuoted(char[] buffer, int offset) {
+        return decoded().appendQuoted(buffer, offset);
+    }
+
+    @Override
+    public int appendUnquotedUTF8(byte[] buffer, int offset) {
+        if (offset + _utf8.length > buffer.length) {
+            return -1;
+        }
+        System.arraycopy(_utf8, 0, buffer, offset, _utf8.length);
+        return _utf8.length;
+    }
+
+    @Override
+    public int appendUnquoted(char[] buffer, int offset) {
+        return decoded().appendUnquoted(buffer, offset);
+    }
+
+    @Override
+    public int writeQuotedUTF8(OutputStream out) throws IOException {
+        return decoded().writeQuotedUTF8(out);
+    }
+
+    @Override
+    public int writeUnquotedUTF8(OutputStream out) throws IOException {
+        out.write(_utf8);
+        return _utf8.length;
+    }
+
+    @Override
+    public int putQuotedUTF8(ByteBuffer buffer) throws IOException {
+        return decoded().putQuotedUTF8(buffer);
+    }
+
+    @Override
+    public int putUnquotedUTF8(ByteBuffer buffer) throws IOException {
+        if (_utf8.length > buffer.remaining()) {
+            return -1;
+        }
+        buffer.put(_utf8);
+        return _utf8.length;
+    }
+
+    @Override
+    public String toString() {
+        return getValue();
+    }
+}
@@ -6,6 +6,8 @@ import java.text.ParseException;
 import java.util.Date;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 public class JsonHelperTest {
     @Test
@@ -20,4 +22,13 @@ public class JsonHelperTest {
         assertEquals(JsonHelper.parseTimestamp("2013-12-06T23:25:57.023Z"), new Date(1386372357023L));
         assertEquals(JsonHelper.parseTimestamp(null), null);
     }
+
+    @Test
+    public void testIsSmileMediaType() {
+        assertTrue(JsonHelper.isSmileMediaType("application", "x-jackson-smile"));
+        assertTrue(JsonHelper.isSmileMediaType("Application", "X-Jackson-Smile"));
+        assertFalse(JsonHelper.isSmileMediaType("application", "json"));
+        assertFalse(JsonHelper.isSmileMediaType("application", null));
+        assertFalse(JsonHelper.isSmileMediaType(null, null));
+    }
 }
@@ -1,15 +1,21 @@
 package com.bazaarvoice.emodb.common.json.deferred;
 
 import com.bazaarvoice.emodb.common.json.CustomJsonObjectMapperFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.util.JsonGeneratorDelegate;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 import org.testng.annotations.Test;
 
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 
@@ -208,4 +214,148 @@ public class LazyJsonMapTest {
         Map<String, Object> expected = ImmutableMap.of("k1", "v1", "k2", "v22", "k3", "v3");
         assertEquals(actual, expected);
     }
+
+    @Test
+    public void testUtf8GetScalar() {
+        LazyJsonMap map = utf8Map("{\"k1\":\"v\u00e91\",\"k2\":{\"nested\":[1,2]},\"k3\":12,\"k4\":null,\"k5\":1.5,\"k6\":false}");
+        assertEquals(map.get("k1"), "v\u00e91");
+        assertEquals(map.get("k3"), 12);
+        assertEquals(map.get("k4"), null);
+        assertEquals(map.get("k5"), 1.5);
+        assertEquals(map.get("k6"), false);
+        assertEquals(map.get("missing"), null);
+        assertTrue(map.containsKey("k4"));
+        assertFalse(map.containsKey("missing"));
+        // None of the above should have required deserializing the entire map
+        assertFalse(map.isDeserialized());
+    }
+
+    @Test
+    public void testUtf8GetScalarWithWhitespace() {
+        LazyJsonMap map = utf8Map(" { \"k1\" : 1 ,\n \"k2\"\t:\"v2\" , \"k3\" : 3 } ");
+        assertEquals(map.get("k1"), 1);
+        assertEquals(map.get("k2"), "v2");
+        assertEquals(map.get("k3"), 3);
+        assertFalse(map.isDeserialized());
+    }
+
+    @Test
+    public void testUtf8GetObject() {
+        LazyJsonMap map = utf8Map("{\"k1\":\"v1\",\"k2\":{\"nested\":[1,2]}}");
+        // Objects and arrays are mutable so retrieving one deserializes the map so updates to it are retained
+        Object actual = map.get("k2");
+        assertEquals(actual, ImmutableMap.of("nested", ImmutableList.of(1, 2)));
+        assertTrue(map.isDeserialized());
+        assertTrue(map.get("k2") == actual);
+    }
+
+    @Test
+    public void testUtf8DuplicateKeys() {
+        LazyJsonMap map = utf8Map("{\"k1\":\"v1\",\"k1\":\"v2\"}");
+        assertEquals(map.get("k1"), "v2");
+        assertEquals(map, ImmutableMap.of("k1", "v2"));
+    }
+
+    @Test
+    public void testUtf8IsEmpty() {
+        assertTrue(utf8Map(" { } ").isEmpty());
+        assertFalse(utf8Map("{\"k1\":1}").isEmpty());
+        LazyJsonMap map = utf8Map("{}");
+        map.put("k1", 1);
+        assertFalse(map.isEmpty());
+    }
+
+    @Test
+    public void testUtf8GetWithOverrides() {
+        LazyJsonMap map = utf8Map("{\"k1\":1,\"k2\":2}");
+        map.put("k1", 100);
+        assertEquals(map.get("k1"), 100);
+        assertEquals(map.get("k2"), 2);
+        assertFalse(map.isDeserialized());
+        assertEquals(map, ImmutableMap.of("k1", 100, "k2", 2));
+    }
+
+    @Test
+    public void testUtf8LazyCopy() {
+        LazyJsonMap map = utf8Map("{\"k1\":\"v1\",\"k2\":\"v2\"}");
+        map.put("k3", "v3");
+        LazyJsonMap copy = map.lazyCopy();
+        copy.put("k2", "v22");
+        assertEquals(copy.get("k1"), "v1");
+        assertEquals(map.get("k2"), "v2");
+        assertEquals(copy, ImmutableMap.of("k1", "v1", "k2", "v22", "k3", "v3"));
+        assertFalse(map.isDeserialized());
+    }
+
+    @Test
+    public void testUtf8JsonSerialize() throws Exception {
+        String json = "{\"k1\":\"v\u00e91\",\"k2\":[\"\u2603\"]}";
+        LazyJsonMap map = utf8Map(json);
+
+        ObjectMapper objectMapper = CustomJsonObjectMapperFactory.build();
+        objectMapper.registerModule(new LazyJsonModule());
+
+        // Both byte and character based generators should produce the original JSON
+        assertEquals(new String(objectMapper.writeValueAsBytes(map), StandardCharsets.UTF_8), json);
+        assertEquals(objectMapper.writeValueAsString(map), json);
+        assertFalse(map.isDeserialized());
+    }
+
+    @Test
+    public void testUtf8JsonSerializeWithOverrides() throws Exception {
+        LazyJsonMap map = utf8Map("{\"k1\":\"v1\",\"k2\":\"v2\"}");
+        map.put("k2", "v22");
+        map.put("k3", "v3");
+
+        ObjectMapper objectMapper = CustomJsonObjectMapperFactory.build();
+        objectMapper.registerModule(new LazyJsonModule());
+
+        Map<String, Object> actual = objectMapper.readValue(objectMapper.writeValueAsBytes(map), new TypeReference<Map<String, Object>>() {});
+        assertEquals(actual, ImmutableMap.of("k1", "v1", "k2", "v22", "k3", "v3"));
+        assertFalse(map.isDeserialized());
+    }
+
+    @Test
+    public void testSmileSerialize() throws Exception {
+        LazyJsonMap stringMap = new LazyJsonMap("{\"k1\":\"v\u00e91\",\"k2\":[1,2.5,{\"k3\":null}]}");
+        LazyJsonMap utf8Map = utf8Map("{\"k1\":\"v\u00e91\",\"k2\":[1,2.5,{\"k3\":null}]}");
+        LazyJsonMap overriddenMap = utf8Map("{\"k1\":\"v1\",\"k2\":\"v2\"}");
+        overriddenMap.put("k2", "v22");
+
+        ObjectMapper objectMapper = CustomJsonObjectMapperFactory.build(new SmileFactory());
+        objectMapper.registerModule(new LazyJsonModule());
+
+        // Smile can't embed the raw JSON so it must be transcoded, but without deserializing the map
+        Map<String, Object> expected = ImmutableMap.of("k1", "v\u00e91", "k2", ImmutableList.of(1, 2.5, Collections.singletonMap("k3", null)));
+        for (LazyJsonMap map : ImmutableList.of(stringMap, utf8Map)) {
+            Map<String, Object> actual = objectMapper.readValue(objectMapper.writeValueAsBytes(map), new TypeReference<Map<String, Object>>() {});
+            assertEquals(actual, expected);
+            assertFalse(map.isDeserialized());
+        }
+
+        Map<String, Object> actual = objectMapper.readValue(objectMapper.writeValueAsBytes(overriddenMap), new TypeReference<Map<String, Object>>() {});
+        assertEquals(actual, ImmutableMap.of("k1", "v1", "k2", "v22"));
+        assertFalse(overriddenMap.isDeserialized());
+    }
+
+    @Test
+    public void testDelegatingJsonGeneratorCopiesRawJson() throws Exception {
+        String json = "{\"k1\": \"v1\",  \"k2\": [1, 2]}";
+        LazyJsonMap map = new LazyJsonMap(json);
+
+        ObjectMapper objectMapper = CustomJsonObjectMapperFactory.build();
+        objectMapper.registerModule(new LazyJsonModule());
+
+        // A generator wrapping a JSON generator still writes JSON, so the original text is copied verbatim
+        StringWriter out = new StringWriter();
+        try (JsonGenerator generator = new JsonGeneratorDelegate(objectMapper.getFactory().createGenerator(out))) {
+            objectMapper.writeValue(generator, map);
+        }
+        assertEquals(out.toString(), json);
+        assertFalse(map.isDeserialized());
+    }
+
+    private static LazyJsonMap utf8Map(String json) {
+        return new LazyJsonMap(json.getBytes(StandardCharsets.UTF_8));
+    }
 }
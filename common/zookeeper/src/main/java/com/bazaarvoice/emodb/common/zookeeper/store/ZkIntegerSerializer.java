@@ -0,0 +1,13 @@
+package com.bazaarvoice.emodb.common.zookeeper.store;
+
+public class ZkIntegerSerializer implements ZkValueSerializer<Integer> {
+    @Override
+    public String toString(Integer value) {
+        return value.toString();
+    }
+
+    @Override
+    public Integer fromString(String string) {
+        return Integer.parseInt(string);
+    }
+}
@@ -5,6 +5,7 @@ import com.bazaarvoice.emodb.auth.proxy.Credential;
 import com.bazaarvoice.emodb.client.EmoClient;
 import com.bazaarvoice.emodb.client.EmoClientException;
 import com.bazaarvoice.emodb.client.EmoResponse;
+import com.bazaarvoice.emodb.client.EntityHelper;
 import com.bazaarvoice.emodb.client.uri.EmoUriBuilder;
 import com.bazaarvoice.emodb.common.api.ServiceUnavailableException;
 import com.bazaarvoice.emodb.common.api.Ttls;
@@ -199,6 +200,7 @@ public class DatabusClient implements AuthDatabus {
                     .queryParam("includeTags", "true")
                     .build();
             return _client.resource(uri)
+                    .accept(EntityHelper.APPLICATION_X_JACKSON_SMILE_TYPE)
                     .accept(MediaType.APPLICATION_JSON_TYPE)
                     .header(ApiKeyRequest.AUTHENTICATION_HEADER, apiKey)
                     .get(new TypeReference<Iterator<Event>>() {});
@@ -215,6 +217,7 @@ public class DatabusClient implements AuthDatabus {
         URI uri = getPollUriBuilder(subscription, claimTtl, limit).build();
         EmoResponse response = _client.resource(uri)
                 .queryParam("includeTags", "true")
+                .accept(EntityHelper.APPLICATION_X_JACKSON_SMILE_TYPE)
                 .accept(MediaType.APPLICATION_JSON_TYPE)
                 .header(ApiKeyRequest.AUTHENTICATION_HEADER, apiKey)
                 .get(EmoResponse.class);
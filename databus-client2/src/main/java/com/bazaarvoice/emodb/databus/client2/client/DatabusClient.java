@@ -4,6 +4,7 @@ import com.bazaarvoice.emodb.auth.apikey.ApiKeyRequest;
 import com.bazaarvoice.emodb.client2.EmoClient;
 import com.bazaarvoice.emodb.client2.EmoClientException;
 import com.bazaarvoice.emodb.client2.EmoResponse;
+import com.bazaarvoice.emodb.client2.EntityHelper;
 import com.bazaarvoice.emodb.common.api.ServiceUnavailableException;
 import com.bazaarvoice.emodb.common.api.Ttls;
 import com.bazaarvoice.emodb.common.api.UnauthorizedException;
@@ -226,6 +227,7 @@ public class DatabusClient implements Databus, Closeable {
             _log.debug("Uri for peek call:{} ", uri.toString());
 
             return _client.resource(uri)
+                    .accept(EntityHelper.APPLICATION_X_JACKSON_SMILE_TYPE)
                     .accept(MediaType.APPLICATION_JSON_TYPE)
                     .header(ApiKeyRequest.AUTHENTICATION_HEADER, _apiKey)
                     .get(new TypeReference<Iterator<Event>>() {
@@ -256,6 +258,7 @@ public class DatabusClient implements Databus, Closeable {
 
             EmoResponse response = _client.resource(uri)
                     .queryParam("includeTags", "true")
+                    .accept(EntityHelper.APPLICATION_X_JACKSON_SMILE_TYPE)
                     .accept(MediaType.APPLICATION_JSON_TYPE)
                     .header(ApiKeyRequest.AUTHENTICATION_HEADER, _apiKey)
                     .get(EmoResponse.class);
@@ -10,11 +10,16 @@ import com.bazaarvoice.emodb.common.dropwizard.leader.LeaderServiceTask;
 import com.bazaarvoice.emodb.common.dropwizard.lifecycle.LifeCycleRegistry;
 import com.bazaarvoice.emodb.common.dropwizard.service.EmoServiceMode;
 import com.bazaarvoice.emodb.common.dropwizard.task.TaskRegistry;
+import com.bazaarvoice.emodb.common.zookeeper.store.MapStore;
 import com.bazaarvoice.emodb.common.zookeeper.store.ValueStore;
 import com.bazaarvoice.emodb.common.zookeeper.store.ZkBooleanSerializer;
+import com.bazaarvoice.emodb.common.zookeeper.store.ZkIntegerSerializer;
+import com.bazaarvoice.emodb.common.zookeeper.store.ZkMapStore;
 import com.bazaarvoice.emodb.common.zookeeper.store.ZkValueStore;
 import com.bazaarvoice.emodb.databus.api.Databus;
 import com.bazaarvoice.emodb.databus.core.CanaryManager;
+import com.bazaarvoice.emodb.databus.core.ConsolidationMonitor;
+import com.bazaarvoice.emodb.databus.core.ConsolidationTask;
 import com.bazaarvoice.emodb.databus.core.DatabusChannelConfiguration;
 import com.bazaarvoice.emodb.databus.core.DatabusEventStore;
 import com.bazaarvoice.emodb.databus.core.DatabusFactory;
@@ -160,6 +165,8 @@ public class DatabusModule extends PrivateModule {
         bind(RateLimitedLogFactory.class).to(DefaultRateLimitedLogFactory.class).asEagerSingleton();
         bind(SubscriptionEvaluator.class).asEagerSingleton();
         bind(DedupMigrationTask.class).asEagerSingleton();
+        bind(ConsolidationMonitor.class).asEagerSingleton();
+        bind(ConsolidationTask.class).asEagerSingleton();
 
         // Expose the event store directly for use by the megabus and debugging APIs
         bind(DatabusEventStore.class).asEagerSingleton();
@@ -208,6 +215,12 @@ public class DatabusModule extends PrivateModule {
                 new ZkValueStore<>(curator, "/settings/replication-enabled", new ZkBooleanSerializer(), true));
     }
 
+    @Provides @Singleton @ConsolidationLimits
+    MapStore<Integer> provideConsolidationLimits(@DatabusZooKeeper CuratorFramework curator,
+                                                 LifeCycleRegistry lifeCycle) {
+        return lifeCycle.manage(new ZkMapStore<>(curator, "/settings/consolidation-limits", new ZkIntegerSerializer()));
+    }
+
     @Provides @Singleton @CachingSubscriptionDAOExecutorService
     ListeningExecutorService provideCachingSubscriptionDAOExecutorService(LifeCycleRegistry lifeCycleRegistry) {
         ListeningExecutorService service = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(
@@ -0,0 +1,142 @@
+package com.bazaarvoice.emodb.databus.core;
+
+import com.bazaarvoice.emodb.common.zookeeper.store.MapStore;
+import com.bazaarvoice.emodb.databus.ConsolidationLimits;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.Inject;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Tracks how much work event consolidation saves or costs during databus peek, poll and queue draining, both in
+ * aggregate through metrics and per subscription for the {@link ConsolidationTask}.  Also holds the limit on how many
+ * events for the same coordinate are consolidated into a single databus event.  The default limit can be raised or
+ * lowered per subscription; limits are stored in ZooKeeper so they apply cluster-wide.
+ */
+public class ConsolidationMonitor {
+
+    /** Don't merge too many duplicate events together by default to avoid event keys getting unreasonably long. */
+    public static final int DEFAULT_MAX_EVENTS_TO_CONSOLIDATE = 1000;
+
+    /**
+     * Bounds for per-subscription limits.  The sink stops reading as soon as any coordinate reaches the limit, so very
+     * low limits would make polls return very few events.
+     */
+    public static final int MIN_EVENTS_TO_CONSOLIDATE_LIMIT = 10;
+
+    /** Hard upper bound for per-subscription limits since each consolidated event adds roughly 40 bytes to the key. */
+    public static final int MAX_EVENTS_TO_CONSOLIDATE_LIMIT = 5000;
+
+    private final MapStore<Integer> _limits;
+    private final LoadingCache<String, SubscriptionStats> _stats;
+    private final Meter _rawEventsMeter;
+    private final Histogram _resolveTimePerEvent;
+
+    @Inject
+    public ConsolidationMonitor(@ConsolidationLimits MapStore<Integer> limits, MetricRegistry metricRegistry) {
+        _limits = requireNonNull(limits, "limits");
+        // Only track subscriptions which are actively read so stats for abandoned subscriptions don't accumulate
+        _stats = CacheBuilder.newBuilder()
+                .expireAfterAccess(1, TimeUnit.HOURS)
+                .maximumSize(10000)
+                .build(new CacheLoader<String, SubscriptionStats>() {
+                    @Override
+                    public SubscriptionStats load(String subscription) throws Exception {
+                        return new SubscriptionStats();
+                    }
+                });
+        _rawEventsMeter = metricRegistry.meter(MetricRegistry.name("bv.emodb.databus", "DefaultDatabus", "raw-events"));
+        _resolveTimePerEvent = metricRegistry.histogram(MetricRegistry.name("bv.emodb.databus", "DefaultDatabus", "resolve-micros-per-event"));
+    }
+
+    /** Returns the maximum number of events for a single coordinate which are consolidated for the subscription. */
+    public int getMaxEventsToConsolidate(String subscription) {
+        Integer limit = _limits.get(subscription);
+        return limit != null ? limit : DEFAULT_MAX_EVENTS_TO_CONSOLIDATE;
+    }
+
+    /** Returns all subscriptions with a non-default consolidation limit. */
+    public Map<String, Integer> getMaxEventsToConsolidateOverrides() {
+        return ImmutableMap.copyOf(_limits.getAll());
+    }
+
+    public void setMaxEventsToConsolidate(String subscription, int limit) throws Exception {
+        _limits.set(subscription, limit);
+    }
+
+    public void resetMaxEventsToConsolidate(String subscription) throws Exception {
+        _limits.remove(subscription);
+    }
+
+    /** Records raw events read from the event store before consolidation. */
+    void rawEventsRead(String subscription, int count) {
+        _rawEventsMeter.mark(count);
+        _stats.getUnchecked(subscription)._rawEvents.add(count);
+    }
+
+    /** Records events which were folded into another event for the same coordinate. */
+    void eventsConsolidated(String subscription, int count) {
+        _stats.getUnchecked(subscription)._consolidatedEvents.add(count);
+    }
+
+    /** Records events for redundant changes which were discarded instead of being returned. */
+    void redundantEventsDropped(String subscription, int count) {
+        _stats.getUnchecked(subscription)._redundantEvents.add(count);
+    }
+
+    /** Records the time taken to resolve a batch of raw events into the given number of returned events. */
+    void eventsResolved(String subscription, int count, long elapsedNanos) {
+        SubscriptionStats stats = _stats.getUnchecked(subscription);
+        stats._resolveNanos.add(elapsedNanos);
+        if (count > 0) {
+            stats._returnedEvents.add(count);
+            _resolveTimePerEvent.update(TimeUnit.NANOSECONDS.toMicros(elapsedNanos) / count);
+        }
+    }
+
+    /** Returns a snapshot of the stats for every subscription read recently by this server. */
+    public Map<String, SubscriptionStats> getStats() {
+        return ImmutableMap.copyOf(_stats.asMap());
+    }
+
+    /** Cumulative consolidation counters for a single subscription. */
+    public static class SubscriptionStats {
+        private final LongAdder _rawEvents = new LongAdder();
+        private final LongAdder _consolidatedEvents = new LongAdder();
+        private final LongAdder _redundantEvents = new LongAdder();
+        private final LongAdder _returnedEvents = new LongAdder();
+        private final LongAdder _resolveNanos = new LongAdder();
+
+        public long getRawEvents() {
+            return _rawEvents.sum();
+        }
+
+        public long getConsolidatedEvents() {
+            return _consolidatedEvents.sum();
+        }
+
+        public long getRedundantEvents() {
+            return _redundantEvents.sum();
+        }
+
+        public long getReturnedEvents() {
+            return _returnedEvents.sum();
+        }
+
+        /** Average time spent resolving raw events per event returned, in microseconds. */
+        public double getResolveMicrosPerEvent() {
+            long returned = getReturnedEvents();
+            return returned != 0 ? TimeUnit.NANOSECONDS.toMicros(_resolveNanos.sum()) / (double) returned : 0;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.bazaarvoice.emodb.databus.core;
+
+import com.bazaarvoice.emodb.common.dropwizard.task.TaskRegistry;
+import com.bazaarvoice.emodb.databus.api.Names;
+import com.google.common.collect.ComparisonChain;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.inject.Inject;
+import io.dropwizard.servlets.tasks.Task;
+
+import java.io.PrintWriter;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reports how much work event consolidation is doing for the databus subscriptions read by this server and shows or
+ * changes the per-subscription limit on how many events for the same coordinate are consolidated together.  Stats are
+ * local to the server while limits are saved cluster-wide in ZooKeeper.
+ * <p>
+ * To display the stats for all subscriptions, busiest first, or for a single subscription:
+ * <pre>
+ *   curl -s -XPOST "http://localhost:8081/tasks/databus-consolidation"
+ *   curl -s -XPOST "http://localhost:8081/tasks/databus-consolidation?subscription=polloi:review"
+ * </pre>
+ * To consolidate more aggressively for a hot subscription, or to restore the default limit:
+ * <pre>
+ *   curl -s -XPOST "http://localhost:8081/tasks/databus-consolidation?subscription=polloi:review&limit=2500"
+ *   curl -s -XPOST "http://localhost:8081/tasks/databus-consolidation?subscription=polloi:review&limit=default"
+ * </pre>
+ */
+public class ConsolidationTask extends Task {
+    private final ConsolidationMonitor _monitor;
+
+    @Inject
+    public ConsolidationTask(TaskRegistry tasks, ConsolidationMonitor monitor) {
+        super("databus-consolidation");
+        _monitor = requireNonNull(monitor, "monitor");
+        tasks.addTask(this);
+    }
+
+    @Override
+    public void execute(ImmutableMultimap<String, String> parameters, PrintWriter out) throws Exception {
+        Collection<String> subscriptions = parameters.get("subscription");
+        String limit = Iterables.getOnlyElement(parameters.get("limit"), null);
+
+        if (limit != null) {
+            checkArgument(subscriptions.size() == 1, "Exactly one subscription is required to change its limit");
+            String subscription = subscriptions.iterator().next();
+            checkArgument(Names.isLegalSubscriptionName(subscription), "Invalid subscription name: %s", subscription);
+            if ("default".equalsIgnoreCase(limit)) {
+                _monitor.resetMaxEventsToConsolidate(subscription);
+            } else {
+                int maxEvents = Integer.parseInt(limit);
+                checkArgument(maxEvents >= ConsolidationMonitor.MIN_EVENTS_TO_CONSOLIDATE_LIMIT &&
+                                maxEvents <= ConsolidationMonitor.MAX_EVENTS_TO_CONSOLIDATE_LIMIT,
+                        "Limit must be between %s and %s",
+                        ConsolidationMonitor.MIN_EVENTS_TO_CONSOLIDATE_LIMIT, ConsolidationMonitor.MAX_EVENTS_TO_CONSOLIDATE_LIMIT);
+                _monitor.setMaxEventsToConsolidate(subscription, maxEvents);
+            }
+            Thread.sleep(500);  // Wait for values to round trip through ZooKeeper.
+        }
+
+        Map<String, ConsolidationMonitor.SubscriptionStats> stats = _monitor.getStats();
+        Set<String> names = Sets.newHashSet(subscriptions);
+        if (names.isEmpty()) {
+            names.addAll(stats.keySet());
+            names.addAll(_monitor.getMaxEventsToConsolidateOverrides().keySet());
+        }
+
+        // Sort by the number of raw events read, descending, then by name
+        List<String> sorted = Lists.newArrayList(names);
+        sorted.sort((s1, s2) -> ComparisonChain.start()
+                .compare(rawEvents(stats.get(s2)), rawEvents(stats.get(s1)))
+                .compare(s1, s2)
+                .result());
+
+        out.printf("%12s %12s %12s %12s %12s %8s  %s%n",
+                "raw", "consolidated", "redundant", "returned", "us/event", "limit", "subscription");
+        for (String subscription : sorted) {
+            ConsolidationMonitor.SubscriptionStats subscriptionStats = stats.get(subscription);
+            if (subscriptionStats != null) {
+                out.printf("%,12d %,12d %,12d %,12d %,12.1f %8d  %s%n",
+                        subscriptionStats.getRawEvents(), subscriptionStats.getConsolidatedEvents(),
+                        subscriptionStats.getRedundantEvents(), subscriptionStats.getReturnedEvents(),
+                        subscriptionStats.getResolveMicrosPerEvent(),
+                        _monitor.getMaxEventsToConsolidate(subscription), subscription);
+            } else {
+                out.printf("%12s %12s %12s %12s %12s %8d  %s%n", "-", "-", "-", "-", "-",
+                        _monitor.getMaxEventsToConsolidate(subscription), subscription);
+            }
+        }
+    }
+
+    private static long rawEvents(ConsolidationMonitor.SubscriptionStats stats) {
+        return stats != null ? stats.getRawEvents() : -1;
+    }
+}
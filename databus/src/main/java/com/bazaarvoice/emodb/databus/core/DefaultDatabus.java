@@ -109,11 +109,6 @@ public class DefaultDatabus implements OwnerAwareDatabus, DatabusEventWriter, Ma
      */
     private static final Duration STALE_UNKNOWN_AGE = Duration.ofSeconds(2);
 
-    /**
-     * Don't merge too many duplicate events together to avoid event keys getting unreasonably long.
-     */
-    private static final int MAX_EVENTS_TO_CONSOLIDATE = 1000;
-
     /* How many items are to be fetched in each try for draining the queue. */
     private static final int MAX_ITEMS_TO_FETCH_FOR_QUEUE_DRAINING = 100;
 
@@ -130,6 +125,7 @@ public class DefaultDatabus implements OwnerAwareDatabus, DatabusEventWriter, Ma
     private final DatabusEventStore _eventStore;
     private final DataProvider _dataProvider;
     private final SubscriptionEvaluator _subscriptionEvaluator;
+    private final ConsolidationMonitor _consolidationMonitor;
     private final JobService _jobService;
     private final DatabusAuthorizer _databusAuthorizer;
     private final String _systemOwnerId;
@@ -158,7 +154,8 @@ public class DefaultDatabus implements OwnerAwareDatabus, DatabusEventWriter, Ma
     @Inject
     public DefaultDatabus(LifeCycleRegistry lifeCycle, DatabusEventWriterRegistry eventWriterRegistry,
                           DataProvider dataProvider, SubscriptionDAO subscriptionDao, DatabusEventStore eventStore,
-                          SubscriptionEvaluator subscriptionEvaluator, JobService jobService,
+                          SubscriptionEvaluator subscriptionEvaluator, ConsolidationMonitor consolidationMonitor,
+                          JobService jobService,
                           JobHandlerRegistry jobHandlerRegistry, DatabusAuthorizer databusAuthorizer,
                           @SystemIdentity String systemOwnerId,
                           @DefaultJoinFilter Supplier<Condition> defaultJoinFilterCondition,
@@ -171,6 +168,7 @@ public class DefaultDatabus implements OwnerAwareDatabus, DatabusEventWriter, Ma
         _eventStore = eventStore;
         _dataProvider = dataProvider;
         _subscriptionEvaluator = subscriptionEvaluator;
+        _consolidationMonitor = requireNonNull(consolidationMonitor, "consolidationMonitor");
         _jobService = jobService;
         _databusAuthorizer = databusAuthorizer;
         _systemOwnerId = systemOwnerId;
@@ -472,6 +470,7 @@ public class DefaultDatabus implements OwnerAwareDatabus, DatabusEventWriter, Ma
         boolean eventsAvailableForNextPoll = false;
         boolean noMaxPollTimeOut = true;
         int itemsDiscarded = 0;
+        int maxEventsToConsolidate = _consolidationMonitor.getMaxEventsToConsolidate(subscription);
         Meter eventMeter = isPeek ? _peekedMeter : _polledMeter;
 
         // Reading raw events from the event store is a significantly faster operation than resolving the events into
@@ -494,11 +493,12 @@ public class DefaultDatabus implements OwnerAwareDatabus, DatabusEventWriter, Ma
             }
 
             // Query the databus event store.  Consolidate multiple events that refer to the same item.
-            ConsolidatingEventSink sink = new ConsolidatingEventSink(remaining + padding);
+            ConsolidatingEventSink sink = new ConsolidatingEventSink(remaining + padding, maxEventsToConsolidate);
             boolean more = isPeek ?
                     _eventStore.peek(subscription, sink) :
                     _eventStore.poll(subscription, claimTtl, sink);
             rawEvents = sink.getEvents();
+            _consolidationMonitor.rawEventsRead(subscription, sink.getRawEventCount());
 
             if (rawEvents.isEmpty()) {
                 // No events to be had.
@@ -508,7 +508,7 @@ public class DefaultDatabus implements OwnerAwareDatabus, DatabusEventWriter, Ma
 
             // Resolve the raw events in batches of 10 until at least one response item is found for a maximum time of MAX_POLL_TIME.
             do {
-                int batchItemsDiscarded = resolvePeekOrPollEvents(subscription, rawEvents, Math.min(10, remaining),
+                int batchItemsDiscarded = resolvePeekOrPollEvents(subscription, rawEvents, Math.min(10, remaining), maxEventsToConsolidate,
                         (coord, item) -> {
                             // Check whether we've already added this piece of content to the poll result.  If so, consolidate
                             // the two together to reduce the amount of work a client must do.  Note that the previous item
@@ -517,6 +517,7 @@ public class DefaultDatabus implements OwnerAwareDatabus, DatabusEventWriter, Ma
                             Item previousItem = uniqueItems.get(coord);
                             if (previousItem != null && previousItem.consolidateWith(item)) {
                                 _consolidatedMeter.mark();
+                                _consolidationMonitor.eventsConsolidated(subscription, 1);
                             } else {
                                 // We have found a new item of content to return!
                                 uniqueItems.put(coord, item);
@@ -583,7 +584,7 @@ public class DefaultDatabus implements OwnerAwareDatabus, DatabusEventWriter, Ma
                         try {
                             final List<Item> items = Lists.newArrayList();
                             do {
-                                resolvePeekOrPollEvents(subscription, deferredRawEvents, Math.min(remaining, 25),
+                                resolvePeekOrPollEvents(subscription, deferredRawEvents, Math.min(remaining, 25), maxEventsToConsolidate,
                                         (coord, item) -> {
                                             // Unlike with the original batch the deferred batch's events are always
                                             // already de-duplicated by coordinate, so there is no need to maintain
@@ -656,12 +657,16 @@ public class DefaultDatabus implements OwnerAwareDatabus, DatabusEventWriter, Ma
      * Finally, this method returns the number of redundant events that were found and deleted, false otherwise.
      */
     private int resolvePeekOrPollEvents(String subscription, Map<Coordinate, EventList> rawEvents, int limit,
-                                            ResolvedItemSink sink) {
+                                        int maxEventsToConsolidate, ResolvedItemSink sink) {
+        Stopwatch stopwatch = Stopwatch.createStarted(_ticker);
         Map<Coordinate, Integer> eventOrder = Maps.newHashMap();
         List<String> eventIdsToDiscard = Lists.newArrayList();
         List<String> recentUnknownEventIds = Lists.newArrayList();
         int remaining = limit;
         int itemsDiscarded = 0;
+        int itemsResolved = 0;
+        int eventsConsolidated = 0;
+        int redundantEvents = 0;
 
         DataProvider.AnnotatedGet annotatedGet = _dataProvider.prepareGetAnnotated(ReadConsistency.STRONG);
         Iterator<Map.Entry<Coordinate, EventList>> rawEventIterator = rawEvents.entrySet().iterator();
@@ -724,22 +729,26 @@ public class DefaultDatabus implements OwnerAwareDatabus, DatabusEventWriter, Ma
                 if (readResult.isChangeDeltaRedundant(changeId)) {
                     eventIdsToDiscard.add(eventId);
                     _redundantMeter.mark();
+                    redundantEvents += 1;
                     continue;
                 }
 
-                Item eventItem = new Item(eventId, eventOrder.get(coord), content, tags);
+                Item eventItem = new Item(eventId, eventOrder.get(coord), content, tags, maxEventsToConsolidate);
                 if (item == null) {
                     item = eventItem;
                 } else if (item.consolidateWith(eventItem)) {
                     _consolidatedMeter.mark();
+                    eventsConsolidated += 1;
                 } else {
                     sink.accept(coord, item);
+                    itemsResolved += 1;
                     item = eventItem;
                 }
             }
 
             if (item != null) {
                 sink.accept(coord, item);
+                itemsResolved += 1;
             }
         }
 
@@ -756,11 +765,15 @@ public class DefaultDatabus implements OwnerAwareDatabus, DatabusEventWriter, Ma
             rawEvents.remove(coord);
         }
 
+        _consolidationMonitor.eventsConsolidated(subscription, eventsConsolidated);
+        _consolidationMonitor.redundantEventsDropped(subscription, redundantEvents);
+        _consolidationMonitor.eventsResolved(subscription, itemsResolved, stopwatch.elapsed(TimeUnit.NANOSECONDS));
+
         return itemsDiscarded;
     }
 
     /**
-     * Simple interface for the event sink in {@link #resolvePeekOrPollEvents(String, Map, int, ResolvedItemSink)}
+     * Simple interface for the event sink in {@link #resolvePeekOrPollEvents(String, Map, int, int, ResolvedItemSink)}
      */
     private interface ResolvedItemSink {
         void accept(Coordinate coordinate, Item item);
@@ -1023,10 +1036,11 @@ public class DefaultDatabus implements OwnerAwareDatabus, DatabusEventWriter, Ma
         boolean anyRedundantItemFound = false;
         Stopwatch stopwatch = Stopwatch.createStarted(_ticker);
 
-        ConsolidatingEventSink sink = new ConsolidatingEventSink(itemsToFetch);
+        ConsolidatingEventSink sink = new ConsolidatingEventSink(itemsToFetch, _consolidationMonitor.getMaxEventsToConsolidate(subscription));
         boolean more = _eventStore.peek(subscription, sink);
 
         Map<Coordinate, EventList> rawEvents = sink.getEvents();
+        _consolidationMonitor.rawEventsRead(subscription, sink.getRawEventCount());
 
         if (rawEvents.isEmpty()) {
             _drainedSubscriptionsMap.remove(subscription);
@@ -1091,6 +1105,7 @@ public class DefaultDatabus implements OwnerAwareDatabus, DatabusEventWriter, Ma
         // delete the events we never again want to see.
         if (!eventIdsToDiscard.isEmpty()) {
             _drainQueueRedundantMeter.mark(eventIdsToDiscard.size());
+            _consolidationMonitor.redundantEventsDropped(subscription, eventIdsToDiscard.size());
             _eventStore.delete(subscription, eventIdsToDiscard, true);
         }
 
@@ -1114,9 +1129,12 @@ public class DefaultDatabus implements OwnerAwareDatabus, DatabusEventWriter, Ma
     private class ConsolidatingEventSink implements EventSink {
         private final Map<Coordinate, EventList> _eventMap = Maps.newLinkedHashMap();
         private final int _limit;
+        private final int _maxEventsToConsolidate;
+        private int _rawEventCount;
 
-        ConsolidatingEventSink(int limit) {
+        ConsolidatingEventSink(int limit, int maxEventsToConsolidate) {
             _limit = limit;
+            _maxEventsToConsolidate = maxEventsToConsolidate;
         }
 
         @Override
@@ -1142,8 +1160,9 @@ public class DefaultDatabus implements OwnerAwareDatabus, DatabusEventWriter, Ma
             }
 
             eventList.add(rawEvent.getId(), ref.getChangeId(), ref.getTags());
+            _rawEventCount += 1;
 
-            if (eventList.size() == MAX_EVENTS_TO_CONSOLIDATE) {
+            if (eventList.size() == _maxEventsToConsolidate) {
                 return Status.ACCEPTED_STOP;
             }
 
@@ -1153,6 +1172,10 @@ public class DefaultDatabus implements OwnerAwareDatabus, DatabusEventWriter, Ma
         Map<Coordinate, EventList> getEvents() {
             return _eventMap;
         }
+
+        int getRawEventCount() {
+            return _rawEventCount;
+        }
     }
 
     private static class EventList {
@@ -1180,18 +1203,20 @@ public class DefaultDatabus implements OwnerAwareDatabus, DatabusEventWriter, Ma
     private static class Item implements Comparable<Item> {
         private final List<String> _consolidatedEventIds;
         private final int _sortIndex;
+        private final int _maxEventsToConsolidate;
         private Map<String, Object> _content;
         private List<List<String>> _tags;
 
-        Item(String eventId, int sortIndex, Map<String, Object> content, List<List<String>> tags) {
+        Item(String eventId, int sortIndex, Map<String, Object> content, List<List<String>> tags, int maxEventsToConsolidate) {
             _consolidatedEventIds = Lists.newArrayList(eventId);
             _sortIndex = sortIndex;
             _content = content;
             _tags = tags;
+            _maxEventsToConsolidate = maxEventsToConsolidate;
         }
 
         boolean consolidateWith(Item other) {
-            if (_consolidatedEventIds.size() >= MAX_EVENTS_TO_CONSOLIDATE) {
+            if (_consolidatedEventIds.size() >= _maxEventsToConsolidate) {
                 return false;
             }
 
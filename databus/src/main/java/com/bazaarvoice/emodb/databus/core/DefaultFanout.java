@@ -198,6 +198,9 @@ public class DefaultFanout extends AbstractScheduledService {
         Iterable<OwnedSubscription> subscriptions = _subscriptionsSupplier.get();
         subTime.stop();
 
+        // Load the metadata for every table in the batch at once rather than one table at a time in each partition
+        _subscriptionEvaluator.prefetchTables(Lists.transform(rawEvents, EventData::getData));
+
         List<Date> lastMatchEventBatchTimes = Collections.synchronizedList(Lists.newArrayList());
 
         try (final Timer.Context ignored = _e2eFanoutTimer.time()) {
@@ -3,6 +3,7 @@ package com.bazaarvoice.emodb.databus.core;
 import com.bazaarvoice.curator.recipes.leader.LeaderService;
 import com.bazaarvoice.emodb.common.dropwizard.guice.SelfHostAndPort;
 import com.bazaarvoice.emodb.common.dropwizard.leader.LeaderServiceTask;
+import com.bazaarvoice.emodb.common.dropwizard.lifecycle.LifeCycleRegistry;
 import com.bazaarvoice.emodb.common.dropwizard.lifecycle.ServiceFailureListener;
 import com.bazaarvoice.emodb.common.dropwizard.log.RateLimitedLogFactory;
 import com.bazaarvoice.emodb.common.zookeeper.leader.PartitionedLeaderService;
@@ -22,7 +23,11 @@ import com.google.common.base.Function;
 import com.google.common.base.Supplier;
 import com.google.common.collect.Multimap;
 import com.google.common.net.HostAndPort;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
+import io.dropwizard.lifecycle.ExecutorServiceManager;
 import io.dropwizard.lifecycle.Managed;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.utils.ZKPaths;
@@ -31,6 +36,8 @@ import javax.annotation.Nullable;
 import java.nio.ByteBuffer;
 import java.time.Clock;
 import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import static java.util.Objects.requireNonNull;
@@ -38,6 +45,10 @@ import static java.util.Objects.requireNonNull;
 public class DefaultFanoutManager implements FanoutManager {
     private static final Duration SAME_DC_SLEEP_WHEN_IDLE = Duration.ofMillis(100);
     private static final Duration REMOTE_DC_SLEEP_WHEN_IDLE = Duration.ofSeconds(1);
+    /** Number of polls kept in flight per inbound replication partition to hide the round trip to remote data centers. */
+    private static final int REPLICATION_FETCHES_IN_FLIGHT = 3;
+    /** Long enough to cover every batch in flight plus the time to fan out a batch before it is acknowledged. */
+    private static final Duration REPLICATION_CLAIM_TTL = Duration.ofMinutes(2);
 
     private final EventStore _eventStore;
     private final SubscriptionDAO _subscriptionDao;
@@ -53,9 +64,10 @@ public class DefaultFanoutManager implements FanoutManager {
     private final FanoutLagMonitor _fanoutLagMonitor;
     private final MetricRegistry _metricRegistry;
     private final Clock _clock;
+    private final ListeningExecutorService _replicationFetchPool;
 
     @Inject
-    public DefaultFanoutManager(final EventStore eventStore, final SubscriptionDAO subscriptionDao,
+    public DefaultFanoutManager(LifeCycleRegistry lifeCycle, final EventStore eventStore, final SubscriptionDAO subscriptionDao,
                                 SubscriptionEvaluator subscriptionEvaluator, DataCenters dataCenters,
                                 @DatabusZooKeeper CuratorFramework curator, @SelfHostAndPort HostAndPort self,
                                 @MasterFanoutPartitions int masterFanoutPartitions,
@@ -78,6 +90,15 @@ public class DefaultFanoutManager implements FanoutManager {
         _fanoutLagMonitor = requireNonNull(fanoutLagMonitor, "fanoutLagMonitor");
         _metricRegistry = metricRegistry;
         _clock = clock;
+        _replicationFetchPool = MoreExecutors.listeningDecorator(defaultReplicationFetchExecutor(lifeCycle));
+    }
+
+    private static ExecutorService defaultReplicationFetchExecutor(LifeCycleRegistry lifeCycle) {
+        String nameFormat = "replication-fetch-%d";
+        ExecutorService executor = Executors.newCachedThreadPool(
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat(nameFormat).build());
+        lifeCycle.manage(new ExecutorServiceManager(executor, io.dropwizard.util.Duration.seconds(5), nameFormat));
+        return executor;
     }
 
     @Override
@@ -90,7 +111,8 @@ public class DefaultFanoutManager implements FanoutManager {
     @Override
     public Managed newInboundReplicationFanout(DataCenter dataCenter, ReplicationSource replicationSource) {
         PartitionEventSourceSupplier eventSourceSupplier = partition ->
-                new ReplicationEventSource(replicationSource, ChannelNames.getReplicationFanoutChannel(_dataCenters.getSelf(), partition));
+                new ReplicationEventSource(replicationSource, ChannelNames.getReplicationFanoutChannel(_dataCenters.getSelf(), partition),
+                        _replicationFetchPool, REPLICATION_FETCHES_IN_FLIGHT, REPLICATION_CLAIM_TTL, _metricRegistry, _clock);
         return create("in-" + dataCenter.getName(), eventSourceSupplier, null, REMOTE_DC_SLEEP_WHEN_IDLE, _dataCenterFanoutPartitions);
     }
 
@@ -6,18 +6,25 @@ import com.bazaarvoice.emodb.common.uuid.TimeUUIDs;
 import com.bazaarvoice.emodb.databus.auth.DatabusAuthorizer;
 import com.bazaarvoice.emodb.databus.model.OwnedSubscription;
 import com.bazaarvoice.emodb.sor.api.UnknownTableException;
-import com.bazaarvoice.emodb.sor.condition.eval.ConditionEvaluator;
+import com.bazaarvoice.emodb.sor.condition.Condition;
+import com.bazaarvoice.emodb.sor.condition.eval.ConditionCompiler;
+import com.bazaarvoice.emodb.sor.condition.eval.ConditionMatcher;
 import com.bazaarvoice.emodb.sor.core.DataProvider;
 import com.bazaarvoice.emodb.sor.core.UpdateRef;
 import com.bazaarvoice.emodb.table.db.Table;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.ByteBuffer;
 import java.time.Instant;
+import java.util.Collection;
 import java.util.Date;
 import java.util.Map;
 import java.util.Set;
@@ -32,6 +39,13 @@ public class SubscriptionEvaluator {
     private final RateLimitedLog _rateLimitedLog;
     private final DatabusAuthorizer _databusAuthorizer;
 
+    // Subscriptions are cached and every event is evaluated against every subscription's table filter, so compile
+    // each filter once.  Weak keys compare by identity, which is cheaper than hashing the condition tree on each
+    // lookup, and let matchers for replaced or deleted subscriptions be collected.
+    private final LoadingCache<Condition, ConditionMatcher> _tableFilterMatchers = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(CacheLoader.from(ConditionCompiler::compile));
+
     @Inject
     public SubscriptionEvaluator(DataProvider dataProvider,
                                  DatabusAuthorizer databusAuthorizer,
@@ -68,7 +82,8 @@ public class SubscriptionEvaluator {
                 json = Maps.newHashMap(table.getAttributes());
                 json.put(UpdateRef.TAGS_NAME, eventData.getTags());
             }
-            return ConditionEvaluator.eval(subscription.getTableFilter(), json, new SubscriptionIntrinsics(table, eventData.getKey())) &&
+            return _tableFilterMatchers.getUnchecked(subscription.getTableFilter())
+                    .matches(json, new SubscriptionIntrinsics(table, eventData.getKey())) &&
                     subscriberHasPermission(subscription, table);
         } catch (Exception e) {
             _rateLimitedLog.error(e, "Unable to evaluate condition for subscription " + subscription.getName() +
@@ -86,6 +101,18 @@ public class SubscriptionEvaluator {
         }
     }
 
+    /**
+     * Looks up the tables referenced by a batch of events in bulk, so subsequent calls to
+     * {@link #getMatchEventData(ByteBuffer)} for the events don't load the metadata for each table serially.
+     */
+    public void prefetchTables(Collection<ByteBuffer> events) {
+        Set<String> tables = Sets.newHashSet();
+        for (ByteBuffer eventData : events) {
+            tables.add(UpdateRefSerializer.fromByteBuffer(eventData.duplicate()).getTable());
+        }
+        _dataProvider.getTables(tables);
+    }
+
     private boolean subscriberHasPermission(OwnedSubscription subscription, Table table) {
         return _databusAuthorizer.owner(subscription.getOwnerId()).canReceiveEventsFromTable(table.getName());
     }
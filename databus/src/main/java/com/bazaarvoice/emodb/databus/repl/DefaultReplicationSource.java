@@ -8,6 +8,7 @@ import com.google.common.base.Function;
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 
+import java.time.Duration;
 import java.util.Collection;
 import java.util.List;
 
@@ -27,15 +28,7 @@ public class DefaultReplicationSource implements ReplicationSource {
         requireNonNull(channel, "channel");
         checkArgument(limit > 0, "Limit must be >0");
 
-        List<EventData> rawEvents = _eventStore.peek(channel, limit);
-
-        return Lists.transform(rawEvents, new Function<EventData, ReplicationEvent>() {
-            @Override
-            public ReplicationEvent apply(EventData rawEvent) {
-                UpdateRef ref = UpdateRefSerializer.fromByteBuffer(rawEvent.getData());
-                return new ReplicationEvent(rawEvent.getId(), ref);
-            }
-        });
+        return toReplicationEvents(_eventStore.peek(channel, limit));
     }
 
     @Override
@@ -45,4 +38,29 @@ public class DefaultReplicationSource implements ReplicationSource {
 
         _eventStore.delete(channel, eventIds, false);
     }
+
+    @Override
+    public List<ReplicationEvent> poll(String channel, Duration claimTtl, int limit, Collection<String> ackEventIds) {
+        requireNonNull(channel, "channel");
+        requireNonNull(claimTtl, "claimTtl");
+        requireNonNull(ackEventIds, "ackEventIds");
+        checkArgument(limit > 0, "Limit must be >0");
+
+        // Acknowledged events were claimed by an earlier poll, so cancel their claims along with deleting them
+        if (!ackEventIds.isEmpty()) {
+            _eventStore.delete(channel, ackEventIds, true);
+        }
+
+        return toReplicationEvents(_eventStore.poll(channel, claimTtl, limit));
+    }
+
+    private List<ReplicationEvent> toReplicationEvents(List<EventData> rawEvents) {
+        return Lists.transform(rawEvents, new Function<EventData, ReplicationEvent>() {
+            @Override
+            public ReplicationEvent apply(EventData rawEvent) {
+                UpdateRef ref = UpdateRefSerializer.fromByteBuffer(rawEvent.getData());
+                return new ReplicationEvent(rawEvent.getId(), ref);
+            }
+        });
+    }
 }
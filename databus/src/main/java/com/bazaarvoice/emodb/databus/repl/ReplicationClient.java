@@ -1,9 +1,11 @@
 package com.bazaarvoice.emodb.databus.repl;
 
 import com.bazaarvoice.emodb.auth.apikey.ApiKeyRequest;
+import com.bazaarvoice.emodb.common.json.JsonHelper;
 import com.google.common.base.Charsets;
 import com.google.common.io.BaseEncoding;
 import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandlerException;
 import com.sun.jersey.api.client.ClientResponse;
 import com.sun.jersey.api.client.GenericType;
 import com.sun.jersey.api.client.UniformInterfaceException;
@@ -11,7 +13,11 @@ import com.sun.jersey.api.client.UniformInterfaceException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
@@ -19,12 +25,18 @@ import static java.util.Objects.requireNonNull;
 
 /**
  * Jersey client for downloading databus events from a remote data center.
+ * <p>
+ * {@link #poll(String, Duration, int, Collection)} asks for Smile, a compact binary equivalent of JSON, and falls back
+ * to JSON when talking to servers which don't produce it.  Responses are additionally gzip-compressed by the server
+ * when the Jersey client accepts gzip, which is the default for clients built by Dropwizard.
  */
 public class ReplicationClient implements ReplicationSource {
 
     /** Must match the @Path annotation on the ReplicationResource1 class. */
     public static final String SERVICE_PATH = "/busrepl/1";
 
+    private static final MediaType SMILE_TYPE = MediaType.valueOf(JsonHelper.SMILE_MEDIA_TYPE);
+
     private final Client _client;
     private final UriBuilder _replicationSource;
     private final String _apiKey;
@@ -69,6 +81,47 @@ public class ReplicationClient implements ReplicationSource {
         }
     }
 
+    @Override
+    public List<ReplicationEvent> poll(String channel, Duration claimTtl, int limit, Collection<String> ackEventIds) {
+        requireNonNull(channel, "channel");
+        requireNonNull(claimTtl, "claimTtl");
+        requireNonNull(ackEventIds, "ackEventIds");
+        try {
+            URI uri = _replicationSource.clone()
+                    .segment(channel, "poll")
+                    .queryParam("ttl", claimTtl.getSeconds())
+                    .queryParam("limit", limit)
+                    .build();
+            ClientResponse response = _client.resource(uri)
+                    .accept(SMILE_TYPE, MediaType.APPLICATION_JSON_TYPE)
+                    .type(MediaType.APPLICATION_JSON_TYPE)
+                    .header(ApiKeyRequest.AUTHENTICATION_HEADER, _apiKey)
+                    .post(ClientResponse.class, ackEventIds);
+
+            if (response.getStatus() == Response.Status.NOT_FOUND.getStatusCode()) {
+                // The remote data center is running a version which predates pipelined replication
+                response.close();
+                throw new UnsupportedOperationException("Remote data center does not support replication polling");
+            }
+            if (response.getStatus() != Response.Status.OK.getStatusCode()) {
+                throw new UniformInterfaceException(response);
+            }
+
+            try (InputStream in = response.getEntityInputStream()) {
+                MediaType type = response.getType();
+                ReplicationEvent[] events = type != null && JsonHelper.isSmileMediaType(type.getType(), type.getSubtype()) ?
+                        JsonHelper.readSmile(in, ReplicationEvent[].class) :
+                        JsonHelper.readJson(in, ReplicationEvent[].class);
+                return Arrays.asList(events);
+            } catch (IOException e) {
+                // Treat the same as any other I/O error reading the response so the call is retried
+                throw new ClientHandlerException(e);
+            }
+        } catch (UniformInterfaceException e) {
+            throw convertException(e);
+        }
+    }
+
     private RuntimeException convertException(UniformInterfaceException e) {
         ClientResponse response = e.getResponse();
         String exceptionType = response.getHeaders().getFirst("X-BV-Exception");
@@ -1,33 +1,116 @@
 package com.bazaarvoice.emodb.databus.repl;
 
+import com.bazaarvoice.emodb.common.uuid.TimeUUIDs;
 import com.bazaarvoice.emodb.databus.core.EventSource;
 import com.bazaarvoice.emodb.databus.core.UpdateRefSerializer;
 import com.bazaarvoice.emodb.event.api.EventData;
 import com.bazaarvoice.emodb.sor.core.UpdateRef;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.base.Function;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
 /**
  * Adapts an instance of {@link ReplicationSource} to the {@link com.bazaarvoice.emodb.databus.core.EventSource} interface.  This is used
  * by a replication sink to fetch events originating from a remote data center and fan them out to
  * subscriptions in the local data center.
+ * <p>
+ * When created with an executor the event source pipelines requests to the remote data center to hide the WAN round
+ * trip time: up to {@code fetchesInFlight} claiming polls are outstanding at once, and events deleted by the fanout
+ * are not sent on their own but are piggybacked on the next poll.  Events which are fetched but never deleted, for
+ * example because leadership moved to another server, are redelivered once their claims expire.  If the remote data
+ * center doesn't support polling the event source falls back to the serial get-then-delete protocol, and tries
+ * polling again every {@link #PIPELINE_PROBE_INTERVAL} in case the remote data center has since been upgraded.
  */
 public class ReplicationEventSource implements EventSource {
+    private static final Logger _log = LoggerFactory.getLogger(ReplicationEventSource.class);
+
+    static final Duration PIPELINE_PROBE_INTERVAL = Duration.ofMinutes(10);
+
     private final ReplicationSource _source;
     private final String _channel;
+    private final ListeningExecutorService _executor;
+    private final int _fetchesInFlight;
+    private final Duration _claimTtl;
+    private final Clock _clock;
+    /** Polls which have been sent, oldest first.  Only accessed by the thread calling {@link #get(int)}. */
+    private final Deque<ListenableFuture<List<ReplicationEvent>>> _fetches = new ArrayDeque<>();
+    /** Deleted events not yet sent to the remote data center.  Guarded by itself since fanout deletes concurrently. */
+    private final List<String> _pendingAcks = Lists.newArrayList();
+    private volatile boolean _pipelined;
+    /**
+     * After falling back to serial replication, the time at which to try pipelining again.  Only accessed by the
+     * thread calling {@link #get(int)}.
+     */
+    private long _nextPipelineProbeMillis;
+
+    private final Meter _eventsFetched;
+    private final Meter _eventsAcked;
+    private final Timer _fetchTimer;
+    private final Histogram _lagMillis;
 
     public ReplicationEventSource(ReplicationSource source, String channel) {
-        _source = source;
-        _channel = channel;
+        _source = requireNonNull(source, "source");
+        _channel = requireNonNull(channel, "channel");
+        _executor = null;
+        _fetchesInFlight = 1;
+        _claimTtl = null;
+        _clock = null;
+        _pipelined = false;
+        _eventsFetched = _eventsAcked = null;
+        _fetchTimer = null;
+        _lagMillis = null;
+    }
+
+    public ReplicationEventSource(ReplicationSource source, String channel, ListeningExecutorService executor,
+                                  int fetchesInFlight, Duration claimTtl, MetricRegistry metricRegistry, Clock clock) {
+        checkArgument(fetchesInFlight > 0, "fetchesInFlight must be >0");
+        _source = requireNonNull(source, "source");
+        _channel = requireNonNull(channel, "channel");
+        _executor = requireNonNull(executor, "executor");
+        _fetchesInFlight = fetchesInFlight;
+        _claimTtl = requireNonNull(claimTtl, "claimTtl");
+        _clock = requireNonNull(clock, "clock");
+        _pipelined = true;
+
+        // Channels are per remote data center and partition, so these metrics are per replication partition
+        _eventsFetched = metricRegistry.meter(metricName("events-fetched"));
+        _eventsAcked = metricRegistry.meter(metricName("events-acked"));
+        _fetchTimer = metricRegistry.timer(metricName("fetch"));
+        _lagMillis = metricRegistry.histogram(metricName("lag-millis"));
+    }
+
+    private String metricName(String name) {
+        return MetricRegistry.name("bv.emodb.databus", "ReplicationEventSource", name, _channel);
     }
 
     @Override
     public List<EventData> get(int limit) {
-        List<ReplicationEvent> events = _source.get(_channel, limit);
+        if (!_pipelined && _executor != null && _clock.millis() >= _nextPipelineProbeMillis) {
+            _pipelined = true;
+        }
+        List<ReplicationEvent> events = _pipelined ? pipelinedGet(limit) : _source.get(_channel, limit);
 
         return Lists.transform(events, new Function<ReplicationEvent, EventData>() {
             @Override
@@ -50,6 +133,98 @@ public class ReplicationEventSource implements EventSource {
 
     @Override
     public void delete(Collection<String> eventIds) {
-        _source.delete(_channel, eventIds);
+        if (!_pipelined) {
+            _source.delete(_channel, eventIds);
+            return;
+        }
+        synchronized (_pendingAcks) {
+            _pendingAcks.addAll(eventIds);
+        }
+    }
+
+    private List<ReplicationEvent> pipelinedGet(int limit) {
+        // Top up the pipeline.  The first new poll carries every ack buffered since the previous call.
+        while (_fetches.size() < _fetchesInFlight) {
+            _fetches.add(startFetch(limit, drainPendingAcks()));
+        }
+
+        List<ReplicationEvent> events;
+        try {
+            events = Futures.getUnchecked(_fetches.remove());
+        } catch (RuntimeException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            abandonFetches();
+            if (cause instanceof UnsupportedOperationException) {
+                _log.info("Remote data center does not support pipelined replication, falling back to serial replication for {}: {}",
+                        PIPELINE_PROBE_INTERVAL, _channel);
+                _pipelined = false;
+                _nextPipelineProbeMillis = _clock.millis() + PIPELINE_PROBE_INTERVAL.toMillis();
+                List<String> acks = drainPendingAcks();
+                if (!acks.isEmpty()) {
+                    _source.delete(_channel, acks);
+                }
+                return _source.get(_channel, limit);
+            }
+            throw Throwables.propagate(cause);
+        }
+
+        _eventsFetched.mark(events.size());
+        if (!events.isEmpty()) {
+            // Events are returned roughly in the order they were written, so the first event is the oldest
+            long eventTime = TimeUUIDs.getTimeMillis(events.get(0).getChangeId());
+            _lagMillis.update(Math.max(_clock.millis() - eventTime, 0));
+        }
+        return events;
+    }
+
+    private ListenableFuture<List<ReplicationEvent>> startFetch(final int limit, final List<String> acks) {
+        ListenableFuture<List<ReplicationEvent>> future = _executor.submit(() -> {
+            try (Timer.Context ignored = _fetchTimer.time()) {
+                return _source.poll(_channel, _claimTtl, limit, acks);
+            }
+        });
+        Futures.addCallback(future, new FutureCallback<List<ReplicationEvent>>() {
+            @Override
+            public void onSuccess(List<ReplicationEvent> result) {
+                _eventsAcked.mark(acks.size());
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                // The remote data center may or may not have deleted the events.  Deletes are idempotent, so resend.
+                restorePendingAcks(acks);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Discards the failed poll and every poll still in flight.  Events returned by the discarded polls remain claimed
+     * until their claims expire, after which they are polled again.
+     */
+    private void abandonFetches() {
+        for (ListenableFuture<List<ReplicationEvent>> fetch : _fetches) {
+            fetch.cancel(false);
+        }
+        _fetches.clear();
+    }
+
+    private List<String> drainPendingAcks() {
+        synchronized (_pendingAcks) {
+            if (_pendingAcks.isEmpty()) {
+                return ImmutableList.of();
+            }
+            List<String> acks = ImmutableList.copyOf(_pendingAcks);
+            _pendingAcks.clear();
+            return acks;
+        }
+    }
+
+    private void restorePendingAcks(List<String> acks) {
+        if (!acks.isEmpty()) {
+            synchronized (_pendingAcks) {
+                _pendingAcks.addAll(acks);
+            }
+        }
     }
 }
@@ -1,5 +1,6 @@
 package com.bazaarvoice.emodb.databus.repl;
 
+import java.time.Duration;
 import java.util.Collection;
 import java.util.List;
 
@@ -11,4 +12,12 @@ public interface ReplicationSource {
     List<ReplicationEvent> get(String channel, int limit);
 
     void delete(String channel, Collection<String> eventIds);
+
+    /**
+     * Deletes the acknowledged events then claims and returns up to {@code limit} unclaimed events, all in a single
+     * round trip.  Unlike {@link #get(String, int)}, events returned are claimed for {@code claimTtl} so multiple
+     * polls may be in flight for the same channel at once without returning the same events.  Events which are
+     * never acknowledged become available again once their claims expire.
+     */
+    List<ReplicationEvent> poll(String channel, Duration claimTtl, int limit, Collection<String> ackEventIds);
 }
@@ -19,6 +19,7 @@ import com.bazaarvoice.emodb.sor.condition.Conditions;
 import com.bazaarvoice.emodb.sor.core.DataProvider;
 import com.bazaarvoice.emodb.sor.core.DatabusEventWriterRegistry;
 import com.bazaarvoice.emodb.sor.core.UpdateRef;
+import com.bazaarvoice.emodb.sor.core.test.InMemoryMapStore;
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
@@ -111,6 +112,41 @@ public class ConsolidationTest {
         assertTrue(result.hasMoreEvents());
     }
 
+    /** The subscription's consolidation limit is lowered to 100, so EventStore.poll() stops after 100 events. */
+    @Test
+    public void testOneCoordinateSubscriptionLimit() throws Exception {
+        final List<String> actualIds = Lists.newArrayList();
+        DatabusEventStore eventStore = new TestDatabusEventStore() {
+            @Override
+            public boolean poll(String subscription, Duration claimTtl, EventSink sink) {
+                for (int i = 0; i < 100; i++) {
+                    String id = "a" + i;
+                    actualIds.add(id);
+                    assertTrue(sink.remaining() > 0);
+                    EventSink.Status status = sink.accept(newEvent(id, "table", "key", TimeUUIDs.newUUID()));
+                    assertEquals(status, (i < 99) ? EventSink.Status.ACCEPTED_CONTINUE : EventSink.Status.ACCEPTED_STOP);
+                }
+                return true;
+            }
+        };
+        Map<String, Object> content = entity("table", "key", ImmutableMap.of("rating", "5"));
+        ConsolidationMonitor consolidationMonitor = new ConsolidationMonitor(new InMemoryMapStore<>(), new MetricRegistry());
+        consolidationMonitor.setMaxEventsToConsolidate("test-subscription", 100);
+        OwnerAwareDatabus databus = newDatabus(eventStore, new TestDataProvider().add(content), Clock.systemUTC(), consolidationMonitor);
+
+        PollResult result = databus.poll("id", "test-subscription", Duration.ofSeconds(30), 1);
+        List<Event> events = ImmutableList.copyOf(result.getEventIterator());
+
+        assertEquals(events.size(), 1);
+        assertEquals(EventKeyFormat.decodeAll(Collections.singleton(events.get(0).getEventKey())), Ordering.natural().immutableSortedCopy(actualIds));
+
+        ConsolidationMonitor.SubscriptionStats stats = consolidationMonitor.getStats().get("test-subscription");
+        assertEquals(stats.getRawEvents(), 100);
+        assertEquals(stats.getConsolidatedEvents(), 99);
+        assertEquals(stats.getRedundantEvents(), 0);
+        assertEquals(stats.getReturnedEvents(), 1);
+    }
+
     @Test
     public void testTwoCoordinatesManyEvents() {
         final List<String> actualIds = Lists.newArrayList();
@@ -332,6 +368,11 @@ public class ConsolidationTest {
     }
 
     private DefaultDatabus newDatabus(DatabusEventStore eventStore, DataProvider dataProvider, Clock clock) {
+        return newDatabus(eventStore, dataProvider, clock, new ConsolidationMonitor(new InMemoryMapStore<>(), new MetricRegistry()));
+    }
+
+    private DefaultDatabus newDatabus(DatabusEventStore eventStore, DataProvider dataProvider, Clock clock,
+                                      ConsolidationMonitor consolidationMonitor) {
         LifeCycleRegistry lifeCycle = mock(LifeCycleRegistry.class);
         DatabusEventWriterRegistry eventWriterRegistry = mock(DatabusEventWriterRegistry.class);
         SubscriptionDAO subscriptionDao = mock(SubscriptionDAO.class);
@@ -340,7 +381,7 @@ public class ConsolidationTest {
         JobHandlerRegistry jobHandlerRegistry = mock(JobHandlerRegistry.class);
         DatabusAuthorizer databusAuthorizer = ConstantDatabusAuthorizer.ALLOW_ALL;
         return new DefaultDatabus(lifeCycle, eventWriterRegistry, dataProvider, subscriptionDao, eventStore, subscriptionEvaluator,
-                jobService, jobHandlerRegistry, databusAuthorizer, "replication",
+                consolidationMonitor, jobService, jobHandlerRegistry, databusAuthorizer, "replication",
                 Suppliers.ofInstance(Conditions.alwaysFalse()), mock(ExecutorService.class), 1, key -> 0,
                 new MetricRegistry(), clock);
     }
@@ -45,7 +45,8 @@ public class DatabusSizeCachingTest {
         DatabusEventStore mockEventStore = mock(DatabusEventStore.class);
         DefaultDatabus testDatabus = new DefaultDatabus(
                 mock(LifeCycleRegistry.class), mock(DatabusEventWriterRegistry.class), mock(DataProvider.class), mock(SubscriptionDAO.class),
-                mockEventStore, mock(SubscriptionEvaluator.class), mock(JobService.class), mock(JobHandlerRegistry.class),
+                mockEventStore, mock(SubscriptionEvaluator.class), mock(ConsolidationMonitor.class), mock(JobService.class),
+                mock(JobHandlerRegistry.class),
                 mock(DatabusAuthorizer.class), "replication", Suppliers.ofInstance(Conditions.alwaysFalse()), mock(ExecutorService.class),
                 1, key -> 0, mock(MetricRegistry.class), clock);
 
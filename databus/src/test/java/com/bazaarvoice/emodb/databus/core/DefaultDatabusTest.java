@@ -22,6 +22,7 @@ import com.bazaarvoice.emodb.sor.condition.Conditions;
 import com.bazaarvoice.emodb.sor.core.DataProvider;
 import com.bazaarvoice.emodb.sor.core.DatabusEventWriterRegistry;
 import com.bazaarvoice.emodb.sor.core.UpdateRef;
+import com.bazaarvoice.emodb.sor.core.test.InMemoryMapStore;
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
@@ -83,7 +84,7 @@ public class DefaultDatabusTest {
         SubscriptionDAO mockSubscriptionDao = mock(SubscriptionDAO.class);
         DefaultDatabus testDatabus = new DefaultDatabus(
                 mock(LifeCycleRegistry.class), mock(DatabusEventWriterRegistry.class), mock(DataProvider.class), mockSubscriptionDao,
-                mock(DatabusEventStore.class), mock(SubscriptionEvaluator.class), mock(JobService.class),
+                mock(DatabusEventStore.class), mock(SubscriptionEvaluator.class), newConsolidationMonitor(), mock(JobService.class),
                 mock(JobHandlerRegistry.class), mock(DatabusAuthorizer.class), "replication", ignoreReEtl, mock(ExecutorService.class),
                 1, key -> 0, mock(MetricRegistry.class), Clock.systemUTC());
         Condition originalCondition = Conditions.mapBuilder().contains("foo", "bar").build();
@@ -137,7 +138,7 @@ public class DefaultDatabusTest {
 
         DefaultDatabus testDatabus = new DefaultDatabus(
                 mock(LifeCycleRegistry.class), mock(DatabusEventWriterRegistry.class), new TestDataProvider().add(annotatedContent), mock(SubscriptionDAO.class),
-                eventStore, mock(SubscriptionEvaluator.class), mock(JobService.class),
+                eventStore, mock(SubscriptionEvaluator.class), newConsolidationMonitor(), mock(JobService.class),
                 mock(JobHandlerRegistry.class), mock(DatabusAuthorizer.class), "systemOwnerId", ignoreReEtl, MoreExecutors.newDirectExecutorService(),
                 1, key -> 0, new MetricRegistry(), Clock.systemUTC());
 
@@ -180,7 +181,7 @@ public class DefaultDatabusTest {
 
         DefaultDatabus testDatabus = new DefaultDatabus(
                 mock(LifeCycleRegistry.class), mock(DatabusEventWriterRegistry.class), new TestDataProvider().add(annotatedContent), mock(SubscriptionDAO.class),
-                eventStore, mock(SubscriptionEvaluator.class), mock(JobService.class),
+                eventStore, mock(SubscriptionEvaluator.class), newConsolidationMonitor(), mock(JobService.class),
                 mock(JobHandlerRegistry.class), mock(DatabusAuthorizer.class), "systemOwnerId", ignoreReEtl, MoreExecutors.newDirectExecutorService(),
                 1, key -> 0, new MetricRegistry(), Clock.systemUTC());
 
@@ -226,7 +227,7 @@ public class DefaultDatabusTest {
 
         DefaultDatabus testDatabus = new DefaultDatabus(
                 mock(LifeCycleRegistry.class), mock(DatabusEventWriterRegistry.class), new TestDataProvider().add(annotatedContent), mock(SubscriptionDAO.class),
-                eventStore, mock(SubscriptionEvaluator.class), mock(JobService.class),
+                eventStore, mock(SubscriptionEvaluator.class), newConsolidationMonitor(), mock(JobService.class),
                 mock(JobHandlerRegistry.class), mock(DatabusAuthorizer.class), "systemOwnerId", ignoreReEtl, MoreExecutors.newDirectExecutorService(),
                 1, key -> 0, new MetricRegistry(), Clock.systemUTC());
 
@@ -278,7 +279,7 @@ public class DefaultDatabusTest {
 
         DefaultDatabus testDatabus = new DefaultDatabus(
                 mock(LifeCycleRegistry.class), mock(DatabusEventWriterRegistry.class), testDataProvider, subscriptionDAO,
-                eventStore, mock(SubscriptionEvaluator.class), mock(JobService.class),
+                eventStore, mock(SubscriptionEvaluator.class), newConsolidationMonitor(), mock(JobService.class),
                 mock(JobHandlerRegistry.class), databusAuthorizer, "systemOwnerId", acceptAll, MoreExecutors.newDirectExecutorService(),
                 1, key -> 0, new MetricRegistry(), clock);
 
@@ -349,7 +350,7 @@ public class DefaultDatabusTest {
 
         DefaultDatabus testDatabus = new DefaultDatabus(
                 mock(LifeCycleRegistry.class), mock(DatabusEventWriterRegistry.class), testDataProvider, subscriptionDAO,
-                eventStore, mock(SubscriptionEvaluator.class), mock(JobService.class),
+                eventStore, mock(SubscriptionEvaluator.class), newConsolidationMonitor(), mock(JobService.class),
                 mock(JobHandlerRegistry.class), databusAuthorizer, "systemOwnerId", acceptAll, MoreExecutors.newDirectExecutorService(),
                 1, key -> 0, new MetricRegistry(), clock);
 
@@ -401,7 +402,7 @@ public class DefaultDatabusTest {
 
         DefaultDatabus testDatabus = new DefaultDatabus(
                 mock(LifeCycleRegistry.class), mock(DatabusEventWriterRegistry.class), new TestDataProvider(), mock(SubscriptionDAO.class),
-                eventStore, mock(SubscriptionEvaluator.class), mock(JobService.class),
+                eventStore, mock(SubscriptionEvaluator.class), newConsolidationMonitor(), mock(JobService.class),
                 mock(JobHandlerRegistry.class), mock(DatabusAuthorizer.class), "systemOwnerId", acceptAll, MoreExecutors.newDirectExecutorService(),
                 3, masterPartitioner, new MetricRegistry(), Clock.systemUTC());
 
@@ -425,7 +426,7 @@ public class DefaultDatabusTest {
                 Conditions.not(Conditions.mapBuilder().matches(UpdateRef.TAGS_NAME, Conditions.containsAny("re-etl")).build()));
         DefaultDatabus testDatabus = new DefaultDatabus(
                 mock(LifeCycleRegistry.class), mock(DatabusEventWriterRegistry.class), mock(DataProvider.class), mock(SubscriptionDAO.class),
-                mock(DatabusEventStore.class), mock(SubscriptionEvaluator.class), mock(JobService.class),
+                mock(DatabusEventStore.class), mock(SubscriptionEvaluator.class), newConsolidationMonitor(), mock(JobService.class),
                 mock(JobHandlerRegistry.class), mock(DatabusAuthorizer.class), "replication", ignoreReEtl, mock(ExecutorService.class),
                 1, key -> 0, mock(MetricRegistry.class), Clock.systemUTC());
         Condition condition = Conditions.intrinsic(Intrinsic.TABLE, "test");
@@ -441,7 +442,7 @@ public class DefaultDatabusTest {
                 Conditions.not(Conditions.mapBuilder().matches(UpdateRef.TAGS_NAME, Conditions.containsAny("re-etl")).build()));
         DefaultDatabus testDatabus = new DefaultDatabus(
                 mock(LifeCycleRegistry.class), mock(DatabusEventWriterRegistry.class), mock(DataProvider.class), mock(SubscriptionDAO.class),
-                mock(DatabusEventStore.class), mock(SubscriptionEvaluator.class), mock(JobService.class),
+                mock(DatabusEventStore.class), mock(SubscriptionEvaluator.class), newConsolidationMonitor(), mock(JobService.class),
                 mock(JobHandlerRegistry.class), mock(DatabusAuthorizer.class), "replication", ignoreReEtl, mock(ExecutorService.class),
                 1, key -> 0, mock(MetricRegistry.class), Clock.systemUTC());
         Condition condition = Conditions.intrinsic(Intrinsic.TABLE, "test");
@@ -505,4 +506,8 @@ public class DefaultDatabusTest {
             }
         };
     }
+
+    private static ConsolidationMonitor newConsolidationMonitor() {
+        return new ConsolidationMonitor(new InMemoryMapStore<>(), new MetricRegistry());
+    }
 }
@@ -0,0 +1,120 @@
+package com.bazaarvoice.emodb.databus.repl;
+
+import com.bazaarvoice.emodb.common.uuid.TimeUUIDs;
+import com.bazaarvoice.emodb.event.api.EventData;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.testng.annotations.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+
+public class ReplicationEventSourceTest {
+
+    private static final Duration CLAIM_TTL = Duration.ofMinutes(2);
+
+    @Test
+    public void testAcksPiggybackOnNextPoll() {
+        ReplicationSource source = mock(ReplicationSource.class);
+        when(source.poll(eq("channel"), eq(CLAIM_TTL), anyInt(), anyCollection()))
+                .thenReturn(ImmutableList.of(newEvent("a"), newEvent("b")))
+                .thenReturn(ImmutableList.of());
+
+        ReplicationEventSource eventSource = newPipelinedEventSource(source, 2);
+
+        // The first get starts two polls, neither of which carries acks
+        List<EventData> events = eventSource.get(10);
+        assertEquals(events.size(), 2);
+        assertEquals(events.get(0).getId(), "a");
+        verify(source, times(2)).poll("channel", CLAIM_TTL, 10, ImmutableList.of());
+
+        // Deletes are buffered instead of being sent immediately
+        eventSource.delete(ImmutableList.of("a"));
+        eventSource.delete(ImmutableList.of("b"));
+        verifyNoMoreInteractions(source);
+
+        // The next get tops up the pipeline with a poll which acknowledges both events
+        assertEquals(eventSource.get(10).size(), 0);
+        verify(source).poll("channel", CLAIM_TTL, 10, ImmutableList.of("a", "b"));
+        verifyNoMoreInteractions(source);
+    }
+
+    @Test
+    public void testFallbackToSerialReplication() {
+        ReplicationSource source = mock(ReplicationSource.class);
+        when(source.poll(eq("channel"), eq(CLAIM_TTL), anyInt(), anyCollection()))
+                .thenThrow(new UnsupportedOperationException());
+        when(source.get("channel", 10)).thenReturn(ImmutableList.of(newEvent("a")));
+
+        ReplicationEventSource eventSource = newPipelinedEventSource(source, 1);
+
+        List<EventData> events = eventSource.get(10);
+        assertEquals(events.size(), 1);
+        verify(source).poll("channel", CLAIM_TTL, 10, ImmutableList.of());
+        verify(source).get("channel", 10);
+
+        // Once the remote data center is known not to support polling deletes are sent immediately
+        eventSource.delete(ImmutableList.of("a"));
+        verify(source).delete("channel", ImmutableList.of("a"));
+
+        eventSource.get(10);
+        verify(source, times(2)).get("channel", 10);
+        verifyNoMoreInteractions(source);
+    }
+
+    @Test
+    public void testPipeliningRetriedAfterFallback() {
+        ReplicationSource source = mock(ReplicationSource.class);
+        when(source.poll(eq("channel"), eq(CLAIM_TTL), anyInt(), anyCollection()))
+                .thenThrow(new UnsupportedOperationException())
+                .thenReturn(ImmutableList.of(newEvent("b")));
+        when(source.get("channel", 10)).thenReturn(ImmutableList.of(newEvent("a")));
+
+        Clock clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(0L);
+        ReplicationEventSource eventSource = newPipelinedEventSource(source, 1, clock);
+
+        assertEquals(eventSource.get(10).get(0).getId(), "a");
+        verify(source).poll("channel", CLAIM_TTL, 10, ImmutableList.of());
+
+        // Until the probe interval passes the event source doesn't try polling again
+        when(clock.millis()).thenReturn(ReplicationEventSource.PIPELINE_PROBE_INTERVAL.toMillis() - 1);
+        assertEquals(eventSource.get(10).get(0).getId(), "a");
+        verify(source, times(2)).get("channel", 10);
+
+        // The remote data center has been upgraded by the time pipelining is tried again
+        when(clock.millis()).thenReturn(ReplicationEventSource.PIPELINE_PROBE_INTERVAL.toMillis());
+        assertEquals(eventSource.get(10).get(0).getId(), "b");
+        verify(source, times(2)).poll("channel", CLAIM_TTL, 10, ImmutableList.of());
+
+        // Deletes are buffered again
+        eventSource.delete(ImmutableList.of("b"));
+        verifyNoMoreInteractions(source);
+    }
+
+    private ReplicationEventSource newPipelinedEventSource(ReplicationSource source, int fetchesInFlight) {
+        return newPipelinedEventSource(source, fetchesInFlight, Clock.systemUTC());
+    }
+
+    private ReplicationEventSource newPipelinedEventSource(ReplicationSource source, int fetchesInFlight, Clock clock) {
+        return new ReplicationEventSource(source, "channel", MoreExecutors.newDirectExecutorService(),
+                fetchesInFlight, CLAIM_TTL, new MetricRegistry(), clock);
+    }
+
+    private ReplicationEvent newEvent(String id) {
+        return new ReplicationEvent(id, "table", "key", TimeUUIDs.newUUID(), ImmutableSet.of());
+    }
+}
@@ -0,0 +1,185 @@
+package com.bazaarvoice.emodb.event.core;
+
+import com.google.common.collect.Lists;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Hashed timing wheel which tracks when claims expire.  A single wheel is shared by every {@link DefaultClaimSet} in a
+ * {@link DefaultClaimStore} so the cost of expiring claims doesn't grow with the number of channels or with the number
+ * of distinct TTLs in use.  Scheduling, rescheduling and cancelling an entry are all O(1): each entry is linked into
+ * the bucket for the tick in which it expires, and moving it to a new bucket is just an unlink and a link.
+ * <p>
+ * Entries are only removed from the wheel by {@link #advance(long)}, which sweeps every bucket that has come due since
+ * the last advance and calls {@link Entry#expire(long)} on the expired entries.  Buckets are shared by every round of
+ * the wheel so the sweep checks each entry's deadline and leaves entries for later rounds in place.
+ * <p>
+ * Locking: the wheel's own monitor guards the buckets and is only ever held briefly.  Callers that schedule or cancel
+ * entries typically hold a lock on the entry's owner, so {@link Entry#expire(long)} is called <em>without</em> holding
+ * the wheel's monitor, and {@link #advance(long)} must never be called while holding an owner's lock.
+ */
+public class ClaimExpirationWheel {
+    private static final long DEFAULT_TICK_MILLIS = 100;
+    private static final int DEFAULT_WHEEL_SIZE = 4096;
+
+    private final long _tickMillis;
+    private final Entry[] _buckets;
+    private final int _mask;
+    /** Serializes calls to {@link #advance(long)} so claims are fully expired by the time it returns. */
+    private final Lock _advanceLock = new ReentrantLock();
+    /** The most recent tick swept by {@link #advance(long)}.  The bucket for this tick may still be partly pending. */
+    private long _lastTick;
+    /** The earliest deadline of any entry due in {@link #_lastTick}, used to make repeated advances within a tick cheap. */
+    private long _nextDeadline = Long.MAX_VALUE;
+    private int _size;
+
+    public ClaimExpirationWheel() {
+        this(DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE);
+    }
+
+    public ClaimExpirationWheel(long tickMillis, int wheelSize) {
+        checkArgument(tickMillis > 0, "Tick must be >0");
+        checkArgument(wheelSize > 0 && Integer.bitCount(wheelSize) == 1, "Wheel size must be a power of 2");
+        _tickMillis = tickMillis;
+        _buckets = new Entry[wheelSize];
+        _mask = wheelSize - 1;
+        _lastTick = System.currentTimeMillis() / tickMillis;
+    }
+
+    /** Returns the number of entries in the wheel, including expired entries which haven't been swept yet. */
+    public synchronized int size() {
+        return _size;
+    }
+
+    /** Schedules the entry to expire at the specified time, replacing any previous schedule for the entry. */
+    public synchronized void schedule(Entry entry, long deadline) {
+        unlink(entry);
+        link(entry, deadline);
+    }
+
+    /** Schedules all the entries to expire at the specified time while acquiring the wheel's monitor only once. */
+    public synchronized void scheduleAll(Collection<? extends Entry> entries, long deadline) {
+        for (Entry entry : entries) {
+            unlink(entry);
+            link(entry, deadline);
+        }
+    }
+
+    /** Removes the entry from the wheel.  Its {@link Entry#expire(long)} method will not be called. */
+    public synchronized void cancel(Entry entry) {
+        unlink(entry);
+    }
+
+    public synchronized void cancelAll(Collection<? extends Entry> entries) {
+        for (Entry entry : entries) {
+            unlink(entry);
+        }
+    }
+
+    /**
+     * Expires every entry whose deadline is at or before {@code now}.  When this returns, {@link Entry#expire(long)}
+     * has been called for every such entry, whether by this thread or by a concurrent caller.
+     */
+    public void advance(long now) {
+        _advanceLock.lock();
+        try {
+            for (Entry entry : collectExpired(now)) {
+                entry.expire(now);
+            }
+        } finally {
+            _advanceLock.unlock();
+        }
+    }
+
+    private synchronized List<Entry> collectExpired(long now) {
+        // Never move backwards, for example if the system clock is adjusted
+        long tick = Math.max(now / _tickMillis, _lastTick);
+        if (tick == _lastTick && now < _nextDeadline) {
+            return Collections.emptyList();
+        }
+
+        // If the wheel hasn't been advanced in more than a full rotation then every bucket needs to be swept, once
+        long firstTick = Math.max(_lastTick, tick - _mask);
+        List<Entry> expired = Lists.newArrayList();
+        long nextDeadline = Long.MAX_VALUE;
+        for (long t = firstTick; t <= tick; t++) {
+            Entry entry = _buckets[(int) (t & _mask)];
+            while (entry != null) {
+                Entry next = entry._next;
+                if (entry._deadline <= now) {
+                    unlink(entry);
+                    expired.add(entry);
+                } else if (entry._deadline / _tickMillis <= tick) {
+                    nextDeadline = Math.min(nextDeadline, entry._deadline);
+                }
+                entry = next;
+            }
+        }
+        _lastTick = tick;
+        _nextDeadline = nextDeadline;
+        return expired;
+    }
+
+    private void link(Entry entry, long deadline) {
+        // Entries whose deadline has already passed go in the current bucket so the next advance finds them
+        long tick = Math.max(deadline / _tickMillis, _lastTick);
+        int bucket = (int) (tick & _mask);
+        Entry head = _buckets[bucket];
+        entry._deadline = deadline;
+        entry._bucket = bucket;
+        entry._prev = null;
+        entry._next = head;
+        if (head != null) {
+            head._prev = entry;
+        }
+        _buckets[bucket] = entry;
+        if (tick == _lastTick) {
+            _nextDeadline = Math.min(_nextDeadline, deadline);
+        }
+        _size++;
+    }
+
+    private void unlink(Entry entry) {
+        if (entry._bucket < 0) {
+            return;
+        }
+        if (entry._prev != null) {
+            entry._prev._next = entry._next;
+        } else {
+            _buckets[entry._bucket] = entry._next;
+        }
+        if (entry._next != null) {
+            entry._next._prev = entry._prev;
+        }
+        entry._prev = entry._next = null;
+        entry._bucket = -1;
+        _size--;
+    }
+
+    /**
+     * An item tracked by the wheel.  The deadline is written while holding the wheel's monitor, so readers outside the
+     * wheel must synchronize with whoever scheduled the entry, typically by holding the same owner lock.
+     */
+    public abstract static class Entry {
+        private Entry _prev;
+        private Entry _next;
+        private int _bucket = -1;
+        private long _deadline;
+
+        protected long getDeadline() {
+            return _deadline;
+        }
+
+        /**
+         * Called by {@link #advance(long)} after the entry has been removed from the wheel because its deadline passed.
+         * The entry may have been rescheduled concurrently, so implementations should re-check the deadline.
+         */
+        protected abstract void expire(long now);
+    }
+}
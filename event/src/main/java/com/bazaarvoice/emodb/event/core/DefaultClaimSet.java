@@ -1,47 +1,53 @@
 package com.bazaarvoice.emodb.event.core;
 
-import com.google.common.base.Predicate;
-import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
-import com.google.common.primitives.Longs;
 
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Iterator;
-import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
 
 import static com.google.common.base.Preconditions.checkArgument;
-import static com.google.common.base.Preconditions.checkState;
 import static java.util.Objects.requireNonNull;
 
-/** In-memory implementation of the {@link ClaimSet} interface. */
+/**
+ * In-memory implementation of the {@link ClaimSet} interface.  Claim expiration is tracked by a
+ * {@link ClaimExpirationWheel}, usually shared with the other claim sets in the same {@link DefaultClaimStore}, so
+ * acquiring, renewing and expiring a claim are all O(1) regardless of the mix of TTLs.
+ * <p>
+ * Claims whose expiration has passed are treated as unclaimed immediately, even if the wheel hasn't swept them yet.
+ */
 public class DefaultClaimSet implements ClaimSet {
     /** Holds claim objects.  Supports O(1) lookup by Claim ID. */
     private final Map<Claim, Claim> _claimMap = Maps.newHashMap();
-    /** Map of TtlMillis to a queue of claims in the order they expire. */
-    private final Map<Long, LinkedHashSet<Claim>> _expirationQueues = Maps.newHashMap();
-    /** Sorts expiration queues by the expiration of their head element at at the time of priority queue insertion. */
-    private final PriorityQueue<ProcessAt> _schedule = new PriorityQueue<>();
+    private final ClaimExpirationWheel _wheel;
+
+    public DefaultClaimSet() {
+        this(new ClaimExpirationWheel());
+    }
+
+    public DefaultClaimSet(ClaimExpirationWheel wheel) {
+        _wheel = requireNonNull(wheel, "wheel");
+    }
 
     @Override
-    public synchronized long size() {
-        processExpirationQueues(System.currentTimeMillis());
-        return _claimMap.size();
+    public long size() {
+        // Sweep expired claims first.  This must not hold the lock on this claim set since the wheel may be shared.
+        _wheel.advance(System.currentTimeMillis());
+        synchronized (this) {
+            return _claimMap.size();
+        }
     }
 
     @Override
     public synchronized boolean isClaimed(byte[] claimId) {
         requireNonNull(claimId, "claimId");
 
-        long now = System.currentTimeMillis();
-        processExpirationQueues(now);
-
-        return _claimMap.containsKey(new Claim(claimId, 0, 0));
+        Claim claim = _claimMap.get(new Claim(claimId));
+        return claim != null && !claim.isExpired(System.currentTimeMillis());
     }
 
     @Override
@@ -51,15 +57,15 @@ public class DefaultClaimSet implements ClaimSet {
         checkArgument(ttlMillis >= 0, "Ttl must be >=0");
 
         long now = System.currentTimeMillis();
-        processExpirationQueues(now);
-
-        Claim claim = new Claim(claimId, ttlMillis, now + ttlMillis);
-        if (_claimMap.containsKey(claim)) {
+        Claim claim = _claimMap.get(new Claim(claimId));
+        if (claim != null && !claim.isExpired(now)) {
             return false;
         }
-
-        _claimMap.put(claim, claim);
-        addToExpirationQueue(claim);
+        if (claim == null) {
+            claim = new Claim(claimId);
+            _claimMap.put(claim, claim);
+        }
+        _wheel.schedule(claim, now + ttlMillis);
         return true;
     }
 
@@ -75,140 +81,68 @@ public class DefaultClaimSet implements ClaimSet {
         checkArgument(ttlMillis >= 0, "Ttl must be >=0");
 
         long now = System.currentTimeMillis();
-        processExpirationQueues(now);
+        long expireAt = now + ttlMillis;
 
+        // Every renewed claim gets the same expiration, so reschedule them all with a single trip to the wheel
+        List<Claim> renewed = Lists.newArrayListWithCapacity(claimIds.size());
         for (byte[] claimId : claimIds) {
-            Claim claim = new Claim(claimId, ttlMillis, now + ttlMillis);
-            Claim oldClaim = _claimMap.put(claim, claim);
-
-            if (extendOnly && oldClaim != null && oldClaim.getExpireAt() >= claim.getExpireAt()) {
+            Claim claim = _claimMap.get(new Claim(claimId));
+            if (claim == null) {
+                claim = new Claim(claimId);
+                _claimMap.put(claim, claim);
+            } else if (extendOnly && !claim.isExpired(now) && claim.getDeadline() >= expireAt) {
                 // Old claim is for longer than the new claim and 'extendOnly' means don't shorten the life of a claim
-                _claimMap.put(oldClaim, oldClaim);
-            } else {
-                if (oldClaim != null) {
-                    removeFromExpirationQueue(oldClaim);
-                }
-                addToExpirationQueue(claim);
+                continue;
             }
+            renewed.add(claim);
         }
+        _wheel.scheduleAll(renewed, expireAt);
     }
 
     @Override
     public synchronized void clear() {
+        _wheel.cancelAll(_claimMap.keySet());
         _claimMap.clear();
-        _expirationQueues.clear();
-        _schedule.clear();
-    }
-
-        @Override
-    public synchronized void pump() {
-        processExpirationQueues(System.currentTimeMillis());
-        removeEmptyExpirationQueues();
-    }
-
-    private void addToExpirationQueue(Claim claim) {
-        Long ttlMillis = claim.getTtlMillis();
-        LinkedHashSet<Claim> queue = _expirationQueues.get(ttlMillis);
-        if (queue == null) {
-            queue = Sets.newLinkedHashSet();
-            queue.add(claim);
-            _expirationQueues.put(ttlMillis, queue);
-            _schedule.offer(new ProcessAt(queue, ttlMillis));
-        } else {
-            queue.add(claim);
-        }
-    }
-
-    private void removeFromExpirationQueue(Claim claim) {
-        LinkedHashSet<Claim> queue = _expirationQueues.get(claim.getTtlMillis());
-        if (queue != null) {
-            queue.remove(claim);
-        }
-        // Don't remove queue from _schedule if it's empty since removing from a PriorityQueue is O(n)
-    }
-
-    private void removeEmptyExpirationQueues() {
-        // Periodically go through and remove empty expiration queues so they don't accumulate forever.
-        // This cleans up queues with really long TTLs where every member was explicitly removed.
-        Iterables.removeIf(_expirationQueues.values(), new Predicate<LinkedHashSet<Claim>>() {
-            @Override
-            public boolean apply(LinkedHashSet<Claim> queue) {
-                return queue.isEmpty();
-            }
-        });
-        Iterables.removeIf(_schedule, new Predicate<ProcessAt>() {
-            @Override
-            public boolean apply(ProcessAt processAt) {
-                return processAt.getQueue().isEmpty();
-            }
-        });
-        checkState(_schedule.size() == _expirationQueues.size());
     }
 
-    private void processExpirationQueues(long now) {
-        ProcessAt processAt;
-        while ((processAt = _schedule.peek()) != null) {
-            // If the entry at the head of the priority queue isn't due, we're done.
-            if (processAt.getTimestamp() > now) {
-                break;
-            }
-            ProcessAt removed = _schedule.remove();
-            checkState(removed == processAt);
-
-            // Remove all the expired claims in the claim queue.
-            LinkedHashSet<Claim> queue = processAt.getQueue();
-            long ttlMillis = processAt.getTtlMillis();
-            processExpirationQueue(now, queue);
-
-            // Schedule the claim queue for processing next time around based on its new head element.
-            if (!queue.isEmpty()) {
-                _schedule.offer(new ProcessAt(queue, ttlMillis));
-            } else {
-                _expirationQueues.remove(ttlMillis);
-            }
-        }
-        checkState(_schedule.size() == _expirationQueues.size());
+    @Override
+    public void pump() {
+        _wheel.advance(System.currentTimeMillis());
     }
 
-    private void processExpirationQueue(long now, LinkedHashSet<Claim> queue) {
-        Iterator<Claim> claimIter = queue.iterator();
-        while (claimIter.hasNext()) {
-            Claim claim = claimIter.next();
-            // If the claim at the head of the queue hasn't expired yet, we're done processing this queue.
-            if (claim.getExpireAt() > now) {
-                break;
-            }
+    /** Called by the wheel when a claim's expiration has passed. */
+    private synchronized void expire(Claim claim, long now) {
+        // The claim may have been renewed or cleared since the wheel collected it
+        if (claim.isExpired(now) && _claimMap.get(claim) == claim) {
             _claimMap.remove(claim);
-            claimIter.remove();
+            // A renewal with a zero TTL may have rescheduled the claim after the wheel collected it
+            _wheel.cancel(claim);
         }
     }
 
     /**
-     * Wraps a single claim.  Tracks the claim's TTL and expiration time and implements equals and hashCode on the
-     * ID so it can be used as the key in the claim map.
+     * Wraps a single claim.  Tracks the claim's expiration time, via the wheel, and implements equals and hashCode on
+     * the ID so it can be used as the key in the claim map.
      */
-    private static class Claim {
+    private class Claim extends ClaimExpirationWheel.Entry {
         private final byte[] _id;
-        private final long _ttlMillis;
-        private final long _expireAt;
 
-        private Claim(byte[] id, long ttlMillis, long expireAt) {
+        private Claim(byte[] id) {
             _id = id;
-            _ttlMillis = ttlMillis;
-            _expireAt = expireAt;
         }
 
-        long getTtlMillis() {
-            return _ttlMillis;
+        boolean isExpired(long now) {
+            return getDeadline() <= now;
         }
 
-        long getExpireAt() {
-            return _expireAt;
+        @Override
+        protected void expire(long now) {
+            DefaultClaimSet.this.expire(this, now);
         }
 
         @Override
         public boolean equals(Object o) {
-            // Ignore ttlMillis and expireAt so we can find claims by ID in a hash table.
+            // Ignore the expiration so we can find claims by ID in a hash table.
             return this == o || (o instanceof Claim && Arrays.equals(_id, ((Claim) o)._id));
         }
 
@@ -217,36 +151,4 @@ public class DefaultClaimSet implements ClaimSet {
             return Arrays.hashCode(_id);
         }
     }
-
-    /**
-     *
-     */
-    private static class ProcessAt implements Comparable<ProcessAt> {
-        private final long _timestamp;
-        private final LinkedHashSet<Claim> _queue;
-        private final long _ttlMillis;
-
-        private ProcessAt(LinkedHashSet<Claim> queue, long ttlMillis) {
-            _timestamp = queue.iterator().next().getExpireAt();
-            _queue = queue;
-            _ttlMillis = ttlMillis;
-        }
-
-        long getTimestamp() {
-            return _timestamp;
-        }
-
-        LinkedHashSet<Claim> getQueue() {
-            return _queue;
-        }
-
-        long getTtlMillis() {
-            return _ttlMillis;
-        }
-
-        @Override
-        public int compareTo(ProcessAt processAt) {
-            return Longs.compare(_timestamp, processAt.getTimestamp());
-        }
-    }
 }
@@ -19,15 +19,26 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * In-memory implementation of the {@link ClaimSet} interface.
+ * In-memory implementation of the {@link ClaimStore} interface.  All claim sets share a single
+ * {@link ClaimExpirationWheel} which is swept periodically in the background, so memory held by expired claims is
+ * reclaimed even for channels that are no longer polled.
  */
 public class DefaultClaimStore implements ClaimStore {
     private final Map<String, Handle> _map = Maps.newHashMap();
+    private final ClaimExpirationWheel _wheel = new ClaimExpirationWheel();
 
     @Inject
     public DefaultClaimStore(LifeCycleRegistry lifeCycle, @MetricsGroupName String metricsGroup, MetricRegistry metricRegistry) {
         ScheduledExecutorService scheduledExecutor = defaultScheduledExecutor(lifeCycle, metricsGroup);
 
+        // Periodically expire claims across all channels.
+        scheduledExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                _wheel.advance(System.currentTimeMillis());
+            }
+        }, 1, 1, TimeUnit.SECONDS);
+
         // Periodically cleanup ClaimSets with no active claims.
         scheduledExecutor.scheduleWithFixedDelay(new Runnable() {
             @Override
@@ -84,7 +95,7 @@ public class DefaultClaimStore implements ClaimStore {
     private synchronized Handle acquire(String name) {
         Handle handle = _map.get(name);
         if (handle == null) {
-            handle = new Handle(new DefaultClaimSet());
+            handle = new Handle(new DefaultClaimSet(_wheel));
             _map.put(name, handle);
         }
         handle.getRefCount().incrementAndGet();
@@ -1,5 +1,6 @@
 package com.bazaarvoice.emodb.event.core;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.testng.annotations.Test;
@@ -106,6 +107,55 @@ public class DefaultClaimSetTest {
         claimSet.pump();
     }
 
+    @Test
+    public void testSharedExpirationWheel() throws Exception {
+        ClaimExpirationWheel wheel = new ClaimExpirationWheel(10, 8);
+        ClaimSet claimSet1 = new DefaultClaimSet(wheel);
+        ClaimSet claimSet2 = new DefaultClaimSet(wheel);
+        byte[] claim = newClaim(1);
+
+        // The same claim ID in different sets is independent
+        assertTrue(claimSet1.acquire(claim, Duration.ofMillis(50)));
+        assertTrue(claimSet2.acquire(claim, TTL));
+        assertEquals(wheel.size(), 2);
+
+        // Wait for more than a full rotation of the wheel so the long claim is swept past several times
+        sleepUntil(System.currentTimeMillis() + 200);
+        assertEquals(claimSet1.size(), 0);
+        assertFalse(claimSet1.isClaimed(claim));
+        assertEquals(claimSet2.size(), 1);
+        assertTrue(claimSet2.isClaimed(claim));
+        assertEquals(wheel.size(), 1);
+
+        // Clearing a set removes its claims from the wheel
+        claimSet2.clear();
+        assertEquals(claimSet2.size(), 0);
+        assertEquals(wheel.size(), 0);
+    }
+
+    @Test
+    public void testRenewAllExtendOnly() {
+        ClaimSet claimSet = new DefaultClaimSet();
+        byte[] shortClaim = newClaim(1);
+        byte[] longClaim = newClaim(2);
+        byte[] newClaim = newClaim(3);
+
+        assertTrue(claimSet.acquire(shortClaim, Duration.ZERO));
+        assertTrue(claimSet.acquire(longClaim, TTL));
+
+        // Expired and unknown claims are claimed by the renewal; the longer claim is left alone
+        claimSet.renewAll(ImmutableList.of(shortClaim, longClaim, newClaim), Duration.ofMinutes(1), true);
+        assertTrue(claimSet.isClaimed(shortClaim));
+        assertTrue(claimSet.isClaimed(longClaim));
+        assertTrue(claimSet.isClaimed(newClaim));
+        assertEquals(claimSet.size(), 3);
+
+        claimSet.renewAll(ImmutableList.of(shortClaim, longClaim), Duration.ZERO, false);
+        assertFalse(claimSet.isClaimed(shortClaim));
+        assertFalse(claimSet.isClaimed(longClaim));
+        assertEquals(claimSet.size(), 1);
+    }
+
     /**
      * Sanity check that the basic ClaimSet operations are O(1) or O(log N), not O(n).
      * <p>
@@ -0,0 +1,105 @@
+package com.bazaarvoice.emodb.kafka;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * JSON serde which can optionally deflate each message individually.  Compressed messages are prefixed with a version
+ * byte which can never start a JSON document, so the deserializer reads both compressed and uncompressed messages
+ * regardless of how it is configured.  This is mostly useful for large documents, since Kafka's own batch compression
+ * already handles runs of small messages well.
+ */
+public class CompressedJsonSerde<T> implements Serde<T> {
+
+    static final byte DEFLATE_V1 = 1;
+
+    private final JsonPOJOSerde<T> _jsonSerde;
+    private final boolean _compress;
+
+    public CompressedJsonSerde(TypeReference<T> typeReference, boolean compress) {
+        _jsonSerde = new JsonPOJOSerde<>(typeReference);
+        _compress = compress;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+
+    }
+
+    @Override
+    public void close() {
+
+    }
+
+    @Override
+    public Serializer<T> serializer() {
+        Serializer<T> jsonSerializer = _jsonSerde.serializer();
+        if (!_compress) {
+            return jsonSerializer;
+        }
+
+        return new Serializer<T>() {
+            @Override
+            public byte[] serialize(String topic, T data) {
+                byte[] json = jsonSerializer.serialize(topic, data);
+                if (json == null) {
+                    return null;
+                }
+                try {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length / 4 + 16);
+                    bytes.write(DEFLATE_V1);
+                    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+                    try (DeflaterOutputStream out = new DeflaterOutputStream(bytes, deflater)) {
+                        out.write(json);
+                    } finally {
+                        deflater.end();
+                    }
+                    return bytes.toByteArray();
+                } catch (Exception e) {
+                    throw new SerializationException("Error compressing JSON message", e);
+                }
+            }
+        };
+    }
+
+    @Override
+    public Deserializer<T> deserializer() {
+        Deserializer<T> jsonDeserializer = _jsonSerde.deserializer();
+
+        return new Deserializer<T>() {
+            @Override
+            public T deserialize(String topic, byte[] data) {
+                if (JsonPOJOSerde.isJson(data)) {
+                    return jsonDeserializer.deserialize(topic, data);
+                }
+                if (data[0] != DEFLATE_V1) {
+                    throw new SerializationException("Unsupported compressed message version: " + data[0]);
+                }
+                try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(data, 1, data.length - 1))) {
+                    ByteArrayOutputStream json = new ByteArrayOutputStream(data.length * 4);
+                    byte[] buffer = new byte[8192];
+                    int count;
+                    while ((count = in.read(buffer)) != -1) {
+                        json.write(buffer, 0, count);
+                    }
+                    return jsonDeserializer.deserialize(topic, json.toByteArray());
+                } catch (SerializationException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new SerializationException("Error decompressing JSON message", e);
+                }
+            }
+        };
+    }
+}
@@ -12,6 +12,9 @@ import java.util.Map;
 
 public class JsonPOJOSerde<T> implements Serde<T> {
 
+    // JSON documents begin with whitespace (tab, 0x09, or higher) or a printable character
+    private static final byte MIN_JSON_BYTE = 0x09;
+
     private static final ObjectMapper _mapper = new ObjectMapper();
     private final Class<T> _cls;
     private final TypeReference _typeReference;
@@ -30,6 +33,15 @@ public class JsonPOJOSerde<T> implements Serde<T> {
         _cls = null;
     }
 
+    /**
+     * Returns true unless the message starts with a byte which can't begin a JSON document.  Serdes which can also
+     * write a non-JSON encoding prefix it with a version byte below tab (0x09) so readers can tell the
+     * two apart.  Null and empty messages are left to the JSON deserializer.
+     */
+    public static boolean isJson(byte[] data) {
+        return data == null || data.length == 0 || data[0] >= MIN_JSON_BYTE;
+    }
+
     @Override
     public void configure(Map<String, ?> configs, boolean isKey) {
 
@@ -0,0 +1,59 @@
+package com.bazaarvoice.emodb.kafka;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+import org.apache.kafka.common.errors.SerializationException;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class CompressedJsonSerdeTest {
+
+    private static final Map<String, Object> DOCUMENT = ImmutableMap.of(
+            "~id", "key1", "~table", "tableA", "text", Strings.repeat("the quick brown fox ", 100));
+
+    @Test
+    public void testCompressedRoundTrip() {
+        CompressedJsonSerde<Map<String, Object>> serde = new CompressedJsonSerde<>(new TypeReference<Map<String, Object>>() {}, true);
+        byte[] compressed = serde.serializer().serialize("topic", DOCUMENT);
+        byte[] json = new JsonPOJOSerde<>(new TypeReference<Map<String, Object>>() {}).serializer().serialize("topic", DOCUMENT);
+
+        assertEquals(compressed[0], CompressedJsonSerde.DEFLATE_V1);
+        assertTrue(compressed.length < json.length);
+        assertEquals(serde.deserializer().deserialize("topic", compressed), DOCUMENT);
+    }
+
+    @Test
+    public void testUncompressedIsPlainJson() {
+        CompressedJsonSerde<Map<String, Object>> serde = new CompressedJsonSerde<>(new TypeReference<Map<String, Object>>() {}, false);
+        byte[] json = new JsonPOJOSerde<>(new TypeReference<Map<String, Object>>() {}).serializer().serialize("topic", DOCUMENT);
+
+        assertEquals(serde.serializer().serialize("topic", DOCUMENT), json);
+        assertEquals(serde.deserializer().deserialize("topic", json), DOCUMENT);
+    }
+
+    @Test
+    public void testReadsCompressedWhenNotCompressing() {
+        byte[] compressed = new CompressedJsonSerde<>(new TypeReference<Map<String, Object>>() {}, true).serializer().serialize("topic", DOCUMENT);
+
+        assertEquals(new CompressedJsonSerde<>(new TypeReference<Map<String, Object>>() {}, false).deserializer().deserialize("topic", compressed), DOCUMENT);
+    }
+
+    @Test
+    public void testNull() {
+        CompressedJsonSerde<Map<String, Object>> serde = new CompressedJsonSerde<>(new TypeReference<Map<String, Object>>() {}, true);
+
+        assertNull(serde.serializer().serialize("topic", null));
+        assertNull(serde.deserializer().deserialize("topic", null));
+    }
+
+    @Test(expectedExceptions = SerializationException.class)
+    public void testUnknownVersion() {
+        new CompressedJsonSerde<>(new TypeReference<Map<String, Object>>() {}, true).deserializer().deserialize("topic", new byte[] {5, 1, 2});
+    }
+}
@@ -7,7 +7,9 @@ import java.util.Objects;
 import org.testng.annotations.Test;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
 
 public class JsonPOJOSerdeTest {
 
@@ -47,6 +49,18 @@ public class JsonPOJOSerdeTest {
         assertEquals(serializedResult, deserializedResult);
     }
 
+    @Test
+    public void testIsJson() {
+        JsonPOJOSerde<TestPOJO> jsonPOJOSerde = new JsonPOJOSerde<>(TestPOJO.class);
+
+        assertTrue(JsonPOJOSerde.isJson(jsonPOJOSerde.serializer().serialize("", new TestPOJO(1, "hello"))));
+        assertTrue(JsonPOJOSerde.isJson("\t[1]".getBytes()));
+        assertTrue(JsonPOJOSerde.isJson(new byte[0]));
+        assertTrue(JsonPOJOSerde.isJson(null));
+        assertFalse(JsonPOJOSerde.isJson(new byte[] {1, '{', '}'}));
+        assertFalse(JsonPOJOSerde.isJson(new byte[] {0}));
+    }
+
     private static class TestPOJO {
 
         private int val1;
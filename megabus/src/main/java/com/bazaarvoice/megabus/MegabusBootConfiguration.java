@@ -7,6 +7,8 @@ import javax.validation.constraints.NotNull;
 public class MegabusBootConfiguration {
 
     private static final int DEFAULT_SCAN_THREAD_COUNT = 8;
+    private static final int DEFAULT_RANGE_SCAN_SPLIT_SIZE = 250000;
+    private static final int DEFAULT_MAX_CONCURRENT_SUB_RANGE_SCANS = 16;
 
 
     // the API key to use for EmoDB queues
@@ -37,6 +39,26 @@ public class MegabusBootConfiguration {
     @JsonProperty ("scanThreadCount")
     private int _scanThreadCount = DEFAULT_SCAN_THREAD_COUNT;
 
+    // Approximate number of rows in each token range split of the boot.  Smaller splits spread more evenly across
+    // servers and lose less work when a boot is interrupted.  Default is 250,000.
+    @Valid
+    @NotNull
+    @JsonProperty ("rangeScanSplitSize")
+    private int _rangeScanSplitSize = DEFAULT_RANGE_SCAN_SPLIT_SIZE;
+
+    // Maximum number of splits from the same token range which may be scanned concurrently across all servers.
+    // Default is 16.
+    @Valid
+    @NotNull
+    @JsonProperty ("maxConcurrentSubRangeScans")
+    private int _maxConcurrentSubRangeScans = DEFAULT_MAX_CONCURRENT_SUB_RANGE_SCANS;
+
+    // Whether a failed boot is resumed from its incomplete splits rather than halting the megabus.  Default is true.
+    @Valid
+    @NotNull
+    @JsonProperty ("resumeFailedBoot")
+    private boolean _resumeFailedBoot = true;
+
     public String getQueueServiceApiKey() {
         return _queueServiceApiKey;
     }
@@ -56,4 +78,16 @@ public class MegabusBootConfiguration {
     public int getScanThreadCount() {
         return _scanThreadCount;
     }
+
+    public int getRangeScanSplitSize() {
+        return _rangeScanSplitSize;
+    }
+
+    public int getMaxConcurrentSubRangeScans() {
+        return _maxConcurrentSubRangeScans;
+    }
+
+    public boolean isResumeFailedBoot() {
+        return _resumeFailedBoot;
+    }
 }
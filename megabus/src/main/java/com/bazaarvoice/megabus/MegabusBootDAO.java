@@ -2,6 +2,8 @@ package com.bazaarvoice.megabus;
 
 import com.bazaarvoice.emodb.kafka.Topic;
 
+import javax.annotation.Nullable;
+
 public interface MegabusBootDAO {
 
     enum BootStatus {
@@ -14,4 +16,15 @@ public interface MegabusBootDAO {
     void initiateBoot(String applicationId, Topic topic);
 
     BootStatus getBootStatus(String applicationId);
+
+    /**
+     * Restarts a failed boot.  Only the splits which had not completed when the boot failed are replayed.
+     */
+    void resumeBoot(String applicationId);
+
+    /**
+     * Returns the progress of the boot, or null if the boot has not started.
+     */
+    @Nullable
+    MegabusBootProgress getBootProgress(String applicationId);
 }
@@ -3,24 +3,30 @@ package com.bazaarvoice.megabus;
 import com.bazaarvoice.emodb.kafka.Topic;
 import com.bazaarvoice.megabus.refproducer.MegabusRefProducerManager;
 import com.google.common.util.concurrent.AbstractIdleService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import static java.util.Objects.requireNonNull;
 
 public class MegabusBootInitiater extends AbstractIdleService {
 
+    private static final Logger _log = LoggerFactory.getLogger(MegabusBootInitiater.class);
+
     public static final String SERVICE_NAME = "megabus-boot-initiater";
 
     private final MegabusBootDAO _megabusBootDAO;
     private final String _applicationId;
     private final Topic _megabusTopic;
     private final MegabusRefProducerManager _megabusRefProducerManager;
+    private final boolean _resumeFailedBoot;
 
     public MegabusBootInitiater(MegabusBootDAO megabusBootDAO, String applicationId, Topic megabusTopic,
-                                MegabusRefProducerManager megabusRefProducerManager) {
+                                MegabusRefProducerManager megabusRefProducerManager, boolean resumeFailedBoot) {
         _megabusBootDAO = requireNonNull(megabusBootDAO);
         _applicationId = requireNonNull(applicationId);
         _megabusTopic = requireNonNull(megabusTopic);
         _megabusRefProducerManager = requireNonNull(megabusRefProducerManager);
+        _resumeFailedBoot = resumeFailedBoot;
     }
 
     @Override
@@ -35,7 +41,14 @@ public class MegabusBootInitiater extends AbstractIdleService {
             case COMPLETE:
                 return;
             case FAILED:
-                throw new RuntimeException("Megabus Boot Failed");
+                if (!_resumeFailedBoot) {
+                    throw new RuntimeException("Megabus Boot Failed");
+                }
+                // Splits completed before the failure have already been written to the megabus, so only the
+                // remaining splits are replayed.
+                _log.warn("Megabus boot for {} failed; resuming from incomplete splits", _applicationId);
+                _megabusBootDAO.resumeBoot(_applicationId);
+                return;
         }
     }
 
@@ -0,0 +1,72 @@
+package com.bazaarvoice.megabus;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Snapshot of how far a megabus boot has progressed.  A boot is divided into token range splits of roughly equal size,
+ * so throughput and the time remaining are estimated from the number of splits completed since the boot started.
+ */
+public class MegabusBootProgress {
+
+    private final int _totalSplits;
+    private final int _activeSplits;
+    private final int _completeSplits;
+    private final Instant _startTime;
+
+    public MegabusBootProgress(int totalSplits, int activeSplits, int completeSplits, Instant startTime) {
+        checkArgument(completeSplits + activeSplits <= totalSplits, "More active and complete splits than total splits");
+        _totalSplits = totalSplits;
+        _activeSplits = activeSplits;
+        _completeSplits = completeSplits;
+        _startTime = requireNonNull(startTime, "startTime");
+    }
+
+    public int getTotalSplits() {
+        return _totalSplits;
+    }
+
+    public int getActiveSplits() {
+        return _activeSplits;
+    }
+
+    public int getCompleteSplits() {
+        return _completeSplits;
+    }
+
+    public int getPendingSplits() {
+        return _totalSplits - _activeSplits - _completeSplits;
+    }
+
+    public Instant getStartTime() {
+        return _startTime;
+    }
+
+    /**
+     * Returns the average number of splits completed per minute since the boot started.
+     */
+    public double getSplitsPerMinute(Instant now) {
+        long elapsedMillis = Duration.between(_startTime, now).toMillis();
+        if (elapsedMillis <= 0) {
+            return 0;
+        }
+        return _completeSplits * 60000.0 / elapsedMillis;
+    }
+
+    /**
+     * Returns the estimated time until all splits are complete, or absent if no split has completed yet and there is
+     * no basis for an estimate.
+     */
+    public Optional<Duration> getEstimatedTimeRemaining(Instant now) {
+        double splitsPerMinute = getSplitsPerMinute(now);
+        if (splitsPerMinute == 0) {
+            return Optional.empty();
+        }
+        int remainingSplits = _totalSplits - _completeSplits;
+        return Optional.of(Duration.ofSeconds((long) (remainingSplits * 60 / splitsPerMinute)));
+    }
+}
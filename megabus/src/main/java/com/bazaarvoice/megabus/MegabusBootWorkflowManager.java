@@ -12,10 +12,15 @@ import com.bazaarvoice.megabus.guice.TableEventRegistrationService;
 import com.bazaarvoice.megabus.refproducer.MegabusRefProducerManager;
 import com.bazaarvoice.megabus.guice.MegabusRefResolverService;
 import com.bazaarvoice.megabus.guice.MissingRefDelayService;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.net.HostAndPort;
 import com.google.common.util.concurrent.Service;
 import com.google.inject.Inject;
 import io.dropwizard.lifecycle.Managed;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -38,6 +43,7 @@ public class MegabusBootWorkflowManager implements Managed {
     private final Managed _refProducerManager;
     private final MegabusBootDAO _megabusBootDAO;
     private final ScheduledExecutorService _bootCoordinator;
+    private volatile MegabusBootProgress _bootProgress;
 
     private final String _applicationId;
 
@@ -55,11 +61,14 @@ public class MegabusBootWorkflowManager implements Managed {
                                       @MegabusTopic Topic megabusTopic,
                                       MegabusRefProducerManager refProducerManager,
                                       @TableEventProcessorService Service tableEventProcessorService,
-                                      MegabusBootDAO statusDAO) {
+                                      MegabusBootDAO statusDAO,
+                                      MegabusConfiguration megabusConfiguration,
+                                      MetricRegistry metricRegistry) {
         _applicationId = megabusApplicationId;
+        boolean resumeFailedBoot = megabusConfiguration.getBootConfiguration().isResumeFailedBoot();
         _bootInitiater = new LeaderService(curator, LEADER_DIR, selfHostAndPort.toString(),
                 MegabusBootInitiater.SERVICE_NAME, 1, TimeUnit.MINUTES,
-                () -> new MegabusBootInitiater(megabusBootDAO, megabusApplicationId, megabusTopic, refProducerManager));
+                () -> new MegabusBootInitiater(megabusBootDAO, megabusApplicationId, megabusTopic, refProducerManager, resumeFailedBoot));
         _megabusBootDAO = megabusBootDAO;
         _missingRefDelayService = missingRefDelayService;
         _refResolverService = refResolverService;
@@ -67,6 +76,17 @@ public class MegabusBootWorkflowManager implements Managed {
         _tableEventProcessorService = tableEventProcessorService;
         _refProducerManager = refProducerManager;
         _bootCoordinator = Executors.newSingleThreadScheduledExecutor();
+
+        metricRegistry.register(MetricRegistry.name("bv.emodb.megabus", "MegabusBoot", "complete-splits"),
+                (Gauge<Integer>) () -> _bootProgress != null ? _bootProgress.getCompleteSplits() : 0);
+        metricRegistry.register(MetricRegistry.name("bv.emodb.megabus", "MegabusBoot", "total-splits"),
+                (Gauge<Integer>) () -> _bootProgress != null ? _bootProgress.getTotalSplits() : 0);
+        metricRegistry.register(MetricRegistry.name("bv.emodb.megabus", "MegabusBoot", "splits-per-minute"),
+                (Gauge<Double>) () -> _bootProgress != null ? _bootProgress.getSplitsPerMinute(Instant.now()) : 0);
+        metricRegistry.register(MetricRegistry.name("bv.emodb.megabus", "MegabusBoot", "eta-seconds"),
+                (Gauge<Long>) () -> _bootProgress != null ?
+                        _bootProgress.getEstimatedTimeRemaining(Instant.now()).map(Duration::getSeconds).orElse(-1L) : 0L);
+
         lifeCycle.manage(this);
     }
 
@@ -83,7 +103,12 @@ public class MegabusBootWorkflowManager implements Managed {
                 _log.error("Failed to retrieve boot status.", t);
             }
 
+            if (bootStatus == MegabusBootDAO.BootStatus.IN_PROGRESS) {
+                reportBootProgress();
+            }
+
             if (bootStatus == MegabusBootDAO.BootStatus.COMPLETE) {
+                _bootProgress = null;
                 _missingRefDelayService.startAsync();
                 _refResolverService.startAsync();
                 _tableEventProcessorService.startAsync();
@@ -98,6 +123,26 @@ public class MegabusBootWorkflowManager implements Managed {
         }, 0, 15, TimeUnit.SECONDS);
     }
 
+    private void reportBootProgress() {
+        MegabusBootProgress progress;
+        try {
+            progress = _megabusBootDAO.getBootProgress(_applicationId);
+        } catch (Throwable t) {
+            _log.warn("Failed to retrieve boot progress.", t);
+            return;
+        }
+        if (progress == null) {
+            return;
+        }
+        _bootProgress = progress;
+
+        Instant now = Instant.now();
+        Optional<Duration> eta = progress.getEstimatedTimeRemaining(now);
+        _log.info("Megabus boot progress: {}/{} splits complete, {} active, {} splits/minute, estimated time remaining {}",
+                progress.getCompleteSplits(), progress.getTotalSplits(), progress.getActiveSplits(),
+                String.format("%.1f", progress.getSplitsPerMinute(now)), eta.map(Duration::toString).orElse("unknown"));
+    }
+
     @Override
     public void stop() throws Exception {
         _refResolverService.stopAsync();
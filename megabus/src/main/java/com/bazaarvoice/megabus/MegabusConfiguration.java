@@ -2,6 +2,9 @@ package com.bazaarvoice.megabus;
 
 import com.bazaarvoice.emodb.kafka.Topic;
 import com.bazaarvoice.megabus.refproducer.MegabusRefProducerConfiguration;
+import com.bazaarvoice.megabus.resolver.MegabusRefResolverConfiguration;
+import com.bazaarvoice.megabus.resolver.MissingRefDelayConfiguration;
+import com.bazaarvoice.megabus.serde.MegabusSerdeConfiguration;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
@@ -53,6 +56,21 @@ public class MegabusConfiguration {
     @JsonProperty("refProducer")
     private MegabusRefProducerConfiguration _refProducerConfiguration;
 
+    @Valid
+    @NotNull
+    @JsonProperty("refResolver")
+    private MegabusRefResolverConfiguration _refResolverConfiguration = new MegabusRefResolverConfiguration();
+
+    @Valid
+    @NotNull
+    @JsonProperty("missingRefDelay")
+    private MissingRefDelayConfiguration _missingRefDelayConfiguration = new MissingRefDelayConfiguration();
+
+    @Valid
+    @NotNull
+    @JsonProperty("serde")
+    private MegabusSerdeConfiguration _serdeConfiguration = new MegabusSerdeConfiguration();
+
     public String getApplicationId() {
         return _applicationId;
     }
@@ -73,6 +91,18 @@ public class MegabusConfiguration {
         return _refProducerConfiguration;
     }
 
+    public MegabusRefResolverConfiguration getRefResolverConfiguration() {
+        return _refResolverConfiguration;
+    }
+
+    public MissingRefDelayConfiguration getMissingRefDelayConfiguration() {
+        return _missingRefDelayConfiguration;
+    }
+
+    public MegabusSerdeConfiguration getSerdeConfiguration() {
+        return _serdeConfiguration;
+    }
+
     public Topic getMissingRefTopic() {
         return _missingRefTopic;
     }
@@ -18,8 +18,11 @@ import com.bazaarvoice.megabus.refproducer.MegabusRefProducerConfiguration;
 import com.bazaarvoice.megabus.refproducer.MegabusRefProducerManager;
 import com.bazaarvoice.megabus.refproducer.MegabusRefSubscriptionMonitorManager;
 import com.bazaarvoice.megabus.refproducer.NumRefPartitions;
+import com.bazaarvoice.megabus.resolver.MegabusRefResolverConfiguration;
+import com.bazaarvoice.megabus.resolver.MissingRefDelayConfiguration;
 import com.bazaarvoice.megabus.resolver.ResilientMegabusRefResolver;
 import com.bazaarvoice.megabus.resolver.ResilientMissingRefDelayProcessor;
+import com.bazaarvoice.megabus.serde.MegabusSerdeConfiguration;
 import com.bazaarvoice.megabus.tableevents.TableEventProcessorManager;
 import com.bazaarvoice.megabus.tableevents.TableEventRegistrar;
 import com.bazaarvoice.megabus.tableevents.TableEventRegistrationId;
@@ -118,6 +121,24 @@ public class MegabusModule extends PrivateModule {
         return megabusConfiguration.getRefProducerConfiguration();
     }
 
+    @Provides
+    @Singleton
+    MegabusRefResolverConfiguration provideMegabusRefResolverConfiguration(MegabusConfiguration megabusConfiguration) {
+        return megabusConfiguration.getRefResolverConfiguration();
+    }
+
+    @Provides
+    @Singleton
+    MissingRefDelayConfiguration provideMissingRefDelayConfiguration(MegabusConfiguration megabusConfiguration) {
+        return megabusConfiguration.getMissingRefDelayConfiguration();
+    }
+
+    @Provides
+    @Singleton
+    MegabusSerdeConfiguration provideMegabusSerdeConfiguration(MegabusConfiguration megabusConfiguration) {
+        return megabusConfiguration.getSerdeConfiguration();
+    }
+
     @Provides
     @Singleton
     @DelayProcessorConsumerGroup
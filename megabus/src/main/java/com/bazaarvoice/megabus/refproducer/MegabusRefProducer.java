@@ -11,6 +11,7 @@ import com.bazaarvoice.emodb.event.api.EventData;
 import com.bazaarvoice.emodb.kafka.Topic;
 import com.bazaarvoice.emodb.sor.api.Coordinate;
 import com.bazaarvoice.megabus.MegabusRef;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
@@ -19,6 +20,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.AbstractScheduledService;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.common.utils.Utils;
@@ -27,8 +29,15 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -44,6 +53,8 @@ public class MegabusRefProducer extends AbstractScheduledService {
     private final int _pollIntervalMs;
     private final int _eventsLimit;
     private final int _skipWaitThreshold;
+    private final int _pipelineDepth;
+    private final Duration _claimTtl;
 
     private final RateLimitedLog _rateLimitedLog;
     private final DatabusEventStore _eventStore;
@@ -58,6 +69,13 @@ public class MegabusRefProducer extends AbstractScheduledService {
 
     private final Meter _eventMeter;
     private final Meter _errorMeter;
+    private final Histogram _pipelineDepthHistogram;
+    private final Timer _ackLagTimer;
+
+    // Only used in pipelined mode.  Batches are added and removed exclusively by the polling thread, in poll order.
+    private final Deque<InFlightBatch> _inFlightBatches = new ArrayDeque<>();
+    @Nullable
+    private final ExecutorService _ackExecutor;
 
     public MegabusRefProducer(MegabusRefProducerConfiguration config, DatabusEventStore eventStore,
                               RateLimitedLogFactory logFactory, MetricRegistry metricRegistry,
@@ -79,9 +97,13 @@ public class MegabusRefProducer extends AbstractScheduledService {
         checkArgument(configuration.getPollIntervalMs() > 0);
         checkArgument(configuration.getBatchSize() > 0);
         checkArgument(configuration.getSkipWaitThreshold() >= 0 && configuration.getSkipWaitThreshold() <= configuration.getBatchSize());
+        checkArgument(configuration.getPipelineDepth() > 0);
+        checkArgument(configuration.getClaimTtlSeconds() > 0);
         _pollIntervalMs = configuration.getPollIntervalMs();
         _eventsLimit = configuration.getBatchSize();
         _skipWaitThreshold = configuration.getSkipWaitThreshold();
+        _pipelineDepth = configuration.getPipelineDepth();
+        _claimTtl = Duration.ofSeconds(configuration.getClaimTtlSeconds());
         _eventStore = requireNonNull(eventStore, "eventStore");
         _timers = new MetricsGroup(metricRegistry);
         _timerName = newTimerName("megabusPoll-" + partitionIdentifer);
@@ -91,6 +113,13 @@ public class MegabusRefProducer extends AbstractScheduledService {
         _clock = Optional.ofNullable(clock).orElse(Clock.systemUTC());
         _eventMeter = metricRegistry.meter(MetricRegistry.name("bv.emodb.megabus", "MegabusRefProducer", "events"));
         _errorMeter = metricRegistry.meter(MetricRegistry.name("bv.emodb.megabus", "MegabusRefProducer", "errors"));
+        _pipelineDepthHistogram = metricRegistry.histogram(MetricRegistry.name("bv.emodb.megabus", "MegabusRefProducer", "pipelineDepth"));
+        _ackLagTimer = metricRegistry.timer(MetricRegistry.name("bv.emodb.megabus", "MegabusRefProducer", "ackLag"));
+        // In pipelined mode deletes are issued from a dedicated thread so Kafka's I/O thread never blocks on the event store
+        _ackExecutor = _pipelineDepth > 1 ?
+                Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                        .setNameFormat("megabus-ref-ack-" + partitionIdentifer + "-%d").setDaemon(true).build()) :
+                null;
 
         // TODO: We should ideally make the megabus poller also the dedup leader, which should allow consistent polling and deduping, as well as cluster updates to the same key
         // NOTE: megabus subscriptions currently avoid dedup queues by starting with "__"
@@ -112,7 +141,19 @@ public class MegabusRefProducer extends AbstractScheduledService {
 
     @Override
     protected void shutDown() throws Exception {
-        _timers.close();  // Lost leadership.  Stop reporting metrics so we don't conflict with the new leader.
+        try {
+            // Give outstanding batches a chance to be acknowledged, then release whatever remains so the next leader
+            // doesn't have to wait for the claims to expire.
+            drainPipeline();
+        } catch (Throwable t) {
+            _log.warn("Unable to drain megabus ref pipeline on shutdown", t);
+            releaseInFlightClaims();
+        } finally {
+            if (_ackExecutor != null) {
+                _ackExecutor.shutdown();
+            }
+            _timers.close();  // Lost leadership.  Stop reporting metrics so we don't conflict with the new leader.
+        }
     }
 
     @Override
@@ -125,12 +166,13 @@ public class MegabusRefProducer extends AbstractScheduledService {
     protected void runOneIteration() {
         try {
             //noinspection StatementWithEmptyBody
-            while (isRunning() && peekAndAckEvents()) {
+            while (isRunning() && (_pipelineDepth > 1 ? pollAndPipelineEvents() : peekAndAckEvents())) {
                 // Loop w/o sleeping as long as we keep finding events
             }
         } catch (Throwable t) {
             _rateLimitedLog.error(t, "Unexpected megabus exception: {}", t);
             _errorMeter.mark();
+            releaseInFlightClaims();
             // Give up leadership temporarily.  Maybe another server will have more success.
             stopAsync();
         }
@@ -142,15 +184,7 @@ public class MegabusRefProducer extends AbstractScheduledService {
         long startTime = _clock.instant().getNano();
         List<EventData> result = _eventStore.peek(_subscriptionName, _eventsLimit);
 
-        List<Future> futures = result.stream()
-                .map(eventData -> UpdateRefSerializer.fromByteBuffer(eventData.getData()))
-                .map(ref -> new MegabusRef(ref.getTable(), ref.getKey(), ref.getChangeId(), _clock.instant(), MegabusRef.RefType.NORMAL))
-                .collect(Collectors.groupingBy(ref -> {
-                    String key = Coordinate.of(ref.getTable(), ref.getKey()).toString();
-                    return Utils.toPositive(Utils.murmur2(key.getBytes())) % _topic.getPartitions();
-                }, Collectors.toList()))
-                .entrySet()
-                .stream()
+        List<Future> futures = groupByPartition(result).entrySet().stream()
                 .map(entry -> _producer.send(new ProducerRecord<>(_topic.getName(), entry.getKey(), TimeUUIDs.newUUID().toString(),
                         _objectMapper.valueToTree(entry.getValue()))))
                 .collect(Collectors.toList());
@@ -174,6 +208,153 @@ public class MegabusRefProducer extends AbstractScheduledService {
         return result.size() >= _skipWaitThreshold;
     }
 
+    /**
+     * Pipelined alternative to {@link #peekAndAckEvents()}.  Rather than peeking, each batch is claimed so subsequent
+     * polls skip it while its Kafka sends are outstanding.  Up to {@code pipelineDepth} batches are kept in flight and
+     * each batch's events are deleted from the event store on a separate thread once Kafka acknowledges every
+     * record in the batch and every earlier batch has been deleted.  Since all sends originate from this thread in poll
+     * order, Kafka preserves per-partition ordering.  If any send fails no further batches are sent, none of the later
+     * batches are deleted, and the claims on all of them are released so the events are re-polled and re-sent in their
+     * original order.  Event metrics are updated on this thread as acknowledged batches leave the pipeline.
+     */
+    @VisibleForTesting
+    boolean pollAndPipelineEvents() {
+        // Throws if any batch failed, otherwise frees pipeline slots held by acknowledged batches
+        removeAckedBatches();
+        if (_inFlightBatches.size() >= _pipelineDepth) {
+            removeOldestBatch(_inFlightBatches.peekFirst().getAcked().join());
+        }
+
+        long startTime = _clock.millis();
+        List<EventData> result = _eventStore.poll(_subscriptionName, _claimTtl, _eventsLimit);
+
+        // Unlike peeking, the claims keep a new leader from re-sending these events if leadership changes mid-batch
+        if (!result.isEmpty()) {
+            List<String> eventIds = getEventIds(result);
+
+            // Last chance to check that we are the leader before sending anything.  If not, release the claims so
+            // the new leader doesn't have to wait for them to expire.
+            if (!isRunning()) {
+                releaseClaims(eventIds);
+                return false;
+            }
+
+            // A batch which failed while polling must not be overtaken by this one
+            if (isAnyBatchFailed()) {
+                releaseClaims(eventIds);
+                throwIfAnyBatchFailed();
+            }
+
+            CompletableFuture[] sends = groupByPartition(result).entrySet().stream()
+                    .map(entry -> send(entry.getKey(), entry.getValue()))
+                    .toArray(CompletableFuture[]::new);
+
+            // Each batch is only acknowledged after the batch before it, so if one fails none of the later batches
+            // are deleted and all of them are re-polled in order.
+            CompletableFuture<?> previous = _inFlightBatches.isEmpty() ?
+                    CompletableFuture.completedFuture(null) :
+                    _inFlightBatches.peekLast().getAcked();
+            CompletableFuture<Long> acked = CompletableFuture.allOf(sends)
+                    .thenCombine(previous, (ignoreSends, ignorePrevious) -> null)
+                    .thenApplyAsync(ignore -> {
+                        _eventStore.delete(_subscriptionName, eventIds, false);
+                        long ackTime = _clock.millis();
+                        _ackLagTimer.update(ackTime - startTime, TimeUnit.MILLISECONDS);
+                        return ackTime;
+                    }, _ackExecutor);
+
+            _inFlightBatches.addLast(new InFlightBatch(eventIds, startTime, acked));
+        }
+
+        _pipelineDepthHistogram.update(_inFlightBatches.size());
+
+        return result.size() >= _skipWaitThreshold;
+    }
+
+    /**
+     * Blocks until every in-flight batch has been acknowledged and deleted, giving up once the claims would have
+     * expired anyway.
+     */
+    @VisibleForTesting
+    void drainPipeline() throws Exception {
+        long deadline = _clock.millis() + _claimTtl.toMillis();
+        while (!_inFlightBatches.isEmpty()) {
+            removeOldestBatch(_inFlightBatches.peekFirst().getAcked().get(Math.max(deadline - _clock.millis(), 0), TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private void removeAckedBatches() {
+        while (!_inFlightBatches.isEmpty() && _inFlightBatches.peekFirst().getAcked().isDone()) {
+            // join() rethrows the failure, if any, leaving the failed batch in the queue so its claim is released
+            removeOldestBatch(_inFlightBatches.peekFirst().getAcked().join());
+        }
+        throwIfAnyBatchFailed();
+    }
+
+    private boolean isAnyBatchFailed() {
+        return _inFlightBatches.stream().anyMatch(batch -> batch.getAcked().isCompletedExceptionally());
+    }
+
+    private void throwIfAnyBatchFailed() {
+        for (InFlightBatch batch : _inFlightBatches) {
+            if (batch.getAcked().isCompletedExceptionally()) {
+                batch.getAcked().join();
+            }
+        }
+    }
+
+    /**
+     * Removes the oldest batch, which was acknowledged at the given time, from the pipeline and records its duration.
+     */
+    private void removeOldestBatch(long ackTime) {
+        InFlightBatch batch = _inFlightBatches.removeFirst();
+        trackAverageEventDuration(TimeUnit.MILLISECONDS.toNanos(ackTime - batch.getStartTime()), batch.getEventIds().size());
+    }
+
+    private void releaseInFlightClaims() {
+        InFlightBatch batch;
+        while ((batch = _inFlightBatches.pollFirst()) != null) {
+            batch.getAcked().cancel(false);
+            releaseClaims(batch.getEventIds());
+        }
+    }
+
+    private void releaseClaims(List<String> eventIds) {
+        try {
+            _eventStore.renew(_subscriptionName, eventIds, Duration.ZERO, false);
+        } catch (Exception e) {
+            // The claims will expire on their own
+            _log.warn("Unable to release megabus ref claims", e);
+        }
+    }
+
+    private Map<Integer, List<MegabusRef>> groupByPartition(List<EventData> events) {
+        return events.stream()
+                .map(eventData -> UpdateRefSerializer.fromByteBuffer(eventData.getData()))
+                .map(ref -> new MegabusRef(ref.getTable(), ref.getKey(), ref.getChangeId(), _clock.instant(), MegabusRef.RefType.NORMAL))
+                .collect(Collectors.groupingBy(ref -> {
+                    String key = Coordinate.of(ref.getTable(), ref.getKey()).toString();
+                    return Utils.toPositive(Utils.murmur2(key.getBytes())) % _topic.getPartitions();
+                }, Collectors.toList()));
+    }
+
+    private CompletableFuture<Void> send(int partition, List<MegabusRef> refs) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        _producer.send(new ProducerRecord<>(_topic.getName(), partition, TimeUUIDs.newUUID().toString(),
+                _objectMapper.valueToTree(refs)), (metadata, exception) -> {
+            if (exception != null) {
+                future.completeExceptionally(exception);
+            } else {
+                future.complete(null);
+            }
+        });
+        return future;
+    }
+
+    private static List<String> getEventIds(List<EventData> events) {
+        return events.stream().map(EventData::getId).collect(Collectors.toList());
+    }
+
     private void trackAverageEventDuration(long durationInNs, int numEvents) {
         if (numEvents == 0) {
             return;
@@ -190,4 +371,29 @@ public class MegabusRefProducer extends AbstractScheduledService {
         }
         _timers.endUpdates();
     }
+
+    private static class InFlightBatch {
+        private final List<String> _eventIds;
+        private final long _startTime;
+        // Completes with the time the batch was acknowledged and deleted
+        private final CompletableFuture<Long> _acked;
+
+        InFlightBatch(List<String> eventIds, long startTime, CompletableFuture<Long> acked) {
+            _eventIds = eventIds;
+            _startTime = startTime;
+            _acked = acked;
+        }
+
+        List<String> getEventIds() {
+            return _eventIds;
+        }
+
+        long getStartTime() {
+            return _startTime;
+        }
+
+        CompletableFuture<Long> getAcked() {
+            return _acked;
+        }
+    }
 }
@@ -21,6 +21,24 @@ public class MegabusRefProducerConfiguration {
     @JsonProperty("pollIntervalMs")
     private int _pollIntervalMs = 100;
 
+    /**
+     * Number of claimed batches which may be awaiting Kafka acknowledgement at once.  A value of 1 keeps the original
+     * synchronous peek/send/flush/delete behavior.
+     */
+    @Valid
+    @NotNull
+    @JsonProperty("pipelineDepth")
+    private int _pipelineDepth = 1;
+
+    /**
+     * When pipelining, how long in-flight batches remain claimed on the databus subscription.  This must comfortably
+     * exceed the time needed for Kafka to acknowledge a full pipeline of batches.
+     */
+    @Valid
+    @NotNull
+    @JsonProperty("claimTtlSeconds")
+    private int _claimTtlSeconds = 60;
+
     public int getBatchSize() {
         return _batchSize;
     }
@@ -32,4 +50,12 @@ public class MegabusRefProducerConfiguration {
     public int getPollIntervalMs() {
         return _pollIntervalMs;
     }
+
+    public int getPipelineDepth() {
+        return _pipelineDepth;
+    }
+
+    public int getClaimTtlSeconds() {
+        return _claimTtlSeconds;
+    }
 }
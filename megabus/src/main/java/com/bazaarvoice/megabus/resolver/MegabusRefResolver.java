@@ -1,5 +1,6 @@
 package com.bazaarvoice.megabus.resolver;
 
+import com.bazaarvoice.emodb.kafka.CompressedJsonSerde;
 import com.bazaarvoice.emodb.kafka.JsonPOJOSerde;
 import com.bazaarvoice.emodb.kafka.KafkaCluster;
 import com.bazaarvoice.emodb.kafka.Topic;
@@ -10,14 +11,23 @@ import com.bazaarvoice.emodb.sor.api.UnknownPlacementException;
 import com.bazaarvoice.emodb.sor.api.UnknownTableException;
 import com.bazaarvoice.emodb.sor.core.DataProvider;
 import com.bazaarvoice.megabus.MegabusRef;
+import com.bazaarvoice.megabus.serde.MegabusRefListSerde;
+import com.bazaarvoice.megabus.serde.MegabusSerdeConfiguration;
+import com.bazaarvoice.megabus.serde.MissingRefCollectionSerde;
 import com.bazaarvoice.megabus.service.KafkaStreamsService;
 import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Table;
 import com.google.common.net.HostAndPort;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import org.apache.kafka.common.serialization.Serdes;
 import org.apache.kafka.streams.KeyValue;
@@ -26,10 +36,17 @@ import org.apache.kafka.streams.Topology;
 import org.apache.kafka.streams.kstream.Consumed;
 import org.apache.kafka.streams.kstream.KStream;
 import org.apache.kafka.streams.kstream.Produced;
+import org.apache.kafka.streams.kstream.Transformer;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.Stores;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -37,13 +54,21 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static java.util.Objects.requireNonNull;
 
@@ -51,6 +76,7 @@ public class MegabusRefResolver extends KafkaStreamsService {
 
     private static final Logger _log = LoggerFactory.getLogger(MegabusRefResolver.class);
     private static final String SERVICE_NAME = "resolver";
+    private static final String BUFFER_STORE_NAME = "megabus-ref-resolver-buffer";
 
     private final DataProvider _dataProvider;
     private final Topic _megabusRefTopic;
@@ -59,12 +85,20 @@ public class MegabusRefResolver extends KafkaStreamsService {
     private final Topic _missingRefTopic;
 
     private final Clock _clock;
+    private final MegabusSerdeConfiguration _serdeConfiguration;
+
+    private final int _maxBufferedRefs;
+    private final Duration _maxBufferDelay;
+    private final int _multiGetSize;
+    private final int _concurrency;
 
     private final Meter _redundantMeter;
     private final Meter _discardedMeter;
     private final Meter _pendingMeter;
     private final Meter _errorProcessingMeter;
     private final Histogram _processingLatencyHisto;
+    private final Histogram _resolutionBatchSizeHisto;
+    private final Timer _resolutionTimer;
 
     @Inject
     public MegabusRefResolver(DataProvider dataProvider, Topic megabusRefTopic,
@@ -74,6 +108,8 @@ public class MegabusRefResolver extends KafkaStreamsService {
                               KafkaCluster kafkaCluster, Clock clock,
                               HostAndPort hostAndPort,
                               String refResolverConsumerGroup,
+                              MegabusRefResolverConfiguration configuration,
+                              MegabusSerdeConfiguration serdeConfiguration,
                               MetricRegistry metricRegistry) {
         super(SERVICE_NAME, kafkaCluster, hostAndPort.toString(),
                 refResolverConsumerGroup, megabusRefTopic.getPartitions(), metricRegistry);
@@ -85,12 +121,24 @@ public class MegabusRefResolver extends KafkaStreamsService {
         _missingRefTopic = requireNonNull(missingRefTopic, "missingRefTopic");
 
         _clock = requireNonNull(clock, "clock");
+        _serdeConfiguration = requireNonNull(serdeConfiguration, "serdeConfiguration");
+
+        checkArgument(configuration.getMaxBufferedRefs() > 0, "maxBufferedRefs");
+        checkArgument(configuration.getMaxBufferDelayMs() > 0, "maxBufferDelayMs");
+        checkArgument(configuration.getMultiGetSize() > 0, "multiGetSize");
+        checkArgument(configuration.getConcurrency() > 0, "concurrency");
+        _maxBufferedRefs = configuration.getMaxBufferedRefs();
+        _maxBufferDelay = Duration.ofMillis(configuration.getMaxBufferDelayMs());
+        _multiGetSize = configuration.getMultiGetSize();
+        _concurrency = configuration.getConcurrency();
 
         _redundantMeter = metricRegistry.meter(getMetricName("redundantUpdates"));
         _discardedMeter = metricRegistry.meter(getMetricName("discardedUpdates"));
         _pendingMeter = metricRegistry.meter(getMetricName("pendingUpdates"));
         _errorProcessingMeter = metricRegistry.meter(getMetricName("errors"));
         _processingLatencyHisto = metricRegistry.histogram(getMetricName("processing-latency-ms"));
+        _resolutionBatchSizeHisto = metricRegistry.histogram(getMetricName("resolution-batch-size"));
+        _resolutionTimer = metricRegistry.timer(getMetricName("resolution-time"));
     }
 
     private String getMetricName(String name) {
@@ -102,18 +150,16 @@ public class MegabusRefResolver extends KafkaStreamsService {
         StreamsBuilder streamsBuilder = new StreamsBuilder();
 
         // merge the ref stream with the ref-retry stream. They must be merged into a single stream for ordering purposes
-        final KStream<String, List<MegabusRef>> refStream = streamsBuilder.stream(_megabusRefTopic.getName(), Consumed.with(Serdes.String(), new JsonPOJOSerde<>(new TypeReference<List<MegabusRef>>() {})))
-                .merge(streamsBuilder.stream(_retryRefTopic.getName(), Consumed.with(Serdes.String(), new JsonPOJOSerde<>(new TypeReference<List<MegabusRef>>() {}))));
+        final KStream<String, List<MegabusRef>> refStream = streamsBuilder.stream(_megabusRefTopic.getName(), Consumed.with(Serdes.String(), new MegabusRefListSerde(_serdeConfiguration.isBinaryRefs())))
+                .merge(streamsBuilder.stream(_retryRefTopic.getName(), Consumed.with(Serdes.String(), new MegabusRefListSerde(_serdeConfiguration.isBinaryRefs()))));
+
+        // Refs waiting to be resolved are kept in a changelogged store so that records consumed but not yet resolved
+        // when a task is shut down or migrated are resolved by whichever instance picks up the task next.
+        streamsBuilder.addStateStore(Stores.keyValueStoreBuilder(Stores.inMemoryKeyValueStore(BUFFER_STORE_NAME),
+                Serdes.Long(), new JsonPOJOSerde<>(BufferedRefs.class)));
 
         // resolve refs into documents
-        KStream<String, ResolutionResult> resolutionResults = refStream.mapValues(value -> {
-            try {
-                return resolveRefs(value);
-            } catch (Throwable t) {
-                _errorProcessingMeter.mark();
-                throw t;
-            }
-        });
+        KStream<String, ResolutionResult> resolutionResults = refStream.transform(BufferingRefResolver::new, BUFFER_STORE_NAME);
 
         resolutionResults
                 // extract the resolved documents
@@ -121,7 +167,7 @@ public class MegabusRefResolver extends KafkaStreamsService {
                 // convert deleted documents to null
                 .mapValues(doc -> Optional.ofNullable(doc).map(Intrinsic::isDeleted).orElse(true) ? null : doc)
                 // send to megabus
-                .to(_megabusResolvedTopic.getName(), Produced.with(Serdes.String(), new JsonPOJOSerde<>(new TypeReference<Map<String, Object>>() {})));
+                .to(_megabusResolvedTopic.getName(), Produced.with(Serdes.String(), new CompressedJsonSerde<>(new TypeReference<Map<String, Object>>() {}, _serdeConfiguration.isCompressDocuments())));
 
         resolutionResults
                 // filter out all resolution results without missing refs
@@ -129,7 +175,7 @@ public class MegabusRefResolver extends KafkaStreamsService {
                 // add timestamp for missing refs
                 .mapValues(result -> new MissingRefCollection(result.getMissingRefs(), Date.from(_clock.instant())))
                 // send to missing topic
-                .to(_missingRefTopic.getName(), Produced.with(Serdes.String(), new JsonPOJOSerde<>(MissingRefCollection.class)));
+                .to(_missingRefTopic.getName(), Produced.with(Serdes.String(), new MissingRefCollectionSerde(_serdeConfiguration.isBinaryRefs())));
         return streamsBuilder.build();
     }
 
@@ -154,23 +200,124 @@ public class MegabusRefResolver extends KafkaStreamsService {
         }
     }
 
-    private ResolutionResult resolveRefs(Collection<MegabusRef> refs) {
+    /**
+     * Stream transformer which accumulates refs across records until either {@code maxBufferedRefs} refs are waiting
+     * or {@code maxBufferDelay} elapses, then reads every referenced document with concurrent multi-gets and forwards
+     * one {@link ResolutionResult} per buffered record, in the order the records were received.
+     */
+    private class BufferingRefResolver implements Transformer<String, List<MegabusRef>, KeyValue<String, ResolutionResult>> {
+
+        private ProcessorContext _context;
+        private KeyValueStore<Long, BufferedRefs> _buffer;
+        private ExecutorService _executor;
+        private long _nextSequence;
+        private int _bufferedRecordCount;
+        private int _bufferedRefCount;
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void init(ProcessorContext context) {
+            _context = context;
+            _buffer = (KeyValueStore<Long, BufferedRefs>) context.getStateStore(BUFFER_STORE_NAME);
+            _executor = _concurrency > 1
+                    ? Executors.newFixedThreadPool(_concurrency, new ThreadFactoryBuilder()
+                            .setNameFormat("megabus-ref-resolver-" + context.taskId() + "-%d").setDaemon(true).build())
+                    : MoreExecutors.newDirectExecutorService();
+
+            // Anything restored from the changelog was consumed but never resolved.  It sorts ahead of any new records
+            // and will be resolved with the first flush.
+            try (KeyValueIterator<Long, BufferedRefs> iter = _buffer.all()) {
+                iter.forEachRemaining(entry -> {
+                    _nextSequence = Math.max(_nextSequence, entry.key + 1);
+                    _bufferedRecordCount += 1;
+                    _bufferedRefCount += entry.value.getRefs().size();
+                });
+            }
 
-        // If isDeleted() is true, then this batch was the result of a table event, and we should propogate null's. Additionally,
-        // all refs in the batch should have isDeleted() == true. A batch having some refs with true and some with false is an invalid state.
-        if (refs.stream().anyMatch(ref -> ref.getRefType() == MegabusRef.RefType.DELETED)) {
-            Map<Coordinate, Optional<Map<String, Object>>> resolvedRefs = refs.stream()
-                    .peek(ref -> checkState(ref.getRefType() == MegabusRef.RefType.DELETED))
-                    .collect(Collectors.toMap(ref -> Coordinate.of(ref.getTable(), ref.getKey()), ref -> Optional.empty()));
-            return new ResolutionResult(resolvedRefs, Collections.emptyList());
+            context.schedule(_maxBufferDelay, PunctuationType.WALL_CLOCK_TIME, timestamp -> flush());
         }
 
-        Table<Coordinate, UUID, MegabusRef> refTable = HashBasedTable.create();
-        refs.forEach(ref -> refTable.put(Coordinate.of(ref.getTable(), ref.getKey()), ref.getChangeId(), ref));
+        @Override
+        public KeyValue<String, ResolutionResult> transform(String key, List<MegabusRef> refs) {
+            _buffer.put(_nextSequence++, new BufferedRefs(key, refs));
+            _bufferedRecordCount += 1;
+            _bufferedRefCount += refs.size();
+
+            if (_bufferedRefCount >= _maxBufferedRefs) {
+                flush();
+            }
+            // All results are forwarded from flush()
+            return null;
+        }
+
+        private void flush() {
+            if (_bufferedRecordCount == 0) {
+                return;
+            }
+
+            try {
+                List<KeyValue<Long, BufferedRefs>> records = new ArrayList<>(_bufferedRecordCount);
+                try (KeyValueIterator<Long, BufferedRefs> iter = _buffer.all()) {
+                    iter.forEachRemaining(records::add);
+                }
+
+                Set<Coordinate> coordinates = new LinkedHashSet<>();
+                for (KeyValue<Long, BufferedRefs> record : records) {
+                    for (MegabusRef ref : record.value.getRefs()) {
+                        if (ref.getRefType() != MegabusRef.RefType.DELETED) {
+                            coordinates.add(Coordinate.of(ref.getTable(), ref.getKey()));
+                        }
+                    }
+                }
+
+                _resolutionBatchSizeHisto.update(coordinates.size());
+                Map<Coordinate, DataProvider.AnnotatedContent> contents = readDocuments(coordinates, _executor);
+
+                for (KeyValue<Long, BufferedRefs> record : records) {
+                    _context.forward(record.value.getKey(), resolveRefs(record.value.getRefs(), contents));
+                    _buffer.delete(record.key);
+                }
+
+                _bufferedRecordCount = 0;
+                _bufferedRefCount = 0;
+            } catch (Throwable t) {
+                _errorProcessingMeter.mark();
+                throw t;
+            }
+        }
+
+        @Override
+        public void close() {
+            _executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads the current content for every coordinate, splitting them into multi-gets of at most {@code multiGetSize}
+     * coordinates and running the multi-gets on the provided executor.
+     */
+    private Map<Coordinate, DataProvider.AnnotatedContent> readDocuments(Collection<Coordinate> coordinates, ExecutorService executor) {
+        if (coordinates.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<Coordinate, DataProvider.AnnotatedContent> contents = new ConcurrentHashMap<>();
+
+        try (Timer.Context ignored = _resolutionTimer.time()) {
+            CompletableFuture.allOf(
+                    Lists.partition(new ArrayList<>(coordinates), _multiGetSize).stream()
+                            .map(batch -> CompletableFuture.runAsync(() -> readDocumentBatch(batch, contents), executor))
+                            .toArray(CompletableFuture[]::new))
+                    .join();
+        }
+
+        return contents;
+    }
 
+    private void readDocumentBatch(List<Coordinate> coordinates, Map<Coordinate, DataProvider.AnnotatedContent> contents) {
         DataProvider.AnnotatedGet annotatedGet = _dataProvider.prepareGetAnnotated(ReadConsistency.STRONG);
 
-        for (Coordinate coord : refTable.rowKeySet()) {
+        for (Coordinate coord : coordinates) {
             try {
                 annotatedGet.add(coord.getTable(), coord.getId());
             } catch (UnknownTableException | UnknownPlacementException e) {
@@ -179,7 +326,27 @@ public class MegabusRefResolver extends KafkaStreamsService {
             }
         }
 
-        Iterator<DataProvider.AnnotatedContent> readResultIter = annotatedGet.execute();
+        annotatedGet.execute().forEachRemaining(result -> contents.put(Coordinate.fromJson(result.getContent()), result));
+    }
+
+    private ResolutionResult resolveRefs(Collection<MegabusRef> refs, Map<Coordinate, DataProvider.AnnotatedContent> contents) {
+
+        // If isDeleted() is true, then this batch was the result of a table event, and we should propogate null's. Additionally,
+        // all refs in the batch should have isDeleted() == true. A batch having some refs with true and some with false is an invalid state.
+        if (refs.stream().anyMatch(ref -> ref.getRefType() == MegabusRef.RefType.DELETED)) {
+            Map<Coordinate, Optional<Map<String, Object>>> resolvedRefs = refs.stream()
+                    .peek(ref -> checkState(ref.getRefType() == MegabusRef.RefType.DELETED))
+                    .collect(Collectors.toMap(ref -> Coordinate.of(ref.getTable(), ref.getKey()), ref -> Optional.empty()));
+            return new ResolutionResult(resolvedRefs, Collections.emptyList());
+        }
+
+        Table<Coordinate, UUID, MegabusRef> refTable = HashBasedTable.create();
+        refs.forEach(ref -> refTable.put(Coordinate.of(ref.getTable(), ref.getKey()), ref.getChangeId(), ref));
+
+        Iterator<DataProvider.AnnotatedContent> readResultIter = refTable.rowKeySet().stream()
+                .map(contents::get)
+                .filter(Objects::nonNull)
+                .iterator();
         Map<Coordinate, Optional<Map<String, Object>>> resolvedDocuments = new HashMap<>();
         List<MegabusRef> missingRefs = new ArrayList<>();
 
@@ -219,4 +386,27 @@ public class MegabusRefResolver extends KafkaStreamsService {
 
         return new ResolutionResult(resolvedDocuments, missingRefs);
     }
+
+    /**
+     * A consumed ref record waiting in the resolver's buffer.
+     */
+    public static class BufferedRefs {
+
+        private final String _key;
+        private final List<MegabusRef> _refs;
+
+        @JsonCreator
+        public BufferedRefs(@JsonProperty("key") String key, @JsonProperty("refs") List<MegabusRef> refs) {
+            _key = key;
+            _refs = requireNonNull(refs, "refs");
+        }
+
+        public String getKey() {
+            return _key;
+        }
+
+        public List<MegabusRef> getRefs() {
+            return _refs;
+        }
+    }
 }
@@ -0,0 +1,49 @@
+package com.bazaarvoice.megabus.resolver;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+
+public class MegabusRefResolverConfiguration {
+
+    // Number of refs accumulated across incoming records before they are resolved together.  The default of 1
+    // resolves every record as soon as it arrives.
+    @Valid
+    @NotNull
+    @JsonProperty("maxBufferedRefs")
+    private int _maxBufferedRefs = 1;
+
+    // Maximum time refs may wait in the buffer before they are resolved, regardless of how many have accumulated.
+    @Valid
+    @NotNull
+    @JsonProperty("maxBufferDelayMs")
+    private int _maxBufferDelayMs = 100;
+
+    // Maximum number of coordinates read from the data provider by a single multi-get.
+    @Valid
+    @NotNull
+    @JsonProperty("multiGetSize")
+    private int _multiGetSize = 100;
+
+    // Number of multi-gets each stream task may have outstanding at once.
+    @Valid
+    @NotNull
+    @JsonProperty("concurrency")
+    private int _concurrency = 1;
+
+    public int getMaxBufferedRefs() {
+        return _maxBufferedRefs;
+    }
+
+    public int getMaxBufferDelayMs() {
+        return _maxBufferDelayMs;
+    }
+
+    public int getMultiGetSize() {
+        return _multiGetSize;
+    }
+
+    public int getConcurrency() {
+        return _concurrency;
+    }
+}
@@ -0,0 +1,39 @@
+package com.bazaarvoice.megabus.resolver;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+
+public class MissingRefDelayConfiguration {
+
+    // Delay before a ref missing for the first time is retried.
+    @Valid
+    @NotNull
+    @JsonProperty("minDelayMs")
+    private int _minDelayMs = 10000;
+
+    // Upper bound on the delay for refs which are repeatedly missing.  Each consecutive miss doubles the delay until
+    // it reaches this value.
+    @Valid
+    @NotNull
+    @JsonProperty("maxDelayMs")
+    private int _maxDelayMs = 300000;
+
+    // Width of each timer wheel slot.  Refs are sent no earlier than their delay and at most one tick later.
+    @Valid
+    @NotNull
+    @JsonProperty("tickMs")
+    private int _tickMs = 1000;
+
+    public int getMinDelayMs() {
+        return _minDelayMs;
+    }
+
+    public int getMaxDelayMs() {
+        return _maxDelayMs;
+    }
+
+    public int getTickMs() {
+        return _tickMs;
+    }
+}
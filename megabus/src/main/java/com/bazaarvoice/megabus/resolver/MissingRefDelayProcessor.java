@@ -4,33 +4,77 @@ import com.bazaarvoice.emodb.kafka.JsonPOJOSerde;
 import com.bazaarvoice.emodb.kafka.KafkaCluster;
 import com.bazaarvoice.emodb.kafka.Topic;
 import com.bazaarvoice.megabus.MegabusRef;
+import com.bazaarvoice.megabus.serde.MegabusRefListSerde;
+import com.bazaarvoice.megabus.serde.MegabusSerdeConfiguration;
+import com.bazaarvoice.megabus.serde.MissingRefCollectionSerde;
 import com.bazaarvoice.megabus.service.KafkaStreamsService;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.net.HostAndPort;
 import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.streams.KeyValue;
 import org.apache.kafka.streams.StreamsBuilder;
 import org.apache.kafka.streams.Topology;
 import org.apache.kafka.streams.kstream.Consumed;
 import org.apache.kafka.streams.kstream.Produced;
+import org.apache.kafka.streams.kstream.Transformer;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.Stores;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
 import java.time.Clock;
-import java.time.Instant;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
 
+/**
+ * Delays refs which could not be resolved before sending them back to the resolver through the retry topic.
+ * <p>
+ * Delayed refs are held in a timer wheel backed by a changelogged state store.  Each entry is keyed by the wheel slot
+ * in which it becomes due followed by a sequence number, so the store is ordered by due time and each tick only reads
+ * the slots which have come due.  Because the store is ordered there is no fixed wheel size and no overflow wheels are
+ * needed for long delays.  Entries survive rebalances and restarts, so refs are never lost or sent early.
+ * <p>
+ * The delay for each ref starts at {@code minDelayMs} and doubles with each consecutive time the same document is
+ * found missing, up to {@code maxDelayMs}.  Refs which are missing briefly, such as those read from a replica which
+ * is slightly behind, are retried quickly while refs which stay missing stop consuming resolver capacity.
+ */
 public class MissingRefDelayProcessor extends KafkaStreamsService {
 
     private static Logger _log = LoggerFactory.getLogger(MissingRefDelayProcessor.class);
     private static final String SERVICE_NAME = "retry";
+    private static final String TIMER_WHEEL_STORE_NAME = "megabus-missing-ref-timer-wheel";
+    private static final String MISS_COUNT_STORE_NAME = "megabus-missing-ref-miss-counts";
+    private static final Duration MISS_COUNT_SWEEP_INTERVAL = Duration.ofMinutes(5);
 
     private final Topic _retryRefTopic;
     private final Topic _missingRefTopic;
+    private final MegabusSerdeConfiguration _serdeConfiguration;
+    private final long _minDelayMs;
+    private final long _maxDelayMs;
+    private final long _tickMs;
     private Clock _clock;
 
+    private final Counter _scheduledRefsCounter;
+    private final Meter _retriedRefsMeter;
+    private final Histogram _delayHisto;
+    private final Histogram _latenessHisto;
 
     public MissingRefDelayProcessor(Topic retryRefTopic,
                                     Topic missingRefTopic,
@@ -38,35 +82,237 @@ public class MissingRefDelayProcessor extends KafkaStreamsService {
                                     Clock clock,
                                     HostAndPort hostAndPort,
                                     String delayProcessorConsumerGroup,
+                                    MissingRefDelayConfiguration configuration,
+                                    MegabusSerdeConfiguration serdeConfiguration,
                                     MetricRegistry metricRegistry) {
         super(SERVICE_NAME, kafkaCluster, hostAndPort.toString(),
                 delayProcessorConsumerGroup, 1, metricRegistry);
 
         _retryRefTopic = requireNonNull(retryRefTopic, "retryRefTopic");
         _missingRefTopic = requireNonNull(missingRefTopic, "missingRefTopic");
+        _serdeConfiguration = requireNonNull(serdeConfiguration, "serdeConfiguration");
         _clock = requireNonNull(clock, "clock");
+
+        requireNonNull(configuration, "configuration");
+        checkArgument(configuration.getMinDelayMs() > 0, "minDelayMs must be positive");
+        checkArgument(configuration.getMaxDelayMs() >= configuration.getMinDelayMs(), "maxDelayMs must be at least minDelayMs");
+        checkArgument(configuration.getTickMs() > 0, "tickMs must be positive");
+        _minDelayMs = configuration.getMinDelayMs();
+        _maxDelayMs = configuration.getMaxDelayMs();
+        _tickMs = configuration.getTickMs();
+
+        _scheduledRefsCounter = metricRegistry.counter(getMetricName("scheduled-refs"));
+        _retriedRefsMeter = metricRegistry.meter(getMetricName("retried-refs"));
+        _delayHisto = metricRegistry.histogram(getMetricName("delay-ms"));
+        _latenessHisto = metricRegistry.histogram(getMetricName("lateness-ms"));
+    }
+
+    private String getMetricName(String name) {
+        return MetricRegistry.name("bv.emodb.megabus", "MissingRefDelayProcessor", name);
     }
 
     @Override
     protected Topology topology() {
         StreamsBuilder streamsBuilder = new StreamsBuilder();
 
-        streamsBuilder.stream(_missingRefTopic.getName(), Consumed.with(Serdes.String(), new JsonPOJOSerde<>(MissingRefCollection.class)))
-                .peek(this::delayRefs)
-                .mapValues(MissingRefCollection::getMissingRefs)
-                .to(_retryRefTopic.getName(), Produced.with(Serdes.String(), new JsonPOJOSerde<>(new TypeReference<List<MegabusRef>>() {})));
+        streamsBuilder.addStateStore(Stores.keyValueStoreBuilder(Stores.inMemoryKeyValueStore(TIMER_WHEEL_STORE_NAME),
+                Serdes.Bytes(), new JsonPOJOSerde<>(ScheduledRefs.class)));
+        streamsBuilder.addStateStore(Stores.keyValueStoreBuilder(Stores.inMemoryKeyValueStore(MISS_COUNT_STORE_NAME),
+                Serdes.String(), new JsonPOJOSerde<>(MissCount.class)));
+
+        streamsBuilder.stream(_missingRefTopic.getName(), Consumed.with(Serdes.String(), new MissingRefCollectionSerde(_serdeConfiguration.isBinaryRefs())))
+                .transform(TimerWheelScheduler::new, TIMER_WHEEL_STORE_NAME, MISS_COUNT_STORE_NAME)
+                .to(_retryRefTopic.getName(), Produced.with(Serdes.String(), new MegabusRefListSerde(_serdeConfiguration.isBinaryRefs())));
         return streamsBuilder.build();
     }
 
-    private void delayRefs(String key, MissingRefCollection refCollection) {
-        Instant sendtime = refCollection.getLastProcessTime().toInstant().plusSeconds(10);
-        Instant now = _clock.instant();
-        if (now.isBefore(sendtime)) {
-            try {
-                Thread.sleep(sendtime.toEpochMilli() - now.toEpochMilli());
-            } catch (InterruptedException e) {
-                _log.warn("Attempted sleep during retry failed. Letting message to proceed without required delay.", e);
+    /**
+     * Returns the delay for a ref which has now been found missing {@code missCount} consecutive times.
+     */
+    @VisibleForTesting
+    long getDelayMs(int missCount) {
+        // Cap the shift so large miss counts can't overflow before the max delay is applied
+        int doublings = Math.min(missCount - 1, 30);
+        return Math.min(_maxDelayMs, _minDelayMs << doublings);
+    }
+
+    private static Bytes wheelKey(long slot, long sequence) {
+        return Bytes.wrap(ByteBuffer.allocate(16).putLong(slot).putLong(sequence).array());
+    }
+
+    private static long wheelSequence(Bytes key) {
+        return ByteBuffer.wrap(key.get()).getLong(8);
+    }
+
+    private static String missCountKey(MegabusRef ref) {
+        return ref.getTable() + "/" + ref.getKey();
+    }
+
+    private class TimerWheelScheduler implements Transformer<String, MissingRefCollection, KeyValue<String, List<MegabusRef>>> {
+
+        private ProcessorContext _context;
+        private KeyValueStore<Bytes, ScheduledRefs> _wheel;
+        private KeyValueStore<String, MissCount> _missCounts;
+        private long _nextSequence;
+        private long _scheduledRefCount;
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void init(ProcessorContext context) {
+            _context = context;
+            _wheel = (KeyValueStore<Bytes, ScheduledRefs>) context.getStateStore(TIMER_WHEEL_STORE_NAME);
+            _missCounts = (KeyValueStore<String, MissCount>) context.getStateStore(MISS_COUNT_STORE_NAME);
+
+            // Continue any schedule restored from the changelog
+            try (KeyValueIterator<Bytes, ScheduledRefs> iter = _wheel.all()) {
+                iter.forEachRemaining(entry -> {
+                    _nextSequence = Math.max(_nextSequence, wheelSequence(entry.key) + 1);
+                    _scheduledRefCount += entry.value.getRefs().size();
+                });
             }
+            _scheduledRefsCounter.inc(_scheduledRefCount);
+
+            context.schedule(Duration.ofMillis(_tickMs), PunctuationType.WALL_CLOCK_TIME, timestamp -> advance());
+            context.schedule(MISS_COUNT_SWEEP_INTERVAL, PunctuationType.WALL_CLOCK_TIME, timestamp -> sweepMissCounts());
+        }
+
+        @Override
+        public KeyValue<String, List<MegabusRef>> transform(String key, MissingRefCollection refCollection) {
+            if (refCollection.getMissingRefs().isEmpty()) {
+                return null;
+            }
+
+            long now = _clock.millis();
+            long lastProcessTime = refCollection.getLastProcessTime().getTime();
+
+            // Refs in the same collection may have been missing for different lengths of time, so group them by due slot
+            Map<Long, List<MegabusRef>> refsBySlot = new TreeMap<>();
+            for (MegabusRef ref : refCollection.getMissingRefs()) {
+                String countKey = missCountKey(ref);
+                MissCount previous = _missCounts.get(countKey);
+                // A document which hasn't been missing for a while is treated as newly missing
+                int missCount = previous != null && now - previous.getLastMissTime() <= 2 * _maxDelayMs
+                        ? previous.getCount() + 1 : 1;
+                _missCounts.put(countKey, new MissCount(missCount, now));
+
+                long delayMs = getDelayMs(missCount);
+                _delayHisto.update(delayMs);
+
+                // Round up so refs are never sent before their delay has elapsed
+                long slot = (lastProcessTime + delayMs + _tickMs - 1) / _tickMs;
+                refsBySlot.computeIfAbsent(slot, ignore -> new ArrayList<>()).add(ref);
+            }
+
+            for (Map.Entry<Long, List<MegabusRef>> entry : refsBySlot.entrySet()) {
+                _wheel.put(wheelKey(entry.getKey(), _nextSequence++), new ScheduledRefs(key, entry.getValue()));
+                _scheduledRefCount += entry.getValue().size();
+                _scheduledRefsCounter.inc(entry.getValue().size());
+            }
+
+            // Refs which are already due, such as those which sat in the missing ref topic for a while, are sent
+            // immediately rather than waiting for the next tick.
+            if (refsBySlot.keySet().iterator().next() * _tickMs <= now) {
+                advance();
+            }
+
+            // All refs are forwarded from advance()
+            return null;
+        }
+
+        /**
+         * Sends every ref in the slots which have come due.
+         */
+        private void advance() {
+            long now = _clock.millis();
+            long currentSlot = now / _tickMs;
+
+            List<Bytes> sent = new ArrayList<>();
+            try (KeyValueIterator<Bytes, ScheduledRefs> iter = _wheel.range(wheelKey(0, 0), wheelKey(currentSlot, Long.MAX_VALUE))) {
+                while (iter.hasNext()) {
+                    KeyValue<Bytes, ScheduledRefs> entry = iter.next();
+                    long dueTime = ByteBuffer.wrap(entry.key.get()).getLong(0) * _tickMs;
+                    List<MegabusRef> refs = entry.value.getRefs();
+
+                    _context.forward(entry.value.getKey(), refs);
+                    _latenessHisto.update(Math.max(now - dueTime, 0));
+                    _retriedRefsMeter.mark(refs.size());
+                    _scheduledRefCount -= refs.size();
+                    _scheduledRefsCounter.dec(refs.size());
+                    sent.add(entry.key);
+                }
+            }
+
+            sent.forEach(_wheel::delete);
+        }
+
+        /**
+         * Removes miss counts for documents which are no longer being retried.
+         */
+        private void sweepMissCounts() {
+            long expiredBefore = _clock.millis() - 2 * _maxDelayMs;
+
+            List<String> expired = new ArrayList<>();
+            try (KeyValueIterator<String, MissCount> iter = _missCounts.all()) {
+                iter.forEachRemaining(entry -> {
+                    if (entry.value.getLastMissTime() < expiredBefore) {
+                        expired.add(entry.key);
+                    }
+                });
+            }
+
+            expired.forEach(_missCounts::delete);
+        }
+
+        @Override
+        public void close() {
+            // Scheduled refs remain in the store for whichever instance picks up this task next
+            _scheduledRefsCounter.dec(_scheduledRefCount);
+        }
+    }
+
+    /**
+     * Refs from a single missing ref record which become due in the same timer wheel slot.
+     */
+    public static class ScheduledRefs {
+
+        private final String _key;
+        private final List<MegabusRef> _refs;
+
+        @JsonCreator
+        public ScheduledRefs(@JsonProperty("key") String key, @JsonProperty("refs") List<MegabusRef> refs) {
+            _key = key;
+            _refs = requireNonNull(refs, "refs");
+        }
+
+        public String getKey() {
+            return _key;
+        }
+
+        public List<MegabusRef> getRefs() {
+            return _refs;
+        }
+    }
+
+    /**
+     * The number of consecutive times a document has been found missing.
+     */
+    public static class MissCount {
+
+        private final int _count;
+        private final long _lastMissTime;
+
+        @JsonCreator
+        public MissCount(@JsonProperty("count") int count, @JsonProperty("lastMissTime") long lastMissTime) {
+            _count = count;
+            _lastMissTime = lastMissTime;
+        }
+
+        public int getCount() {
+            return _count;
+        }
+
+        public long getLastMissTime() {
+            return _lastMissTime;
         }
     }
 }
@@ -9,6 +9,7 @@ import com.bazaarvoice.megabus.guice.MegabusTopic;
 import com.bazaarvoice.megabus.guice.MissingRefTopic;
 import com.bazaarvoice.megabus.guice.RefResolverConsumerGroup;
 import com.bazaarvoice.megabus.guice.RetryRefTopic;
+import com.bazaarvoice.megabus.serde.MegabusSerdeConfiguration;
 import com.bazaarvoice.megabus.service.ResilientService;
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.net.HostAndPort;
@@ -29,10 +30,12 @@ public class ResilientMegabusRefResolver extends ResilientService {
                               KafkaCluster kafkaCluster, Clock clock,
                               @SelfHostAndPort HostAndPort hostAndPort,
                               @RefResolverConsumerGroup String refResolverConsumerGroup,
+                              MegabusRefResolverConfiguration configuration,
+                              MegabusSerdeConfiguration serdeConfiguration,
                               MetricRegistry metricRegistry) {
         super(SERVICE_NAME,
                 () -> new MegabusRefResolver(dataProvider, megabusRefTopic, megabusResolvedTopic, retryRefTopic,
-                        missingRefTopic, kafkaCluster, clock, hostAndPort, refResolverConsumerGroup, metricRegistry),
+                        missingRefTopic, kafkaCluster, clock, hostAndPort, refResolverConsumerGroup, configuration, serdeConfiguration, metricRegistry),
                 RESTART_DELAY, false);
     }
 }
@@ -6,6 +6,7 @@ import com.bazaarvoice.emodb.kafka.Topic;
 import com.bazaarvoice.megabus.guice.DelayProcessorConsumerGroup;
 import com.bazaarvoice.megabus.guice.MissingRefTopic;
 import com.bazaarvoice.megabus.guice.RetryRefTopic;
+import com.bazaarvoice.megabus.serde.MegabusSerdeConfiguration;
 import com.bazaarvoice.megabus.service.ResilientService;
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.net.HostAndPort;
@@ -25,10 +26,12 @@ public class ResilientMissingRefDelayProcessor extends ResilientService {
                                              KafkaCluster kafkaCluster, Clock clock,
                                              @SelfHostAndPort HostAndPort hostAndPort,
                                              @DelayProcessorConsumerGroup String delayProcessorConsumerGroup,
+                                             MissingRefDelayConfiguration configuration,
+                                             MegabusSerdeConfiguration serdeConfiguration,
                                              MetricRegistry metricRegistry) {
         super(SERVICE_NAME,
                 () -> new MissingRefDelayProcessor(retryRefTopic, missingRefTopic,
-                        kafkaCluster, clock, hostAndPort, delayProcessorConsumerGroup, metricRegistry),
+                        kafkaCluster, clock, hostAndPort, delayProcessorConsumerGroup, configuration, serdeConfiguration, metricRegistry),
                 RESTART_DELAY, false);
     }
 }
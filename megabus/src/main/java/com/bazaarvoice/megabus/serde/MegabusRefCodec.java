@@ -0,0 +1,170 @@
+package com.bazaarvoice.megabus.serde;
+
+import com.bazaarvoice.megabus.MegabusRef;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Compact binary encoding for lists of {@link MegabusRef}s.  The layout of a ref list is:
+ * <pre>
+ *   varint   number of distinct table names, followed by each name as a length-prefixed UTF-8 string
+ *   varint   number of refs, followed by for each ref:
+ *     varint   index of the ref's table in the table name list
+ *     string   key, as a length-prefixed UTF-8 string
+ *     long     change ID most significant bits
+ *     long     change ID least significant bits
+ *     byte     ref type code, or'd with {@link #READ_TIME_PRESENT} if a read time follows
+ *     varlong  read time epoch second
+ *     varint   read time nanosecond adjustment
+ * </pre>
+ * Table names are written once per list regardless of how many refs share them, and are interned when read since
+ * the same few thousand table names appear in nearly every message.
+ *
+ * Callers are responsible for writing a version byte ahead of the encoded refs.  Any change to this layout must be
+ * introduced under a new version so that messages already in Kafka remain readable.
+ */
+class MegabusRefCodec {
+
+    private static final int READ_TIME_PRESENT = 0x80;
+
+    private static final Interner<String> _tableNames = Interners.newWeakInterner();
+
+    static void writeRefs(List<MegabusRef> refs, DataOutput out) throws IOException {
+        Map<String, Integer> tableIndexes = new HashMap<>();
+        List<String> tables = new ArrayList<>();
+        for (MegabusRef ref : refs) {
+            if (tableIndexes.putIfAbsent(ref.getTable(), tables.size()) == null) {
+                tables.add(ref.getTable());
+            }
+        }
+
+        writeVarInt(tables.size(), out);
+        for (String table : tables) {
+            writeString(table, out);
+        }
+
+        writeVarInt(refs.size(), out);
+        for (MegabusRef ref : refs) {
+            writeVarInt(tableIndexes.get(ref.getTable()), out);
+            writeString(ref.getKey(), out);
+            out.writeLong(ref.getChangeId().getMostSignificantBits());
+            out.writeLong(ref.getChangeId().getLeastSignificantBits());
+
+            Instant readTime = ref.getReadTime();
+            int refTypeCode = toCode(ref.getRefType());
+            if (readTime != null) {
+                out.writeByte(refTypeCode | READ_TIME_PRESENT);
+                writeVarLong(readTime.getEpochSecond(), out);
+                writeVarInt(readTime.getNano(), out);
+            } else {
+                out.writeByte(refTypeCode);
+            }
+        }
+    }
+
+    static List<MegabusRef> readRefs(DataInput in) throws IOException {
+        int tableCount = readVarInt(in);
+        String[] tables = new String[tableCount];
+        for (int i = 0; i < tableCount; i++) {
+            tables[i] = _tableNames.intern(readString(in));
+        }
+
+        int refCount = readVarInt(in);
+        List<MegabusRef> refs = new ArrayList<>(refCount);
+        for (int i = 0; i < refCount; i++) {
+            String table = tables[readVarInt(in)];
+            String key = readString(in);
+            UUID changeId = new UUID(in.readLong(), in.readLong());
+
+            int flags = in.readUnsignedByte();
+            Instant readTime = null;
+            if ((flags & READ_TIME_PRESENT) != 0) {
+                long epochSecond = readVarLong(in);
+                readTime = Instant.ofEpochSecond(epochSecond, readVarInt(in));
+            }
+            refs.add(new MegabusRef(table, key, changeId, readTime, fromCode(flags & ~READ_TIME_PRESENT)));
+        }
+        return refs;
+    }
+
+    /**
+     * Ref types are written as explicit codes rather than enum ordinals so that reordering {@link MegabusRef.RefType}
+     * can't silently change the meaning of messages already written.
+     */
+    private static int toCode(MegabusRef.RefType refType) {
+        switch (refType) {
+            case NORMAL:
+                return 0;
+            case TOUCH:
+                return 1;
+            case DELETED:
+                return 2;
+            default:
+                throw new IllegalArgumentException("Unsupported ref type: " + refType);
+        }
+    }
+
+    private static MegabusRef.RefType fromCode(int code) throws IOException {
+        switch (code) {
+            case 0:
+                return MegabusRef.RefType.NORMAL;
+            case 1:
+                return MegabusRef.RefType.TOUCH;
+            case 2:
+                return MegabusRef.RefType.DELETED;
+            default:
+                throw new IOException("Unknown ref type code: " + code);
+        }
+    }
+
+    static void writeString(String value, DataOutput out) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length, out);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeVarInt(int value, DataOutput out) throws IOException {
+        writeVarLong(value & 0xffffffffL, out);
+    }
+
+    static int readVarInt(DataInput in) throws IOException {
+        return (int) readVarLong(in);
+    }
+
+    static void writeVarLong(long value, DataOutput out) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.writeByte((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+}
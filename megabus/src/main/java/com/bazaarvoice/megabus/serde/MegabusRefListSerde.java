@@ -0,0 +1,31 @@
+package com.bazaarvoice.megabus.serde;
+
+import com.bazaarvoice.emodb.kafka.JsonPOJOSerde;
+import com.bazaarvoice.megabus.MegabusRef;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Serde for the lists of {@link MegabusRef}s written to the megabus ref and retry topics.  See {@link MegabusRefCodec}
+ * for the binary layout.
+ */
+public class MegabusRefListSerde extends VersionedBinarySerde<List<MegabusRef>> {
+
+    public MegabusRefListSerde(boolean writeBinary) {
+        super(new JsonPOJOSerde<>(new TypeReference<List<MegabusRef>>() {}), writeBinary);
+    }
+
+    @Override
+    protected void writeBinary(List<MegabusRef> refs, DataOutput out) throws IOException {
+        MegabusRefCodec.writeRefs(refs, out);
+    }
+
+    @Override
+    protected List<MegabusRef> readBinary(DataInput in) throws IOException {
+        return MegabusRefCodec.readRefs(in);
+    }
+}
@@ -0,0 +1,33 @@
+package com.bazaarvoice.megabus.serde;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Controls the encodings megabus writes to its topics.  Readers always accept every encoding, so a new encoding should
+ * only be enabled once every megabus server has been upgraded to a release which can read it.
+ */
+public class MegabusSerdeConfiguration {
+
+    // Write refs to the retry and missing ref topics using the binary encoding instead of JSON.
+    @Valid
+    @NotNull
+    @JsonProperty("binaryRefs")
+    private boolean _binaryRefs = false;
+
+    // Deflate each document written to the megabus topic.  Since the megabus topic is read outside of EmoDB this must
+    // only be enabled once all of its consumers read messages with CompressedJsonSerde.
+    @Valid
+    @NotNull
+    @JsonProperty("compressDocuments")
+    private boolean _compressDocuments = false;
+
+    public boolean isBinaryRefs() {
+        return _binaryRefs;
+    }
+
+    public boolean isCompressDocuments() {
+        return _compressDocuments;
+    }
+}
@@ -0,0 +1,32 @@
+package com.bazaarvoice.megabus.serde;
+
+import com.bazaarvoice.emodb.kafka.JsonPOJOSerde;
+import com.bazaarvoice.megabus.resolver.MissingRefCollection;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * Serde for the {@link MissingRefCollection}s written to the missing ref topic.  The binary form is the last process
+ * time in epoch milliseconds, as a varlong, followed by the refs as encoded by {@link MegabusRefCodec}.
+ */
+public class MissingRefCollectionSerde extends VersionedBinarySerde<MissingRefCollection> {
+
+    public MissingRefCollectionSerde(boolean writeBinary) {
+        super(new JsonPOJOSerde<>(MissingRefCollection.class), writeBinary);
+    }
+
+    @Override
+    protected void writeBinary(MissingRefCollection collection, DataOutput out) throws IOException {
+        MegabusRefCodec.writeVarLong(collection.getLastProcessTime().getTime(), out);
+        MegabusRefCodec.writeRefs(collection.getMissingRefs(), out);
+    }
+
+    @Override
+    protected MissingRefCollection readBinary(DataInput in) throws IOException {
+        Date lastProcessTime = new Date(MegabusRefCodec.readVarLong(in));
+        return new MissingRefCollection(MegabusRefCodec.readRefs(in), lastProcessTime);
+    }
+}
@@ -0,0 +1,102 @@
+package com.bazaarvoice.megabus.serde;
+
+import com.bazaarvoice.emodb.kafka.JsonPOJOSerde;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Base for serdes which can write either JSON or a versioned binary encoding and which always read both.  Binary
+ * messages start with a version byte below any character that can begin a JSON document, so readers can tell the two
+ * apart without any out-of-band information.  This allows every consumer to be upgraded before any producer starts
+ * writing the binary encoding, and allows producers to be switched back to JSON at any time.
+ */
+abstract class VersionedBinarySerde<T> implements Serde<T> {
+
+    static final byte BINARY_V1 = 1;
+
+    private final JsonPOJOSerde<T> _jsonSerde;
+    private final boolean _writeBinary;
+
+    VersionedBinarySerde(JsonPOJOSerde<T> jsonSerde, boolean writeBinary) {
+        _jsonSerde = requireNonNull(jsonSerde, "jsonSerde");
+        _writeBinary = writeBinary;
+    }
+
+    protected abstract void writeBinary(T data, DataOutput out) throws IOException;
+
+    protected abstract T readBinary(DataInput in) throws IOException;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+
+    }
+
+    @Override
+    public void close() {
+
+    }
+
+    @Override
+    public Serializer<T> serializer() {
+        if (!_writeBinary) {
+            return _jsonSerde.serializer();
+        }
+
+        return new Serializer<T>() {
+            @Override
+            public byte[] serialize(String topic, T data) {
+                if (data == null) {
+                    return null;
+                }
+                try {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    DataOutputStream out = new DataOutputStream(bytes);
+                    out.writeByte(BINARY_V1);
+                    writeBinary(data, out);
+                    out.flush();
+                    return bytes.toByteArray();
+                } catch (Exception e) {
+                    throw new SerializationException("Error serializing binary message", e);
+                }
+            }
+        };
+    }
+
+    @Override
+    public Deserializer<T> deserializer() {
+        Deserializer<T> jsonDeserializer = _jsonSerde.deserializer();
+
+        return new Deserializer<T>() {
+            @Override
+            public T deserialize(String topic, byte[] data) {
+                if (data == null) {
+                    return null;
+                }
+                if (JsonPOJOSerde.isJson(data)) {
+                    return jsonDeserializer.deserialize(topic, data);
+                }
+                if (data[0] != BINARY_V1) {
+                    throw new SerializationException("Unsupported binary message version: " + data[0]);
+                }
+                try {
+                    return readBinary(new DataInputStream(new ByteArrayInputStream(data, 1, data.length - 1)));
+                } catch (Exception e) {
+                    throw new SerializationException("Error deserializing binary message", e);
+                }
+            }
+        };
+    }
+}
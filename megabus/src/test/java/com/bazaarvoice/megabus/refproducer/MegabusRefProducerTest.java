@@ -1,5 +1,6 @@
 package com.bazaarvoice.megabus.refproducer;
 
+import com.bazaarvoice.emodb.common.dropwizard.log.RateLimitedLog;
 import com.bazaarvoice.emodb.common.dropwizard.log.RateLimitedLogFactory;
 import com.bazaarvoice.emodb.databus.core.DatabusEventStore;
 import com.bazaarvoice.emodb.databus.core.UpdateRefSerializer;
@@ -10,6 +11,8 @@ import com.bazaarvoice.megabus.MegabusRef;
 import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.mockito.ArgumentCaptor;
@@ -17,17 +20,32 @@ import org.testng.annotations.Test;
 
 import java.nio.ByteBuffer;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.concurrent.CompletionException;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 
 public class MegabusRefProducerTest {
 
@@ -79,6 +97,162 @@ public class MegabusRefProducerTest {
 
     }
 
+    @Test
+    public void testPollAndPipelineEvents() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        Producer<String, JsonNode> pipelinedProducer = mock(Producer.class);
+        DatabusEventStore eventStore = mock(DatabusEventStore.class);
+        MegabusRefProducerConfiguration pipelinedConfig = objectMapper.convertValue(
+                ImmutableMap.of("pipelineDepth", 4, "claimTtlSeconds", 30), MegabusRefProducerConfiguration.class);
+
+        MegabusRefProducer producerService = new MegabusRefProducer(pipelinedConfig, eventStore,
+                mock(RateLimitedLogFactory.class), metricRegistry, startOnlyExecutor(), pipelinedProducer,
+                objectMapper, topic, subname, "1", clock);
+        producerService.startAsync().awaitRunning();
+
+        final UpdateRef ref = new UpdateRef("tableA", "id1", UUID.randomUUID(), new HashSet<>());
+        final List<EventData> singleResult = Collections.singletonList(new TestEventData("ev1", UpdateRefSerializer.toByteBuffer(ref)));
+
+        when(eventStore.poll(subname, Duration.ofSeconds(30), pipelinedConfig.getBatchSize())).thenReturn(singleResult);
+        when(clock.instant()).thenReturn(staticInstant);
+
+        // Acknowledge every send immediately
+        doAnswer(invocation -> {
+            ((Callback) invocation.getArguments()[1]).onCompletion(null, null);
+            return null;
+        }).when(pipelinedProducer).send(any(ProducerRecord.class), any(Callback.class));
+
+        producerService.pollAndPipelineEvents();
+        producerService.drainPipeline();
+
+        verify(pipelinedProducer).send(any(ProducerRecord.class), any(Callback.class));
+        verify(pipelinedProducer, never()).flush();
+        verify(eventStore).delete(subname, Collections.singletonList("ev1"), false);
+        assertEquals(metricRegistry.timer("bv.emodb.megabus.megabusPoll-1.readEvents").getCount(), 1);
+        assertEquals(metricRegistry.meter("bv.emodb.megabus.MegabusRefProducer.events").getCount(), 1);
+    }
+
+    @Test
+    public void testPollAndPipelineEventsAfterLosingLeadership() {
+        Producer<String, JsonNode> pipelinedProducer = mock(Producer.class);
+        DatabusEventStore eventStore = mock(DatabusEventStore.class);
+        MegabusRefProducerConfiguration pipelinedConfig = objectMapper.convertValue(
+                ImmutableMap.of("pipelineDepth", 4), MegabusRefProducerConfiguration.class);
+
+        // The service was never started, so it isn't the leader
+        MegabusRefProducer producerService = new MegabusRefProducer(pipelinedConfig, eventStore,
+                mock(RateLimitedLogFactory.class), new MetricRegistry(), null, pipelinedProducer,
+                objectMapper, topic, subname, "1", clock);
+
+        final UpdateRef ref = new UpdateRef("tableA", "id1", UUID.randomUUID(), new HashSet<>());
+        final List<EventData> singleResult = Collections.singletonList(new TestEventData("ev1", UpdateRefSerializer.toByteBuffer(ref)));
+
+        when(eventStore.poll(eq(subname), any(Duration.class), eq(pipelinedConfig.getBatchSize()))).thenReturn(singleResult);
+        when(clock.instant()).thenReturn(staticInstant);
+
+        assertFalse(producerService.pollAndPipelineEvents());
+
+        verify(pipelinedProducer, never()).send(any(ProducerRecord.class), any(Callback.class));
+        verify(eventStore).renew(subname, Collections.singletonList("ev1"), Duration.ZERO, false);
+        verify(eventStore, never()).delete(any(String.class), any(List.class), any(Boolean.class));
+    }
+
+    @Test(expectedExceptions = CompletionException.class)
+    public void testPollAndPipelineEventsSendFailure() {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        Producer<String, JsonNode> pipelinedProducer = mock(Producer.class);
+        DatabusEventStore eventStore = mock(DatabusEventStore.class);
+        MegabusRefProducerConfiguration pipelinedConfig = objectMapper.convertValue(
+                ImmutableMap.of("pipelineDepth", 4), MegabusRefProducerConfiguration.class);
+
+        MegabusRefProducer producerService = new MegabusRefProducer(pipelinedConfig, eventStore,
+                mock(RateLimitedLogFactory.class), metricRegistry, startOnlyExecutor(), pipelinedProducer,
+                objectMapper, topic, subname, "1", clock);
+        producerService.startAsync().awaitRunning();
+
+        final UpdateRef ref = new UpdateRef("tableA", "id1", UUID.randomUUID(), new HashSet<>());
+        final List<EventData> singleResult = Collections.singletonList(new TestEventData("ev1", UpdateRefSerializer.toByteBuffer(ref)));
+
+        when(eventStore.poll(eq(subname), any(Duration.class), eq(pipelinedConfig.getBatchSize()))).thenReturn(singleResult);
+        when(clock.instant()).thenReturn(staticInstant);
+
+        doAnswer(invocation -> {
+            ((Callback) invocation.getArguments()[1]).onCompletion(null, new RuntimeException("send failed"));
+            return null;
+        }).when(pipelinedProducer).send(any(ProducerRecord.class), any(Callback.class));
+
+        producerService.pollAndPipelineEvents();
+
+        try {
+            // The failed batch surfaces on the next iteration, before anything else is polled
+            producerService.pollAndPipelineEvents();
+        } finally {
+            verify(eventStore, never()).delete(any(String.class), any(List.class), any(Boolean.class));
+        }
+    }
+
+    @Test
+    public void testPollAndPipelineEventsFailureHoldsBackLaterBatches() {
+        Producer<String, JsonNode> pipelinedProducer = mock(Producer.class);
+        DatabusEventStore eventStore = mock(DatabusEventStore.class);
+        MegabusRefProducerConfiguration pipelinedConfig = objectMapper.convertValue(
+                ImmutableMap.of("pipelineDepth", 4), MegabusRefProducerConfiguration.class);
+        RateLimitedLogFactory logFactory = mock(RateLimitedLogFactory.class);
+        when(logFactory.from(any())).thenReturn(mock(RateLimitedLog.class));
+
+        MegabusRefProducer producerService = new MegabusRefProducer(pipelinedConfig, eventStore,
+                logFactory, new MetricRegistry(), startOnlyExecutor(), pipelinedProducer,
+                objectMapper, topic, subname, "1", clock);
+        producerService.startAsync().awaitRunning();
+
+        final UpdateRef ref1 = new UpdateRef("tableA", "id1", UUID.randomUUID(), new HashSet<>());
+        final UpdateRef ref2 = new UpdateRef("tableA", "id1", UUID.randomUUID(), new HashSet<>());
+        when(eventStore.poll(eq(subname), any(Duration.class), eq(pipelinedConfig.getBatchSize()))).thenReturn(
+                Collections.singletonList(new TestEventData("ev1", UpdateRefSerializer.toByteBuffer(ref1))),
+                Collections.singletonList(new TestEventData("ev2", UpdateRefSerializer.toByteBuffer(ref2))),
+                Collections.emptyList());
+        when(clock.instant()).thenReturn(staticInstant);
+
+        // Hold on to each send's callback so the test decides when and how each batch completes
+        List<Callback> callbacks = new ArrayList<>();
+        doAnswer(invocation -> {
+            callbacks.add((Callback) invocation.getArguments()[1]);
+            return null;
+        }).when(pipelinedProducer).send(any(ProducerRecord.class), any(Callback.class));
+
+        producerService.pollAndPipelineEvents();
+        producerService.pollAndPipelineEvents();
+        assertEquals(callbacks.size(), 2);
+
+        // The second batch is written before the first one fails.  It must not be deleted ahead of the first.
+        callbacks.get(1).onCompletion(null, null);
+        verify(eventStore, after(100).never()).delete(any(String.class), any(List.class), any(Boolean.class));
+        callbacks.get(0).onCompletion(null, new RuntimeException("send failed"));
+
+        // The next iteration finds the failure before polling again and releases both batches to be re-polled in order
+        producerService.runOneIteration();
+
+        verify(pipelinedProducer, times(2)).send(any(ProducerRecord.class), any(Callback.class));
+        verify(eventStore, never()).delete(any(String.class), any(List.class), any(Boolean.class));
+        verify(eventStore).renew(subname, Collections.singletonList("ev1"), Duration.ZERO, false);
+        verify(eventStore).renew(subname, Collections.singletonList("ev2"), Duration.ZERO, false);
+    }
+
+    /**
+     * Returns an executor which starts the service on the calling thread but never runs its scheduled iterations,
+     * so tests can drive polling directly while the service is running.
+     */
+    private static ScheduledExecutorService startOnlyExecutor() {
+        ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArguments()[0]).run();
+            return null;
+        }).when(executor).execute(any(Runnable.class));
+        doReturn(mock(ScheduledFuture.class)).when(executor)
+                .scheduleWithFixedDelay(any(Runnable.class), anyLong(), anyLong(), any(TimeUnit.class));
+        return executor;
+    }
+
     private class TestEventData implements EventData {
         private final String _id;
         private final ByteBuffer _data;
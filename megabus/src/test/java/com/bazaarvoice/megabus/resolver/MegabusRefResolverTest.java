@@ -9,8 +9,11 @@ import com.bazaarvoice.emodb.sor.uuid.TimeUUIDs;
 import com.bazaarvoice.emodb.table.db.test.InMemoryTable;
 import com.bazaarvoice.megabus.MegabusRef;
 import com.bazaarvoice.megabus.TestDataProvider;
+import com.bazaarvoice.megabus.serde.MegabusSerdeConfiguration;
 import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
 import com.fasterxml.jackson.databind.util.ISO8601Utils;
 import com.google.common.net.HostAndPort;
 import org.apache.kafka.clients.producer.ProducerRecord;
@@ -26,6 +29,7 @@ import org.testng.annotations.BeforeSuite;
 import org.testng.annotations.Test;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.Date;
@@ -57,7 +61,7 @@ public class MegabusRefResolverTest {
     private static final MegabusRefResolver refResolver = new MegabusRefResolver(
         dataProvider, refTopic, resolvedTopic, retryTopic, missingRefsTopic,
         kafkaCluster, Clock.systemUTC(), kafkaEndpoint,
-        "refResolverGroup", new MetricRegistry()
+        "refResolverGroup", new MegabusRefResolverConfiguration(), new MegabusSerdeConfiguration(), new MetricRegistry()
     );
 
     // Kafka test driver stuff
@@ -188,6 +192,69 @@ public class MegabusRefResolverTest {
         assertNull(testDriver.readOutput(resolvedTopic.getName(), stringDeserializer, jsonPOJOSerdeForMaps.deserializer()));
     }
 
+    @Test
+    public void testTopologyBuffersRefsAcrossRecords() {
+        final String testTableName = "tableB";
+        final TestDataProvider bufferedDataProvider = new TestDataProvider();
+        bufferedDataProvider.addTable(testTableName, new InMemoryTable(testTableName, new TableOptionsBuilder().setPlacement("app_global").build(), new HashMap<>()));
+        bufferedDataProvider.add(testContents(testTableName, "id1"));
+        bufferedDataProvider.add(testContents(testTableName, "id2"));
+
+        MegabusRefResolverConfiguration configuration = new ObjectMapper().convertValue(
+                ImmutableMap.of("maxBufferedRefs", 2, "maxBufferDelayMs", 1000, "concurrency", 2, "multiGetSize", 1),
+                MegabusRefResolverConfiguration.class);
+
+        MegabusRefResolver bufferingResolver = new MegabusRefResolver(
+                bufferedDataProvider, refTopic, resolvedTopic, retryTopic, missingRefsTopic,
+                kafkaCluster, Clock.systemUTC(), kafkaEndpoint,
+                "bufferingRefResolverGroup", configuration, new MegabusSerdeConfiguration(), new MetricRegistry());
+
+        Properties config = new Properties();
+        config.setProperty(StreamsConfig.APPLICATION_ID_CONFIG, "bufferingRefResolverGroup");
+        config.setProperty(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaEndpoint.toString());
+        config.setProperty(StreamsConfig.DEFAULT_KEY_SERDE_CLASS_CONFIG, Serdes.String().getClass().getName());
+
+        try (TopologyTestDriver bufferingDriver = new TopologyTestDriver(bufferingResolver.topology(), config)) {
+            bufferingDriver.pipeInput(recordFactory.create(refTopic.getName(), "eventId1", Collections.singletonList(
+                    new MegabusRef(testTableName, "id1", TimeUUIDs.newUUID(), Instant.now(), MegabusRef.RefType.NORMAL))));
+
+            // a single ref is below the buffer limit, so nothing should be resolved yet
+            assertNull(bufferingDriver.readOutput(resolvedTopic.getName(), stringDeserializer, jsonPOJOSerdeForMaps.deserializer()));
+
+            bufferingDriver.pipeInput(recordFactory.create(refTopic.getName(), "eventId2", Collections.singletonList(
+                    new MegabusRef(testTableName, "id2", TimeUUIDs.newUUID(), Instant.now(), MegabusRef.RefType.NORMAL))));
+
+            // both records are resolved together and emitted in input order
+            assertEquals(bufferingDriver.readOutput(resolvedTopic.getName(), stringDeserializer, jsonPOJOSerdeForMaps.deserializer()).key(),
+                    String.format("%s/%s", testTableName, "id1"));
+            assertEquals(bufferingDriver.readOutput(resolvedTopic.getName(), stringDeserializer, jsonPOJOSerdeForMaps.deserializer()).key(),
+                    String.format("%s/%s", testTableName, "id2"));
+            assertNull(bufferingDriver.readOutput(resolvedTopic.getName(), stringDeserializer, jsonPOJOSerdeForMaps.deserializer()));
+
+            bufferingDriver.pipeInput(recordFactory.create(refTopic.getName(), "eventId3", Collections.singletonList(
+                    new MegabusRef(testTableName, "id1", TimeUUIDs.newUUID(), Instant.now(), MegabusRef.RefType.NORMAL))));
+            assertNull(bufferingDriver.readOutput(resolvedTopic.getName(), stringDeserializer, jsonPOJOSerdeForMaps.deserializer()));
+
+            // once the buffer delay elapses the lone ref is resolved
+            bufferingDriver.advanceWallClockTime(Duration.ofMillis(1000));
+            assertEquals(bufferingDriver.readOutput(resolvedTopic.getName(), stringDeserializer, jsonPOJOSerdeForMaps.deserializer()).key(),
+                    String.format("%s/%s", testTableName, "id1"));
+        }
+    }
+
+    private static Map<String, Object> testContents(String table, String id) {
+        return new HashMap<String, Object>() {{
+            put("~table", table);
+            put("~id", id);
+            put("~version", 0);
+            put("~signature", "abc123");
+            put("~deleted", false);
+            put("~firstUpdateAt", ISO8601Utils.format(new Date()));
+            put("~lastUpdateAt", ISO8601Utils.format(new Date()));
+            put("~lastMutateAt", ISO8601Utils.format(new Date()));
+        }};
+    }
+
     @AfterSuite
     public void tearDown() {
         testDriver.close();
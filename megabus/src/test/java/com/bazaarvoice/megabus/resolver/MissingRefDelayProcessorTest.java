@@ -0,0 +1,114 @@
+package com.bazaarvoice.megabus.resolver;
+
+import com.bazaarvoice.emodb.kafka.JsonPOJOSerde;
+import com.bazaarvoice.emodb.kafka.KafkaCluster;
+import com.bazaarvoice.emodb.kafka.Topic;
+import com.bazaarvoice.emodb.sor.uuid.TimeUUIDs;
+import com.bazaarvoice.megabus.MegabusRef;
+import com.bazaarvoice.megabus.serde.MegabusSerdeConfiguration;
+import com.bazaarvoice.megabus.serde.MissingRefCollectionSerde;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.net.HostAndPort;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.test.ConsumerRecordFactory;
+import org.testng.annotations.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class MissingRefDelayProcessorTest {
+
+    private static final Topic retryTopic = new Topic("retry", 1, (short) 1);
+    private static final Topic missingRefsTopic = new Topic("missingRefs", 1, (short) 1);
+    private static final HostAndPort kafkaEndpoint = HostAndPort.fromParts("localhost", 9092);
+
+    private static final StringDeserializer stringDeserializer = new StringDeserializer();
+    private static final JsonPOJOSerde<List<MegabusRef>> jsonPOJOSerdeForMegabusList = new JsonPOJOSerde<>(new TypeReference<List<MegabusRef>>() {});
+    private static final ConsumerRecordFactory<String, MissingRefCollection> recordFactory =
+            new ConsumerRecordFactory<>(new StringSerializer(), new MissingRefCollectionSerde(false).serializer());
+
+    private MissingRefDelayProcessor createProcessor(Clock clock) {
+        KafkaCluster kafkaCluster = mock(KafkaCluster.class);
+        when(kafkaCluster.getBootstrapServers()).thenReturn(kafkaEndpoint.toString());
+
+        MissingRefDelayConfiguration configuration = new ObjectMapper().convertValue(
+                ImmutableMap.of("minDelayMs", 10000, "maxDelayMs", 40000, "tickMs", 1000),
+                MissingRefDelayConfiguration.class);
+
+        return new MissingRefDelayProcessor(retryTopic, missingRefsTopic, kafkaCluster, clock, kafkaEndpoint,
+                "delayProcessorGroup", configuration, new MegabusSerdeConfiguration(), new MetricRegistry());
+    }
+
+    @Test
+    public void testDelayBacksOffExponentially() {
+        MissingRefDelayProcessor processor = createProcessor(Clock.systemUTC());
+
+        assertEquals(processor.getDelayMs(1), 10000);
+        assertEquals(processor.getDelayMs(2), 20000);
+        assertEquals(processor.getDelayMs(3), 40000);
+        assertEquals(processor.getDelayMs(4), 40000);
+        assertEquals(processor.getDelayMs(1000), 40000);
+    }
+
+    @Test
+    public void testTopologyDelaysRepeatedlyMissingRefs() {
+        long startTime = 1_000_000;
+        Clock clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(startTime);
+
+        Properties config = new Properties();
+        config.setProperty(StreamsConfig.APPLICATION_ID_CONFIG, "delayProcessorGroup");
+        config.setProperty(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaEndpoint.toString());
+        config.setProperty(StreamsConfig.DEFAULT_KEY_SERDE_CLASS_CONFIG, Serdes.String().getClass().getName());
+
+        MegabusRef megabusRef = new MegabusRef("tableA", "id1", TimeUUIDs.newUUID(), Instant.ofEpochSecond(1600000000), MegabusRef.RefType.NORMAL);
+
+        try (TopologyTestDriver testDriver = new TopologyTestDriver(createProcessor(clock).topology(), config)) {
+            testDriver.pipeInput(recordFactory.create(missingRefsTopic.getName(), "eventId1",
+                    new MissingRefCollection(Collections.singletonList(megabusRef), new Date(startTime))));
+
+            // the first miss is delayed by the minimum delay
+            when(clock.millis()).thenReturn(startTime + 9999);
+            testDriver.advanceWallClockTime(Duration.ofMillis(1000));
+            assertNull(testDriver.readOutput(retryTopic.getName(), stringDeserializer, jsonPOJOSerdeForMegabusList.deserializer()));
+
+            when(clock.millis()).thenReturn(startTime + 10000);
+            testDriver.advanceWallClockTime(Duration.ofMillis(1000));
+            ProducerRecord<String, List<MegabusRef>> output = testDriver.readOutput(retryTopic.getName(), stringDeserializer, jsonPOJOSerdeForMegabusList.deserializer());
+            assertEquals(output.key(), "eventId1");
+            assertEquals(output.value(), Collections.singletonList(megabusRef));
+            assertNull(testDriver.readOutput(retryTopic.getName(), stringDeserializer, jsonPOJOSerdeForMegabusList.deserializer()));
+
+            // the same ref missing again is delayed twice as long
+            testDriver.pipeInput(recordFactory.create(missingRefsTopic.getName(), "eventId1",
+                    new MissingRefCollection(Collections.singletonList(megabusRef), new Date(startTime + 10000))));
+
+            when(clock.millis()).thenReturn(startTime + 29999);
+            testDriver.advanceWallClockTime(Duration.ofMillis(1000));
+            assertNull(testDriver.readOutput(retryTopic.getName(), stringDeserializer, jsonPOJOSerdeForMegabusList.deserializer()));
+
+            when(clock.millis()).thenReturn(startTime + 30000);
+            testDriver.advanceWallClockTime(Duration.ofMillis(1000));
+            output = testDriver.readOutput(retryTopic.getName(), stringDeserializer, jsonPOJOSerdeForMegabusList.deserializer());
+            assertEquals(output.value(), Collections.singletonList(megabusRef));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.bazaarvoice.megabus.serde;
+
+import com.bazaarvoice.emodb.common.uuid.TimeUUIDs;
+import com.bazaarvoice.emodb.kafka.JsonPOJOSerde;
+import com.bazaarvoice.megabus.MegabusRef;
+import com.bazaarvoice.megabus.resolver.MissingRefCollection;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.common.collect.ImmutableList;
+import org.apache.kafka.common.errors.SerializationException;
+import org.testng.annotations.Test;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class MegabusRefListSerdeTest {
+
+    private static final List<MegabusRef> REFS = ImmutableList.of(
+            new MegabusRef("tableA", "key1", TimeUUIDs.newUUID(), Instant.ofEpochSecond(1500000000L, 123456789), MegabusRef.RefType.NORMAL),
+            new MegabusRef("tableA", "kéy2", TimeUUIDs.newUUID(), null, MegabusRef.RefType.TOUCH),
+            new MegabusRef("tableB", "key3", TimeUUIDs.newUUID(), Instant.EPOCH, MegabusRef.RefType.DELETED));
+
+    @Test
+    public void testBinaryRoundTrip() {
+        MegabusRefListSerde serde = new MegabusRefListSerde(true);
+        byte[] bytes = serde.serializer().serialize("topic", REFS);
+
+        assertEquals(bytes[0], VersionedBinarySerde.BINARY_V1);
+        assertEquals(serde.deserializer().deserialize("topic", bytes), REFS);
+    }
+
+    @Test
+    public void testBinaryIsSmallerThanJson() {
+        byte[] binary = new MegabusRefListSerde(true).serializer().serialize("topic", REFS);
+        byte[] json = new MegabusRefListSerde(false).serializer().serialize("topic", REFS);
+
+        assertTrue(binary.length * 2 < json.length, "binary=" + binary.length + ", json=" + json.length);
+    }
+
+    @Test
+    public void testReadsJson() {
+        byte[] json = new JsonPOJOSerde<>(new TypeReference<List<MegabusRef>>() {}).serializer().serialize("topic", REFS);
+
+        // Readers must accept JSON regardless of which encoding they write
+        assertEquals(new MegabusRefListSerde(true).deserializer().deserialize("topic", json), REFS);
+        assertEquals(new MegabusRefListSerde(false).deserializer().deserialize("topic", json), REFS);
+    }
+
+    @Test
+    public void testReadsBinaryWhenWritingJson() {
+        byte[] binary = new MegabusRefListSerde(true).serializer().serialize("topic", REFS);
+
+        assertEquals(new MegabusRefListSerde(false).deserializer().deserialize("topic", binary), REFS);
+    }
+
+    @Test
+    public void testNull() {
+        MegabusRefListSerde serde = new MegabusRefListSerde(true);
+
+        assertNull(serde.serializer().serialize("topic", null));
+        assertNull(serde.deserializer().deserialize("topic", null));
+    }
+
+    @Test(expectedExceptions = SerializationException.class)
+    public void testUnknownVersion() {
+        new MegabusRefListSerde(true).deserializer().deserialize("topic", new byte[] {2, 0, 0});
+    }
+
+    @Test
+    public void testMissingRefCollectionRoundTrip() {
+        MissingRefCollection collection = new MissingRefCollection(REFS, new Date(1500000000123L));
+        MissingRefCollectionSerde serde = new MissingRefCollectionSerde(true);
+
+        MissingRefCollection result = serde.deserializer().deserialize("topic", serde.serializer().serialize("topic", collection));
+
+        assertEquals(result.getMissingRefs(), REFS);
+        assertEquals(result.getLastProcessTime(), collection.getLastProcessTime());
+    }
+}
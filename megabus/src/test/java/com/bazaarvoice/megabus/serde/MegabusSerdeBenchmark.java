@@ -0,0 +1,75 @@
+package com.bazaarvoice.megabus.serde;
+
+import com.bazaarvoice.emodb.common.uuid.TimeUUIDs;
+import com.bazaarvoice.emodb.kafka.CompressedJsonSerde;
+import com.bazaarvoice.emodb.kafka.JsonPOJOSerde;
+import com.bazaarvoice.megabus.MegabusRef;
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.apache.kafka.common.serialization.Serde;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * Compares message size and serialization cost of the megabus serdes with {@link JsonPOJOSerde}.  This is not run as
+ * part of the build; run it directly from an IDE or with exec:java against the test classpath.
+ */
+public class MegabusSerdeBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 20000;
+    private static final int MEASURED_ITERATIONS = 100000;
+
+    public static void main(String[] args) {
+        Random random = new Random(0);
+
+        List<MegabusRef> refs = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            refs.add(new MegabusRef("review:testcustomer" + random.nextInt(4), "document-" + random.nextInt(1000000),
+                    TimeUUIDs.newUUID(), Instant.now(), MegabusRef.RefType.NORMAL));
+        }
+
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("~id", "document-1");
+        document.put("~table", "review:testcustomer");
+        document.put("~version", 12);
+        document.put("~deleted", false);
+        for (int i = 0; i < 50; i++) {
+            document.put("attribute" + i, "value of attribute " + i + " " + random.nextInt(100));
+        }
+
+        run("refs: json", new JsonPOJOSerde<>(new TypeReference<List<MegabusRef>>() {}), refs);
+        run("refs: binary v1", new MegabusRefListSerde(true), refs);
+        run("document: json", new JsonPOJOSerde<>(new TypeReference<Map<String, Object>>() {}), document);
+        run("document: deflated json", new CompressedJsonSerde<>(new TypeReference<Map<String, Object>>() {}, true), document);
+    }
+
+    private static <T> void run(String name, Serde<T> serde, T value) {
+        byte[] bytes = serde.serializer().serialize("topic", value);
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            serde.deserializer().deserialize("topic", serde.serializer().serialize("topic", value));
+        }
+
+        long serializeNanos = 0;
+        long deserializeNanos = 0;
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            bytes = serde.serializer().serialize("topic", value);
+            long mid = System.nanoTime();
+            serde.deserializer().deserialize("topic", bytes);
+            deserializeNanos += System.nanoTime() - mid;
+            serializeNanos += mid - start;
+        }
+
+        System.out.println(format("%-25s %8d bytes %10.2f us/serialize %10.2f us/deserialize", name, bytes.length,
+                (double) serializeNanos / MEASURED_ITERATIONS / TimeUnit.MICROSECONDS.toNanos(1),
+                (double) deserializeNanos / MEASURED_ITERATIONS / TimeUnit.MICROSECONDS.toNanos(1)));
+    }
+}
@@ -49,7 +49,7 @@ import static org.testng.Assert.assertEquals;
 
 public class CachingTest {
 
-    private static final int INVOCATIONS_PER_ROLE = 2;
+    private static final int INVOCATIONS_PER_ROLE = 1;
     private CacheManagingAuthIdentityManager<ApiKey> _authIdentityCaching;
     private AuthIdentityManager<ApiKey> _authIdentityManager;
     private CacheManagingPermissionManager _permissionCaching;
@@ -113,7 +113,7 @@ public class CachingTest {
     public void testGetOneKey() throws Exception {
         testGetWithMatchingPermissions("testkey", "Spain", "Madrid");
         testGetWithMatchingPermissions("testkey", "Spain", "Madrid");
-        verify(_authIdentityManager, times(2)).getIdentityByAuthenticationId("testkey");
+        verify(_authIdentityManager).getIdentityByAuthenticationId("testkey");
         verify(_permissionManager, times(INVOCATIONS_PER_ROLE * 1)).getPermissions(PermissionIDs.forRole("testrole"));
         verify(_permissionManager).getPermissionResolver();
         verifyNoMoreInteractions(_permissionManager, _authIdentityManager);
@@ -124,7 +124,7 @@ public class CachingTest {
         testGetWithMatchingPermissions("testkey", "Spain", "Madrid");
         testGetWithMatchingPermissions("othertestkey", "Spain", "Madrid");
         testGetWithMatchingPermissions("testkey", "Spain", "Madrid");
-        verify(_authIdentityManager, times(2)).getIdentityByAuthenticationId("testkey");
+        verify(_authIdentityManager).getIdentityByAuthenticationId("testkey");
         verify(_authIdentityManager).getIdentityByAuthenticationId("othertestkey");
         verify(_permissionManager, times(INVOCATIONS_PER_ROLE * 1)).getPermissions(PermissionIDs.forRole("testrole"));
         verify(_permissionManager).getPermissionResolver();
@@ -138,7 +138,7 @@ public class CachingTest {
         _cacheManager.invalidateAll();
         testGetWithMatchingPermissions("testkey", "Spain", "Madrid");
         testGetWithMatchingPermissions("testkey", "Spain", "Madrid");
-        verify(_authIdentityManager, times(4)).getIdentityByAuthenticationId("testkey");
+        verify(_authIdentityManager, times(2)).getIdentityByAuthenticationId("testkey");
     }
 
     @Test
@@ -152,7 +152,7 @@ public class CachingTest {
                 new ApiKeyModification().removeRoles("testrole").addRoles("othertestrole"));
         testGetWithMatchingPermissions("testkey", "Spain", "Madrid");
         testGetWithMatchingPermissions("testkey", "Spain", "Madrid");
-        verify(_authIdentityManager, times(6)).getIdentityByAuthenticationId("testkey");
+        verify(_authIdentityManager, times(3)).getIdentityByAuthenticationId("testkey");
         verify(_permissionManager, times(INVOCATIONS_PER_ROLE * 3)).getPermissions(PermissionIDs.forRole("testrole"));
         verify(_permissionManager).getPermissionResolver();
         verifyNoMoreInteractions(_permissionManager, _authIdentityManager);
@@ -167,7 +167,7 @@ public class CachingTest {
         testGetWithMatchingPermissions("testkey", "USA", "Austin");
         testGetWithMatchingPermissions("testkey", "USA", "Austin");
         testGetWithMatchingPermissions("testkey", "Spain", "Madrid");
-        verify(_authIdentityManager, times(4)).getIdentityByAuthenticationId("testkey");
+        verify(_authIdentityManager, times(2)).getIdentityByAuthenticationId("testkey");
         verify(_permissionManager, times(INVOCATIONS_PER_ROLE * 2)).getPermissions(PermissionIDs.forRole("testrole"));
         verify(_permissionManager).getPermissionResolver();
         verifyNoMoreInteractions(_permissionManager, _authIdentityManager);
@@ -191,8 +191,8 @@ public class CachingTest {
         testGetWithMatchingPermissions("testkey", "Spain", "Madrid"); // +1 testkey
         testGetWithMatchingPermissions("testkey", "Spain", "Madrid");
 
-        verify(_authIdentityManager, times(4)).getIdentityByAuthenticationId("testkey");
-        verify(_authIdentityManager, times(4)).getIdentityByAuthenticationId("othertestkey");
+        verify(_authIdentityManager, times(2)).getIdentityByAuthenticationId("testkey");
+        verify(_authIdentityManager, times(2)).getIdentityByAuthenticationId("othertestkey");
         verify(_permissionManager, times(INVOCATIONS_PER_ROLE * 2)).getPermissions(PermissionIDs.forRole("testrole"));
         verify(_permissionManager, times(INVOCATIONS_PER_ROLE * 1)).getPermissions(PermissionIDs.forRole("othertestrole"));
         verify(_permissionManager).getPermissionResolver();
@@ -17,6 +17,7 @@ import com.bazaarvoice.emodb.blob.api.BlobStore;
 import com.bazaarvoice.emodb.sor.api.DataStore;
 import com.bazaarvoice.emodb.web.auth.EmoPermissionResolver;
 import com.bazaarvoice.emodb.web.jersey.ExceptionMappers;
+import com.bazaarvoice.emodb.web.jersey.SmileMessageBodyWriter;
 import com.bazaarvoice.emodb.web.throttling.ConcurrentRequestsThrottlingFilter;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
@@ -127,6 +128,8 @@ public abstract class ResourceTest {
             resourceTestRuleBuilder.addProvider(mapperType);
         }
 
+        resourceTestRuleBuilder.addProvider(new SmileMessageBodyWriter());
+
         ResourceTestRule resourceTestRule = resourceTestRuleBuilder.build();
 
         // Write Date objects using ISO8601 strings instead of numeric milliseconds-since-1970.
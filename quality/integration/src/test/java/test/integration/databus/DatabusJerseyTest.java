@@ -42,6 +42,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
+import com.sun.jersey.api.client.ClientResponse;
 import com.sun.jersey.api.client.GenericType;
 import com.sun.jersey.spi.inject.SingletonTypeInjectableProvider;
 import io.dropwizard.testing.junit.ResourceTestRule;
@@ -467,6 +468,47 @@ public class DatabusJerseyTest extends ResourceTest {
         verifyNoMoreInteractions(_local, _client);
     }
 
+    @Test
+    public void testPeekSmile() throws Exception {
+        List<Event> peekResults = ImmutableList.of(
+                new Event("id-1", ImmutableMap.of("key-1", "value-1"), ImmutableList.of(ImmutableList.of("tag-1"))),
+                new Event("id-2", ImmutableMap.of("key-2", "value-2"), ImmutableList.of(ImmutableList.of("tag-2"))));
+        when(_client.peek(isSubject(), eq("queue-name"), eq(123))).thenReturn(peekResults.iterator());
+
+        // JSON is acceptable but ranked lower, so the response is Smile
+        ClientResponse response = _resourceTestRule.client().resource("/bus/1/queue-name/peek")
+                .queryParam("limit", "123")
+                .queryParam("includeTags", "true")
+                .header("Accept", MediaType.APPLICATION_JSON + ";q=0.5, " + JsonHelper.SMILE_MEDIA_TYPE)
+                .header(ApiKeyRequest.AUTHENTICATION_HEADER, APIKEY_DATABUS)
+                .get(ClientResponse.class);
+
+        assertTrue(JsonHelper.isSmileMediaType(response.getType().getType(), response.getType().getSubtype()));
+        List<Event> actual = JsonHelper.readSmile(response.getEntityInputStream(), new TypeReference<List<Event>>() {});
+        assertEquals(actual, peekResults);
+        verify(_client).peek(isSubject(), eq("queue-name"), eq(123));
+        verifyNoMoreInteractions(_local, _client);
+    }
+
+    @Test
+    public void testPeekWithoutSmilePreferenceReturnsJson() throws Exception {
+        List<Event> peekResults = ImmutableList.of(
+                new Event("id-1", ImmutableMap.of("key-1", "value-1"), ImmutableList.of()));
+        when(_client.peek(isSubject(), eq("queue-name"), eq(123))).thenReturn(peekResults.iterator());
+
+        ClientResponse response = _resourceTestRule.client().resource("/bus/1/queue-name/peek")
+                .queryParam("limit", "123")
+                .accept(MediaType.WILDCARD_TYPE)
+                .header(ApiKeyRequest.AUTHENTICATION_HEADER, APIKEY_DATABUS)
+                .get(ClientResponse.class);
+
+        assertTrue(response.getType().isCompatible(MediaType.APPLICATION_JSON_TYPE));
+        List<Event> actual = JsonHelper.readJson(response.getEntityInputStream(), new TypeReference<List<Event>>() {});
+        assertEquals(actual, peekResults);
+        verify(_client).peek(isSubject(), eq("queue-name"), eq(123));
+        verifyNoMoreInteractions(_local, _client);
+    }
+
     @Test
     public void testPollPartitionContext() {
         _pcxtv.expect(PartitionContextBuilder.of("queue-name"))
@@ -483,6 +525,30 @@ public class DatabusJerseyTest extends ResourceTest {
         testPoll(false);
     }
 
+    @Test
+    public void testPollSmile() throws Exception {
+        List<Event> pollResults = ImmutableList.of(
+                new Event("id-1", ImmutableMap.of("key-1", "value-1"), ImmutableList.of(ImmutableList.of("tag-1"))),
+                new Event("id-2", ImmutableMap.of("key-2", "value-2"), ImmutableList.of(ImmutableList.of("tag-2"))));
+        when(_client.poll(isSubject(), eq("queue-name"), eq(Duration.ofSeconds(15)), eq(123)))
+                .thenReturn(new PollResult(pollResults.iterator(), 2, false));
+
+        // Smile is listed first with the same quality as JSON, so the response is Smile
+        ClientResponse response = _resourceTestRule.client().resource("/bus/1/queue-name/poll")
+                .queryParam("limit", "123")
+                .queryParam("ttl", "15")
+                .queryParam("includeTags", "true")
+                .accept(PeekOrPollResponseHelper.SMILE_TYPE, MediaType.APPLICATION_JSON_TYPE)
+                .header(ApiKeyRequest.AUTHENTICATION_HEADER, APIKEY_DATABUS)
+                .get(ClientResponse.class);
+
+        assertTrue(JsonHelper.isSmileMediaType(response.getType().getType(), response.getType().getSubtype()));
+        List<Event> actual = JsonHelper.readSmile(response.getEntityInputStream(), new TypeReference<List<Event>>() {});
+        assertEquals(actual, pollResults);
+        verify(_client).poll(isSubject(), eq("queue-name"), eq(Duration.ofSeconds(15)), eq(123));
+        verifyNoMoreInteractions(_local, _client);
+    }
+
     private void testPoll(boolean includeTags) {
         List<Event> pollResults = ImmutableList.of(
                 new Event("id-1", ImmutableMap.of("key-1", "value-1"), ImmutableList.of(ImmutableList.of("tag-1"))),
@@ -1,7 +1,9 @@
 package test.integration.databus;
 
 import com.bazaarvoice.emodb.auth.apikey.ApiKey;
+import com.bazaarvoice.emodb.common.uuid.TimeUUIDs;
 import com.bazaarvoice.emodb.databus.repl.ReplicationClient;
+import com.bazaarvoice.emodb.databus.repl.ReplicationEvent;
 import com.bazaarvoice.emodb.databus.repl.ReplicationSource;
 import com.bazaarvoice.emodb.test.ResourceTest;
 import com.bazaarvoice.emodb.web.auth.DefaultRoles;
@@ -18,12 +20,15 @@ import org.junit.Test;
 
 import javax.ws.rs.core.Response;
 import java.net.URI;
+import java.time.Duration;
 import java.util.List;
 
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.fail;
 
 public class ReplicationJerseyTest extends ResourceTest {
@@ -74,6 +79,22 @@ public class ReplicationJerseyTest extends ResourceTest {
         verifyNoMoreInteractions(_server);
     }
 
+    @Test
+    public void testPoll() {
+        List<String> acks = ImmutableList.of("first", "second");
+        ReplicationEvent event = new ReplicationEvent("third", "table", "key", TimeUUIDs.newUUID(), ImmutableSet.of("tag"));
+        when(_server.poll("channel", Duration.ofSeconds(120), 50, acks)).thenReturn(ImmutableList.of(event));
+
+        List<ReplicationEvent> actual = replicationClient().poll("channel", Duration.ofSeconds(120), 50, acks);
+
+        assertEquals(actual.size(), 1);
+        assertEquals(actual.get(0).getId(), "third");
+        assertEquals(actual.get(0).getChangeId(), event.getChangeId());
+        assertEquals(actual.get(0).getTags(), ImmutableSet.of("tag"));
+        verify(_server).poll("channel", Duration.ofSeconds(120), 50, acks);
+        verifyNoMoreInteractions(_server);
+    }
+
     /**
      * Test delete w/an invalid API key.
      */
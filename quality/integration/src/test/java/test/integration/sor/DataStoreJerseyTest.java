@@ -59,6 +59,7 @@ import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.google.common.collect.UnmodifiableIterator;
+import com.sun.jersey.api.client.ClientResponse;
 import com.sun.jersey.api.client.GenericType;
 import com.sun.jersey.api.client.UniformInterfaceException;
 import io.dropwizard.testing.junit.ResourceTestRule;
@@ -826,6 +827,71 @@ public class DataStoreJerseyTest extends ResourceTest {
         verifyNoMoreInteractions(_server);
     }
 
+    @Test
+    public void testGetSmile() throws Exception {
+        Map<String, Object> expected = ImmutableMap.<String, Object>of("key", "value", "count", 1234);
+        when(_server.get("table-name", "row-key", ReadConsistency.STRONG)).thenReturn(expected);
+
+        ClientResponse response = _resourceTestRule.client().resource("/sor/1/table-name/row-key")
+                .accept(JsonHelper.SMILE_MEDIA_TYPE)
+                .header(ApiKeyRequest.AUTHENTICATION_HEADER, APIKEY_TABLE)
+                .get(ClientResponse.class);
+
+        assertTrue(JsonHelper.isSmileMediaType(response.getType().getType(), response.getType().getSubtype()));
+        Map<String, Object> actual = JsonHelper.readSmile(response.getEntityInputStream(), new TypeReference<Map<String, Object>>() {});
+        assertEquals(actual, expected);
+        verify(_server).get("table-name", "row-key", ReadConsistency.STRONG);
+        verifyNoMoreInteractions(_server);
+    }
+
+    /** A client which lists Smile ahead of JSON gets Smile, one which accepts anything gets JSON. */
+    @Test
+    public void testGetNegotiatesSmileFromAcceptHeader() throws Exception {
+        Map<String, Object> expected = ImmutableMap.<String, Object>of("key", "value", "count", 1234);
+        when(_server.get("table-name", "row-key", ReadConsistency.STRONG)).thenReturn(expected);
+
+        ClientResponse response = _resourceTestRule.client().resource("/sor/1/table-name/row-key")
+                .header("Accept", JsonHelper.SMILE_MEDIA_TYPE + ", " + MediaType.APPLICATION_JSON)
+                .header(ApiKeyRequest.AUTHENTICATION_HEADER, APIKEY_TABLE)
+                .get(ClientResponse.class);
+
+        assertTrue(JsonHelper.isSmileMediaType(response.getType().getType(), response.getType().getSubtype()));
+        assertEquals(JsonHelper.readSmile(response.getEntityInputStream(), new TypeReference<Map<String, Object>>() {}), expected);
+
+        response = _resourceTestRule.client().resource("/sor/1/table-name/row-key")
+                .accept(MediaType.WILDCARD_TYPE)
+                .header(ApiKeyRequest.AUTHENTICATION_HEADER, APIKEY_TABLE)
+                .get(ClientResponse.class);
+
+        assertTrue(response.getType().isCompatible(MediaType.APPLICATION_JSON_TYPE));
+        assertEquals(JsonHelper.readJson(response.getEntityInputStream(), new TypeReference<Map<String, Object>>() {}), expected);
+        verify(_server, times(2)).get("table-name", "row-key", ReadConsistency.STRONG);
+        verifyNoMoreInteractions(_server);
+    }
+
+    @Test
+    public void testGetTimelineSmile() throws Exception {
+        List<Change> expected = ImmutableList.of(
+                new ChangeBuilder(TimeUUIDs.newUUID())
+                        .with(Deltas.literal("hello world"))
+                        .build());
+        when(_server.getTimeline("table-name", "row-key", true, false, null, null, true, 10, ReadConsistency.STRONG))
+                .thenReturn(expected.iterator());
+
+        ClientResponse response = _resourceTestRule.client().resource("/sor/1/table-name/row-key/timeline")
+                .accept(JsonHelper.SMILE_MEDIA_TYPE)
+                .header(ApiKeyRequest.AUTHENTICATION_HEADER, APIKEY_TABLE)
+                .get(ClientResponse.class);
+
+        assertTrue(JsonHelper.isSmileMediaType(response.getType().getType(), response.getType().getSubtype()));
+        List<Change> actual = JsonHelper.readSmile(response.getEntityInputStream(), new TypeReference<List<Change>>() {});
+        assertEquals(actual.size(), expected.size());
+        assertEquals(actual.get(0).getId(), expected.get(0).getId());
+        assertEquals(actual.get(0).getDelta(), expected.get(0).getDelta());
+        verify(_server).getTimeline("table-name", "row-key", true, false, null, null, true, 10, ReadConsistency.STRONG);
+        verifyNoMoreInteractions(_server);
+    }
+
     @Test
     public void testGetWithConsistency() {
         Map<String, Object> expected = ImmutableMap.<String, Object>of("key", "value", "count", 1234);
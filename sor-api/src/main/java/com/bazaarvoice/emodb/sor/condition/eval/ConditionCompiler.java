@@ -0,0 +1,607 @@
+package com.bazaarvoice.emodb.sor.condition.eval;
+
+import com.bazaarvoice.emodb.sor.api.Intrinsic;
+import com.bazaarvoice.emodb.sor.condition.AndCondition;
+import com.bazaarvoice.emodb.sor.condition.Comparison;
+import com.bazaarvoice.emodb.sor.condition.ComparisonCondition;
+import com.bazaarvoice.emodb.sor.condition.Condition;
+import com.bazaarvoice.emodb.sor.condition.ConditionVisitor;
+import com.bazaarvoice.emodb.sor.condition.ConstantCondition;
+import com.bazaarvoice.emodb.sor.condition.ContainsCondition;
+import com.bazaarvoice.emodb.sor.condition.EqualCondition;
+import com.bazaarvoice.emodb.sor.condition.InCondition;
+import com.bazaarvoice.emodb.sor.condition.IntrinsicCondition;
+import com.bazaarvoice.emodb.sor.condition.IsCondition;
+import com.bazaarvoice.emodb.sor.condition.LikeCondition;
+import com.bazaarvoice.emodb.sor.condition.MapCondition;
+import com.bazaarvoice.emodb.sor.condition.NotCondition;
+import com.bazaarvoice.emodb.sor.condition.OrCondition;
+import com.bazaarvoice.emodb.sor.condition.PartitionCondition;
+import com.bazaarvoice.emodb.sor.condition.State;
+import com.bazaarvoice.emodb.sor.delta.eval.DeltaEvaluator;
+import com.bazaarvoice.emodb.sor.delta.eval.Intrinsics;
+import com.google.common.base.Charsets;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.Doubles;
+import com.google.common.primitives.Longs;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Compiles a {@link Condition} into a {@link ConditionMatcher}.  {@link ConditionEvaluator} walks the condition tree
+ * through a visitor for every input, which is wasteful when the same condition is evaluated against many inputs such
+ * as a databus subscription's table filter.  Compiling does that work once:
+ *
+ * <ul>
+ *     <li>Intrinsic names are resolved to accessors and comparison operands are classified up front.</li>
+ *     <li>Sets of values for "in" and "contains" conditions are copied into hash sets.</li>
+ *     <li>Constant clauses are folded away, so for example <code>and(alwaysFalse(),...)</code> never evaluates
+ *         its other clauses.</li>
+ *     <li>The clauses of "and", "or" and map conditions are ordered by estimated cost and selectivity so the clause
+ *         most likely to decide the result cheaply is evaluated first.</li>
+ * </ul>
+ *
+ * Intrinsic and partition conditions throw an exception when evaluated without intrinsics.  Whether the interpreter
+ * reaches such a clause depends on the clauses before it, so clauses are never reordered across one and a constant
+ * clause after one is not folded into the whole condition.  The compiled matcher therefore returns the same result
+ * as the interpreter for every input, or throws the same exception.
+ */
+public final class ConditionCompiler {
+
+    // Selectivity is the estimated fraction of inputs a condition matches.  These are rough estimates for typical
+    // filters on table attributes and intrinsics, used only to order clauses.
+    private static final double EQUALITY_SELECTIVITY = 0.1;
+    private static final double TYPE_SELECTIVITY = 0.5;
+    private static final double RANGE_SELECTIVITY = 0.5;
+    private static final double PATTERN_SELECTIVITY = 0.25;
+    private static final double CONTAINS_SELECTIVITY = 0.25;
+
+    private ConditionCompiler() {
+        // empty
+    }
+
+    public static ConditionMatcher compile(Condition condition) {
+        requireNonNull(condition, "condition");
+        Node root = condition.visit(new Compiler(), null);
+        return new CompiledCondition(condition, root);
+    }
+
+    private static class CompiledCondition implements ConditionMatcher {
+        private final Condition _condition;
+        private final Node _root;
+
+        private CompiledCondition(Condition condition, Node root) {
+            _condition = condition;
+            _root = root;
+        }
+
+        @Override
+        public boolean matches(@Nullable Object json, @Nullable Intrinsics intrinsics) {
+            return _root.matches(json, intrinsics);
+        }
+
+        @Override
+        public Condition getCondition() {
+            return _condition;
+        }
+
+        @Override
+        public String toString() {
+            return _condition.toString();
+        }
+    }
+
+    /**
+     * A compiled node in the condition tree along with the estimates used to order it among its siblings.
+     */
+    private static abstract class Node {
+        final double _cost;
+        final double _selectivity;
+        final boolean _mayThrow;
+
+        Node(double cost, double selectivity) {
+            this(cost, selectivity, false);
+        }
+
+        Node(double cost, double selectivity, boolean mayThrow) {
+            _cost = cost;
+            _selectivity = selectivity;
+            _mayThrow = mayThrow;
+        }
+
+        abstract boolean matches(@Nullable Object json, @Nullable Intrinsics intrinsics);
+
+        /** Expected cost per decisive result when this node is a clause in an "and", lower is evaluated first. */
+        double andRank() {
+            return _selectivity >= 1 ? Double.MAX_VALUE : _cost / (1 - _selectivity);
+        }
+
+        /** Expected cost per decisive result when this node is a clause in an "or", lower is evaluated first. */
+        double orRank() {
+            return _selectivity <= 0 ? Double.MAX_VALUE : _cost / _selectivity;
+        }
+    }
+
+    private static final Node TRUE = new Node(0, 1) {
+        @Override
+        boolean matches(@Nullable Object json, @Nullable Intrinsics intrinsics) {
+            return true;
+        }
+    };
+
+    private static final Node FALSE = new Node(0, 0) {
+        @Override
+        boolean matches(@Nullable Object json, @Nullable Intrinsics intrinsics) {
+            return false;
+        }
+    };
+
+    private static class Compiler implements ConditionVisitor<Void, Node> {
+
+        @Override
+        public Node visit(ConstantCondition condition, @Nullable Void ignore) {
+            return condition.getValue() ? TRUE : FALSE;
+        }
+
+        @Override
+        public Node visit(EqualCondition condition, @Nullable Void ignore) {
+            Object value = condition.getValue();
+            return new Node(1, EQUALITY_SELECTIVITY) {
+                @Override
+                boolean matches(@Nullable Object json, @Nullable Intrinsics intrinsics) {
+                    return Objects.equals(value, json);
+                }
+            };
+        }
+
+        @Override
+        public Node visit(InCondition condition, @Nullable Void ignore) {
+            Set<Object> values = new HashSet<>(condition.getValues());
+            return new Node(1, Math.min(EQUALITY_SELECTIVITY * values.size(), 0.9)) {
+                @Override
+                boolean matches(@Nullable Object json, @Nullable Intrinsics intrinsics) {
+                    return values.contains(json);
+                }
+            };
+        }
+
+        @Override
+        public Node visit(IntrinsicCondition condition, @Nullable Void ignore) {
+            Function<Intrinsics, Object> accessor = getIntrinsicAccessor(condition.getName());
+            Node node = condition.getCondition().visit(this, null);
+            return new Node(node._cost + 1, node._selectivity, true) {
+                @Override
+                boolean matches(@Nullable Object ignoredJson, @Nullable Intrinsics intrinsics) {
+                    Intrinsics required = requireNonNull(intrinsics, "May not reference intrinsic values from this context.");
+                    return node.matches(accessor.apply(required), intrinsics);
+                }
+            };
+        }
+
+        private Function<Intrinsics, Object> getIntrinsicAccessor(String name) {
+            switch (name) {
+                case Intrinsic.ID:
+                    return Intrinsics::getId;
+                case Intrinsic.TABLE:
+                    return Intrinsics::getTable;
+                case Intrinsic.SIGNATURE:
+                    return Intrinsics::getSignature;
+                case Intrinsic.DELETED:
+                    return Intrinsics::isDeleted;
+                case Intrinsic.FIRST_UPDATE_AT:
+                    return Intrinsics::getFirstUpdateAt;
+                case Intrinsic.LAST_UPDATE_AT:
+                    return Intrinsics::getLastUpdateAt;
+                case Intrinsic.LAST_MUTATE_AT:
+                    return Intrinsics::getLastMutateAt;
+                case Intrinsic.PLACEMENT:
+                    return Intrinsics::getTablePlacement;
+                case Intrinsic.VERSION:
+                    // Intrinsic.VERSION is not supported, by design.  Like the interpreter, only fail if evaluated.
+                    return intrinsics -> {
+                        throw new UnsupportedOperationException();
+                    };
+                default:
+                    return intrinsics -> {
+                        throw new UnsupportedOperationException(name);
+                    };
+            }
+        }
+
+        @Override
+        public Node visit(IsCondition condition, @Nullable Void ignore) {
+            State state = condition.getState();
+            double selectivity = TYPE_SELECTIVITY;
+            switch (state) {
+                case UNDEFINED:
+                    return new Node(1, selectivity) {
+                        @Override
+                        boolean matches(@Nullable Object json, @Nullable Intrinsics intrinsics) {
+                            return json == DeltaEvaluator.UNDEFINED;
+                        }
+                    };
+                case DEFINED:
+                    return new Node(1, selectivity) {
+                        @Override
+                        boolean matches(@Nullable Object json, @Nullable Intrinsics intrinsics) {
+                            return json != DeltaEvaluator.UNDEFINED;
+                        }
+                    };
+                case NULL:
+                    return new Node(1, selectivity) {
+                        @Override
+                        boolean matches(@Nullable Object json, @Nullable Intrinsics intrinsics) {
+                            return json == null;
+                        }
+                    };
+                case BOOL:
+                    return new InstanceOfNode(Boolean.class);
+                case NUM:
+                    return new InstanceOfNode(Number.class);
+                case STRING:
+                    return new InstanceOfNode(String.class);
+                case ARRAY:
+                    return new InstanceOfNode(List.class);
+                case OBJECT:
+                    return new InstanceOfNode(Map.class);
+                default:
+                    throw new UnsupportedOperationException(state.name());
+            }
+        }
+
+        @Override
+        public Node visit(ComparisonCondition condition, @Nullable Void ignore) {
+            Comparison comparison = condition.getComparison();
+            Object value = condition.getValue();
+
+            if (value instanceof Number) {
+                Number nRight = (Number) value;
+                boolean rightIsDouble = isDouble(nRight);
+                return new Node(1, RANGE_SELECTIVITY) {
+                    @Override
+                    boolean matches(@Nullable Object json, @Nullable Intrinsics intrinsics) {
+                        if (!(json instanceof Number)) {
+                            return false;
+                        }
+                        Number nLeft = (Number) json;
+                        if (rightIsDouble || isDouble(nLeft)) {
+                            return matchesComparison(comparison, Doubles.compare(nLeft.doubleValue(), nRight.doubleValue()));
+                        }
+                        return matchesComparison(comparison, Longs.compare(nLeft.longValue(), nRight.longValue()));
+                    }
+                };
+            }
+            if (value instanceof String) {
+                String sRight = (String) value;
+                return new Node(1, RANGE_SELECTIVITY) {
+                    @Override
+                    boolean matches(@Nullable Object json, @Nullable Intrinsics intrinsics) {
+                        return json instanceof String && matchesComparison(comparison, ((String) json).compareTo(sRight));
+                    }
+                };
+            }
+            // Everything else, including null, is unsupported and therefore does not match.
+            return FALSE;
+        }
+
+        @Override
+        public Node visit(ContainsCondition condition, @Nullable Void ignore) {
+            Set<Object> conditionValues = new HashSet<>(condition.getValues());
+            ContainsCondition.Containment containment = condition.getContainment();
+
+            if (conditionValues.isEmpty() && containment != ContainsCondition.Containment.ONLY) {
+                // All values satisfy the empty set of conditions on subset containment
+                return TRUE;
+            }
+
+            return new Node(conditionValues.size(), CONTAINS_SELECTIVITY) {
+                @Override
+                boolean matches(@Nullable Object json, @Nullable Intrinsics intrinsics) {
+                    if (!(json instanceof List || json instanceof Set)) {
+                        return false;
+                    }
+                    Collection<?> values = (Collection<?>) json;
+
+                    switch (containment) {
+                        case ANY:
+                            if (conditionValues.size() == 1) {
+                                return values.contains(conditionValues.iterator().next());
+                            }
+                            for (Object value : values) {
+                                if (conditionValues.contains(value)) {
+                                    return true;
+                                }
+                            }
+                            return false;
+
+                        case ALL:
+                            if (conditionValues.size() == 1) {
+                                return values.contains(conditionValues.iterator().next());
+                            }
+                            return asSet(values).containsAll(conditionValues);
+
+                        default:
+                            // ONLY: the distinct values must be exactly the condition values
+                            Set<?> valueSet = asSet(values);
+                            return valueSet.size() == conditionValues.size() && conditionValues.containsAll(valueSet);
+                    }
+                }
+            };
+        }
+
+        private Set<?> asSet(Collection<?> values) {
+            return values instanceof Set ? (Set<?>) values : Sets.newHashSet(values);
+        }
+
+        @Override
+        public Node visit(LikeCondition condition, @Nullable Void ignore) {
+            // Like conditions are already parsed into specialized matchers, see LikeConditionImpl
+            double selectivity = condition.hasWildcards() ? PATTERN_SELECTIVITY : EQUALITY_SELECTIVITY;
+            return new Node(condition.weight(), selectivity) {
+                @Override
+                boolean matches(@Nullable Object json, @Nullable Intrinsics intrinsics) {
+                    return json instanceof String && condition.matches((String) json);
+                }
+            };
+        }
+
+        @Override
+        public Node visit(NotCondition condition, @Nullable Void ignore) {
+            Node node = condition.getCondition().visit(this, null);
+            if (node == TRUE) {
+                return FALSE;
+            }
+            if (node == FALSE) {
+                return TRUE;
+            }
+            return new Node(node._cost, 1 - node._selectivity, node._mayThrow) {
+                @Override
+                boolean matches(@Nullable Object json, @Nullable Intrinsics intrinsics) {
+                    return !node.matches(json, intrinsics);
+                }
+            };
+        }
+
+        @Override
+        public Node visit(AndCondition condition, @Nullable Void ignore) {
+            List<Node> nodes = new ArrayList<>();
+            for (Condition clause : condition.getConditions()) {
+                Node node = clause.visit(this, null);
+                if (node == FALSE) {
+                    if (!mayThrow(nodes)) {
+                        return FALSE;
+                    }
+                    // An earlier clause may throw before this one is reached, later clauses never are
+                    nodes.add(FALSE);
+                    break;
+                }
+                if (node != TRUE) {
+                    nodes.add(node);
+                }
+            }
+            if (nodes.isEmpty()) {
+                return TRUE;  // Note: if the condition lists is empty then AND returns true
+            }
+            if (nodes.size() == 1) {
+                return nodes.get(0);
+            }
+            sortBetweenThrowingClauses(nodes, Comparator.comparingDouble(Node::andRank));
+
+            Node[] clauses = nodes.toArray(new Node[nodes.size()]);
+            double cost = 0;
+            double selectivity = 1;
+            for (Node clause : clauses) {
+                // Later clauses are only evaluated if all earlier clauses matched
+                cost += clause._cost * selectivity;
+                selectivity *= clause._selectivity;
+            }
+            return new Node(cost, selectivity, mayThrow(nodes)) {
+                @Override
+                boolean matches(@Nullable Object json, @Nullable Intrinsics intrinsics) {
+                    for (Node clause : clauses) {
+                        if (!clause.matches(json, intrinsics)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }
+            };
+        }
+
+        @Override
+        public Node visit(OrCondition condition, @Nullable Void ignore) {
+            List<Node> nodes = new ArrayList<>();
+            for (Condition clause : condition.getConditions()) {
+                Node node = clause.visit(this, null);
+                if (node == TRUE) {
+                    if (!mayThrow(nodes)) {
+                        return TRUE;
+                    }
+                    // An earlier clause may throw before this one is reached, later clauses never are
+                    nodes.add(TRUE);
+                    break;
+                }
+                if (node != FALSE) {
+                    nodes.add(node);
+                }
+            }
+            if (nodes.isEmpty()) {
+                return FALSE;  // Note: if the condition lists is empty then OR returns false
+            }
+            if (nodes.size() == 1) {
+                return nodes.get(0);
+            }
+            sortBetweenThrowingClauses(nodes, Comparator.comparingDouble(Node::orRank));
+
+            Node[] clauses = nodes.toArray(new Node[nodes.size()]);
+            double cost = 0;
+            double misses = 1;
+            for (Node clause : clauses) {
+                // Later clauses are only evaluated if no earlier clause matched
+                cost += clause._cost * misses;
+                misses *= 1 - clause._selectivity;
+            }
+            return new Node(cost, 1 - misses, mayThrow(nodes)) {
+                @Override
+                boolean matches(@Nullable Object json, @Nullable Intrinsics intrinsics) {
+                    for (Node clause : clauses) {
+                        if (clause.matches(json, intrinsics)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+            };
+        }
+
+        @Override
+        public Node visit(MapCondition condition, @Nullable Void ignore) {
+            List<MapEntryNode> entries = new ArrayList<>();
+            for (Map.Entry<String, Condition> entry : condition.getEntries().entrySet()) {
+                Node node = entry.getValue().visit(this, null);
+                if (node == FALSE) {
+                    // No map can match, but the input must still be checked as a map first.  Earlier entries which
+                    // may throw must still be evaluated before this one.
+                    if (!mayThrow(entries)) {
+                        entries.clear();
+                    }
+                    entries.add(new MapEntryNode(entry.getKey(), FALSE));
+                    break;
+                }
+                if (node != TRUE) {
+                    entries.add(new MapEntryNode(entry.getKey(), node));
+                }
+            }
+            sortBetweenThrowingClauses(entries, Comparator.comparingDouble(Node::andRank));
+
+            MapEntryNode[] clauses = entries.toArray(new MapEntryNode[entries.size()]);
+            double cost = 1;
+            double selectivity = TYPE_SELECTIVITY;
+            for (MapEntryNode clause : clauses) {
+                cost += clause._cost * selectivity;
+                selectivity *= clause._selectivity;
+            }
+            return new Node(cost, selectivity, mayThrow(entries)) {
+                @Override
+                boolean matches(@Nullable Object json, @Nullable Intrinsics intrinsics) {
+                    if (!(json instanceof Map)) {
+                        return false;
+                    }
+                    Map<?, ?> map = (Map<?, ?>) json;
+                    for (MapEntryNode clause : clauses) {
+                        if (!clause.matches(map, intrinsics)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }
+            };
+        }
+
+        @Override
+        public Node visit(PartitionCondition condition, @Nullable Void ignore) {
+            int numPartitions = condition.getNumPartitions();
+            Node node = condition.getCondition().visit(this, null);
+            return new Node(node._cost + 3, node._selectivity, true) {
+                @Override
+                boolean matches(@Nullable Object ignoredJson, @Nullable Intrinsics intrinsics) {
+                    requireNonNull(intrinsics, "May not reference intrinsic values from this context.");
+                    int partition = Math.abs(
+                            Hashing.murmur3_32().newHasher()
+                                    .putString(intrinsics.getTable(), Charsets.UTF_8)
+                                    .putString(intrinsics.getId(), Charsets.UTF_8)
+                                    .hash()
+                                    .asInt()) % numPartitions + 1;
+                    return node.matches(partition, intrinsics);
+                }
+            };
+        }
+    }
+
+    private static boolean mayThrow(List<? extends Node> nodes) {
+        return nodes.stream().anyMatch(node -> node._mayThrow);
+    }
+
+    /**
+     * Sorts each run of clauses between clauses which may throw, leaving the clauses which may throw in place.  Within
+     * a run the clauses are commutative, so this never changes whether a clause which may throw is reached.
+     */
+    private static <N extends Node> void sortBetweenThrowingClauses(List<N> nodes, Comparator<? super N> order) {
+        int start = 0;
+        for (int i = 0; i <= nodes.size(); i++) {
+            if (i == nodes.size() || nodes.get(i)._mayThrow) {
+                nodes.subList(start, i).sort(order);
+                start = i + 1;
+            }
+        }
+    }
+
+    private static class InstanceOfNode extends Node {
+        private final Class<?> _type;
+
+        InstanceOfNode(Class<?> type) {
+            super(1, TYPE_SELECTIVITY);
+            _type = type;
+        }
+
+        @Override
+        boolean matches(@Nullable Object json, @Nullable Intrinsics intrinsics) {
+            return _type.isInstance(json);
+        }
+    }
+
+    /**
+     * Applies a node to a single entry of a map.  Called only with map inputs.
+     */
+    private static class MapEntryNode extends Node {
+        private final String _key;
+        private final Node _node;
+
+        MapEntryNode(String key, Node node) {
+            super(node._cost + 1, node._selectivity, node._mayThrow);
+            _key = key;
+            _node = node;
+        }
+
+        @Override
+        boolean matches(@Nullable Object json, @Nullable Intrinsics intrinsics) {
+            Map<?, ?> map = (Map<?, ?>) json;
+            Object value = map.get(_key);
+            if (value == null && !map.containsKey(_key)) {
+                value = DeltaEvaluator.UNDEFINED;
+            }
+            return _node.matches(value, intrinsics);
+        }
+    }
+
+    private static boolean isDouble(Number number) {
+        return number instanceof Float || number instanceof Double;
+    }
+
+    private static boolean matchesComparison(Comparison comparison, int result) {
+        switch (comparison) {
+            case LE:
+                return result <= 0;
+            case LT:
+                return result < 0;
+            case GE:
+                return result >= 0;
+            case GT:
+                return result > 0;
+            default:
+                throw new UnsupportedOperationException(String.valueOf(comparison));
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.bazaarvoice.emodb.sor.condition.eval;
+
+import com.bazaarvoice.emodb.sor.condition.Condition;
+import com.bazaarvoice.emodb.sor.delta.eval.Intrinsics;
+
+import javax.annotation.Nullable;
+
+/**
+ * A {@link Condition} compiled by {@link ConditionCompiler} for repeated evaluation.  For every input a matcher
+ * returns the same result as {@link ConditionEvaluator#eval(Condition, Object, Intrinsics)} would for the condition
+ * it was compiled from.  Matchers are immutable and thread-safe.
+ */
+public interface ConditionMatcher {
+
+    boolean matches(@Nullable Object json, @Nullable Intrinsics intrinsics);
+
+    /**
+     * Returns the condition this matcher was compiled from.
+     */
+    Condition getCondition();
+}
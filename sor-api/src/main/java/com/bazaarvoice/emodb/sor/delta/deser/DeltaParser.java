@@ -19,6 +19,7 @@ import com.google.common.collect.Maps;
 
 import javax.annotation.Nullable;
 import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
@@ -53,6 +54,13 @@ public class DeltaParser {
         return delta;
     }
 
+    /**
+     * Parses a delta from the remaining UTF-8 encoded bytes in a buffer without decoding them into a string first.
+     */
+    public static Delta parse(ByteBuffer utf8) {
+        return parse(new JsonTokener(utf8));
+    }
+
     public static Condition parseCondition(String string) {
         JsonTokener t = new JsonTokener(string);
         Condition condition = new DeltaParser(t).parseCondition();
@@ -96,6 +104,11 @@ public class DeltaParser {
         }
 
         // We're probably looking at a word (true,false,null,if,or,...) or a number.
+        if (ch != 'i') {
+            // Can't be a conditional, so parse it as a literal without the intermediate token string
+            return Deltas.literal(_t.nextValue());
+        }
+
         String token = _t.nextToken();
 
         if ("if".equals(token)) {
@@ -160,7 +173,7 @@ public class DeltaParser {
             }
             if (more) {
                 do {
-                    String key = _t.nextString();
+                    String key = _t.nextKey();
                     _t.nextClean(':');
                     builder.update(key, parseDelta());
                 } while (_t.nextArg(',', '}'));
@@ -334,7 +347,7 @@ public class DeltaParser {
             _t.next('.');
             MapConditionBuilder builder = Conditions.mapBuilder();
             while (_t.nextArg(',', '}')) {
-                String key = _t.nextString();
+                String key = _t.nextKey();
                 _t.nextClean(':');
                 builder.matches(key, parseCondition());
             }
@@ -343,7 +356,7 @@ public class DeltaParser {
             // Equality test against a map literal.
             Map<String, Object> map = Maps.newLinkedHashMap();
             do {
-                String key = _t.nextString();
+                String key = _t.nextKey();
                 _t.nextClean(':');
                 if (map.containsKey(key)) {
                     throw new ParseException("Duplicate key \"" + key + "\"");
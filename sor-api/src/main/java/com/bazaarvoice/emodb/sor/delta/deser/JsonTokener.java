@@ -19,6 +19,8 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
@@ -34,6 +36,11 @@ import static com.google.common.base.Preconditions.checkState;
  * instead of ':' in maps and to '(',')' and ';' instead of '[',']' and ',' in lists.  Comments and hex and octal
  * notation are not supported.  Unquoted strings and strings with single quotes are not supported.  Non-lower case
  * literals 'true', 'false', 'null' are not supported.  Whitespace is allowed.
+ * <p>
+ * The source may be a string or UTF-8 encoded bytes.  Parsing bytes directly avoids decoding the entire source into a
+ * string first; only the strings within the JSON are decoded.  All JSON syntax is ASCII and multi-byte UTF-8 sequences
+ * never contain ASCII byte values, so the bytes can be scanned a byte at a time.  When parsing bytes all positions,
+ * such as {@link #pos()}, are byte offsets.
  *
  * @author JSON.org
  * @author Bazaarvoice.com
@@ -41,16 +48,38 @@ import static com.google.common.base.Preconditions.checkState;
  */
 public class JsonTokener {
 
+    private static final String DELIMITERS = ",:]})>/\\\"[{(<;=#?";
+
+    /**
+     * Map keys tend to come from a small vocabulary which repeats across every document in a table.  Short ASCII keys
+     * are cached so repeated keys share a single instance and, if the cached key matches the source, don't allocate
+     * at all.  Slots are overwritten on collision.  The cache is shared by all threads without synchronization; since
+     * strings are immutable the worst case from a race is a missed or redundant cache update.
+     */
+    private static final String[] KEY_CACHE = new String[4096];
+    private static final int MAX_CACHED_KEY_LENGTH = 32;
+
     /**
      * The index of the next character.
      */
     private int myIndex;
 
     /**
-     * The source string being tokenized.
+     * The source string being tokenized, or null if the source is UTF-8 bytes.
      */
     private final String mySource;
 
+    /**
+     * The source bytes being tokenized, or null if the source is a string.
+     */
+    private final byte[] myBytes;
+    private final int myOffset;
+
+    /**
+     * The length of the source in characters for a string or bytes for UTF-8.
+     */
+    private final int myLength;
+
     /**
      * Construct a JSONTokener from a string.
      *
@@ -59,6 +88,67 @@ public class JsonTokener {
     public JsonTokener(String s) {
         this.myIndex = 0;
         this.mySource = s;
+        this.myBytes = null;
+        this.myOffset = 0;
+        this.myLength = s.length();
+    }
+
+    /**
+     * Construct a JSONTokener from UTF-8 encoded bytes.  The array is not copied and must not be modified while
+     * the tokener is in use.
+     *
+     * @param utf8      The source bytes.
+     * @param offset    The index of the first byte of the source.
+     * @param length    The number of bytes in the source.
+     */
+    public JsonTokener(byte[] utf8, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > utf8.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        this.myIndex = 0;
+        this.mySource = null;
+        this.myBytes = utf8;
+        this.myOffset = offset;
+        this.myLength = length;
+    }
+
+    /**
+     * Construct a JSONTokener from the remaining UTF-8 encoded bytes in a buffer.  The buffer's position is not
+     * changed.  If the buffer is backed by an array the array is not copied and must not be modified while the
+     * tokener is in use.
+     *
+     * @param utf8      The source bytes.
+     */
+    public JsonTokener(ByteBuffer utf8) {
+        this(array(utf8), utf8.hasArray() ? utf8.arrayOffset() + utf8.position() : 0, utf8.remaining());
+    }
+
+    private static byte[] array(ByteBuffer buf) {
+        if (buf.hasArray()) {
+            return buf.array();
+        }
+        byte[] bytes = new byte[buf.remaining()];
+        buf.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private char charAt(int index) {
+        return mySource != null ? mySource.charAt(index) : (char) (myBytes[myOffset + index] & 0xff);
+    }
+
+    private String substring(int start, int end) {
+        return mySource != null ?
+                mySource.substring(start, end) :
+                new String(myBytes, myOffset + start, end - start, StandardCharsets.UTF_8);
+    }
+
+    private boolean regionMatches(int start, String expected) {
+        for (int i = 0; i < expected.length(); i++) {
+            if (charAt(start + i) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -77,7 +167,7 @@ public class JsonTokener {
      * @return true if not yet at the end of the source.
      */
     public boolean more() {
-        return this.myIndex < this.mySource.length();
+        return this.myIndex < this.myLength;
     }
 
     /**
@@ -86,7 +176,7 @@ public class JsonTokener {
      * @return The next character, or 0 if past the end of the source string.
      */
     public char next() {
-        char c = more() ? this.mySource.charAt(this.myIndex) : 0;
+        char c = more() ? charAt(this.myIndex) : 0;
         this.myIndex += 1;
         return c;
     }
@@ -114,11 +204,11 @@ public class JsonTokener {
     public String next(int n) {
          int i = this.myIndex;
          int j = i + n;
-         if (j >= this.mySource.length()) {
+         if (j >= this.myLength) {
             throw syntaxError("Substring bounds error");
          }
          this.myIndex += n;
-         return this.mySource.substring(i, j);
+         return substring(i, j);
     }
 
     /**
@@ -168,7 +258,33 @@ public class JsonTokener {
      * @return      A String.
      */
     public String nextString() {
+        return nextString(false);
+    }
+
+    /**
+     * Same as {@link #nextString()} except that the result is expected to be a map key.  Common keys are returned
+     * from a shared cache.
+     */
+    public String nextKey() {
+        return nextString(true);
+    }
+
+    private String nextString(boolean key) {
         nextClean('"');
+
+        // Most strings contain no escapes and can be taken from the source as-is
+        int start = this.myIndex;
+        for (int i = start; i < this.myLength; i++) {
+            char c = charAt(i);
+            if (c == '"') {
+                this.myIndex = i + 1;
+                return key ? cachedKey(start, i) : substring(start, i);
+            }
+            if (c == '\\' || c < ' ') {
+                break;
+            }
+        }
+
         StringBuilder sb = new StringBuilder();
         for (;;) {
             char c = next();
@@ -199,7 +315,12 @@ public class JsonTokener {
                             sb.append((char)Integer.parseInt(next(4), 16));
                             break;
                         default:
-                            sb.append(c);
+                            if (c >= 0x80 && myBytes != null) {
+                                // Start of a multi-byte character; let the outer loop decode it
+                                back();
+                            } else {
+                                sb.append(c);
+                            }
                     }
                     break;
                 case '"':
@@ -208,12 +329,46 @@ public class JsonTokener {
                     if (c < ' ') {
                         throw syntaxError("Unescaped control character (ascii " + ((int) c) + ") in string");
                     }
-                    sb.append(c);
+                    if (c >= 0x80 && myBytes != null) {
+                        // Decode the entire run of multi-byte characters at once.  Since they never contain ASCII
+                        // bytes the run always ends on a character boundary.
+                        int runStart = this.myIndex - 1;
+                        while (this.myIndex < this.myLength && myBytes[myOffset + this.myIndex] < 0) {
+                            this.myIndex += 1;
+                        }
+                        sb.append(substring(runStart, this.myIndex));
+                    } else {
+                        sb.append(c);
+                    }
                     break;
             }
         }
     }
 
+    private String cachedKey(int start, int end) {
+        int length = end - start;
+        if (length > MAX_CACHED_KEY_LENGTH) {
+            return substring(start, end);
+        }
+        // Same hash as String.hashCode(), which for ASCII is the same whether computed over bytes or characters
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            char c = charAt(i);
+            if (c >= 0x80) {
+                return substring(start, end);
+            }
+            hash = 31 * hash + c;
+        }
+        int slot = (hash ^ (hash >>> 16)) & (KEY_CACHE.length - 1);
+        String cached = KEY_CACHE[slot];
+        if (cached != null && cached.length() == length && regionMatches(start, cached)) {
+            return cached;
+        }
+        String key = substring(start, end);
+        KEY_CACHE[slot] = key;
+        return key;
+    }
+
 
     /**
      * Get the next value. The value can be a Boolean, Double, Integer,
@@ -235,27 +390,83 @@ public class JsonTokener {
         /*
          * Handle unquoted text. This could be the values true, false, or
          * null, or it can be a number.
-         *
-         * Accumulate characters until we reach the end of the text or a
-         * formatting character.
          */
-        String s = nextToken();
-        return tokenToValue(s);
+        return nextLiteral();
+    }
+
+    /**
+     * Equivalent to <code>tokenToValue(nextToken())</code> except that the common literals and integers are
+     * recognized in place without first copying the token into a string.
+     */
+    private Object nextLiteral() {
+        int start = scanToken();
+        int end = this.myIndex;
+        int length = end - start;
+        if (length == 0) {
+            throw syntaxError("Missing value");
+        }
+        if (length == 4 && regionMatches(start, "true")) {
+            return Boolean.TRUE;
+        }
+        if (length == 5 && regionMatches(start, "false")) {
+            return Boolean.FALSE;
+        }
+        if (length == 4 && regionMatches(start, "null")) {
+            return null;
+        }
+
+        // Integers of up to 18 digits can't overflow a long
+        int i = start;
+        boolean negative = charAt(i) == '-';
+        if (negative) {
+            i += 1;
+        }
+        if (i < end && end - i <= 18) {
+            long value = 0;
+            for (; i < end; i++) {
+                char c = charAt(i);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                value = value * 10 + (c - '0');
+            }
+            if (i == end) {
+                if (negative) {
+                    value = -value;
+                }
+                if (value == (int) value) {
+                    return (int) value;
+                } else {
+                    return value;
+                }
+            }
+        }
+
+        return tokenToValue(substring(start, end));
     }
 
     public String nextToken() {
+        int start = scanToken();
+        String token = substring(start, this.myIndex).trim();
+        if (token.isEmpty()) {
+            throw syntaxError("Missing value");
+        }
+        return token;
+    }
+
+    /**
+     * Accumulates characters until reaching the end of the text or a formatting character.  On return the current
+     * position is immediately after the token.
+     * @return The index of the first character of the token.
+     */
+    private int scanToken() {
         char c = nextClean();
         int start = this.myIndex - 1;
-        while (c > ' ' && ",:]})>/\\\"[{(<;=#?".indexOf(c) == -1) {
+        while (c > ' ' && DELIMITERS.indexOf(c) == -1) {
             c = next();
         }
         back();
-        int end = this.myIndex;
-        String token = this.mySource.substring(start, end).trim();
-        if (token.isEmpty()) {
-            throw syntaxError("Missing value");
-        }
-        return token;
+        return start;
     }
 
     public Object tokenToValue(String s) {
@@ -315,7 +526,7 @@ public class JsonTokener {
         if (startArgs('{', '}')) {
             do {
                 // The key must be a quoted string.
-                String key = nextString();
+                String key = nextKey();
                 nextClean(':');
                 if (map.containsKey(key)) {
                     throw new ParseException("Duplicate key \"" + key + "\"");
@@ -376,12 +587,14 @@ public class JsonTokener {
      */
     @Override
     public String toString() {
-        return " at character " + this.myIndex + " of " + this.mySource;
+        String source = this.mySource != null ? this.mySource : substring(0, this.myLength);
+        return " at character " + this.myIndex + " of " + source;
     }
 
     /**
-     * Returns the current position in the source string from the beginning, 0-based.  This function is not
-     * commonly used but is useful to perform custom handling of the remaining source.
+     * Returns the current position in the source from the beginning, 0-based.  For a UTF-8 source this is the
+     * offset in bytes.  This function is not commonly used but is useful to perform custom handling of the
+     * remaining source.
      */
     public int pos() {
         return myIndex;
@@ -0,0 +1,155 @@
+package com.bazaarvoice.emodb.sor.condition.eval;
+
+import com.bazaarvoice.emodb.sor.condition.Condition;
+import com.bazaarvoice.emodb.sor.condition.Conditions;
+import com.bazaarvoice.emodb.sor.delta.eval.Intrinsics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * Compares evaluating conditions with {@link ConditionEvaluator} against matchers from {@link ConditionCompiler}
+ * using filters typical of databus subscriptions and table permissions.  This is not run as part of the build; run it
+ * directly from an IDE or with exec:java against the test classpath.
+ */
+public class ConditionCompilerBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 20;
+    private static final int MEASURED_ITERATIONS = 100;
+
+    public static void main(String[] args) {
+        Random random = new Random(0);
+
+        // Table attributes and intrinsics for a variety of tables
+        List<Map<String, Object>> attributes = new ArrayList<>();
+        List<Intrinsics> intrinsics = new ArrayList<>();
+        String[] types = {"review", "question", "answer", "product", "category"};
+        for (int i = 0; i < 1000; i++) {
+            String type = types[random.nextInt(types.length)];
+            String client = "client" + random.nextInt(50);
+            Map<String, Object> tableAttributes = new LinkedHashMap<>();
+            tableAttributes.put("type", type);
+            tableAttributes.put("client", client);
+            tableAttributes.put("urgent", random.nextBoolean());
+            attributes.add(tableAttributes);
+            intrinsics.add(new BenchmarkIntrinsics(type + ":" + client, "document-" + i, "ugc_global:ugc"));
+        }
+
+        run("table equality", "intrinsic(\"~table\":\"review:client1\")", attributes, intrinsics);
+        run("table in", "intrinsic(\"~table\":\"review:client1\",\"review:client2\",\"review:client3\",\"review:client4\")", attributes, intrinsics);
+        run("table like", "intrinsic(\"~table\":like(\"review:*\"))", attributes, intrinsics);
+        run("attributes", "{..,\"type\":\"review\",\"client\":like(\"client1*\")}", attributes, intrinsics);
+        run("mixed and", "and(intrinsic(\"~placement\":\"ugc_global:ugc\"),{..,\"urgent\":true},intrinsic(\"~table\":like(\"*:client2*\")),not(intrinsic(\"~id\":like(\"tmp*\"))))",
+                attributes, intrinsics);
+        run("mixed or", "or({..,\"type\":in(\"question\",\"answer\")},intrinsic(\"~table\":like(\"review:client4*\")),partition(8:1))",
+                attributes, intrinsics);
+    }
+
+    private static void run(String name, String conditionString, List<Map<String, Object>> attributes,
+                            List<Intrinsics> intrinsics) {
+        Condition condition = Conditions.fromString(conditionString);
+        ConditionMatcher matcher = ConditionCompiler.compile(condition);
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            interpret(condition, attributes, intrinsics);
+            compiled(matcher, attributes, intrinsics);
+        }
+
+        long interpretedNanos = 0;
+        long compiledNanos = 0;
+        int matches = 0;
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            matches += interpret(condition, attributes, intrinsics);
+            long mid = System.nanoTime();
+            matches -= compiled(matcher, attributes, intrinsics);
+            compiledNanos += System.nanoTime() - mid;
+            interpretedNanos += mid - start;
+        }
+        if (matches != 0) {
+            throw new IllegalStateException("Compiled condition did not match interpreter: " + condition);
+        }
+
+        long evaluations = (long) MEASURED_ITERATIONS * attributes.size();
+        System.out.println(format("%-20s %10.1f ns/interpreted %10.1f ns/compiled", name,
+                (double) interpretedNanos / evaluations, (double) compiledNanos / evaluations));
+    }
+
+    private static int interpret(Condition condition, List<Map<String, Object>> attributes, List<Intrinsics> intrinsics) {
+        int matches = 0;
+        for (int i = 0; i < attributes.size(); i++) {
+            if (ConditionEvaluator.eval(condition, attributes.get(i), intrinsics.get(i))) {
+                matches += 1;
+            }
+        }
+        return matches;
+    }
+
+    private static int compiled(ConditionMatcher matcher, List<Map<String, Object>> attributes, List<Intrinsics> intrinsics) {
+        int matches = 0;
+        for (int i = 0; i < attributes.size(); i++) {
+            if (matcher.matches(attributes.get(i), intrinsics.get(i))) {
+                matches += 1;
+            }
+        }
+        return matches;
+    }
+
+    private static class BenchmarkIntrinsics implements Intrinsics {
+        private final String _table;
+        private final String _id;
+        private final String _placement;
+
+        BenchmarkIntrinsics(String table, String id, String placement) {
+            _table = table;
+            _id = id;
+            _placement = placement;
+        }
+
+        @Override
+        public String getId() {
+            return _id;
+        }
+
+        @Override
+        public String getTable() {
+            return _table;
+        }
+
+        @Override
+        public String getSignature() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isDeleted() {
+            return false;
+        }
+
+        @Override
+        public String getFirstUpdateAt() {
+            return null;
+        }
+
+        @Override
+        public String getLastUpdateAt() {
+            return null;
+        }
+
+        @Override
+        public String getLastMutateAt() {
+            return null;
+        }
+
+        @Override
+        public String getTablePlacement() {
+            return _placement;
+        }
+    }
+}
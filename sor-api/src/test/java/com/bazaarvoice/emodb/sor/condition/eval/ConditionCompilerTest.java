@@ -0,0 +1,220 @@
+package com.bazaarvoice.emodb.sor.condition.eval;
+
+import com.bazaarvoice.emodb.sor.api.Intrinsic;
+import com.bazaarvoice.emodb.sor.condition.Condition;
+import com.bazaarvoice.emodb.sor.condition.Conditions;
+import com.bazaarvoice.emodb.sor.condition.impl.AndConditionImpl;
+import com.bazaarvoice.emodb.sor.condition.impl.OrConditionImpl;
+import com.bazaarvoice.emodb.sor.delta.eval.DeltaEvaluator;
+import com.bazaarvoice.emodb.sor.delta.eval.Intrinsics;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class ConditionCompilerTest {
+
+    private static final List<String> CONDITIONS = ImmutableList.of(
+            "alwaysTrue()",
+            "alwaysFalse()",
+            "\"review\"",
+            "5",
+            "null",
+            "in(\"review\",\"question\",\"answer\")",
+            "in(1,2,3)",
+            "is(defined)",
+            "is(undefined)",
+            "is(null)",
+            "is(bool)",
+            "is(num)",
+            "is(string)",
+            "is(array)",
+            "is(object)",
+            "gt(5)",
+            "le(5.5)",
+            "ge(\"m\")",
+            "lt(\"m\")",
+            "like(\"review:*\")",
+            "like(\"*:testcustomer\")",
+            "like(\"review:*:testcustomer\")",
+            "like(\"*view*\")",
+            "like(\"r*v*w*c*r\")",
+            "like(\"*\")",
+            "like(\"exact\")",
+            "containsAny(\"a\",\"b\")",
+            "containsAll(\"a\",\"b\")",
+            "containsOnly(\"a\",\"b\")",
+            "containsAny(\"a\")",
+            "containsAll(\"a\")",
+            "containsOnly(\"a\")",
+            "not(\"review\")",
+            "not(alwaysFalse())",
+            "and(is(string),like(\"review:*\"))",
+            "and(alwaysTrue(),is(string))",
+            "and(alwaysFalse(),is(string))",
+            "and()",
+            "or(5,\"review\",is(array))",
+            "or(alwaysFalse(),is(num))",
+            "or()",
+            "{..,\"type\":\"review\"}",
+            "{..,\"type\":\"review\",\"client\":like(\"test*\"),\"missing\":~}",
+            "{..,\"type\":alwaysFalse()}",
+            "{..,\"tags\":containsAny(\"a\",\"c\")}",
+            "{..}",
+            "intrinsic(\"~table\":like(\"review:*\"))",
+            "intrinsic(\"~id\":\"key1\",\"key2\")",
+            "intrinsic(\"~placement\":\"ugc_global:ugc\")",
+            "intrinsic(\"~deleted\":false)",
+            "and(intrinsic(\"~table\":\"review:testcustomer\"),{..,\"type\":\"review\"},not(intrinsic(\"~id\":like(\"tmp*\"))))",
+            "or(intrinsic(\"~table\":like(\"*:testcustomer\")),{..,\"type\":in(\"answer\",\"question\")})",
+            "partition(4:1)",
+            "partition(4:in(2,3))");
+
+    private static final List<Object> INPUTS = Arrays.asList(
+            DeltaEvaluator.UNDEFINED,
+            null,
+            true,
+            false,
+            5,
+            5L,
+            5.5,
+            6,
+            "review",
+            "review:testcustomer",
+            "review:other:testcustomer",
+            "question",
+            "m",
+            "exact",
+            "",
+            ImmutableList.of(),
+            ImmutableList.of("a"),
+            ImmutableList.of("a", "a"),
+            ImmutableList.of("a", "b"),
+            ImmutableList.of("b", "a", "c"),
+            ImmutableSet.of("a", "b"),
+            ImmutableMap.of(),
+            ImmutableMap.of("type", "review"),
+            ImmutableMap.of("type", "review", "client", "testcustomer"),
+            ImmutableMap.of("type", "question", "tags", ImmutableList.of("c")),
+            mapWithNullValue());
+
+    private static Map<String, Object> mapWithNullValue() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("type", "review");
+        map.put("missing", null);
+        return map;
+    }
+
+    @DataProvider(name = "conditions")
+    public Object[][] conditions() {
+        return CONDITIONS.stream().map(condition -> new Object[] {condition}).toArray(Object[][]::new);
+    }
+
+    @Test(dataProvider = "conditions")
+    public void testMatchesInterpreter(String conditionString) {
+        Condition condition = Conditions.fromString(conditionString);
+        ConditionMatcher matcher = ConditionCompiler.compile(condition);
+
+        for (Intrinsics intrinsics : ImmutableList.of(
+                intrinsics("review:testcustomer", "key1", "ugc_global:ugc", false),
+                intrinsics("answer:othercustomer", "tmp-1", "catalog_global:cat", true))) {
+            for (Object input : INPUTS) {
+                assertEquals(matcher.matches(input, intrinsics), ConditionEvaluator.eval(condition, input, intrinsics),
+                        "Condition " + condition + " on input " + input);
+            }
+        }
+        assertEquals(matcher.getCondition(), condition);
+    }
+
+    @Test
+    public void testNumericEqualityMatchesInterpreter() {
+        // Equality on JSON numbers is type sensitive; the compiled "in" must not be any more lenient
+        Condition condition = Conditions.in(1, 2, 3);
+        ConditionMatcher matcher = ConditionCompiler.compile(condition);
+        for (Object input : ImmutableList.of(1, 1L, 1.0, 2, 4)) {
+            assertEquals(matcher.matches(input, null), ConditionEvaluator.eval(condition, input, null));
+        }
+    }
+
+    @Test
+    public void testConstantClausesAreFolded() {
+        // The parser already simplifies these, so construct them directly.  The intrinsic clause would fail without
+        // intrinsics if it were evaluated.
+        Condition intrinsic = Conditions.intrinsic(Intrinsic.ID, "key1");
+
+        ConditionMatcher matcher = ConditionCompiler.compile(
+                new AndConditionImpl(ImmutableList.of(Conditions.alwaysFalse(), intrinsic)));
+        assertFalse(matcher.matches(null, null));
+
+        matcher = ConditionCompiler.compile(
+                new OrConditionImpl(ImmutableList.of(Conditions.alwaysTrue(), intrinsic)));
+        assertTrue(matcher.matches(null, null));
+    }
+
+    @Test
+    public void testExceptionsMatchInterpreter() {
+        // Without intrinsics the intrinsic and partition clauses throw, so only reordering or folding clauses across
+        // them could change whether the condition throws
+        Condition intrinsic = Conditions.intrinsic(Intrinsic.ID, "key1");
+        List<Condition> conditions = ImmutableList.of(
+                new AndConditionImpl(ImmutableList.of(intrinsic, Conditions.alwaysFalse())),
+                new OrConditionImpl(ImmutableList.of(intrinsic, Conditions.alwaysTrue())),
+                Conditions.fromString("and(intrinsic(\"~id\":\"key1\"),{..,\"type\":\"review\"})"),
+                Conditions.fromString("and({..,\"type\":\"review\"},intrinsic(\"~id\":\"key1\"))"),
+                Conditions.fromString("or(intrinsic(\"~id\":\"key1\"),{..,\"type\":\"review\"})"),
+                Conditions.fromString("or(like(\"rev*\"),partition(4:1),\"review\")"),
+                Conditions.fromString("{..,\"status\":partition(4:1),\"type\":\"review\"}"));
+
+        for (Condition condition : conditions) {
+            ConditionMatcher matcher = ConditionCompiler.compile(condition);
+            for (Object input : INPUTS) {
+                assertEquals(outcome(() -> matcher.matches(input, null)),
+                        outcome(() -> ConditionEvaluator.eval(condition, input, null)),
+                        "Condition " + condition + " on input " + input);
+            }
+        }
+    }
+
+    /** Returns the result or the type of exception thrown. */
+    private static Object outcome(Supplier<Boolean> evaluation) {
+        try {
+            return evaluation.get();
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+
+    @Test
+    public void testIntrinsicsRequired() {
+        ConditionMatcher matcher = ConditionCompiler.compile(Conditions.fromString("intrinsic(\"~id\":\"key1\")"));
+        try {
+            matcher.matches(null, null);
+            fail("Intrinsic evaluated without intrinsics");
+        } catch (NullPointerException e) {
+            // expected
+        }
+    }
+
+    private static Intrinsics intrinsics(String table, String id, String placement, boolean deleted) {
+        Intrinsics intrinsics = mock(Intrinsics.class);
+        when(intrinsics.getTable()).thenReturn(table);
+        when(intrinsics.getId()).thenReturn(id);
+        when(intrinsics.getTablePlacement()).thenReturn(placement);
+        when(intrinsics.isDeleted()).thenReturn(deleted);
+        return intrinsics;
+    }
+}
@@ -2,11 +2,14 @@ package com.bazaarvoice.emodb.sor.delta;
 
 import com.bazaarvoice.emodb.sor.condition.Conditions;
 import com.bazaarvoice.emodb.sor.condition.State;
+import com.bazaarvoice.emodb.sor.delta.deser.DeltaParser;
 import com.bazaarvoice.emodb.sor.uuid.TimeUUIDs;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import org.testng.annotations.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
 
@@ -303,6 +306,11 @@ public class DeltaParserTest {
         Delta actual = Deltas.fromString(input);
         assertEquals(actual, expected, "DeltaParser returned unexpected results:\nGiven   : " + input);
         assertEquals(actual.toString(), expectedString);  // note: Delta.toString() must produce sorted, deterministic output
+
+        // Parsing the UTF-8 bytes directly must produce the same delta
+        Delta actualFromBytes = DeltaParser.parse(utf8(input));
+        assertEquals(actualFromBytes, expected, "DeltaParser returned unexpected results from bytes:\nGiven   : " + input);
+        assertEquals(actualFromBytes.toString(), expectedString);
     }
 
     private void doTestException(String input, String message) {
@@ -312,5 +320,21 @@ public class DeltaParserTest {
         } catch (Exception e) {
             assertTrue(e.getMessage().contains(message), "Incorrect exception on input: " + input + "\nActual  : " + e.toString() + "\nExpected: " + message);
         }
+        try {
+            DeltaParser.parse(utf8(input));
+            fail("Expected exception on input bytes: " + input);
+        } catch (Exception e) {
+            assertTrue(e.getMessage().contains(message), "Incorrect exception on input bytes: " + input + "\nActual  : " + e.toString() + "\nExpected: " + message);
+        }
+    }
+
+    private ByteBuffer utf8(String input) {
+        // Surround the bytes with padding to verify the parser honors the buffer's bounds
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buf = ByteBuffer.allocate(bytes.length + 6);
+        buf.put("xx".getBytes(StandardCharsets.UTF_8)).put(bytes).put("~~~~".getBytes(StandardCharsets.UTF_8));
+        buf.position(2);
+        buf.limit(2 + bytes.length);
+        return buf.slice();
     }
 }
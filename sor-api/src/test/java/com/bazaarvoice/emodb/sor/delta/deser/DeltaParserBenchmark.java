@@ -0,0 +1,114 @@
+package com.bazaarvoice.emodb.sor.delta.deser;
+
+import com.bazaarvoice.emodb.sor.delta.Delta;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static java.lang.String.format;
+
+/**
+ * Compares parsing deltas by first decoding their UTF-8 bytes into a string, as the read path used to, against parsing
+ * the bytes directly.  This is not run as part of the build; run it directly from an IDE or with exec:java against the
+ * test classpath.
+ */
+public class DeltaParserBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 20;
+    private static final int MEASURED_ITERATIONS = 100;
+
+    public static void main(String[] args) {
+        Random random = new Random(0);
+
+        run("small map update", deltas(random, 10000, 5, false));
+        run("large map update", deltas(random, 1000, 100, false));
+        run("non-ascii update", deltas(random, 10000, 5, true));
+        run("conditional", repeat(10000,
+                "if {..,\"~deleted\":false,\"status\":like(\"APPROVED*\")} then {..,\"rating\":5,\"approved\":true} end"));
+        run("set update", repeat(10000, "{..,\"tags\":(..,\"a\",\"b\",~\"c\")?}"));
+    }
+
+    private static void run(String name, List<ByteBuffer> deltas) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            fromString(deltas);
+            fromBytes(deltas);
+        }
+
+        long stringNanos = 0;
+        long bytesNanos = 0;
+        long check = 0;
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            check += fromString(deltas);
+            long mid = System.nanoTime();
+            check -= fromBytes(deltas);
+            bytesNanos += System.nanoTime() - mid;
+            stringNanos += mid - start;
+        }
+        if (check != 0) {
+            throw new IllegalStateException("Parsing bytes did not match parsing strings: " + name);
+        }
+
+        long parses = (long) MEASURED_ITERATIONS * deltas.size();
+        System.out.println(format("%-20s %10.1f ns/string %10.1f ns/bytes", name,
+                (double) stringNanos / parses, (double) bytesNanos / parses));
+    }
+
+    private static long fromString(List<ByteBuffer> deltas) {
+        long hash = 0;
+        for (ByteBuffer delta : deltas) {
+            String string = StandardCharsets.UTF_8.decode(delta.duplicate()).toString();
+            hash += DeltaParser.parse(string).hashCode();
+        }
+        return hash;
+    }
+
+    private static long fromBytes(List<ByteBuffer> deltas) {
+        long hash = 0;
+        for (ByteBuffer delta : deltas) {
+            Delta parsed = DeltaParser.parse(delta);
+            hash += parsed.hashCode();
+        }
+        return hash;
+    }
+
+    private static List<ByteBuffer> deltas(Random random, int count, int numKeys, boolean nonAscii) {
+        List<ByteBuffer> deltas = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder delta = new StringBuilder("{..,");
+            for (int k = 0; k < numKeys; k++) {
+                if (k != 0) {
+                    delta.append(',');
+                }
+                delta.append("\"attribute").append(k).append("\":");
+                switch (random.nextInt(4)) {
+                    case 0:
+                        delta.append(random.nextInt());
+                        break;
+                    case 1:
+                        delta.append(random.nextBoolean());
+                        break;
+                    case 2:
+                        delta.append("[\"").append(nonAscii ? "café " : "value ").append(random.nextInt(100)).append("\"]");
+                        break;
+                    default:
+                        delta.append('"').append(nonAscii ? "über text " : "plain text ").append(random.nextLong()).append('"');
+                }
+            }
+            delta.append('}');
+            deltas.add(ByteBuffer.wrap(delta.toString().getBytes(StandardCharsets.UTF_8)));
+        }
+        return deltas;
+    }
+
+    private static List<ByteBuffer> repeat(int count, String delta) {
+        List<ByteBuffer> deltas = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            deltas.add(ByteBuffer.wrap(delta.getBytes(StandardCharsets.UTF_8)));
+        }
+        return deltas;
+    }
+}
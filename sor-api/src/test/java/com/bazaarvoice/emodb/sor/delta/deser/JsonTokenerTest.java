@@ -8,10 +8,13 @@ import com.google.common.collect.Maps;
 import org.testng.annotations.Test;
 
 import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 /**
  * Adapted from {@code org.json.Test}.  Removed all JsonML, XML etc. tests and converted the ones that test parsing
@@ -270,6 +273,46 @@ public class JsonTokenerTest {
         parse("{\"bosanda\": \"MARIE HAA'S\", \"bosanda\": \"MARIE HAA\\\\'S\"}");
     }
 
+    @Test
+    public void testUtf8MatchesString() {
+        for (String json : ImmutableList.of(
+                "{\"a\":[true,false,null,0,-1,2147483647,2147483648,-9223372036854775808,123456789012345678901,1.5,-2e10]}",
+                "[\"caf\u00e9\",\"\u2603 snow\",\"\\u00e9 escaped\",\"mixed \\n\u00e9\\t\ud83d\ude00 \\\" quote\"]",
+                "{ \"k\u00e9y\" : { \"nested\" : [ \"\" , 007 , -0 ] } }")) {
+            assertEquals(parseUtf8(json), parse(json), json);
+        }
+    }
+
+    @Test
+    public void testUtf8Position() {
+        // Positions are byte offsets when parsing bytes
+        JsonTokener t = new JsonTokener(ByteBuffer.wrap("[\"\u00e9\"]:rest".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(t.nextArray(), ImmutableList.of("\u00e9"));
+        t.next(':');
+        assertEquals(t.pos(), 7);
+    }
+
+    @Test(expectedExceptions = ParseException.class)
+    public void testUtf8UnterminatedString() {
+        parseUtf8("[\"\u00e9");
+    }
+
+    @Test
+    public void testKeysAreShared() {
+        Map<?, ?> first = (Map<?, ?>) parseUtf8("{\"sharedKey\":1}");
+        Map<?, ?> second = (Map<?, ?>) parse("{\"sharedKey\":2}");
+        assertTrue(first.keySet().iterator().next() == second.keySet().iterator().next());
+    }
+
+    private Object parseUtf8(String string) {
+        JsonTokener t = new JsonTokener(ByteBuffer.wrap(string.getBytes(StandardCharsets.UTF_8)));
+        Object value = t.nextValue();
+        if (t.nextClean() != 0) {
+            throw t.syntaxError("Unexpected characters at the end of the string");
+        }
+        return value;
+    }
+
     private Object parse(String string) {
         JsonTokener t = new JsonTokener(string);
         Object value = t.nextValue();
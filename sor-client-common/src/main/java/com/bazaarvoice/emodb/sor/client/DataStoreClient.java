@@ -5,6 +5,7 @@ import com.bazaarvoice.emodb.auth.proxy.Credential;
 import com.bazaarvoice.emodb.client.EmoClient;
 import com.bazaarvoice.emodb.client.EmoClientException;
 import com.bazaarvoice.emodb.client.EmoResponse;
+import com.bazaarvoice.emodb.client.EntityHelper;
 import com.bazaarvoice.emodb.client.uri.EmoUriBuilder;
 import com.bazaarvoice.emodb.common.api.ServiceUnavailableException;
 import com.bazaarvoice.emodb.common.api.Ttls;
@@ -318,6 +319,7 @@ public class DataStoreClient implements AuthDataStore {
                     .queryParam("consistency", consistency)
                     .build();
             return _client.resource(uri)
+                    .accept(EntityHelper.APPLICATION_X_JACKSON_SMILE_TYPE)
                     .accept(MediaType.APPLICATION_JSON_TYPE)
                     .header(ApiKeyRequest.AUTHENTICATION_HEADER, apiKey)
                     .get(new TypeReference<Map<String, Object>>() {
@@ -353,6 +355,7 @@ public class DataStoreClient implements AuthDataStore {
                     .queryParam("consistency", consistency)
                     .build();
             return _client.resource(uri)
+                    .accept(EntityHelper.APPLICATION_X_JACKSON_SMILE_TYPE)
                     .accept(MediaType.APPLICATION_JSON_TYPE)
                     .header(ApiKeyRequest.AUTHENTICATION_HEADER, apiKey)
                     .get(new TypeReference<Iterator<Change>>(){});
@@ -376,6 +379,7 @@ public class DataStoreClient implements AuthDataStore {
                     .queryParam("consistency", consistency)
                     .build();
             return _client.resource(uri)
+                    .accept(EntityHelper.APPLICATION_X_JACKSON_SMILE_TYPE)
                     .accept(MediaType.APPLICATION_JSON_TYPE)
                     .header(ApiKeyRequest.AUTHENTICATION_HEADER, apiKey)
                     .get(new TypeReference<Iterator<Map<String,Object>>>(){});
@@ -418,6 +422,7 @@ public class DataStoreClient implements AuthDataStore {
                     .queryParam("consistency", consistency)
                     .build();
             return _client.resource(uri)
+                    .accept(EntityHelper.APPLICATION_X_JACKSON_SMILE_TYPE)
                     .accept(MediaType.APPLICATION_JSON_TYPE)
                     .header(ApiKeyRequest.AUTHENTICATION_HEADER, apiKey)
                     .get(new TypeReference<Iterator<Map<String,Object>>>(){});
@@ -442,6 +447,7 @@ public class DataStoreClient implements AuthDataStore {
             }
             URI uri = uriBuilder.build();
             return _client.resource(uri)
+                    .accept(EntityHelper.APPLICATION_X_JACKSON_SMILE_TYPE)
                     .accept(MediaType.APPLICATION_JSON_TYPE)
                     .header(ApiKeyRequest.AUTHENTICATION_HEADER, apiKey)
                     .get(new TypeReference<Iterator<Map<String, Object>>>() {
@@ -8,6 +8,7 @@ import com.bazaarvoice.emodb.sor.api.Intrinsic;
 import com.bazaarvoice.emodb.sor.api.ReadConsistency;
 import com.bazaarvoice.emodb.sor.api.Table;
 import com.bazaarvoice.emodb.sor.api.Update;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableSet;
 
 import javax.annotation.Nullable;
@@ -16,6 +17,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletionException;
 
 /**
  * Wraps the streaming APIs in the {@link DataStore} with logic that automatically restarts the iterator in the
@@ -129,6 +131,14 @@ public abstract class DataStoreStreaming {
                 });
     }
 
+    /**
+     * Returns a scan which reads all records from the specified table by reading multiple splits concurrently.
+     * See {@link DataStoreParallelScan}.
+     */
+    public static DataStoreParallelScan parallelScan(DataStore dataStore, String table) {
+        return new DataStoreParallelScan(dataStore, table);
+    }
+
     /**
      * Creates, updates or deletes zero or more pieces of content in the data store.
      */
@@ -168,6 +178,34 @@ public abstract class DataStoreStreaming {
         }
     }
 
+    /**
+     * Creates, updates or deletes zero or more pieces of content in the data store, keeping up to
+     * {@code maxConcurrentRequests} batches in flight at once.  Unlike {@link #updateAll(DataStore, Iterator, Set)}
+     * the batches are not written in order, although since updates are resolved by change ID this doesn't affect
+     * the final content.  Returns once all updates have been written or throws the first failure.
+     */
+    public static void updateAll(DataStore dataStore, Iterator<Update> updateIter, Set<String> tags, int maxConcurrentRequests) {
+        try (DataStoreUpdateWriter writer = updateWriter(dataStore)
+                .withTags(tags)
+                .withMaxConcurrentRequests(maxConcurrentRequests)
+                .build()) {
+            writer.updateAll(updateIter).join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(e);
+        } catch (CompletionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Returns a builder for a {@link DataStoreUpdateWriter}, which coalesces updates submitted asynchronously from
+     * any number of threads into concurrent batch writes.
+     */
+    public static DataStoreUpdateWriter.Builder updateWriter(DataStore dataStore) {
+        return DataStoreUpdateWriter.builder(dataStore);
+    }
+
     /**
      * Creates, updates or deletes zero or more pieces of content in the data store facades.
      */
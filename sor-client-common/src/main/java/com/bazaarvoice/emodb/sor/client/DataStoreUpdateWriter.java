@@ -0,0 +1,316 @@
+package com.bazaarvoice.emodb.sor.client;
+
+import com.bazaarvoice.emodb.sor.api.DataStore;
+import com.bazaarvoice.emodb.sor.api.Update;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Queues;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Asynchronously writes updates to the data store.  Updates submitted from any number of threads are coalesced into
+ * batches which are written with {@link DataStore#updateAll(Iterable, Set)}, with up to a configurable number of
+ * batches in flight at once.  When the data store is an Ostrich proxy each batch is independently load balanced and
+ * retried, so concurrent batches are spread across hosts.
+ *
+ * Each update returns a future which completes once the update has been written, or completes exceptionally if its
+ * batch could not be written.  The writer holds a bounded number of incomplete updates; once that many are buffered
+ * or in flight {@link #update(Update)} blocks until there is room, which provides natural backpressure to producers
+ * that can generate updates faster than they can be written.
+ *
+ * Since the data store orders deltas by their change IDs, which are assigned when each {@link Update} is created,
+ * writing batches concurrently does not change the resolved content of any record.
+ *
+ * Typical usage:
+ * <pre>
+ * try (DataStoreUpdateWriter writer = DataStoreUpdateWriter.builder(dataStore).build()) {
+ *     for (Update update : updates) {
+ *         writer.update(update);
+ *     }
+ * }  // close() waits for all updates to be written
+ * </pre>
+ */
+public class DataStoreUpdateWriter implements Closeable {
+
+    private final DataStore _dataStore;
+    private final Set<String> _tags;
+    private final boolean _facade;
+    private final int _bufferSize;
+    private final int _maxBatchSize;
+    private final Duration _lingerTime;
+
+    private final BlockingQueue<PendingUpdate> _queue = new LinkedBlockingQueue<>();
+    // One permit for each update which may be buffered or in flight
+    private final Semaphore _bufferPermits;
+    // One permit for each batch which may be in flight
+    private final Semaphore _requestPermits;
+    private final ExecutorService _requestService;
+    private final Thread _dispatcher;
+    private volatile boolean _closed;
+
+    public static Builder builder(DataStore dataStore) {
+        return new Builder(dataStore);
+    }
+
+    private DataStoreUpdateWriter(Builder builder) {
+        _dataStore = builder._dataStore;
+        _tags = builder._tags;
+        _facade = builder._facade;
+        _bufferSize = builder._bufferSize;
+        _maxBatchSize = builder._maxBatchSize;
+        _lingerTime = builder._lingerTime;
+
+        // Fairness lets flush() wait for the buffer to drain without being starved by producers
+        _bufferPermits = new Semaphore(_bufferSize, true);
+        _requestPermits = new Semaphore(builder._maxConcurrentRequests);
+        _requestService = Executors.newFixedThreadPool(builder._maxConcurrentRequests,
+                new ThreadFactoryBuilder().setNameFormat("emodb-update-writer-%d").setDaemon(true).build());
+
+        _dispatcher = new ThreadFactoryBuilder().setNameFormat("emodb-update-writer-dispatcher-%d").setDaemon(true).build()
+                .newThread(this::dispatchBatches);
+        _dispatcher.start();
+    }
+
+    /**
+     * Submits an update, blocking if the writer already holds the maximum number of incomplete updates.
+     * @return A future which completes once the update has been written.
+     */
+    public CompletableFuture<Void> update(Update update) throws InterruptedException {
+        requireNonNull(update, "update");
+        _bufferPermits.acquire();
+        return enqueue(update);
+    }
+
+    /**
+     * Submits an update, waiting up to the specified time for room in the buffer.
+     * @return A future which completes once the update has been written, or null if there was no room for the update.
+     */
+    @Nullable
+    public CompletableFuture<Void> tryUpdate(Update update, long timeout, TimeUnit unit) throws InterruptedException {
+        requireNonNull(update, "update");
+        if (!_bufferPermits.tryAcquire(timeout, unit)) {
+            return null;
+        }
+        return enqueue(update);
+    }
+
+    /**
+     * Submits all updates from the iterator, blocking as necessary for room in the buffer.  If any update fails no
+     * further updates are taken from the iterator.
+     * @return A future which completes once all of the updates have been written, or completes exceptionally with
+     *         the first failure.
+     */
+    public CompletableFuture<Void> updateAll(Iterator<Update> updates) throws InterruptedException {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        // Starts at one on behalf of this method so the result can't complete until every update has been submitted
+        AtomicInteger remaining = new AtomicInteger(1);
+        BiConsumer<Void, Throwable> callback = (ignore, t) -> {
+            if (t != null) {
+                result.completeExceptionally(t);
+            } else if (remaining.decrementAndGet() == 0) {
+                result.complete(null);
+            }
+        };
+        while (updates.hasNext() && !result.isDone()) {
+            remaining.incrementAndGet();
+            update(updates.next()).whenComplete(callback);
+        }
+        callback.accept(null, null);
+        return result;
+    }
+
+    private CompletableFuture<Void> enqueue(Update update) {
+        // Check after taking a permit so close() either waits for this update or this update is rejected
+        if (_closed) {
+            _bufferPermits.release();
+            throw new IllegalStateException("Writer is closed");
+        }
+        PendingUpdate pending = new PendingUpdate(update);
+        _queue.add(pending);
+        return pending.future;
+    }
+
+    /**
+     * Blocks until every update submitted prior to this call has completed.  Updates submitted by other threads while
+     * this call is waiting will block until it returns.
+     */
+    public void flush() throws InterruptedException {
+        _bufferPermits.acquire(_bufferSize);
+        _bufferPermits.release(_bufferSize);
+    }
+
+    /**
+     * Stops accepting updates and waits for all previously submitted updates to complete.
+     */
+    @Override
+    public void close() {
+        if (_closed) {
+            return;
+        }
+        _closed = true;
+        try {
+            flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            _dispatcher.interrupt();
+            _requestService.shutdown();
+        }
+    }
+
+    private void dispatchBatches() {
+        long lingerNanos = _lingerTime.toNanos();
+        List<PendingUpdate> batch = new ArrayList<>();
+        try {
+            // Runs until close() interrupts it, which normally only happens once every update has completed
+            for (;;) {
+                // Wait for the first update, then linger briefly to allow a batch to accumulate
+                batch.add(_queue.take());
+                Queues.drain(_queue, batch, _maxBatchSize - 1, lingerNanos, TimeUnit.NANOSECONDS);
+
+                // Wait for a request slot.  If all are in use the queue backs up, and eventually so do the producers.
+                _requestPermits.acquire();
+                // Top off the batch with anything which arrived while waiting
+                _queue.drainTo(batch, _maxBatchSize - batch.size());
+
+                List<PendingUpdate> requestBatch = batch;
+                batch = new ArrayList<>();
+                try {
+                    _requestService.execute(() -> writeBatch(requestBatch));
+                } catch (RuntimeException e) {
+                    _requestPermits.release();
+                    complete(requestBatch, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            // Only possible if close() was itself interrupted while flushing.  Fail anything left rather than leave
+            // callers waiting on futures which will never complete.
+            _queue.drainTo(batch);
+            if (!batch.isEmpty()) {
+                complete(batch, new IllegalStateException("Writer was closed before the update was written"));
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingUpdate> batch) {
+        Throwable failure = null;
+        try {
+            List<Update> updates = Lists.transform(batch, pending -> pending.update);
+            if (_facade) {
+                _dataStore.updateAllForFacade(updates, _tags);
+            } else {
+                _dataStore.updateAll(updates, _tags);
+            }
+        } catch (Throwable t) {
+            failure = t;
+        } finally {
+            _requestPermits.release();
+        }
+        complete(batch, failure);
+    }
+
+    private void complete(List<PendingUpdate> batch, @Nullable Throwable failure) {
+        for (PendingUpdate pending : batch) {
+            if (failure == null) {
+                pending.future.complete(null);
+            } else {
+                pending.future.completeExceptionally(failure);
+            }
+        }
+        _bufferPermits.release(batch.size());
+    }
+
+    private static class PendingUpdate {
+        private final Update update;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        PendingUpdate(Update update) {
+            this.update = update;
+        }
+    }
+
+    public static class Builder {
+        private final DataStore _dataStore;
+        private Set<String> _tags = ImmutableSet.of();
+        private boolean _facade;
+        private int _bufferSize = 10000;
+        private int _maxBatchSize = 1000;
+        private int _maxConcurrentRequests = 4;
+        private Duration _lingerTime = Duration.ofMillis(50);
+
+        private Builder(DataStore dataStore) {
+            _dataStore = requireNonNull(dataStore, "dataStore");
+        }
+
+        /**
+         * Databus event tags to attach to every update.
+         */
+        public Builder withTags(Set<String> tags) {
+            _tags = ImmutableSet.copyOf(tags);
+            return this;
+        }
+
+        /**
+         * Writes the updates to facades instead of tables.
+         */
+        public Builder forFacades() {
+            _facade = true;
+            return this;
+        }
+
+        /**
+         * Maximum number of updates which may be buffered or in flight before submitting blocks.
+         */
+        public Builder withBufferSize(int bufferSize) {
+            checkArgument(bufferSize > 0, "Buffer size must be positive");
+            _bufferSize = bufferSize;
+            return this;
+        }
+
+        public Builder withMaxBatchSize(int maxBatchSize) {
+            checkArgument(maxBatchSize > 0, "Batch size must be positive");
+            _maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        public Builder withMaxConcurrentRequests(int maxConcurrentRequests) {
+            checkArgument(maxConcurrentRequests > 0, "Concurrent requests must be positive");
+            _maxConcurrentRequests = maxConcurrentRequests;
+            return this;
+        }
+
+        /**
+         * How long to wait for more updates to fill a batch once the first update in the batch is available.
+         */
+        public Builder withLingerTime(Duration lingerTime) {
+            checkArgument(!lingerTime.isNegative(), "Linger time cannot be negative");
+            _lingerTime = lingerTime;
+            return this;
+        }
+
+        public DataStoreUpdateWriter build() {
+            checkArgument(_maxBatchSize <= _bufferSize, "Batch size cannot exceed the buffer size");
+            return new DataStoreUpdateWriter(this);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.bazaarvoice.emodb.sor.client;
+
+import com.bazaarvoice.emodb.sor.api.DataStore;
+import com.bazaarvoice.emodb.sor.api.Intrinsic;
+import com.bazaarvoice.emodb.sor.api.ReadConsistency;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.testng.annotations.Test;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class DataStoreParallelScanTest {
+
+    @Test
+    public void testForEach() {
+        DataStore dataStore = dataStoreWithSplits(ImmutableMap.of(
+                "split0", ImmutableList.of("a", "b", "c"),
+                "split1", ImmutableList.of("d", "e"),
+                "split2", ImmutableList.<String>of()));
+
+        Set<String> keys = Collections.synchronizedSet(Sets.newHashSet());
+        new DataStoreParallelScan(dataStore, "table").withParallelism(2).forEach(record -> keys.add(Intrinsic.getId(record)));
+
+        assertEquals(keys, ImmutableSet.of("a", "b", "c", "d", "e"));
+    }
+
+    @Test
+    public void testRetryResumesFromLastKey() {
+        DataStore dataStore = mock(DataStore.class);
+        when(dataStore.getSplits("table", 10000)).thenReturn(ImmutableList.of("split0"));
+        // The first attempt fails after returning two records
+        when(dataStore.getSplit(eq("table"), eq("split0"), isNull(), anyLong(), anyBoolean(), any(ReadConsistency.class)))
+                .thenReturn(records(ImmutableList.of("a", "b"), new RuntimeException("Connection reset")));
+        when(dataStore.getSplit(eq("table"), eq("split0"), eq("b"), anyLong(), anyBoolean(), any(ReadConsistency.class)))
+                .thenReturn(records(ImmutableList.of("c"), null));
+
+        List<String> keys = Collections.synchronizedList(Lists.newArrayList());
+        new DataStoreParallelScan(dataStore, "table")
+                .withRetries(2, Duration.ZERO)
+                .forEach(record -> keys.add(Intrinsic.getId(record)));
+
+        assertEquals(keys, ImmutableList.of("a", "b", "c"));
+    }
+
+    @Test
+    public void testRetriesExhausted() {
+        DataStore dataStore = mock(DataStore.class);
+        RuntimeException exception = new RuntimeException("Server unavailable");
+        when(dataStore.getSplits("table", 10000)).thenReturn(ImmutableList.of("split0"));
+        when(dataStore.getSplit(eq("table"), eq("split0"), isNull(), anyLong(), anyBoolean(), any(ReadConsistency.class)))
+                .thenThrow(exception);
+
+        try {
+            new DataStoreParallelScan(dataStore, "table").withRetries(3, Duration.ZERO).forEach(record -> {});
+            fail("Scan should have failed");
+        } catch (RuntimeException e) {
+            assertTrue(e == exception);
+        }
+        verify(dataStore, times(3)).getSplit(eq("table"), eq("split0"), isNull(), anyLong(), anyBoolean(), any(ReadConsistency.class));
+    }
+
+    @Test
+    public void testConsumerFailureIsNotRetried() {
+        DataStore dataStore = dataStoreWithSplits(ImmutableMap.of("split0", ImmutableList.of("a", "b")));
+        RuntimeException exception = new RuntimeException("Consumer failed");
+
+        try {
+            new DataStoreParallelScan(dataStore, "table").forEach(record -> {
+                throw exception;
+            });
+            fail("Scan should have failed");
+        } catch (RuntimeException e) {
+            assertTrue(e == exception);
+        }
+        verify(dataStore, times(1)).getSplit(eq("table"), eq("split0"), isNull(), anyLong(), anyBoolean(), any(ReadConsistency.class));
+    }
+
+    @Test
+    public void testStream() throws Exception {
+        List<String> split0 = Lists.newArrayList();
+        List<String> split1 = Lists.newArrayList();
+        for (int i = 0; i < 100; i++) {
+            split0.add("a" + i);
+            split1.add("b" + i);
+        }
+        DataStore dataStore = dataStoreWithSplits(ImmutableMap.of("split0", split0, "split1", split1));
+
+        Set<String> keys = Sets.newHashSet();
+        List<String> split0Keys = Lists.newArrayList();
+        try (DataStoreParallelScan.ScanIterator iterator = new DataStoreParallelScan(dataStore, "table").stream(5)) {
+            while (iterator.hasNext()) {
+                String key = Intrinsic.getId(iterator.next());
+                assertTrue(keys.add(key));
+                if (key.startsWith("a")) {
+                    split0Keys.add(key);
+                }
+            }
+        }
+        assertEquals(keys.size(), 200);
+        // Records within a split are returned in order
+        assertEquals(split0Keys, split0);
+    }
+
+    private static DataStore dataStoreWithSplits(Map<String, List<String>> splits) {
+        DataStore dataStore = mock(DataStore.class);
+        when(dataStore.getSplits(eq("table"), anyInt())).thenReturn(splits.keySet());
+        for (Map.Entry<String, List<String>> entry : splits.entrySet()) {
+            when(dataStore.getSplit(eq("table"), eq(entry.getKey()), isNull(), anyLong(), anyBoolean(), any(ReadConsistency.class)))
+                    .thenReturn(records(entry.getValue(), null));
+        }
+        return dataStore;
+    }
+
+    /**
+     * Returns a closeable iterator like the one returned by the data store client, which optionally fails after
+     * returning all of the provided records.
+     */
+    private static Iterator<Map<String, Object>> records(List<String> keys, RuntimeException failure) {
+        return new CloseableIterator(keys.iterator(), failure);
+    }
+
+    private static class CloseableIterator implements Iterator<Map<String, Object>>, Closeable {
+        private final Iterator<String> _keys;
+        private final RuntimeException _failure;
+
+        CloseableIterator(Iterator<String> keys, RuntimeException failure) {
+            _keys = keys;
+            _failure = failure;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!_keys.hasNext() && _failure != null) {
+                throw _failure;
+            }
+            return _keys.hasNext();
+        }
+
+        @Override
+        public Map<String, Object> next() {
+            return ImmutableMap.of(Intrinsic.ID, _keys.next());
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
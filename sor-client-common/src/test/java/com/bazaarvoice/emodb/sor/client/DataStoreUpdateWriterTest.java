@@ -0,0 +1,187 @@
+package com.bazaarvoice.emodb.sor.client;
+
+import com.bazaarvoice.emodb.sor.api.AuditBuilder;
+import com.bazaarvoice.emodb.sor.api.DataStore;
+import com.bazaarvoice.emodb.sor.api.Update;
+import com.bazaarvoice.emodb.sor.delta.Deltas;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class DataStoreUpdateWriterTest {
+
+    @Test
+    public void testUpdatesAreBatched() throws Exception {
+        DataStore dataStore = mock(DataStore.class);
+        List<Update> written = Collections.synchronizedList(Lists.newArrayList());
+        AtomicInteger maxBatchSize = new AtomicInteger();
+        doAnswer(invocation -> {
+            List<Update> batch = ImmutableList.copyOf((Iterable<Update>) invocation.getArgument(0));
+            maxBatchSize.accumulateAndGet(batch.size(), Math::max);
+            written.addAll(batch);
+            return null;
+        }).when(dataStore).updateAll(any(), anySet());
+
+        List<Update> updates = updates(1000);
+        List<CompletableFuture<Void>> futures = Lists.newArrayList();
+        try (DataStoreUpdateWriter writer = DataStoreUpdateWriter.builder(dataStore)
+                .withTags(ImmutableSet.of("tag"))
+                .withMaxBatchSize(100)
+                .build()) {
+            for (Update update : updates) {
+                futures.add(writer.update(update));
+            }
+        }
+
+        for (CompletableFuture<Void> future : futures) {
+            assertTrue(future.isDone());
+            assertFalse(future.isCompletedExceptionally());
+        }
+        assertEquals(ImmutableSet.copyOf(written), ImmutableSet.copyOf(updates));
+        assertEquals(written.size(), updates.size());
+        assertTrue(maxBatchSize.get() <= 100);
+        verify(dataStore, atLeastOnce()).updateAll(any(), eq(ImmutableSet.of("tag")));
+    }
+
+    @Test
+    public void testConcurrentRequestsAreBounded() throws Exception {
+        DataStore dataStore = mock(DataStore.class);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            release.await(10, TimeUnit.SECONDS);
+            inFlight.decrementAndGet();
+            return null;
+        }).when(dataStore).updateAll(any(), anySet());
+
+        try (DataStoreUpdateWriter writer = DataStoreUpdateWriter.builder(dataStore)
+                .withMaxBatchSize(1)
+                .withMaxConcurrentRequests(3)
+                .withLingerTime(Duration.ZERO)
+                .build()) {
+            for (Update update : updates(10)) {
+                writer.update(update);
+            }
+            // Wait for the request slots to fill
+            long deadline = System.currentTimeMillis() + 10000;
+            while (inFlight.get() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(inFlight.get(), 3);
+            release.countDown();
+        }
+        assertEquals(maxInFlight.get(), 3);
+    }
+
+    @Test
+    public void testBackpressure() throws Exception {
+        DataStore dataStore = mock(DataStore.class);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(dataStore).updateAll(any(), anySet());
+
+        try (DataStoreUpdateWriter writer = DataStoreUpdateWriter.builder(dataStore)
+                .withBufferSize(2)
+                .withMaxBatchSize(1)
+                .build()) {
+            List<Update> updates = updates(3);
+            CompletableFuture<Void> first = writer.tryUpdate(updates.get(0), 1, TimeUnit.SECONDS);
+            CompletableFuture<Void> second = writer.tryUpdate(updates.get(1), 1, TimeUnit.SECONDS);
+            assertNotNull(first);
+            assertNotNull(second);
+            // The buffer is full until the data store responds
+            assertNull(writer.tryUpdate(updates.get(2), 100, TimeUnit.MILLISECONDS));
+
+            release.countDown();
+            first.get(10, TimeUnit.SECONDS);
+            assertNotNull(writer.tryUpdate(updates.get(2), 10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testFailedBatch() throws Exception {
+        DataStore dataStore = mock(DataStore.class);
+        RuntimeException exception = new RuntimeException("Server unavailable");
+        doThrow(exception).when(dataStore).updateAll(any(), anySet());
+
+        try (DataStoreUpdateWriter writer = DataStoreUpdateWriter.builder(dataStore).build()) {
+            CompletableFuture<Void> future = writer.update(updates(1).get(0));
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                fail("Update should have failed");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() == exception);
+            }
+        }
+    }
+
+    @Test
+    public void testStreamingUpdateAllPropagatesFailure() {
+        DataStore dataStore = mock(DataStore.class);
+        RuntimeException exception = new RuntimeException("Server unavailable");
+        doThrow(exception).when(dataStore).updateAll(any(), anySet());
+
+        try {
+            DataStoreStreaming.updateAll(dataStore, updates(10).iterator(), ImmutableSet.<String>of(), 2);
+            fail("Update should have failed");
+        } catch (RuntimeException e) {
+            assertTrue(e == exception);
+        }
+    }
+
+    @Test
+    public void testFacadeUpdates() throws Exception {
+        DataStore dataStore = mock(DataStore.class);
+        Set<String> tags = ImmutableSet.of("tag");
+        try (DataStoreUpdateWriter writer = DataStoreUpdateWriter.builder(dataStore).withTags(tags).forFacades().build()) {
+            writer.update(updates(1).get(0)).get(10, TimeUnit.SECONDS);
+        }
+        verify(dataStore).updateAllForFacade(any(), eq(tags));
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testUpdateAfterClose() throws Exception {
+        DataStoreUpdateWriter writer = DataStoreUpdateWriter.builder(mock(DataStore.class)).build();
+        writer.close();
+        writer.update(updates(1).get(0));
+    }
+
+    private static List<Update> updates(int count) {
+        List<Update> updates = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+            updates.add(new Update("table", "key" + i, null, Deltas.literal(ImmutableList.of(i)),
+                    new AuditBuilder().setComment("test").build()));
+        }
+        return updates;
+    }
+}
@@ -0,0 +1,253 @@
+package com.bazaarvoice.emodb.sor.client;
+
+import com.bazaarvoice.emodb.sor.api.DataStore;
+import com.bazaarvoice.emodb.sor.api.Intrinsic;
+import com.bazaarvoice.emodb.sor.api.ReadConsistency;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.io.Closeables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reads every record in a table by fanning out over the table's splits, reading up to a configurable number of splits
+ * concurrently.  Each split is read with {@link DataStoreStreaming#getSplit}, so a lost connection is resumed from the
+ * last record read.  If reading a split fails outright it is retried, again resuming after the last record which was
+ * delivered, up to a configurable number of attempts.
+ *
+ * Records can be delivered either to a callback using {@link #forEach(Consumer)} or through a bounded iterator using
+ * {@link #stream(int)}.  In either case the reads are paced by how quickly the records are consumed.  Records within a
+ * split are delivered in order, but records from different splits are interleaved.
+ *
+ * <pre>
+ * DataStoreStreaming.parallelScan(dataStore, "my_table")
+ *         .withParallelism(16)
+ *         .forEach(record -> process(record));
+ * </pre>
+ */
+public class DataStoreParallelScan {
+
+    private static final Object END_OF_SCAN = new Object();
+
+    private final DataStore _dataStore;
+    private final String _table;
+    private int _splitSize = 10000;
+    private int _parallelism = 8;
+    private int _maxAttemptsPerSplit = 3;
+    private Duration _retryDelay = Duration.ofSeconds(1);
+    private boolean _includeDeletes;
+    private ReadConsistency _consistency = ReadConsistency.STRONG;
+
+    public DataStoreParallelScan(DataStore dataStore, String table) {
+        _dataStore = requireNonNull(dataStore, "dataStore");
+        _table = requireNonNull(table, "table");
+    }
+
+    /**
+     * The desired number of records per split, passed to {@link DataStore#getSplits(String, int)}.
+     */
+    public DataStoreParallelScan withSplitSize(int splitSize) {
+        checkArgument(splitSize > 0, "Split size must be positive");
+        _splitSize = splitSize;
+        return this;
+    }
+
+    /**
+     * The maximum number of splits read concurrently.
+     */
+    public DataStoreParallelScan withParallelism(int parallelism) {
+        checkArgument(parallelism > 0, "Parallelism must be positive");
+        _parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * The number of times reading a split is attempted before the scan fails, and how long to wait between attempts.
+     */
+    public DataStoreParallelScan withRetries(int maxAttemptsPerSplit, Duration retryDelay) {
+        checkArgument(maxAttemptsPerSplit > 0, "Attempts must be positive");
+        checkArgument(!retryDelay.isNegative(), "Retry delay cannot be negative");
+        _maxAttemptsPerSplit = maxAttemptsPerSplit;
+        _retryDelay = retryDelay;
+        return this;
+    }
+
+    public DataStoreParallelScan includeDeletes(boolean includeDeletes) {
+        _includeDeletes = includeDeletes;
+        return this;
+    }
+
+    public DataStoreParallelScan withConsistency(ReadConsistency consistency) {
+        _consistency = requireNonNull(consistency, "consistency");
+        return this;
+    }
+
+    /**
+     * Reads the table, passing each record to the consumer.  The consumer is called concurrently from multiple
+     * threads, so it must be thread safe.  Returns once every split has been read.  If any split fails, or if the
+     * consumer throws an exception, the remaining reads are cancelled and the exception is rethrown.
+     */
+    public void forEach(Consumer<? super Map<String, Object>> consumer) {
+        requireNonNull(consumer, "consumer");
+        Collection<String> splits = _dataStore.getSplits(_table, _splitSize);
+        if (splits.isEmpty()) {
+            return;
+        }
+
+        ExecutorService service = Executors.newFixedThreadPool(Math.min(_parallelism, splits.size()),
+                new ThreadFactoryBuilder().setNameFormat("emodb-scan-" + _table + "-%d").setDaemon(true).build());
+        try {
+            CompletionService<Void> completionService = new ExecutorCompletionService<>(service);
+            for (String split : splits) {
+                completionService.submit(() -> {
+                    scanSplit(split, consumer);
+                    return null;
+                });
+            }
+            for (int i = 0; i < splits.size(); i++) {
+                completionService.take().get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw Throwables.propagate(cause instanceof ConsumerException ? cause.getCause() : cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(e);
+        } finally {
+            // Cancels any reads still in progress if the scan failed
+            service.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads the table in the background, returning the records through an iterator.  At most {@code bufferSize}
+     * records are read ahead of the caller.  The iterator should be closed if it is abandoned before reaching the
+     * end so the background reads are stopped.
+     */
+    public ScanIterator stream(int bufferSize) {
+        checkArgument(bufferSize > 0, "Buffer size must be positive");
+        return new ScanIterator(bufferSize);
+    }
+
+    private void scanSplit(String split, Consumer<? super Map<String, Object>> consumer) throws InterruptedException {
+        String fromKey = null;
+        for (int attempt = 1; ; attempt++) {
+            Iterator<Map<String, Object>> records = null;
+            try {
+                records = DataStoreStreaming.getSplit(_dataStore, _table, split, fromKey, Long.MAX_VALUE,
+                        _includeDeletes, _consistency).iterator();
+                while (records.hasNext()) {
+                    Map<String, Object> record = records.next();
+                    try {
+                        consumer.accept(record);
+                    } catch (RuntimeException e) {
+                        // Failures in the consumer aren't retried
+                        throw new ConsumerException(e);
+                    }
+                    fromKey = Intrinsic.getId(record);
+                }
+                return;
+            } catch (ConsumerException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                if (attempt >= _maxAttemptsPerSplit) {
+                    throw e;
+                }
+                Thread.sleep(_retryDelay.toMillis());
+            } finally {
+                if (records instanceof Closeable) {
+                    try {
+                        Closeables.close((Closeable) records, true);
+                    } catch (IOException e) {
+                        // Already swallowed
+                    }
+                }
+            }
+        }
+    }
+
+    /** Wraps exceptions thrown by the caller's consumer so they are distinguishable from read failures. */
+    private static class ConsumerException extends RuntimeException {
+        ConsumerException(RuntimeException cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * Iterator over the records in a table which are read in the background by {@link #stream(int)}.
+     */
+    public class ScanIterator extends AbstractIterator<Map<String, Object>> implements Closeable {
+        private final BlockingQueue<Object> _buffer;
+        private final Thread _scanThread;
+
+        private ScanIterator(int bufferSize) {
+            _buffer = new ArrayBlockingQueue<>(bufferSize);
+            _scanThread = new ThreadFactoryBuilder().setNameFormat("emodb-scan-" + _table + "-reader-%d").setDaemon(true).build()
+                    .newThread(this::scan);
+            _scanThread.start();
+        }
+
+        private void scan() {
+            Object result = END_OF_SCAN;
+            try {
+                forEach(record -> {
+                    try {
+                        _buffer.put(record);
+                    } catch (InterruptedException e) {
+                        // The iterator was closed
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException(e);
+                    }
+                });
+            } catch (RuntimeException e) {
+                result = e;
+            }
+            try {
+                _buffer.put(result);
+            } catch (InterruptedException e) {
+                // The iterator was closed so nothing is waiting for the result
+            }
+        }
+
+        @Override
+        protected Map<String, Object> computeNext() {
+            Object next;
+            try {
+                next = _buffer.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw Throwables.propagate(e);
+            }
+            if (next == END_OF_SCAN) {
+                return endOfData();
+            }
+            if (next instanceof RuntimeException) {
+                throw (RuntimeException) next;
+            }
+            //noinspection unchecked
+            return (Map<String, Object>) next;
+        }
+
+        @Override
+        public void close() {
+            _scanThread.interrupt();
+        }
+    }
+}
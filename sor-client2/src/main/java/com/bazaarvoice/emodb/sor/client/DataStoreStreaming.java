@@ -129,6 +129,14 @@ public abstract class DataStoreStreaming {
                 });
     }
 
+    /**
+     * Returns a scan which reads all records from the specified table by reading multiple splits concurrently.
+     * See {@link DataStoreParallelScan}.
+     */
+    public static DataStoreParallelScan parallelScan(DataStore dataStore, String table) {
+        return new DataStoreParallelScan(dataStore, table);
+    }
+
     /**
      * Creates, updates or deletes zero or more pieces of content in the data store.
      */
@@ -71,6 +71,35 @@ public class DataStoreConfiguration {
     @JsonProperty("cellTombstoneBlockLimit")
     private int _cellTombstoneBlockLimit = 2;
 
+    /**
+     * Maximum number of mutation batches for different placements which a single update request may write
+     * concurrently.  The default of 1 writes every batch serially on the request thread.
+     */
+    @Valid
+    @JsonProperty("writeConcurrency")
+    private int _writeConcurrency = 1;
+
+    /**
+     * Maximum number of shards which table and placement moves copy concurrently, shared by all moves on a server.
+     */
+    @Valid
+    @JsonProperty("copyConcurrency")
+    private int _copyConcurrency = 4;
+
+    /**
+     * Maximum number of shards which purges of dropped tables delete concurrently, shared by all purges on a server.
+     */
+    @Valid
+    @JsonProperty("purgeConcurrency")
+    private int _purgeConcurrency = 4;
+
+    /**
+     * Whether small updates from concurrent requests to the same placement are combined into shared mutation batches.
+     */
+    @Valid
+    @JsonProperty("groupCommitEnabled")
+    private boolean _groupCommitEnabled = false;
+
     @Valid
     @NotNull
     @JsonProperty("stashBlackListTableCondition")
@@ -183,6 +212,42 @@ public class DataStoreConfiguration {
         return _cellTombstoneBlockLimit;
     }
 
+    public int getWriteConcurrency() {
+        return _writeConcurrency;
+    }
+
+    public DataStoreConfiguration setWriteConcurrency(int writeConcurrency) {
+        _writeConcurrency = writeConcurrency;
+        return this;
+    }
+
+    public int getCopyConcurrency() {
+        return _copyConcurrency;
+    }
+
+    public DataStoreConfiguration setCopyConcurrency(int copyConcurrency) {
+        _copyConcurrency = copyConcurrency;
+        return this;
+    }
+
+    public int getPurgeConcurrency() {
+        return _purgeConcurrency;
+    }
+
+    public DataStoreConfiguration setPurgeConcurrency(int purgeConcurrency) {
+        _purgeConcurrency = purgeConcurrency;
+        return this;
+    }
+
+    public boolean isGroupCommitEnabled() {
+        return _groupCommitEnabled;
+    }
+
+    public DataStoreConfiguration setGroupCommitEnabled(boolean groupCommitEnabled) {
+        _groupCommitEnabled = groupCommitEnabled;
+        return this;
+    }
+
     public AuditWriterConfiguration getAuditWriterConfiguration() {
         return _auditWriterConfiguration;
     }
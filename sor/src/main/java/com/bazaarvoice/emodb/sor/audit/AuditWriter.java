@@ -1,6 +1,9 @@
 package com.bazaarvoice.emodb.sor.audit;
 
 import com.bazaarvoice.emodb.sor.api.Audit;
+import com.bazaarvoice.emodb.sor.api.AuditBuilder;
+import com.bazaarvoice.emodb.sor.delta.Delta;
+import com.google.common.hash.Hashing;
 
 /**
  * Defines the interface for writing audits to long term storage.
@@ -8,4 +11,17 @@ import com.bazaarvoice.emodb.sor.api.Audit;
 public interface AuditWriter {
 
     void persist(String table, String key, Audit audit, long auditTime);
-}
\ No newline at end of file
+
+    /**
+     * Persists the audit for a delta, adding the delta's hash to the audit as {@link Audit#SHA1}.  Hashing large deltas
+     * is not free, so implementations which write audits asynchronously should override this to compute the hash off
+     * the caller's thread.
+     */
+    default void persist(String table, String key, Audit audit, Delta delta, long auditTime) {
+        persist(table, key, AuditBuilder.from(audit).set(Audit.SHA1, hash(delta)).build(), auditTime);
+    }
+
+    static String hash(Delta delta) {
+        return Hashing.sha1().hashUnencodedChars(delta.toString()).toString();
+    }
+}
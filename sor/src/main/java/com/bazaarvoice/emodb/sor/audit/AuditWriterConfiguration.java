@@ -47,6 +47,18 @@ public class AuditWriterConfiguration {
     @JsonProperty("fileTransfersEnabled")
     private boolean _fileTransfersEnabled = true;
 
+    /* Number of audits which can be buffered in memory before they overflow; rounded up to a power of two */
+    @JsonProperty("queueCapacity")
+    private int _queueCapacity = 4096;
+
+    /* Number of audits held in a secondary in-memory queue once the buffer is full; audits beyond this are dropped.
+       Zero drops audits as soon as the buffer is full. */
+    @JsonProperty("overflowCapacity")
+    private int _overflowCapacity = 16384;
+
+    @JsonProperty("compressionThreads")
+    private int _compressionThreads = 2;
+
     @Nonnull
     public String getLogBucket() {
         return _logBucket;
@@ -147,4 +159,31 @@ public class AuditWriterConfiguration {
         _fileTransfersEnabled = fileTransfersEnabled;
         return this;
     }
+
+    public int getQueueCapacity() {
+        return _queueCapacity;
+    }
+
+    public AuditWriterConfiguration setQueueCapacity(int queueCapacity) {
+        _queueCapacity = queueCapacity;
+        return this;
+    }
+
+    public int getOverflowCapacity() {
+        return _overflowCapacity;
+    }
+
+    public AuditWriterConfiguration setOverflowCapacity(int overflowCapacity) {
+        _overflowCapacity = overflowCapacity;
+        return this;
+    }
+
+    public int getCompressionThreads() {
+        return _compressionThreads;
+    }
+
+    public AuditWriterConfiguration setCompressionThreads(int compressionThreads) {
+        _compressionThreads = compressionThreads;
+        return this;
+    }
 }
@@ -2,6 +2,7 @@ package com.bazaarvoice.emodb.sor.audit;
 
 
 import com.bazaarvoice.emodb.sor.api.Audit;
+import com.bazaarvoice.emodb.sor.delta.Delta;
 
 /**
  * Audit writer implementation which discards all incoming audits.
@@ -12,6 +13,11 @@ public class DiscardingAuditWriter implements AuditStore {
         // Discard
     }
 
+    @Override
+    public void persist(String table, String key, Audit audit, Delta delta, long auditTime) {
+        // Discard without hashing the delta
+    }
+
     @Override
     public void flushAndShutdown() {
         // Do nothing
@@ -13,9 +13,13 @@ import com.bazaarvoice.emodb.common.dropwizard.log.RateLimitedLog;
 import com.bazaarvoice.emodb.common.dropwizard.log.RateLimitedLogFactory;
 import com.bazaarvoice.emodb.sor.api.Audit;
 import com.bazaarvoice.emodb.sor.audit.AuditStore;
+import com.bazaarvoice.emodb.sor.audit.AuditWriter;
 import com.bazaarvoice.emodb.sor.audit.AuditWriterConfiguration;
+import com.bazaarvoice.emodb.sor.delta.Delta;
 import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -39,10 +43,14 @@ import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.Queue;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -53,16 +61,19 @@ import static java.util.Objects.requireNonNull;
  * This format allows audit queries to be carried out by Athena, Amazon's Presto implementation over S3 documents.
  *
  * This audit writer favors fast, non-blocking calls to {@link #persist(String, String, Audit, long)} over guaranteeing
- * a completely loss-less audit history.  To achieve this all audits are written to an in-memory queue.  That queue
- * is written to a local log file until it has reached a maximum size or age, both configurable in the constructor.
- * At this time the file is asynchronously GZIP'd then delivered to S3.  Once the file is delivered it is deleted from
- * the local host.
+ * a completely loss-less audit history.  To achieve this all audits are written to an in-memory ring buffer which
+ * never blocks the caller.  That buffer is drained in batches to a local log file until it has reached a maximum size
+ * or age, both configurable in the constructor.  At this time the file is asynchronously GZIP'd then delivered to S3.
+ * Once the file is delivered it is deleted from the local host.  If the buffer is full the audit is handed to a
+ * bounded in-memory overflow queue which the same background writer drains, or dropped if that queue is also full.
+ * In neither case does the caller's thread write to the log file.
  *
  * Each stage has multiple layers of recovery, ensuring that once a line is written to a file that file will eventually
  * be delivered to S3.  The exceptions to this which can cause audit loss are:
  *
  * <ol>
  *     <li>The process is terminated while unwritten audits are still in the audit queue.</li>
+ *     <li>The audit queue and the overflow queue are both full.</li>
  *     <li>The host itself terminates before all files are delivered to S3.</li>
  * </ol>
  */
@@ -79,6 +90,12 @@ public class AthenaAuditWriter implements AuditStore {
 
     private final static long DEFAULT_MAX_FILE_SIZE = Size.megabytes(10).toBytes();
     private final static Duration DEFAULT_MAX_BATCH_TIME = Duration.ofMinutes(2);
+    private final static int DEFAULT_QUEUE_CAPACITY = 4096;
+
+    private final static int DEFAULT_OVERFLOW_CAPACITY = 4 * DEFAULT_QUEUE_CAPACITY;
+
+    // Maximum number of audits drained from the queue and written to a log file under a single lock and flush
+    private final static int MAX_WRITE_BATCH_SIZE = 1024;
 
     private final AmazonS3 _s3;
     private final String _s3Bucket;
@@ -87,16 +104,24 @@ public class AthenaAuditWriter implements AuditStore {
     private final long _maxBatchTimeMs;
     private final File _stagingDir;
     private final String _logFilePrefix;
-    private final BlockingQueue<QueuedAudit> _auditQueue;
+    private final AuditRingBuffer<QueuedAudit> _auditQueue;
+    // Audits which overflowed the audit queue, waiting to be written by the background writer
+    private final Queue<QueuedAudit> _overflowQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger _overflowQueueSize = new AtomicInteger();
+    private final int _overflowCapacity;
     private final Clock _clock;
     private final ObjectWriter _objectWriter;
     private final ConcurrentMap<Long, AuditOutput> _openAuditOutputs = Maps.newConcurrentMap();
 
     private ScheduledExecutorService _auditService;
     private ExecutorService _fileTransferService;
-    private AuditOutput _mruAuditOutput;
+    private ExecutorService _compressionService;
+    private volatile AuditOutput _mruAuditOutput;
     private boolean _fileTransfersEnabled;
     private final RateLimitedLog _rateLimitedLog;
+    private final Meter _overflowedAudits;
+    private final Meter _droppedAudits;
+    private final Timer _queueLatency;
 
     @Inject
     public AthenaAuditWriter(AuditWriterConfiguration config, ObjectMapper objectMapper, Clock clock,
@@ -106,7 +131,7 @@ public class AthenaAuditWriter implements AuditStore {
                 Duration.ofMillis(config.getMaxBatchTime().toMillis()),
                 config.getStagingDir() != null ? new File(config.getStagingDir()) : com.google.common.io.Files.createTempDir(),
                 config.getLogFilePrefix(), objectMapper, clock, config.isFileTransfersEnabled(), rateLimitedLogFactory,
-                metricRegistry, null, null);
+                metricRegistry, null, null, config.getQueueCapacity(), config.getOverflowCapacity(), config.getCompressionThreads());
     }
 
     @VisibleForTesting
@@ -115,6 +140,18 @@ public class AthenaAuditWriter implements AuditStore {
                       boolean fileTransfersEnabled, RateLimitedLogFactory rateLimitedLogFactory,
                       MetricRegistry metricRegistry, ScheduledExecutorService auditService,
                       ExecutorService fileTransferService) {
+        this(s3, s3Bucket, s3Path, maxFileSize, maxBatchTime, stagingDir, logFilePrefix, objectMapper, clock,
+                fileTransfersEnabled, rateLimitedLogFactory, metricRegistry, auditService, fileTransferService,
+                DEFAULT_QUEUE_CAPACITY, DEFAULT_OVERFLOW_CAPACITY, 1);
+    }
+
+    @VisibleForTesting
+    AthenaAuditWriter(AmazonS3 s3, String s3Bucket, String s3Path, long maxFileSize, Duration maxBatchTime,
+                      File stagingDir, String logFilePrefix, ObjectMapper objectMapper, Clock clock,
+                      boolean fileTransfersEnabled, RateLimitedLogFactory rateLimitedLogFactory,
+                      MetricRegistry metricRegistry, ScheduledExecutorService auditService,
+                      ExecutorService fileTransferService, int queueCapacity, int overflowCapacity,
+                      int compressionThreads) {
 
         _s3 = requireNonNull(s3);
         _s3Bucket = requireNonNull(s3Bucket);
@@ -136,9 +173,10 @@ public class AthenaAuditWriter implements AuditStore {
         _logFilePrefix = requireNonNull(logFilePrefix, "logFilePrefix");
         _clock = requireNonNull(clock, "clock");
 
-        // Audit queue isn't completely unbounded but is large enough to ensure at several times the normal write rate
-        // it can accept audits without blocking.
-        _auditQueue = new ArrayBlockingQueue<>(4096);
+        // Audit queue isn't completely unbounded but should be large enough to ensure at several times the normal
+        // write rate it can accept audits without overflowing.
+        _auditQueue = new AuditRingBuffer<>(queueCapacity > 0 ? queueCapacity : DEFAULT_QUEUE_CAPACITY);
+        _overflowCapacity = Math.max(overflowCapacity, 0);
 
         // Need to ensure the object mapper keeps the file stream open after each audit is written.
         _objectWriter = objectMapper.copy()
@@ -154,7 +192,11 @@ public class AthenaAuditWriter implements AuditStore {
                 Executors.newScheduledThreadPool(2, new ThreadFactoryBuilder().setNameFormat("audit-log-%d").build());
         _fileTransferService = fileTransferService != null ? fileTransferService :
                 Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("audit-transfer-%d").build());
-
+        // When several log files close at once, such as at the end of each batch period, compress them in parallel.
+        // With a single compression thread files are compressed on the log maintenance thread.
+        _compressionService = compressionThreads > 1 ?
+                Executors.newFixedThreadPool(compressionThreads, new ThreadFactoryBuilder().setNameFormat("audit-compress-%d").setDaemon(true).build()) :
+                null;
 
         long now = _clock.millis();
         long msToNextBatch = _maxBatchTimeMs - (now % _maxBatchTimeMs);
@@ -179,6 +221,10 @@ public class AthenaAuditWriter implements AuditStore {
 
         // Guage metric to measure the size of the audit queue
         metricRegistry.register(MetricRegistry.name(AthenaAuditWriter.class, "auditQueue", "size"), (Gauge<Integer>) _auditQueue::size);
+        metricRegistry.register(MetricRegistry.name(AthenaAuditWriter.class, "auditQueue", "overflowSize"), (Gauge<Integer>) _overflowQueueSize::get);
+        _overflowedAudits = metricRegistry.meter(MetricRegistry.name(AthenaAuditWriter.class, "auditQueue", "overflowed"));
+        _droppedAudits = metricRegistry.meter(MetricRegistry.name(AthenaAuditWriter.class, "auditQueue", "dropped"));
+        _queueLatency = metricRegistry.timer(MetricRegistry.name(AthenaAuditWriter.class, "auditQueue", "latency"));
 
         _auditService.scheduleWithFixedDelay(() -> processQueuedAudits(true),
                 0, 1, TimeUnit.SECONDS);
@@ -225,6 +271,10 @@ public class AthenaAuditWriter implements AuditStore {
         prepareClosedLogFilesForTransfer();
         transferLogFilesToS3();
 
+        if (_compressionService != null) {
+            _compressionService.shutdown();
+        }
+
         _fileTransferService.shutdown();
 
         try {
@@ -240,13 +290,32 @@ public class AthenaAuditWriter implements AuditStore {
 
     @Override
     public void persist(String table, String key, Audit audit, long auditTime) {
-        try {
-            _auditQueue.put(new QueuedAudit(table, key, audit, auditTime));
-        } catch (InterruptedException e) {
-            // Don't error out if the audit was interrupted since this implementation does not guarantee 100%
-            // audit retention, just warn that it happened.
-            _log.warn("Interrupted attempting to write audit for {}/{}", table, key);
+        enqueue(new QueuedAudit(table, key, audit, null, auditTime, System.nanoTime()));
+    }
+
+    /**
+     * Queues the audit with the delta itself; the delta's hash is computed by the thread which writes the audit.
+     */
+    @Override
+    public void persist(String table, String key, Audit audit, Delta delta, long auditTime) {
+        enqueue(new QueuedAudit(table, key, audit, delta, auditTime, System.nanoTime()));
+    }
+
+    private void enqueue(QueuedAudit audit) {
+        if (_auditQueue.offer(audit)) {
+            return;
         }
+
+        // The queue is full.  Rather than block the caller hand the audit to the overflow queue for the background
+        // writer or, if that is also full, drop it since this implementation does not guarantee 100% audit retention.
+        if (_overflowQueueSize.incrementAndGet() <= _overflowCapacity) {
+            _overflowQueue.add(audit);
+            _overflowedAudits.mark();
+            return;
+        }
+        _overflowQueueSize.decrementAndGet();
+        _droppedAudits.mark();
+        _rateLimitedLog.error(new IllegalStateException("Audit queue full"), "Dropped audit for {}/{}", audit.table, audit.key);
     }
 
     /**
@@ -275,24 +344,48 @@ public class AthenaAuditWriter implements AuditStore {
      * file will eventually be transferred.
      */
     private void prepareClosedLogFilesForTransfer() {
-        for (final File logFile : _stagingDir.listFiles((dir, name) -> name.startsWith(_logFilePrefix) && name.endsWith(CLOSED_FILE_SUFFIX))) {
-            boolean moved;
-            String fileName = logFile.getName().substring(0, logFile.getName().length() - CLOSED_FILE_SUFFIX.length()) + COMPRESSED_FILE_SUFFIX;
-            try (FileInputStream fileIn = new FileInputStream(logFile);
-                 FileOutputStream fileOut = new FileOutputStream(new File(logFile.getParentFile(), fileName));
-                 GzipCompressorOutputStream gzipOut = new GzipCompressorOutputStream(fileOut)) {
-
-                ByteStreams.copy(fileIn, gzipOut);
-                moved = true;
-            } catch (IOException e) {
-                _log.warn("Failed to compress audit log file: {}", logFile, e);
-                moved = false;
+        File[] logFiles = _stagingDir.listFiles((dir, name) -> name.startsWith(_logFilePrefix) && name.endsWith(CLOSED_FILE_SUFFIX));
+        if (_compressionService == null || logFiles.length < 2 || _compressionService.isShutdown()) {
+            for (File logFile : logFiles) {
+                compressClosedLogFile(logFile);
             }
+            return;
+        }
 
-            if (moved) {
-                if (!logFile.delete()) {
-                    _log.warn("Failed to delete audit log file: {}", logFile);
-                }
+        List<Future<?>> futures = new ArrayList<>(logFiles.length);
+        for (File logFile : logFiles) {
+            futures.add(_compressionService.submit(() -> compressClosedLogFile(logFile)));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                // Compression failures are logged by compressClosedLogFile(), so this is unexpected
+                _log.warn("Unexpected failure compressing audit log file", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void compressClosedLogFile(File logFile) {
+        boolean moved;
+        String fileName = logFile.getName().substring(0, logFile.getName().length() - CLOSED_FILE_SUFFIX.length()) + COMPRESSED_FILE_SUFFIX;
+        try (FileInputStream fileIn = new FileInputStream(logFile);
+             FileOutputStream fileOut = new FileOutputStream(new File(logFile.getParentFile(), fileName));
+             GzipCompressorOutputStream gzipOut = new GzipCompressorOutputStream(fileOut)) {
+
+            ByteStreams.copy(fileIn, gzipOut);
+            moved = true;
+        } catch (IOException e) {
+            _log.warn("Failed to compress audit log file: {}", logFile, e);
+            moved = false;
+        }
+
+        if (moved) {
+            if (!logFile.delete()) {
+                _log.warn("Failed to delete audit log file: {}", logFile);
             }
         }
     }
@@ -333,26 +426,107 @@ public class AthenaAuditWriter implements AuditStore {
     }
 
     /**
-     * This method is run at regular intervals to remove audits from the audit queue and write them to a local file.
+     * This method is run at regular intervals to remove audits from the audit queue and the overflow queue and write
+     * them to a local file.
      */
     private void processQueuedAudits(boolean interruptable) {
-        QueuedAudit audit;
+        List<QueuedAudit> audits = new ArrayList<>(MAX_WRITE_BATCH_SIZE);
         try {
-            while (!(_auditService.isShutdown() && interruptable) && ((audit = _auditQueue.poll()) != null)) {
-                boolean written = false;
-                while (!written) {
-                    AuditOutput auditOutput = getAuditOutputForTime(audit.time);
-                    written = auditOutput.writeAudit(audit);
+            while (!(_auditService.isShutdown() && interruptable)) {
+                _auditQueue.drainTo(audits, MAX_WRITE_BATCH_SIZE);
+                QueuedAudit overflowed;
+                while (audits.size() < MAX_WRITE_BATCH_SIZE && (overflowed = _overflowQueue.poll()) != null) {
+                    _overflowQueueSize.decrementAndGet();
+                    audits.add(overflowed);
+                }
+                if (audits.isEmpty()) {
+                    break;
                 }
+                writeAudits(audits);
+                audits.clear();
             }
         } catch (Exception e) {
             _log.error("Processing of queued audits failed", e);
         }
     }
 
-    private AuditOutput getAuditOutputForTime(long time) {
+    /**
+     * Writes audits to their log files.  Consecutive audits for the same batch time are written to the file together.
+     */
+    private void writeAudits(List<QueuedAudit> audits) {
+        int start = 0;
+        while (start < audits.size()) {
+            long batchTime = getBatchTime(audits.get(start).time);
+            int end = start + 1;
+            while (end < audits.size() && getBatchTime(audits.get(end).time) == batchTime) {
+                end += 1;
+            }
+
+            List<Map<String, Object>> auditMaps = new ArrayList<>(end - start);
+            for (QueuedAudit audit : audits.subList(start, end)) {
+                auditMaps.add(toAuditMap(audit));
+            }
+
+            // If the log file closes part way through the batch write the remainder to a new file
+            int written = 0;
+            while (written < auditMaps.size()) {
+                AuditOutput auditOutput = getAuditOutputForBatchTime(batchTime);
+                written += auditOutput.writeAudits(auditMaps.subList(written, auditMaps.size()));
+            }
+
+            long now = System.nanoTime();
+            for (QueuedAudit audit : audits.subList(start, end)) {
+                _queueLatency.update(now - audit.queuedAtNanos, TimeUnit.NANOSECONDS);
+            }
+            start = end;
+        }
+    }
+
+    private Map<String, Object> toAuditMap(QueuedAudit audit) {
+        Map<String, Object> auditMap = Maps.newLinkedHashMap();
+        // This is an intentional break from convention to use "tablename" instead of "table".  This is because
+        // "table" is a reserved word in Presto and complicates queries for that column.
+        auditMap.put("tablename", audit.table);
+        auditMap.put("key", audit.key);
+        auditMap.put("time", audit.time);
+        // Even though the content of the audit is valid JSON the potential key set is unbounded.  This makes
+        // it difficult to define a schema for Presto.  So create values for the conventional keys and store
+        // the rest in an opaque blob.
+        Map<String, Object> custom = new HashMap<>(audit.audit.getAll());
+        if (custom.remove(Audit.COMMENT) != null) {
+            auditMap.put("comment", audit.audit.getComment());
+        }
+        if (custom.remove(Audit.HOST) != null) {
+            auditMap.put("host", audit.audit.getHost());
+        }
+        if (custom.remove(Audit.PROGRAM) != null) {
+            auditMap.put("program", audit.audit.getProgram());
+        }
+        if (audit.delta != null) {
+            custom.remove(Audit.SHA1);
+            auditMap.put("sha1", AuditWriter.hash(audit.delta));
+        } else if (custom.remove(Audit.SHA1) != null) {
+            auditMap.put("sha1", audit.audit.getCustom(Audit.SHA1));
+        }
+        if (custom.remove(Audit.TAGS) != null) {
+            auditMap.put("tags", audit.audit.getTags());
+        }
+        if (!custom.isEmpty()) {
+            try {
+                auditMap.put("custom", _objectWriter.writeValueAsString(custom));
+            } catch (JsonProcessingException e) {
+                _log.info("Failed to write custom audit information", e);
+            }
+        }
+        return auditMap;
+    }
+
+    private long getBatchTime(long time) {
         // Truncate the time based on the batch duration
-        long batchTime = time - (time % _maxBatchTimeMs);
+        return time - (time % _maxBatchTimeMs);
+    }
+
+    private AuditOutput getAuditOutputForBatchTime(long batchTime) {
         // The most common case is that audits are written in time order, so optimize by caching the most recently
         // used AuditOutput and return it if it is usable for an audit at the given time.
         AuditOutput mruAuditOutput = _mruAuditOutput;
@@ -384,18 +558,22 @@ public class AthenaAuditWriter implements AuditStore {
         final String table;
         final String key;
         final Audit audit;
+        final Delta delta;
         final long time;
+        final long queuedAtNanos;
 
-        QueuedAudit(String table, String key, Audit audit, long time) {
+        QueuedAudit(String table, String key, Audit audit, Delta delta, long time, long queuedAtNanos) {
             this.table = table;
             this.key = key;
             this.audit = audit;
+            this.delta = delta;
             this.time = time;
+            this.queuedAtNanos = queuedAtNanos;
         }
     }
 
     /**
-     * Class holder for a single audit output file, with most of the file details abstracted by {@link #writeAudit(QueuedAudit)}.
+     * Class holder for a single audit output file, with most of the file details abstracted by {@link #writeAudits(List)}.
      */
     private class AuditOutput {
         private final File _auditLogFile;
@@ -415,77 +593,55 @@ public class AthenaAuditWriter implements AuditStore {
 
         void createAuditLogOut() throws IOException {
             FileOutputStream fileOut = new FileOutputStream(_auditLogFile);
-            _auditLogOut = new CountingOutputStream(fileOut);
+            _auditLogOut = new CountingOutputStream(new BufferedOutputStream(fileOut));
         }
 
         /**
-         * Writes a single audit to the log file.
-         * @return True if the audit was written, false if the audit could not be written because the file was closed
-         *         or can no longer accept writes due to file size or age.
+         * Writes audits to the log file in order, flushing once all have been written.
+         * @return The number of audits written.  This is less than the number of audits provided if the file was closed
+         *         or can no longer accept writes due to file size or age, in which case the remaining audits must be
+         *         written to a new file.
          */
-        boolean writeAudit(QueuedAudit audit) {
-            Map<String, Object> auditMap = Maps.newLinkedHashMap();
-            // This is an intentional break from convention to use "tablename" instead of "table".  This is because
-            // "table" is a reserved word in Presto and complicates queries for that column.
-            auditMap.put("tablename", audit.table);
-            auditMap.put("key", audit.key);
-            auditMap.put("time", audit.time);
-            // Even though the content of the audit is valid JSON the potential key set is unbounded.  This makes
-            // it difficult to define a schema for Presto.  So create values for the conventional keys and store
-            // the rest in an opaque blob.
-            Map<String, Object> custom = new HashMap<>(audit.audit.getAll());
-            if (custom.remove(Audit.COMMENT) != null) {
-                auditMap.put("comment", audit.audit.getComment());
-            }
-            if (custom.remove(Audit.HOST) != null) {
-                auditMap.put("host", audit.audit.getHost());
-            }
-            if (custom.remove(Audit.PROGRAM) != null) {
-                auditMap.put("program", audit.audit.getProgram());
-            }
-            if (custom.remove(Audit.SHA1) != null) {
-                auditMap.put("sha1", audit.audit.getCustom(Audit.SHA1));
-            }
-            if (custom.remove(Audit.TAGS) != null) {
-                auditMap.put("tags", audit.audit.getTags());
-            }
-            if (!custom.isEmpty()) {
-                try {
-                    auditMap.put("custom", _objectWriter.writeValueAsString(custom));
-                } catch (JsonProcessingException e) {
-                    _log.info("Failed to write custom audit information", e);
-                }
-            }
+        int writeAudits(List<Map<String, Object>> auditMaps) {
+            int written = 0;
 
-            // Lock critical section to ensure the file isn't closed while writing the audit
+            // Lock critical section to ensure the file isn't closed while writing the audits
             _lock.lock();
             try {
-                if (shouldClose()) {
-                    close();
-                }
+                for (Map<String, Object> auditMap : auditMaps) {
+                    if (shouldClose()) {
+                        close();
+                    }
 
-                if (isClosed()) {
-                    return false;
-                }
+                    if (isClosed()) {
+                        break;
+                    }
 
-                // Lazily create the audit log file on the first write.  This way if a race occurs and more than
-                // one AuditOutput is created for a batch only the one which wins will actually generate a file to
-                // be transferred to S3.
-                if (_auditLogOut == null) {
-                    createAuditLogOut();
-                }
+                    // Lazily create the audit log file on the first write.  This way if a race occurs and more than
+                    // one AuditOutput is created for a batch only the one which wins will actually generate a file to
+                    // be transferred to S3.
+                    if (_auditLogOut == null) {
+                        createAuditLogOut();
+                    }
 
-                _objectWriter.writeValue(_auditLogOut, auditMap);
-                _auditLogOut.write('\n');
-                //noinspection NonAtomicOperationOnVolatileField
-                _auditsWritten += 1;
+                    _objectWriter.writeValue(_auditLogOut, auditMap);
+                    _auditLogOut.write('\n');
+                    //noinspection NonAtomicOperationOnVolatileField
+                    _auditsWritten += 1;
+                    written += 1;
+                }
+                if (_auditLogOut != null && !isClosed()) {
+                    _auditLogOut.flush();
+                }
             } catch (IOException e) {
-                _log.warn("Failed to write audit to logs", e);
+                _log.warn("Failed to write audits to logs", e);
+                // Consistent with not guaranteeing 100% audit retention, don't retry the remaining audits
+                written = auditMaps.size();
             } finally {
                 _lock.unlock();
             }
 
-            return true;
+            return written;
         }
 
         boolean isClosed() {
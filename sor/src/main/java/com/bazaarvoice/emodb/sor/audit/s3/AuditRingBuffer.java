@@ -0,0 +1,89 @@
+package com.bazaarvoice.emodb.sor.audit.s3;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Bounded ring buffer which accepts items from any number of producer threads and is drained by a single consumer.
+ * Producers claim a slot by advancing a shared sequence and never block or take a lock; if the buffer is full
+ * {@link #offer(Object)} returns false immediately and the caller decides what to do with the item.
+ *
+ * A producer which has claimed a slot but not yet published into it leaves a gap which the consumer won't read past,
+ * so items are always drained in the order their slots were claimed.
+ */
+class AuditRingBuffer<T> {
+
+    private final AtomicReferenceArray<T> _slots;
+    private final int _mask;
+    // Next sequence to be claimed by a producer
+    private final AtomicLong _head = new AtomicLong();
+    // Next sequence to be read by the consumer
+    private final AtomicLong _tail = new AtomicLong();
+
+    AuditRingBuffer(int minCapacity) {
+        checkArgument(minCapacity > 0 && minCapacity <= 1 << 30, "Invalid capacity: %s", minCapacity);
+        int capacity = Integer.highestOneBit(minCapacity);
+        if (capacity < minCapacity) {
+            capacity <<= 1;
+        }
+        _slots = new AtomicReferenceArray<>(capacity);
+        _mask = capacity - 1;
+    }
+
+    /**
+     * Adds an item to the buffer.
+     * @return True if the item was added, false if the buffer was full.
+     */
+    boolean offer(T item) {
+        requireNonNull(item, "item");
+        long sequence;
+        do {
+            sequence = _head.get();
+            if (sequence - _tail.get() >= _slots.length()) {
+                return false;
+            }
+        } while (!_head.compareAndSet(sequence, sequence + 1));
+
+        _slots.lazySet((int) (sequence & _mask), item);
+        return true;
+    }
+
+    /**
+     * Moves up to <code>maxItems</code> published items into the provided collection.  Must only be called by one
+     * thread at a time.
+     * @return The number of items drained.
+     */
+    int drainTo(Collection<? super T> items, int maxItems) {
+        long tail = _tail.get();
+        int count = 0;
+        while (count < maxItems) {
+            int index = (int) (tail & _mask);
+            T item = _slots.get(index);
+            if (item == null) {
+                break;
+            }
+            // Clear the slot before advancing the tail so a producer can't claim it while it still holds this item
+            _slots.lazySet(index, null);
+            items.add(item);
+            tail += 1;
+            count += 1;
+        }
+        if (count != 0) {
+            _tail.lazySet(tail);
+        }
+        return count;
+    }
+
+    int size() {
+        long size = _head.get() - _tail.get();
+        return (int) Math.max(0, Math.min(size, _slots.length()));
+    }
+
+    int capacity() {
+        return _slots.length();
+    }
+}
@@ -5,6 +5,8 @@ import com.bazaarvoice.emodb.sor.api.ReadConsistency;
 import com.bazaarvoice.emodb.sor.api.UnknownTableException;
 import com.bazaarvoice.emodb.table.db.Table;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.UUID;
@@ -16,6 +18,21 @@ public interface DataProvider {
     /** Returns the template associated with a table. */
     Table getTable(String table);
 
+    /**
+     * Returns the tables with the given names, looking them up in bulk where possible.  Unknown tables are omitted.
+     */
+    default Map<String, Table> getTables(Collection<String> tables) {
+        Map<String, Table> found = new HashMap<>();
+        for (String table : tables) {
+            try {
+                found.put(table, getTable(table));
+            } catch (UnknownTableException e) {
+                // Omit unknown tables
+            }
+        }
+        return found;
+    }
+
     /** Begins the process of retrieving a batch of content items from the data store. */
     AnnotatedGet prepareGetAnnotated(ReadConsistency consistency);
 
@@ -64,7 +64,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.hash.Hashing;
+import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import io.dropwizard.lifecycle.ExecutorServiceManager;
@@ -94,6 +94,7 @@ import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
@@ -104,6 +105,7 @@ public class DefaultDataStore implements DataStore, DataProvider, DataTools, Tab
 
     private static final int NUM_COMPACTION_THREADS = 2;
     private static final int MAX_COMPACTION_QUEUE_LENGTH = 100;
+    private static final int TABLE_PREFETCH_BATCH_SIZE = 100;
 
     private final Logger _log = LoggerFactory.getLogger(DefaultDataStore.class);
 
@@ -266,6 +268,11 @@ public class DefaultDataStore implements DataStore, DataProvider, DataTools, Tab
         return _tableDao.get(table);
     }
 
+    @Override
+    public Map<String, Table> getTables(Collection<String> tables) {
+        return _tableDao.getAll(tables);
+    }
+
     @Override
     public Map<String, Object> getTableTemplate(String table) {
         checkLegalTableName(table);
@@ -620,6 +627,11 @@ public class DefaultDataStore implements DataStore, DataProvider, DataTools, Tab
         requireNonNull(coordinates, "coordinates");
         requireNonNull(consistency, "consistency");
 
+        // Look up the metadata for every table up front instead of one table at a time
+        if (coordinates.size() > 1) {
+            _tableDao.getAll(coordinates.stream().map(Coordinate::getTable).collect(Collectors.toSet()));
+        }
+
         AnnotatedGet multiGet = prepareGetAnnotated(consistency);
         for (Coordinate coordinate : coordinates) {
             multiGet.add(coordinate.getTable(), coordinate.getId());
@@ -633,6 +645,11 @@ public class DefaultDataStore implements DataStore, DataProvider, DataTools, Tab
         });
     }
 
+    @Override
+    public Iterator<Map<String, Object>> multiGet(String table, Collection<String> keys, ReadConsistency consistency) {
+        return multiGet(keys.stream().map(key -> Coordinate.of(table, key)).collect(Collectors.toList()), consistency);
+    }
+
     private Iterator<Map<String, Object>> resolveScanResults(final Iterator<Record> records,
                                                              final ReadConsistency consistency,
                                                              final boolean includeDeletes) {
@@ -684,7 +701,7 @@ public class DefaultDataStore implements DataStore, DataProvider, DataTools, Tab
         requireNonNull(updates, "updates");
         checkLegalTags(tags);
         requireNonNull(tags, "tags");
-        Iterator<Update> updatesIter = updates.iterator();
+        Iterator<Update> updatesIter = prefetchTables(updates.iterator());
         if (!updatesIter.hasNext()) {
             return;
         }
@@ -754,21 +771,40 @@ public class DefaultDataStore implements DataStore, DataProvider, DataTools, Tab
                 // didn't end in Cassandra. However, it is absolutely possible for audits to be missing if Emo
                 // terminates unexpectedly without a graceful shutdown to drain all audit that haven't been flushed yet.
 
-                // Add the hash of the delta to the audit log to make it easy to tell when the same delta is written multiple times
-                // Update the audit to include the tags associated with the update
+                // Update the audit to include the tags associated with the update.  The audit writer adds the hash of
+                // the delta to the audit log to make it easy to tell when the same delta is written multiple times.
                 updateBatch.forEach(update -> {
                     Audit augmentedAudit = AuditBuilder.from(update.getAudit())
-                            .set(Audit.SHA1, Hashing.sha1().hashUnencodedChars(update.getDelta().toString()).toString())
                             .set(Audit.TAGS, tags)
                             .build();
 
-                    _auditWriter.persist(update.getTable().getName(), update.getKey(), augmentedAudit, TimeUUIDs.getTimeMillis(update.getChangeId()));
+                    _auditWriter.persist(update.getTable().getName(), update.getKey(), augmentedAudit, update.getDelta(),
+                            TimeUUIDs.getTimeMillis(update.getChangeId()));
 
                 });
             }
         });
     }
 
+    /**
+     * Looks up the tables for each batch of updates in bulk as the updates are consumed, so a batch of updates spanning
+     * many tables doesn't load the metadata for each table serially.
+     */
+    private Iterator<Update> prefetchTables(Iterator<Update> updates) {
+        return Iterators.concat(Iterators.transform(Iterators.partition(updates, TABLE_PREFETCH_BATCH_SIZE), batch -> {
+            Set<String> tables = Sets.newHashSet();
+            for (Update update : batch) {
+                if (update != null) {
+                    tables.add(update.getTable());
+                }
+            }
+            if (tables.size() > 1) {
+                _tableDao.getAll(tables);
+            }
+            return batch.iterator();
+        }));
+    }
+
     /**
      * Facade related methods
      **/
@@ -251,6 +251,11 @@ public class WriteCloseableDataStore implements DataStore, TableBackingStore, Da
         return _tableBackingStore.scan(table, fromKeyExclusive, limit, consistency);
     }
 
+    @Override
+    public Iterator<Map<String, Object>> multiGet(String table, Collection<String> keys, ReadConsistency consistency) {
+        return _tableBackingStore.multiGet(table, keys, consistency);
+    }
+
     @Override
     public Iterator<Change> getTimeline(String table, String key, boolean includeContentData, boolean includeAuditInformation, @Nullable UUID start, @Nullable UUID end, boolean reversed, long limit, ReadConsistency consistency) {
         return _delegate.getTimeline(table, key, includeContentData, includeAuditInformation, start, end, reversed, limit, consistency);
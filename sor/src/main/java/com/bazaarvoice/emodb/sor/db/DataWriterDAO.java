@@ -43,6 +43,12 @@ public interface DataWriterDAO {
     /** Makes a best effort to delete all data within the specified table.  Resets all version numbers to zero. */
     void purgeUnsafe(Table table);
 
+    /**
+     * Called around the write of each batch of updates: {@code beforeWrite} before the batch is written and
+     * {@code afterWrite} once it has been written successfully.  Batches of a single {@link #updateAll} call may be
+     * written concurrently, so implementations must be thread-safe and must not depend on the thread they are
+     * called from.
+     */
     interface UpdateListener {
         void beforeWrite(Collection<RecordUpdate> updates);
         void afterWrite(Collection<RecordUpdate> updates);
@@ -377,6 +377,20 @@ public class AstyanaxBlockedDataReaderDAO implements DataReaderDAO, DataCopyRead
         }));
     }
 
+    @Override
+    public Iterator<ByteBuffer> scanRowKeys(AstyanaxStorage storage, ByteBufferRange keyRange, ReadConsistency consistency) {
+        requireNonNull(storage, "storage");
+        requireNonNull(keyRange, "keyRange");
+        requireNonNull(consistency, "consistency");
+
+        DeltaPlacement placement = (DeltaPlacement) storage.getPlacement();
+
+        // We just want row keys, but get at least one column so we can ignore range ghosts.
+        ByteBufferRange columnRange = new RangeBuilder().setLimit(1).build();
+        Iterator<Row<ByteBuffer, DeltaKey>> rows = rowScan(placement, keyRange, columnRange, LimitCounter.max(), consistency);
+        return Iterators.transform(Iterators.filter(rows, row -> !row.getColumns().isEmpty()), Row::getRawKey);
+    }
+
     // Manually split the token ranges using ByteOrderedPartitioner's midpoint method
     @VisibleForTesting
     public List<Token> resplitLocally(String startToken, String endToken, int numResplits) {
@@ -725,52 +739,45 @@ public class AstyanaxBlockedDataReaderDAO implements DataReaderDAO, DataCopyRead
     }
 
     @Override
-    public Iterator<? extends MigrationScanResult> getDeltasForStorage(AstyanaxStorage source) {
+    public Iterator<? extends MigrationScanResult> getDeltasForRange(AstyanaxStorage source, ByteBufferRange keyRange) {
         DeltaPlacement sourcePlacement = (DeltaPlacement) source.getPlacement();
         ColumnFamily<ByteBuffer, DeltaKey> sourceCf = sourcePlacement.getBlockedDeltaColumnFamily();
 
-        Iterator<ByteBufferRange> scanIter = source.scanIterator(null);
-
-        return Iterators.concat(Iterators.transform(scanIter, keyRange -> {
-            Iterator<Row<ByteBuffer, DeltaKey>> rows =
-                    rowScan(sourcePlacement, sourceCf, keyRange, _maxColumnsRange, LimitCounter.max(), ReadConsistency.STRONG);
+        Iterator<Row<ByteBuffer, DeltaKey>> rows =
+                rowScan(sourcePlacement, sourceCf, keyRange, _maxColumnsRange, LimitCounter.max(), ReadConsistency.STRONG);
 
-            return Iterators.concat(Iterators.transform(rows, row -> {
-                ColumnList<DeltaKey> columns = row.getColumns();
-                Iterator<Column<DeltaKey>> concatColumns = columns.iterator();
-                if (columns.size() >= _maxColumnsRange.getLimit()) {
-                    DeltaKey lastColumn = row.getColumns().getColumnByIndex(columns.size() - 1).getName();
-                    concatColumns = Iterators.concat(concatColumns, columnScan(row.getRawKey(), sourcePlacement, sourceCf, lastColumn, null,
-                            false, _deltaKeyInc, Long.MAX_VALUE, 1, ReadConsistency.STRONG));
-                }
+        return Iterators.concat(Iterators.transform(rows, row -> {
+            ColumnList<DeltaKey> columns = row.getColumns();
+            Iterator<Column<DeltaKey>> concatColumns = columns.iterator();
+            if (columns.size() >= _maxColumnsRange.getLimit()) {
+                DeltaKey lastColumn = row.getColumns().getColumnByIndex(columns.size() - 1).getName();
+                concatColumns = Iterators.concat(concatColumns, columnScan(row.getRawKey(), sourcePlacement, sourceCf, lastColumn, null,
+                        false, _deltaKeyInc, Long.MAX_VALUE, 1, ReadConsistency.STRONG));
+            }
 
-                Iterator<StitchedColumn> uuidColumns = new AstyanaxDeltaIterator(concatColumns, false, _deltaPrefixLength, ByteBufferUtil.bytesToHex(row.getRawKey()));
+            Iterator<StitchedColumn> uuidColumns = new AstyanaxDeltaIterator(concatColumns, false, _deltaPrefixLength, ByteBufferUtil.bytesToHex(row.getRawKey()));
 
-                return Iterators.transform(uuidColumns, column -> new MigrationScanResult(row.getRawKey(), column.getName(), _daoUtils.skipPrefix(column.getByteBufferValue())));
-            }));
+            return Iterators.transform(uuidColumns, column -> new MigrationScanResult(row.getRawKey(), column.getName(), _daoUtils.skipPrefix(column.getByteBufferValue())));
         }));
     }
 
     @Override
-    public Iterator<? extends HistoryMigrationScanResult> getHistoriesForStorage(AstyanaxStorage source) {
-
+    public Iterator<? extends HistoryMigrationScanResult> getHistoriesForRange(AstyanaxStorage source, ByteBufferRange keyRange) {
         DeltaPlacement placement = (DeltaPlacement) source.getPlacement();
         ColumnFamily<ByteBuffer, UUID> cf = placement.getDeltaHistoryColumnFamily();
 
-        return Iterators.concat(Iterators.transform(source.scanIterator(null), keyRange -> {
-            Iterator<Row<ByteBuffer, UUID>> rows =
-                    rowScan(placement, cf, keyRange, _maxColumnsRange, LimitCounter.max(), ReadConsistency.STRONG);
-
-            return Iterators.concat(Iterators.transform(rows, row -> {
-                ColumnList<UUID> columns = row.getColumns();
-                Iterator<Column<UUID>> concatColumns = columns.iterator();
-                if (columns.size() >= _maxColumnsRange.getLimit()) {
-                    UUID lastColumn = row.getColumns().getColumnByIndex(columns.size() - 1).getName();
-                    concatColumns = Iterators.concat(concatColumns, columnScan(row.getRawKey(), placement, cf, lastColumn, null,
-                            false, _uuidInc, Long.MAX_VALUE, 1, ReadConsistency.STRONG));
-                }
-                return Iterators.transform(concatColumns, column -> new HistoryMigrationScanResult(row.getRawKey(), column.getName(), column.getByteBufferValue(), column.getTtl()));
-            }));
+        Iterator<Row<ByteBuffer, UUID>> rows =
+                rowScan(placement, cf, keyRange, _maxColumnsRange, LimitCounter.max(), ReadConsistency.STRONG);
+
+        return Iterators.concat(Iterators.transform(rows, row -> {
+            ColumnList<UUID> columns = row.getColumns();
+            Iterator<Column<UUID>> concatColumns = columns.iterator();
+            if (columns.size() >= _maxColumnsRange.getLimit()) {
+                UUID lastColumn = row.getColumns().getColumnByIndex(columns.size() - 1).getName();
+                concatColumns = Iterators.concat(concatColumns, columnScan(row.getRawKey(), placement, cf, lastColumn, null,
+                        false, _uuidInc, Long.MAX_VALUE, 1, ReadConsistency.STRONG));
+            }
+            return Iterators.transform(concatColumns, column -> new HistoryMigrationScanResult(row.getRawKey(), column.getName(), column.getByteBufferValue(), column.getTtl()));
         }));
     }
 
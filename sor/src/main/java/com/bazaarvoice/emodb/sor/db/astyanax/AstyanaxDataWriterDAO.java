@@ -2,6 +2,7 @@ package com.bazaarvoice.emodb.sor.db.astyanax;
 
 import com.bazaarvoice.emodb.common.api.Ttls;
 import com.bazaarvoice.emodb.common.cassandra.CassandraKeyspace;
+import com.bazaarvoice.emodb.common.dropwizard.lifecycle.LifeCycleRegistry;
 import com.bazaarvoice.emodb.sor.api.Compaction;
 import com.bazaarvoice.emodb.sor.api.DeltaSizeLimitException;
 import com.bazaarvoice.emodb.sor.api.History;
@@ -18,9 +19,11 @@ import com.bazaarvoice.emodb.sor.delta.MapDelta;
 import com.bazaarvoice.emodb.table.db.Table;
 import com.bazaarvoice.emodb.table.db.astyanax.AstyanaxStorage;
 import com.bazaarvoice.emodb.table.db.astyanax.AstyanaxTable;
+import com.bazaarvoice.emodb.table.db.astyanax.DataPurgeCheckpoint;
 import com.bazaarvoice.emodb.table.db.astyanax.DataPurgeDAO;
 import com.bazaarvoice.emodb.table.db.astyanax.FullConsistencyTimeProvider;
 import com.bazaarvoice.emodb.table.db.consistency.HintsConsistencyTimeProvider;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.annotation.Timed;
@@ -32,15 +35,19 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.io.ByteStreams;
 import com.google.common.io.CountingOutputStream;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.netflix.astyanax.ColumnListMutation;
 import com.netflix.astyanax.Execution;
 import com.netflix.astyanax.MutationBatch;
 import com.netflix.astyanax.connectionpool.OperationResult;
 import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.model.ByteBufferRange;
 import com.netflix.astyanax.model.ConsistencyLevel;
 import com.netflix.astyanax.serializers.StringSerializer;
 import com.netflix.astyanax.thrift.AbstractThriftMutationBatchImpl;
+import io.dropwizard.lifecycle.ExecutorServiceManager;
+import io.dropwizard.util.Duration;
 import org.apache.cassandra.thrift.Cassandra;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.thrift.TException;
@@ -57,8 +64,18 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.Queue;
 import java.util.UUID;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.hash;
 import static java.util.Objects.requireNonNull;
 
@@ -79,6 +96,7 @@ public class AstyanaxDataWriterDAO implements DataWriterDAO, DataPurgeDAO {
     private final ChangeEncoder _changeEncoder;
     private final Meter _updateMeter;
     private final Meter _oversizeUpdateMeter;
+    private final Histogram _groupCommitSizeHisto;
     private final FullConsistencyTimeProvider _fullConsistencyTimeProvider;
     private final DAOUtils _daoUtils;
     private final String _deltaPrefix;
@@ -92,13 +110,20 @@ public class AstyanaxDataWriterDAO implements DataWriterDAO, DataPurgeDAO {
     private final HintsConsistencyTimeProvider _rawConsistencyTimeProvider;
     private final HistoryStore _historyStore;
 
+    // Executor for writing batches of a single request concurrently, or null if batches are written serially
+    private final ExecutorService _writeExecutor;
+    private final ShardTaskExecutor _purgeExecutor;
+    private final boolean _groupCommitEnabled;
+    private final ConcurrentMap<BatchKey, GroupCommitter> _groupCommitters = Maps.newConcurrentMap();
+
     @Inject
-    public AstyanaxDataWriterDAO(@AstyanaxWriterDAODelegate DataWriterDAO delegate, AstyanaxKeyScanner keyScanner,
+    public AstyanaxDataWriterDAO(LifeCycleRegistry lifeCycle, @AstyanaxWriterDAODelegate DataWriterDAO delegate, AstyanaxKeyScanner keyScanner,
                                  FullConsistencyTimeProvider fullConsistencyTimeProvider, HistoryStore historyStore,
                                  HintsConsistencyTimeProvider rawConsistencyTimeProvider,
                                  ChangeEncoder changeEncoder, MetricRegistry metricRegistry,
                                  DAOUtils daoUtils, @BlockSize int deltaBlockSize,
-                                 @PrefixLength int deltaPrefixLength) {
+                                 @PrefixLength int deltaPrefixLength, @WriteConcurrency int writeConcurrency,
+                                 @GroupCommitEnabled boolean groupCommitEnabled, @PurgeConcurrency int purgeConcurrency) {
 
         _cqlWriterDAO = requireNonNull(delegate, "delegate");
         _keyScanner = requireNonNull(keyScanner, "keyScanner");
@@ -111,6 +136,21 @@ public class AstyanaxDataWriterDAO implements DataWriterDAO, DataPurgeDAO {
         _daoUtils = daoUtils;
         _deltaPrefix = StringUtils.repeat('0', deltaPrefixLength);
         _deltaPrefixLength = deltaPrefixLength;
+        _groupCommitSizeHisto = metricRegistry.histogram(getMetricName("groupCommitSize"));
+
+        checkArgument(writeConcurrency >= 1, "writeConcurrency must be at least 1");
+        // The request thread always writes one batch itself, so it only needs help for the remainder
+        _writeExecutor = writeConcurrency > 1 ? defaultWriteExecutor(lifeCycle, writeConcurrency - 1) : null;
+        _groupCommitEnabled = groupCommitEnabled;
+        _purgeExecutor = new ShardTaskExecutor(lifeCycle, "sor-purge-%d", purgeConcurrency);
+    }
+
+    private static ExecutorService defaultWriteExecutor(LifeCycleRegistry lifeCycle, int numThreads) {
+        String nameFormat = "sor-batch-writer-%d";
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads,
+                new ThreadFactoryBuilder().setNameFormat(nameFormat).build());
+        lifeCycle.manage(new ExecutorServiceManager(executor, Duration.seconds(5), nameFormat));
+        return executor;
     }
 
     private String getMetricName(String name) {
@@ -176,9 +216,60 @@ public class AstyanaxDataWriterDAO implements DataWriterDAO, DataPurgeDAO {
     }
 
     private void writeAll(Map<BatchKey, List<BatchUpdate>> batchMap, UpdateListener listener) {
-        for (Map.Entry<BatchKey, List<BatchUpdate>> entry : batchMap.entrySet()) {
-            write(entry.getKey(), entry.getValue(), listener);
+        if (_writeExecutor == null || batchMap.size() <= 1) {
+            for (Map.Entry<BatchKey, List<BatchUpdate>> entry : batchMap.entrySet()) {
+                writeBatch(entry.getKey(), entry.getValue(), listener);
+            }
+            return;
+        }
+
+        // Batches for different placements and consistencies are independent, so write them concurrently.  The
+        // request thread writes the first batch itself rather than sitting idle.
+        Iterator<Map.Entry<BatchKey, List<BatchUpdate>>> entries = batchMap.entrySet().iterator();
+        Map.Entry<BatchKey, List<BatchUpdate>> first = entries.next();
+        List<CompletableFuture<Void>> futures = Lists.newArrayListWithCapacity(batchMap.size() - 1);
+        while (entries.hasNext()) {
+            Map.Entry<BatchKey, List<BatchUpdate>> entry = entries.next();
+            futures.add(CompletableFuture.runAsync(() -> writeBatch(entry.getKey(), entry.getValue(), listener), _writeExecutor));
+        }
+
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()]));
+        try {
+            writeBatch(first.getKey(), first.getValue(), listener);
+        } catch (RuntimeException e) {
+            // Don't report the failure until the other batches have finished so no writes for this request are
+            // still in flight once the caller has been told it failed.
+            all.handle((ignored, t) -> null).join();
+            throw e;
         }
+        try {
+            all.join();
+        } catch (CompletionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    private void writeBatch(BatchKey batchKey, List<BatchUpdate> updates, UpdateListener listener) {
+        // Encode every delta up front so an oversize delta fails its own request before anything is written.
+        List<EncodedUpdate> encodedUpdates = Lists.newArrayListWithCapacity(updates.size());
+        for (BatchUpdate update : updates) {
+            encodedUpdates.add(encode(update));
+        }
+        Collection<RecordUpdate> recordUpdates = Collections2.transform(updates, BatchUpdate::getUpdate);
+
+        // Invoke the configured listener.  This is used to write events to the databus.
+        listener.beforeWrite(recordUpdates);
+
+        if (_groupCommitEnabled && updates.size() < MAX_BATCH_SIZE) {
+            _groupCommitters.computeIfAbsent(batchKey, GroupCommitter::new).commit(encodedUpdates);
+        } else {
+            write(batchKey, encodedUpdates);
+        }
+
+        // Invoke the configured listener.  This is used to write audits.
+        listener.afterWrite(recordUpdates);
+
+        _updateMeter.mark(updates.size());
     }
 
     private void putBlockedDeltaColumn(ColumnListMutation mutation, UUID changeId, ByteBuffer encodedDelta) {
@@ -188,50 +279,52 @@ public class AstyanaxDataWriterDAO implements DataWriterDAO, DataPurgeDAO {
         }
     }
 
-    private void write(BatchKey batchKey, List<BatchUpdate> updates, UpdateListener listener) {
-        // Invoke the configured listener.  This is used to write events to the databus.
-        listener.beforeWrite(Collections2.transform(updates, BatchUpdate::getUpdate));
+    private EncodedUpdate encode(BatchUpdate batchUpdate) {
+        AstyanaxStorage storage = batchUpdate.getStorage();
+        RecordUpdate update = batchUpdate.getUpdate();
+        ByteBuffer rowKey = storage.getRowKey(update.getKey());
 
-        DeltaPlacement placement = batchKey.getPlacement();
-        MutationBatch mutation = placement.getKeyspace().prepareMutationBatch(batchKey.getConsistency());
-        int approxMutationSize = 0;
-        int updateCount = 0;
+        Delta delta = update.getDelta();
+        String deltaString = delta.toString();
+        Set<String> tags = update.getTags();
 
-        for (BatchUpdate batchUpdate : updates) {
-            AstyanaxStorage storage = batchUpdate.getStorage();
-            RecordUpdate update = batchUpdate.getUpdate();
-            ByteBuffer rowKey = storage.getRowKey(update.getKey());
+        // Set any change flags which may make reading this delta back more efficient.  Currently the only case
+        // for this is for a literal map delta.
+        EnumSet<ChangeFlag> changeFlags = EnumSet.noneOf(ChangeFlag.class);
+        if (delta.isConstant()) {
+            changeFlags.add(ChangeFlag.CONSTANT_DELTA);
+        }
+        if (delta instanceof MapDelta || (delta instanceof Literal && ((Literal) delta).getValue() instanceof Map)) {
+            changeFlags.add(ChangeFlag.MAP_DELTA);
+        }
 
-            Delta delta = update.getDelta();
-            String deltaString = delta.toString();
-            Set<String> tags = update.getTags();
+        // Regardless of migration stage, we will still encode both deltas versions
 
-            // Set any change flags which may make reading this delta back more efficient.  Currently the only case
-            // for this is for a literal map delta.
-            EnumSet<ChangeFlag> changeFlags = EnumSet.noneOf(ChangeFlag.class);
-            if (delta.isConstant()) {
-                changeFlags.add(ChangeFlag.CONSTANT_DELTA);
-            }
-            if (delta instanceof MapDelta || (delta instanceof Literal && ((Literal) delta).getValue() instanceof Map)) {
-                changeFlags.add(ChangeFlag.MAP_DELTA);
-            }
+        // The values are encoded in a flexible format that allows versioning of the strings
+        ByteBuffer encodedBlockDelta = stringToByteBuffer(_changeEncoder.encodeDelta(deltaString, changeFlags, tags, new StringBuilder(_deltaPrefix)).toString());
 
-            // Regardless of migration stage, we will still encode both deltas versions
+        int blockDeltaSize = encodedBlockDelta.remaining();
 
-            // The values are encoded in a flexible format that allows versioning of the strings
-            ByteBuffer encodedBlockDelta = stringToByteBuffer(_changeEncoder.encodeDelta(deltaString, changeFlags, tags, new StringBuilder(_deltaPrefix)).toString());
-            ByteBuffer encodedDelta = encodedBlockDelta.duplicate();
-            encodedDelta.position(encodedDelta.position() + _deltaPrefixLength);
+        // Validate sizes of individual deltas
+        if (blockDeltaSize > MAX_DELTA_SIZE) {
+            _oversizeUpdateMeter.mark();
+            throw new DeltaSizeLimitException("Delta exceeds size limit of " + MAX_DELTA_SIZE + ": " + blockDeltaSize, blockDeltaSize);
+        }
 
-            int blockDeltaSize = encodedBlockDelta.remaining();
+        return new EncodedUpdate(rowKey, update.getChangeId(), encodedBlockDelta);
+    }
 
-            UUID changeId = update.getChangeId();
+    private void write(BatchKey batchKey, List<EncodedUpdate> updates) {
+        DeltaPlacement placement = batchKey.getPlacement();
+        MutationBatch mutation = placement.getKeyspace().prepareMutationBatch(batchKey.getConsistency());
+        int approxMutationSize = 0;
+        int updateCount = 0;
 
-            // Validate sizes of individual deltas
-            if (blockDeltaSize > MAX_DELTA_SIZE) {
-                _oversizeUpdateMeter.mark();
-                throw new DeltaSizeLimitException("Delta exceeds size limit of " + MAX_DELTA_SIZE + ": " + blockDeltaSize, blockDeltaSize);
-            }
+        for (EncodedUpdate update : updates) {
+            ByteBuffer rowKey = update.getRowKey();
+            UUID changeId = update.getChangeId();
+            ByteBuffer encodedBlockDelta = update.getEncodedBlockDelta();
+            int blockDeltaSize = encodedBlockDelta.remaining();
 
             // Perform a quick validation that the size of the mutation batch as a whole won't exceed the thrift threshold.
             // This validation is inexact and overly-conservative but it is cheap and fast.
@@ -259,11 +352,6 @@ public class AstyanaxDataWriterDAO implements DataWriterDAO, DataPurgeDAO {
         }
 
         execute(mutation, "batch update %d records in placement %s", updateCount, placement.getName());
-
-        // Invoke the configured listener.  This is used to write audits.
-        listener.afterWrite(Collections2.transform(updates, BatchUpdate::getUpdate));
-
-        _updateMeter.mark(updates.size());
     }
 
     private ByteBuffer stringToByteBuffer(String str) {
@@ -317,21 +405,37 @@ public class AstyanaxDataWriterDAO implements DataWriterDAO, DataPurgeDAO {
 
         AstyanaxTable table = (AstyanaxTable) tbl;
         for (AstyanaxStorage storage : table.getWriteStorage()) {
-            purge(storage, noop());
+            purge(storage, DataPurgeCheckpoint.NONE, noop());
         }
     }
 
     // DataPurgeDAO
     @Override
-    public void purge(AstyanaxStorage storage, Runnable progress) {
+    public void purge(AstyanaxStorage storage, DataPurgeCheckpoint checkpoint, Runnable progress) {
+        requireNonNull(storage, "storage");
+        requireNonNull(checkpoint, "checkpoint");
+
+        // Scan the shards concurrently and delete all the rows we find, recording each shard as it completes.
+        try {
+            _purgeExecutor.forEachShard(storage, checkpoint::isPurged, (shardId, keyRange) -> {
+                purgeRange(storage, keyRange, progress);
+                checkpoint.purged(shardId);
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private void purgeRange(AstyanaxStorage storage, ByteBufferRange keyRange, Runnable progress) {
         DeltaPlacement placement = (DeltaPlacement) storage.getPlacement();
         CassandraKeyspace keyspace = placement.getKeyspace();
 
-        // Scan all the shards and delete all the rows we find.
+        // Deleting a whole row writes a single row-level tombstone regardless of how many deltas the row holds.
         MutationBatch mutation = keyspace.prepareMutationBatch(SorConsistencies.toAstyanax(WriteConsistency.STRONG));
-        Iterator<String> keyIter = _keyScanner.scanKeys(storage, ReadConsistency.STRONG);
-        while (keyIter.hasNext()) {
-            ByteBuffer rowKey = storage.getRowKey(keyIter.next());
+        Iterator<ByteBuffer> rowKeyIter = _keyScanner.scanRowKeys(storage, keyRange, ReadConsistency.STRONG);
+        while (rowKeyIter.hasNext()) {
+            ByteBuffer rowKey = rowKeyIter.next();
             mutation.withRow(placement.getBlockedDeltaColumnFamily(), rowKey).delete();
             if (mutation.getRowCount() >= 100) {
                 progress.run();
@@ -453,4 +557,98 @@ public class AstyanaxDataWriterDAO implements DataWriterDAO, DataPurgeDAO {
             return _update;
         }
     }
+
+    /** An update whose delta has been encoded and validated, ready to add to a mutation batch. */
+    private static class EncodedUpdate {
+        private final ByteBuffer _rowKey;
+        private final UUID _changeId;
+        private final ByteBuffer _encodedBlockDelta;
+
+        EncodedUpdate(ByteBuffer rowKey, UUID changeId, ByteBuffer encodedBlockDelta) {
+            _rowKey = rowKey;
+            _changeId = changeId;
+            _encodedBlockDelta = encodedBlockDelta;
+        }
+
+        ByteBuffer getRowKey() {
+            return _rowKey;
+        }
+
+        UUID getChangeId() {
+            return _changeId;
+        }
+
+        ByteBuffer getEncodedBlockDelta() {
+            return _encodedBlockDelta;
+        }
+    }
+
+    /** The updates from one request waiting to be written as part of a group commit. */
+    private static class PendingWrite {
+        private final List<EncodedUpdate> _encodedUpdates;
+        private final CompletableFuture<Void> _result = new CompletableFuture<>();
+
+        PendingWrite(List<EncodedUpdate> encodedUpdates) {
+            _encodedUpdates = encodedUpdates;
+        }
+    }
+
+    /**
+     * Combines small batches for the same placement and consistency from concurrent requests into shared mutation
+     * batches.  Whichever request thread holds the lock writes everything queued so far, up to {@link #MAX_BATCH_SIZE}
+     * updates per mutation, while the others queue up behind it.  Only the mutation is shared: each request calls its
+     * own listener on its own thread before queueing its updates and after the mutation containing them succeeds.
+     */
+    private class GroupCommitter {
+        private final BatchKey _batchKey;
+        private final Queue<PendingWrite> _pending = new ConcurrentLinkedQueue<>();
+        private final Lock _lock = new ReentrantLock();
+
+        GroupCommitter(BatchKey batchKey) {
+            _batchKey = batchKey;
+        }
+
+        void commit(List<EncodedUpdate> encodedUpdates) {
+            PendingWrite write = new PendingWrite(encodedUpdates);
+            _pending.add(write);
+
+            _lock.lock();
+            try {
+                // The previous lock holder may have already written this request along with its own
+                while (!write._result.isDone()) {
+                    commitNextGroup();
+                }
+            } finally {
+                _lock.unlock();
+            }
+
+            try {
+                write._result.join();
+            } catch (CompletionException e) {
+                throw Throwables.propagate(e.getCause());
+            }
+        }
+
+        private void commitNextGroup() {
+            List<PendingWrite> group = Lists.newArrayList();
+            List<EncodedUpdate> encodedUpdates = Lists.newArrayList();
+            PendingWrite next;
+            while (encodedUpdates.size() < MAX_BATCH_SIZE && (next = _pending.poll()) != null) {
+                group.add(next);
+                encodedUpdates.addAll(next._encodedUpdates);
+            }
+            if (group.isEmpty()) {
+                return;
+            }
+
+            try {
+                write(_batchKey, encodedUpdates);
+            } catch (Throwable t) {
+                group.forEach(write -> write._result.completeExceptionally(t));
+                return;
+            }
+            _groupCommitSizeHisto.update(group.size());
+            group.forEach(write -> write._result.complete(null));
+        }
+    }
 }
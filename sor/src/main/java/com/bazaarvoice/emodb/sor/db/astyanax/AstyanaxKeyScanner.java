@@ -2,9 +2,16 @@ package com.bazaarvoice.emodb.sor.db.astyanax;
 
 import com.bazaarvoice.emodb.sor.api.ReadConsistency;
 import com.bazaarvoice.emodb.table.db.astyanax.AstyanaxStorage;
+import com.netflix.astyanax.model.ByteBufferRange;
 
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 
 interface AstyanaxKeyScanner {
     Iterator<String> scanKeys(AstyanaxStorage storage, final ReadConsistency consistency);
+
+    /**
+     * Returns the raw row keys of the live rows in {@code keyRange}, which must be one of the storage's scan ranges.
+     */
+    Iterator<ByteBuffer> scanRowKeys(AstyanaxStorage storage, ByteBufferRange keyRange, ReadConsistency consistency);
 }
@@ -237,12 +237,16 @@ public class CqlDataWriterDAO implements DataWriterDAO, DataCopyWriterDAO {
         }
     }
 
+    /**
+     * Copy batches never span more than one row, and single-partition batches are applied atomically without the
+     * batch log, so they're unlogged to avoid the extra batch log write per batch.
+     */
     private BatchStatement executeAndReplaceIfNotEmpty(BatchStatement batchStatement, Session session,
                                                        Runnable progress) {
         if (batchStatement.size() > 0) {
             progress.run();
             session.execute(batchStatement);
-            return new BatchStatement(BatchStatement.Type.LOGGED);
+            return new BatchStatement(BatchStatement.Type.UNLOGGED);
         }
         return batchStatement;
     }
@@ -256,7 +260,7 @@ public class CqlDataWriterDAO implements DataWriterDAO, DataCopyWriterDAO {
         DeltaPlacement placement = (DeltaPlacement) dest.getPlacement();
         Session session = placement.getKeyspace().getCqlSession();
 
-        BatchStatement batchStatement = new BatchStatement(BatchStatement.Type.LOGGED);
+        BatchStatement batchStatement = new BatchStatement(BatchStatement.Type.UNLOGGED);
 
         ByteBuffer lastRowKey = null;
         int currentStatementSize = 0;
@@ -271,6 +275,7 @@ public class CqlDataWriterDAO implements DataWriterDAO, DataCopyWriterDAO {
 
             if ((lastRowKey != null && !rowKey.equals(lastRowKey)) || currentStatementSize > MAX_STATEMENT_SIZE) {
                 batchStatement = executeAndReplaceIfNotEmpty(batchStatement, session, progress);
+                currentStatementSize = 0;
             }
 
             lastRowKey = rowKey;
@@ -299,8 +304,8 @@ public class CqlDataWriterDAO implements DataWriterDAO, DataCopyWriterDAO {
         DeltaPlacement placement = (DeltaPlacement) dest.getPlacement();
         Session session = placement.getKeyspace().getCqlSession();
 
-        BatchStatement oldTableBatchStatement = new BatchStatement(BatchStatement.Type.LOGGED);
-        BatchStatement newTableBatchStatment = new BatchStatement(BatchStatement.Type.LOGGED);
+        BatchStatement oldTableBatchStatement = new BatchStatement(BatchStatement.Type.UNLOGGED);
+        BatchStatement newTableBatchStatment = new BatchStatement(BatchStatement.Type.UNLOGGED);
 
         ByteBuffer lastRowKey = null;
         int currentStatementSize = 0;
@@ -316,6 +321,7 @@ public class CqlDataWriterDAO implements DataWriterDAO, DataCopyWriterDAO {
             if ((lastRowKey != null && !rowKey.equals(lastRowKey)) || currentStatementSize > MAX_STATEMENT_SIZE) {
                 oldTableBatchStatement = executeAndReplaceIfNotEmpty(oldTableBatchStatement, session, progress);
                 newTableBatchStatment = executeAndReplaceIfNotEmpty(newTableBatchStatment, session, progress);
+                currentStatementSize = 0;
             }
 
             lastRowKey = rowKey;
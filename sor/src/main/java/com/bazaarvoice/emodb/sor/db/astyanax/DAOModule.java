@@ -81,4 +81,32 @@ public class DAOModule extends PrivateModule {
     boolean provideCellTombstoneCompactionEnabled(DataStoreConfiguration configuration) {
         return configuration.isCellTombstoneCompactionEnabled();
     }
+
+    @Provides
+    @Singleton
+    @WriteConcurrency
+    int provideWriteConcurrency(DataStoreConfiguration configuration) {
+        return configuration.getWriteConcurrency();
+    }
+
+    @Provides
+    @Singleton
+    @CopyConcurrency
+    int provideCopyConcurrency(DataStoreConfiguration configuration) {
+        return configuration.getCopyConcurrency();
+    }
+
+    @Provides
+    @Singleton
+    @PurgeConcurrency
+    int providePurgeConcurrency(DataStoreConfiguration configuration) {
+        return configuration.getPurgeConcurrency();
+    }
+
+    @Provides
+    @Singleton
+    @GroupCommitEnabled
+    boolean provideGroupCommitEnabled(DataStoreConfiguration configuration) {
+        return configuration.isGroupCommitEnabled();
+    }
 }
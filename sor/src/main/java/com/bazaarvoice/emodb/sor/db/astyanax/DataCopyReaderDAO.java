@@ -3,11 +3,12 @@ package com.bazaarvoice.emodb.sor.db.astyanax;
 import com.bazaarvoice.emodb.sor.db.HistoryMigrationScanResult;
 import com.bazaarvoice.emodb.sor.db.MigrationScanResult;
 import com.bazaarvoice.emodb.table.db.astyanax.AstyanaxStorage;
+import com.netflix.astyanax.model.ByteBufferRange;
 import java.util.Iterator;
 
 interface DataCopyReaderDAO {
 
-    Iterator<? extends MigrationScanResult> getDeltasForStorage(AstyanaxStorage source);
+    Iterator<? extends MigrationScanResult> getDeltasForRange(AstyanaxStorage source, ByteBufferRange keyRange);
 
-    Iterator<? extends HistoryMigrationScanResult> getHistoriesForStorage(AstyanaxStorage source);
+    Iterator<? extends HistoryMigrationScanResult> getHistoriesForRange(AstyanaxStorage source, ByteBufferRange keyRange);
 }
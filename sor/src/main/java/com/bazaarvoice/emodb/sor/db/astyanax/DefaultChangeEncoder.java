@@ -98,19 +98,18 @@ class DefaultChangeEncoder implements ChangeEncoder {
     public Change decodeChange(UUID changeId, ByteBuffer buf) {
         int sep = getSeparatorIndex(buf);
         Encoding encoding = getEncoding(buf, sep);
-        String body = getBody(buf, sep);
         JsonTokener tokener;
         Set<String> tags;
 
         ChangeBuilder builder = new ChangeBuilder(changeId);
         switch (encoding) {
             case D1:
-                builder.with(Deltas.fromString(body));
+                builder.with(Deltas.fromString(new JsonTokener(getBodyBytes(buf, sep))));
                 break;
             case D2:
                 // Spec for D2 is as follows:
                 // D2:<tags>:<Delta>
-                tokener = new JsonTokener(body);
+                tokener = new JsonTokener(getBodyBytes(buf, sep));
                 tags = FluentIterable.from(tokener.nextArray()).transform(Functions.toStringFunction()).toSet();
                 tokener.next(':');
                 builder.with(Deltas.fromString(tokener)).with(tags);
@@ -118,7 +117,10 @@ class DefaultChangeEncoder implements ChangeEncoder {
             case D3:
                 // Spec for D3 is as follows:
                 // D3:<tags>:<change flags>:<Delta>
-                tokener = new JsonTokener(body);
+                // Only the header is parsed up front, directly from the UTF-8 bytes; the delta is left as bytes until
+                // we know how it will be read.
+                int deltaIndex = getD3DeltaIndex(buf, sep);
+                tokener = new JsonTokener(getBodyBytes(buf, sep, deltaIndex));
                 tags = FluentIterable.from(tokener.nextArray()).transform(Functions.toStringFunction()).toSet();
                 tokener.next(':');
                 boolean isConstant = false;
@@ -141,21 +143,26 @@ class DefaultChangeEncoder implements ChangeEncoder {
                 // There are numerous circumstances where the expense of parsing a literal map delta is wasted.  For
                 // example, with two consecutive literal deltas for the same record the elder is immediately replaced
                 // by the latter, so resources spent parsing and instantiating the elder are unnecessary.  Return a lazy
-                // map literal instead to defer instantiation until necessary.
+                // map literal instead to defer instantiation until necessary.  The map keeps the original UTF-8 bytes so
+                // a literal which is only serialized back out is never decoded into a string at all.
+                int deltaLength = buf.remaining() - deltaIndex;
+                // The delta may be held long after this call, so copy its bytes instead of keeping a reference to the
+                // buffer which may be a view over a much larger response.
+                byte[] deltaBytes = BufferUtils.getBytes(buf, deltaIndex, deltaLength);
                 if (isConstant && isMapDelta) {
-                    builder.with(Deltas.literal(new LazyJsonMap(body.substring(tokener.pos())))).with(tags);
+                    builder.with(Deltas.literal(new LazyJsonMap(deltaBytes))).with(tags);
                 } else {
                     // Even if the delta is not a literal map delta there are still benefits to evaluating it lazily.
                     // For example, if a delta is behind a compaction record but has not yet been deleted it won't
                     // be used.
-                    builder.with(new LazyDelta(tokener, isConstant)).with(tags);
+                    builder.with(new LazyDelta(new JsonTokener(deltaBytes, 0, deltaLength), isConstant)).with(tags);
                 }
                 break;
             case C1:
-                builder.with(JsonHelper.fromJson(body, Compaction.class));
+                builder.with(JsonHelper.fromJson(getBody(buf, sep), Compaction.class));
                 break;
             case H1:
-                builder.with(JsonHelper.fromJson(body, History.class));
+                builder.with(JsonHelper.fromJson(getBody(buf, sep), History.class));
                 break;
             default:
                 throw new UnsupportedOperationException(encoding.name());
@@ -203,7 +210,52 @@ class DefaultChangeEncoder implements ChangeEncoder {
         throw new IllegalArgumentException("Unknown encoding: " + BufferUtils.getString(buf, position, sep, Charsets.US_ASCII));
     }
 
+    /**
+     * Returns the index of the first byte of the delta in a D3 change, skipping the tags and change flags without
+     * decoding them.  Multi-byte UTF-8 sequences never contain ASCII byte values, so it is safe to scan for quotes,
+     * escapes and separators a byte at a time.
+     */
+    private int getD3DeltaIndex(ByteBuffer buf, int sep) {
+        int position = buf.position();
+        int limit = buf.limit();
+        int index = position + sep + 1;
+
+        // Tags are a JSON array of strings; find the closing bracket which isn't inside a string
+        boolean inString = false;
+        for (; index < limit; index++) {
+            byte b = buf.get(index);
+            if (inString) {
+                if (b == '\\') {
+                    index++;
+                } else if (b == '"') {
+                    inString = false;
+                }
+            } else if (b == '"') {
+                inString = true;
+            } else if (b == ']') {
+                break;
+            }
+        }
+
+        // Skip the ']' and ':' then the change flags up to the separator preceding the delta
+        for (index += 2; index < limit && buf.get(index) != ':'; index++) {
+            // Change flags are single ASCII characters
+        }
+        return Math.min(index + 1, limit) - position;
+    }
+
     private String getBody(ByteBuffer buf, int sep) {
         return BufferUtils.getString(buf, sep + 1, buf.remaining() - (sep + 1), Charsets.UTF_8);
     }
-}
\ No newline at end of file
+
+    private ByteBuffer getBodyBytes(ByteBuffer buf, int sep) {
+        return getBodyBytes(buf, sep, buf.remaining());
+    }
+
+    private ByteBuffer getBodyBytes(ByteBuffer buf, int sep, int end) {
+        ByteBuffer body = buf.duplicate();
+        body.limit(body.position() + end);
+        body.position(body.position() + sep + 1);
+        return body;
+    }
+}
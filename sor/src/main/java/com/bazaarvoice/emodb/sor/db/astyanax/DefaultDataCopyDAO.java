@@ -1,28 +1,49 @@
 package com.bazaarvoice.emodb.sor.db.astyanax;
 
+import com.bazaarvoice.emodb.common.dropwizard.lifecycle.LifeCycleRegistry;
 import com.bazaarvoice.emodb.table.db.astyanax.AstyanaxStorage;
+import com.bazaarvoice.emodb.table.db.astyanax.DataCopyCheckpoint;
 import com.bazaarvoice.emodb.table.db.astyanax.DataCopyDAO;
+import com.google.common.base.Throwables;
 import com.google.inject.Inject;
 
 import static java.util.Objects.requireNonNull;
 
+/**
+ * Copies the deltas and histories of a storage shard by shard.  Each shard is a separate token range, so shards are
+ * copied concurrently up to the configured copy concurrency, which is shared by all copies on the server.  The
+ * caller's progress runnable is invoked before every batch write, so a rate limiter applied there caps the combined
+ * write rate of all concurrent shards.
+ */
 public class DefaultDataCopyDAO implements DataCopyDAO {
 
     private final DataCopyWriterDAO _dataCopyWriterDAO;
     private final DataCopyReaderDAO _dataCopyReaderDAO;
+    private final ShardTaskExecutor _copyExecutor;
 
     @Inject
-    public DefaultDataCopyDAO(DataCopyWriterDAO dataCopyWriterDAO, DataCopyReaderDAO dataCopyReaderDAO) {
+    public DefaultDataCopyDAO(LifeCycleRegistry lifeCycle, DataCopyWriterDAO dataCopyWriterDAO,
+                              DataCopyReaderDAO dataCopyReaderDAO, @CopyConcurrency int copyConcurrency) {
         _dataCopyWriterDAO = requireNonNull(dataCopyWriterDAO);
         _dataCopyReaderDAO = requireNonNull(dataCopyReaderDAO);
+        _copyExecutor = new ShardTaskExecutor(lifeCycle, "sor-data-copy-%d", copyConcurrency);
     }
 
     @Override
-    public void copy(AstyanaxStorage source, AstyanaxStorage dest, Runnable progress) {
+    public void copy(AstyanaxStorage source, AstyanaxStorage dest, DataCopyCheckpoint checkpoint, Runnable progress) {
         requireNonNull(source, "source");
         requireNonNull(dest, "dest");
+        requireNonNull(checkpoint, "checkpoint");
 
-        _dataCopyWriterDAO.copyDeltasToDestination(_dataCopyReaderDAO.getDeltasForStorage(source), dest, progress);
-        _dataCopyWriterDAO.copyHistoriesToDestination(_dataCopyReaderDAO.getHistoriesForStorage(source), dest, progress);
+        try {
+            _copyExecutor.forEachShard(source, checkpoint::isCopied, (shardId, keyRange) -> {
+                _dataCopyWriterDAO.copyDeltasToDestination(_dataCopyReaderDAO.getDeltasForRange(source, keyRange), dest, progress);
+                _dataCopyWriterDAO.copyHistoriesToDestination(_dataCopyReaderDAO.getHistoriesForRange(source, keyRange), dest, progress);
+                checkpoint.copied(shardId);
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(e);
+        }
     }
 }
@@ -0,0 +1,93 @@
+package com.bazaarvoice.emodb.sor.db.astyanax;
+
+import com.bazaarvoice.emodb.common.dropwizard.lifecycle.LifeCycleRegistry;
+import com.bazaarvoice.emodb.table.db.astyanax.AstyanaxStorage;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.netflix.astyanax.model.ByteBufferRange;
+import io.dropwizard.lifecycle.ExecutorServiceManager;
+import io.dropwizard.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntPredicate;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Runs a task for every shard of a storage, each shard being a separate token range, on a pool of bounded size that
+ * is shared by all callers.  Shards completed by an earlier, interrupted attempt are skipped.  The pool is shut down
+ * with the provided life cycle.
+ */
+class ShardTaskExecutor {
+
+    private static final Logger _log = LoggerFactory.getLogger(ShardTaskExecutor.class);
+
+    interface ShardTask {
+        void run(int shardId, ByteBufferRange keyRange);
+    }
+
+    private final ExecutorService _executor;
+
+    ShardTaskExecutor(LifeCycleRegistry lifeCycle, String nameFormat, int concurrency) {
+        checkArgument(concurrency >= 1, "concurrency must be at least 1");
+        _executor = Executors.newFixedThreadPool(concurrency, new ThreadFactoryBuilder()
+                .setNameFormat(nameFormat).setDaemon(true).build());
+        lifeCycle.manage(new ExecutorServiceManager(_executor, Duration.seconds(5), nameFormat));
+    }
+
+    /**
+     * Runs {@code task} for each shard of {@code storage} for which {@code completed} returns false and waits for
+     * them all to finish.  Once any task fails no further shards are started, and the first failure is rethrown after
+     * the tasks already running have finished.  If the caller is interrupted while waiting the shards which have not
+     * started are cancelled and {@link InterruptedException} is thrown without waiting for the running ones.
+     */
+    void forEachShard(AstyanaxStorage storage, IntPredicate completed, ShardTask task)
+            throws InterruptedException {
+        AtomicBoolean failed = new AtomicBoolean();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        int skipped = 0;
+        for (Iterator<ByteBufferRange> scanIter = storage.scanIterator(null); scanIter.hasNext(); ) {
+            ByteBufferRange keyRange = scanIter.next();
+            int shardId = AstyanaxStorage.getShardId(keyRange.getStart());
+            if (completed.test(shardId)) {
+                skipped++;
+                continue;
+            }
+            futures.add(CompletableFuture.runAsync(() -> {
+                if (failed.get()) {
+                    return;
+                }
+                try {
+                    task.run(shardId, keyRange);
+                } catch (Throwable t) {
+                    failed.set(true);
+                    throw t;
+                }
+            }, _executor));
+        }
+        if (skipped > 0) {
+            _log.info("Skipping {} previously completed shards of {}, {} shards remain.", skipped, storage, futures.size());
+        }
+
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).get();
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        } catch (InterruptedException e) {
+            failed.set(true);
+            for (CompletableFuture<Void> future : futures) {
+                future.cancel(false);
+            }
+            throw e;
+        }
+    }
+}
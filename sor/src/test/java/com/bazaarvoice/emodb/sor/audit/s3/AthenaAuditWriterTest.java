@@ -6,10 +6,14 @@ import com.bazaarvoice.emodb.common.dropwizard.log.RateLimitedLog;
 import com.bazaarvoice.emodb.common.json.JsonHelper;
 import com.bazaarvoice.emodb.sor.api.Audit;
 import com.bazaarvoice.emodb.sor.api.AuditBuilder;
+import com.bazaarvoice.emodb.sor.audit.AuditWriter;
+import com.bazaarvoice.emodb.sor.delta.Delta;
+import com.bazaarvoice.emodb.sor.delta.Deltas;
 import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.google.common.base.Charsets;
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Multimap;
 import com.google.common.io.Files;
 import io.dropwizard.jackson.Jackson;
@@ -32,9 +36,12 @@ import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.Collection;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
@@ -109,13 +116,19 @@ public class AthenaAuditWriterTest {
     }
 
     private AthenaAuditWriter createWriter(String s3Path, String prefix, long maxFileSize, Duration maxBatchTime) {
+        return createWriter(s3Path, prefix, maxFileSize, maxBatchTime, 4096, 16384);
+    }
+
+    private AthenaAuditWriter createWriter(String s3Path, String prefix, long maxFileSize, Duration maxBatchTime,
+                                           int queueCapacity, int overflowCapacity) {
 
         _auditService = mock(ScheduledExecutorService.class);
         _fileTransferService = mock(ExecutorService.class);
 
         AthenaAuditWriter writer = new AthenaAuditWriter(_s3, BUCKET, s3Path, maxFileSize,
                 maxBatchTime, _tempStagingDir, prefix, Jackson.newObjectMapper(), _clock, true,
-                log -> mock(RateLimitedLog.class), mock(MetricRegistry.class), _auditService, _fileTransferService);
+                log -> mock(RateLimitedLog.class), new MetricRegistry(), _auditService, _fileTransferService,
+                queueCapacity, overflowCapacity, 1);
 
         // On start two services should have been submitted: one to poll the audit queue and one to close log files and
         // initiate transfers.  Capture them now.
@@ -217,4 +230,71 @@ public class AthenaAuditWriterTest {
             i += 1;
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFullQueueOverflows() {
+        Set<String> uploadedKeys = writeAuditsToFullQueue(16);
+        assertEquals(uploadedKeys, IntStream.range(0, 10).mapToObj(i -> "key" + i).collect(Collectors.toSet()));
+    }
+
+    @Test
+    public void testFullOverflowQueueDrops() {
+        // Only the audits which fit in the queue and the overflow queue are kept
+        Set<String> uploadedKeys = writeAuditsToFullQueue(3);
+        assertEquals(uploadedKeys, IntStream.range(0, 7).mapToObj(i -> "key" + i).collect(Collectors.toSet()));
+    }
+
+    @Test
+    public void testFullQueueDropsWithoutOverflow() {
+        // Only the audits which fit in the queue are kept
+        Set<String> uploadedKeys = writeAuditsToFullQueue(0);
+        assertEquals(uploadedKeys, IntStream.range(0, 4).mapToObj(i -> "key" + i).collect(Collectors.toSet()));
+    }
+
+    private Set<String> writeAuditsToFullQueue(int overflowCapacity) {
+        Duration maxBatchTime = Duration.ofSeconds(10);
+        AthenaAuditWriter writer = createWriter("overflow", "emodb-audit", Size.megabytes(1).toBytes(), maxBatchTime,
+                4, overflowCapacity);
+
+        // Nothing drains the queue while these are written, so all but the first four overflow
+        long auditTime = _now.toEpochMilli();
+        for (int i = 0; i < 10; i++) {
+            writer.persist("test:table", "key" + i, new AuditBuilder().setComment("comment" + i).build(), auditTime);
+        }
+
+        // Overflowing audits are never written by the caller's thread
+        assertEquals(_tempStagingDir.listFiles().length, 0);
+
+        _processQueuedAudits.run();
+        _now = _now.plusSeconds(10);
+        _doLogFileMaintenance.run();
+
+        ArgumentCaptor<Runnable> fileTransferRunnable = ArgumentCaptor.forClass(Runnable.class);
+        verify(_fileTransferService).submit(fileTransferRunnable.capture());
+        fileTransferRunnable.getValue().run();
+
+        return _uploadedAudits.values().stream()
+                .map(auditMap -> (String) auditMap.get("key"))
+                .collect(Collectors.toSet());
+    }
+
+    @Test
+    public void testDeltaHashedByWriter() {
+        AthenaAuditWriter writer = createWriter("hashed", "emodb-audit", Size.megabytes(1).toBytes(), Duration.ofSeconds(10));
+
+        Delta delta = Deltas.literal(ImmutableMap.of("name", "value"));
+        writer.persist("test:table", "key", new AuditBuilder().setComment("comment").build(), delta, _now.toEpochMilli());
+
+        _processQueuedAudits.run();
+        _now = _now.plusSeconds(10);
+        _doLogFileMaintenance.run();
+
+        ArgumentCaptor<Runnable> fileTransferRunnable = ArgumentCaptor.forClass(Runnable.class);
+        verify(_fileTransferService).submit(fileTransferRunnable.capture());
+        fileTransferRunnable.getValue().run();
+
+        Map<String, Object> auditMap = _uploadedAudits.values().iterator().next();
+        assertEquals(auditMap.get("sha1"), AuditWriter.hash(delta));
+        assertEquals(auditMap.get("comment"), "comment");
+    }
+}
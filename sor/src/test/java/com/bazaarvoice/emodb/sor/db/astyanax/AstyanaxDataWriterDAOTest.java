@@ -0,0 +1,280 @@
+package com.bazaarvoice.emodb.sor.db.astyanax;
+
+import com.bazaarvoice.emodb.common.cassandra.CassandraKeyspace;
+import com.bazaarvoice.emodb.common.dropwizard.lifecycle.LifeCycleRegistry;
+import com.bazaarvoice.emodb.common.uuid.TimeUUIDs;
+import com.bazaarvoice.emodb.sor.api.AuditBuilder;
+import com.bazaarvoice.emodb.sor.api.WriteConsistency;
+import com.bazaarvoice.emodb.sor.core.HistoryStore;
+import com.bazaarvoice.emodb.sor.db.DAOUtils;
+import com.bazaarvoice.emodb.sor.db.DataWriterDAO;
+import com.bazaarvoice.emodb.sor.db.RecordUpdate;
+import com.bazaarvoice.emodb.sor.delta.Deltas;
+import com.bazaarvoice.emodb.table.db.astyanax.AstyanaxStorage;
+import com.bazaarvoice.emodb.table.db.astyanax.AstyanaxTable;
+import com.bazaarvoice.emodb.table.db.astyanax.FullConsistencyTimeProvider;
+import com.bazaarvoice.emodb.table.db.astyanax.Placement;
+import com.bazaarvoice.emodb.table.db.consistency.HintsConsistencyTimeProvider;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.netflix.astyanax.ColumnListMutation;
+import com.netflix.astyanax.MutationBatch;
+import com.netflix.astyanax.connectionpool.OperationResult;
+import com.netflix.astyanax.connectionpool.exceptions.OperationTimeoutException;
+import com.netflix.astyanax.model.ConsistencyLevel;
+import org.mockito.InOrder;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class AstyanaxDataWriterDAOTest {
+
+    private static final Answer<OperationResult<Void>> SUCCEED = invocation -> mock(OperationResult.class);
+
+    @Test
+    public void testBatchesWrittenConcurrently() throws Exception {
+        // Each mutation waits for the other, so the update only completes if both placements are written concurrently
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        Answer<OperationResult<Void>> execution = invocation -> {
+            barrier.await(10, TimeUnit.SECONDS);
+            return mock(OperationResult.class);
+        };
+        List<MutationBatch> mutations = new CopyOnWriteArrayList<>();
+        AstyanaxTable table1 = newTable("placement1", mutations, execution);
+        AstyanaxTable table2 = newTable("placement2", mutations, execution);
+
+        newDAO(2, false).updateAll(Iterators.forArray(newUpdate(table1), newUpdate(table2)), mock(DataWriterDAO.UpdateListener.class));
+
+        assertEquals(mutations.size(), 2);
+        for (MutationBatch mutation : mutations) {
+            verify(mutation).execute();
+        }
+    }
+
+    @Test
+    public void testBatchErrorReachesCaller() throws Exception {
+        List<MutationBatch> mutations = new CopyOnWriteArrayList<>();
+        AstyanaxTable table1 = newTable("placement1", mutations, SUCCEED);
+        AstyanaxTable table2 = newTable("placement2", mutations, invocation -> {
+            throw new OperationTimeoutException("timed out");
+        });
+        DataWriterDAO.UpdateListener listener = mock(DataWriterDAO.UpdateListener.class);
+
+        try {
+            newDAO(2, false).updateAll(Iterators.forArray(newUpdate(table1), newUpdate(table2)), listener);
+            fail("Failed batch not reported");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof OperationTimeoutException);
+        }
+
+        // Only the batch that was written is audited
+        verify(listener, times(2)).beforeWrite(any());
+        verify(listener, times(1)).afterWrite(any());
+    }
+
+    @Test
+    public void testFailureReportedAfterOtherBatchesFinish() throws Exception {
+        CountDownLatch firstFailed = new CountDownLatch(1);
+        AtomicBoolean secondFinished = new AtomicBoolean();
+        List<MutationBatch> mutations = new CopyOnWriteArrayList<>();
+        // The first batch is written by the request thread
+        AstyanaxTable table1 = newTable("placement1", mutations, invocation -> {
+            firstFailed.countDown();
+            throw new OperationTimeoutException("timed out");
+        });
+        AstyanaxTable table2 = newTable("placement2", mutations, invocation -> {
+            firstFailed.await(10, TimeUnit.SECONDS);
+            Thread.sleep(100);
+            secondFinished.set(true);
+            return mock(OperationResult.class);
+        });
+
+        try {
+            newDAO(2, false).updateAll(Iterators.forArray(newUpdate(table1), newUpdate(table2)), mock(DataWriterDAO.UpdateListener.class));
+            fail("Failed batch not reported");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof OperationTimeoutException);
+        }
+
+        assertTrue(secondFinished.get(), "Failure was reported while another batch was still being written");
+    }
+
+    @Test
+    public void testListenerCalledAroundMutation() throws Exception {
+        List<MutationBatch> mutations = new CopyOnWriteArrayList<>();
+        AstyanaxTable table = newTable("placement1", mutations, SUCCEED);
+        DataWriterDAO.UpdateListener listener = mock(DataWriterDAO.UpdateListener.class);
+
+        newDAO(1, true).updateAll(Iterators.forArray(newUpdate(table)), listener);
+
+        assertEquals(mutations.size(), 1);
+        InOrder inOrder = inOrder(listener, mutations.get(0));
+        inOrder.verify(listener).beforeWrite(any());
+        inOrder.verify(mutations.get(0)).execute();
+        inOrder.verify(listener).afterWrite(any());
+    }
+
+    @Test
+    public void testGroupCommitMergesConcurrentRequests() throws Exception {
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+        List<MutationBatch> mutations = new CopyOnWriteArrayList<>();
+        AstyanaxTable table = newTable("placement1", mutations, invocation -> {
+            if (executions.getAndIncrement() == 0) {
+                firstStarted.countDown();
+                releaseFirst.await(10, TimeUnit.SECONDS);
+            }
+            return mock(OperationResult.class);
+        });
+
+        List<Thread> afterWriteThreads = new CopyOnWriteArrayList<>();
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        List<Thread> requests = runGroupedRequests(newDAO(1, true), table, 5, firstStarted, releaseFirst,
+                afterWriteThreads, failures);
+
+        assertTrue(failures.isEmpty(), "Unexpected failures: " + failures);
+        // The first request is written alone, the other four queue up behind it and are written together
+        assertEquals(mutations.size(), 2);
+        verify(mutations.get(0), times(1)).withRow(any(), any());
+        verify(mutations.get(1), times(4)).withRow(any(), any());
+        // Each request's listener was called on the request's own thread
+        assertEquals(afterWriteThreads.size(), 5);
+        assertEquals(ImmutableSet.copyOf(afterWriteThreads), ImmutableSet.copyOf(requests));
+    }
+
+    @Test
+    public void testFailedGroupCommitFailsEveryRequest() throws Exception {
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+        List<MutationBatch> mutations = new CopyOnWriteArrayList<>();
+        AstyanaxTable table = newTable("placement1", mutations, invocation -> {
+            if (executions.getAndIncrement() == 0) {
+                firstStarted.countDown();
+                releaseFirst.await(10, TimeUnit.SECONDS);
+                return mock(OperationResult.class);
+            }
+            throw new OperationTimeoutException("timed out");
+        });
+
+        List<Thread> afterWriteThreads = new CopyOnWriteArrayList<>();
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        List<Thread> requests = runGroupedRequests(newDAO(1, true), table, 5, firstStarted, releaseFirst,
+                afterWriteThreads, failures);
+
+        assertEquals(mutations.size(), 2);
+        // Every request in the failed group is failed and none of them is audited
+        assertEquals(failures.size(), 4);
+        for (Throwable failure : failures) {
+            assertTrue(failure.getCause() instanceof OperationTimeoutException);
+        }
+        assertEquals(afterWriteThreads.size(), 1);
+        assertSame(afterWriteThreads.get(0), requests.get(0));
+    }
+
+    /**
+     * Starts one request and, while its mutation is blocked, queues the remaining requests behind it before releasing
+     * it.  Returns the request threads after they have all finished.
+     */
+    private List<Thread> runGroupedRequests(AstyanaxDataWriterDAO dao, AstyanaxTable table, int numRequests,
+                                            CountDownLatch firstStarted, CountDownLatch releaseFirst,
+                                            List<Thread> afterWriteThreads, Queue<Throwable> failures)
+            throws Exception {
+        List<Thread> requests = Lists.newArrayListWithCapacity(numRequests);
+        for (int i = 0; i < numRequests; i++) {
+            DataWriterDAO.UpdateListener listener = mock(DataWriterDAO.UpdateListener.class);
+            doAnswer(invocation -> afterWriteThreads.add(Thread.currentThread())).when(listener).afterWrite(any());
+            requests.add(new Thread(() -> {
+                try {
+                    dao.updateAll(Iterators.forArray(newUpdate(table)), listener);
+                } catch (Throwable t) {
+                    failures.add(t);
+                }
+            }));
+        }
+
+        requests.get(0).start();
+        assertTrue(firstStarted.await(10, TimeUnit.SECONDS));
+        for (Thread request : requests.subList(1, numRequests)) {
+            request.start();
+        }
+        // Wait for the remaining requests to queue up behind the first one
+        long deadline = System.currentTimeMillis() + 10000;
+        for (Thread request : requests.subList(1, numRequests)) {
+            while (request.getState() != Thread.State.WAITING) {
+                assertTrue(System.currentTimeMillis() < deadline, "Request never queued");
+                Thread.sleep(1);
+            }
+        }
+        releaseFirst.countDown();
+
+        for (Thread request : requests) {
+            request.join();
+        }
+        return requests;
+    }
+
+    private AstyanaxDataWriterDAO newDAO(int writeConcurrency, boolean groupCommitEnabled) {
+        return new AstyanaxDataWriterDAO(mock(LifeCycleRegistry.class), mock(DataWriterDAO.class),
+                mock(AstyanaxKeyScanner.class), mock(FullConsistencyTimeProvider.class), mock(HistoryStore.class),
+                mock(HintsConsistencyTimeProvider.class), new DefaultChangeEncoder(), new MetricRegistry(),
+                new DAOUtils(4, 64 * 1024), 64 * 1024, 4, writeConcurrency, groupCommitEnabled, 1);
+    }
+
+    /** Returns a table in its own placement whose mutations are recorded and executed by {@code execution}. */
+    private static AstyanaxTable newTable(String placementName, List<MutationBatch> mutations, Answer<?> execution)
+            throws Exception {
+        CassandraKeyspace keyspace = mock(CassandraKeyspace.class);
+        when(keyspace.prepareMutationBatch(any(ConsistencyLevel.class))).thenAnswer(invocation -> {
+            MutationBatch mutation = mock(MutationBatch.class);
+            when(mutation.withRow(any(), any())).thenReturn(mock(ColumnListMutation.class));
+            when(mutation.execute()).thenAnswer(execution);
+            mutations.add(mutation);
+            return mutation;
+        });
+
+        DeltaPlacement placement = mock(DeltaPlacement.class);
+        when(placement.getName()).thenReturn(placementName);
+        when(placement.getKeyspace()).thenReturn(keyspace);
+
+        AstyanaxTable table = mock(AstyanaxTable.class);
+        when(table.getName()).thenReturn("table-" + placementName);
+        Collection<AstyanaxStorage> storage = ImmutableList.of(
+                new AstyanaxStorage(1234L, 4, true, placementName, Suppliers.<Placement>ofInstance(placement)));
+        when(table.getWriteStorage()).thenReturn(storage);
+        return table;
+    }
+
+    private static RecordUpdate newUpdate(AstyanaxTable table) {
+        return new RecordUpdate(table, "key", TimeUUIDs.newUUID(), Deltas.literal(ImmutableMap.of("name", "value")),
+                new AuditBuilder().setComment("test").build(), ImmutableSet.of(), WriteConsistency.STRONG);
+    }
+}
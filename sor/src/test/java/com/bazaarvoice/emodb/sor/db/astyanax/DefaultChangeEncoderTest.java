@@ -13,6 +13,7 @@ import com.google.common.collect.ImmutableSet;
 import com.netflix.astyanax.serializers.StringSerializer;
 import org.testng.annotations.Test;
 
+import java.nio.ByteBuffer;
 import java.util.EnumSet;
 import java.util.Set;
 
@@ -78,6 +79,41 @@ public class DefaultChangeEncoderTest {
         assertEquals(change.getTags(), tags);
     }
 
+    @Test
+    public void testDecodeD3MapLiteral() {
+        // Tags containing separators, escapes and multi-byte characters must not confuse locating the delta
+        String encodedDelta = "D3:[\"a]:b\",\"c\\\"]\",\"caf\u00e9\"]:CM:{\"name\":\"b\u00f6b\",\"count\":3}";
+        ByteBuffer buf = ByteBuffer.allocate(100);
+        buf.position(10);
+        buf.put(StringSerializer.get().toByteBuffer(encodedDelta));
+        buf.flip();
+        buf.position(10);
+
+        Change change = new DefaultChangeEncoder().decodeChange(TimeUUIDs.newUUID(), buf);
+        assertEquals(change.getTags(), ImmutableSet.of("a]:b", "c\"]", "caf\u00e9"));
+        assertTrue(change.getDelta() instanceof Literal);
+        LazyJsonMap map = (LazyJsonMap) ((Literal) change.getDelta()).getValue();
+        assertEquals(map.get("name"), "b\u00f6b");
+        assertFalse(map.isDeserialized());
+        assertEquals(map, ImmutableMap.of("name", "b\u00f6b", "count", 3));
+        // Decoding must not have moved the buffer
+        assertEquals(buf.position(), 10);
+    }
+
+    @Test
+    public void testDecodeD3FromDirectBuffer() {
+        String encodedDelta = "D3:[\"caf\u00e9\"]:0:{..,\"name\":\"b\u00f6b\"}";
+        byte[] bytes = StringSerializer.get().toBytes(encodedDelta);
+        ByteBuffer buf = ByteBuffer.allocateDirect(bytes.length);
+        buf.put(bytes);
+        buf.flip();
+
+        Change change = new DefaultChangeEncoder().decodeChange(TimeUUIDs.newUUID(), buf);
+        assertEquals(change.getTags(), ImmutableSet.of("caf\u00e9"));
+        assertEquals(change.getDelta().toString(), Deltas.fromString("{..,\"name\":\"b\u00f6b\"}").toString());
+        assertEquals(buf.position(), 0);
+    }
+
     @Test
     public void testDecodeCompactionWithMapLiteral() {
         String c1 = "C1:{\"count\":4,\"first\":\"6b6dff41-e50b-11e5-b18e-0e83e95d75a9\",\"cutoff\":\"741bb5bc-a5dc-11e6-8d58-123665dcce6e\"," +
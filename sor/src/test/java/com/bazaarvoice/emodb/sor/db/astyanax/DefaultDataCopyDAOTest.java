@@ -0,0 +1,99 @@
+package com.bazaarvoice.emodb.sor.db.astyanax;
+
+import com.bazaarvoice.emodb.common.dropwizard.lifecycle.LifeCycleRegistry;
+import com.bazaarvoice.emodb.sor.db.MigrationScanResult;
+import com.bazaarvoice.emodb.table.db.astyanax.AstyanaxStorage;
+import com.bazaarvoice.emodb.table.db.astyanax.DataCopyCheckpoint;
+import com.bazaarvoice.emodb.table.db.astyanax.Placement;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.Iterators;
+import com.netflix.astyanax.model.ByteBufferRange;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.fail;
+
+public class DefaultDataCopyDAOTest {
+
+    private final AstyanaxStorage _source = newStorage(1234L);
+    private final AstyanaxStorage _dest = newStorage(5678L);
+
+    @Test
+    public void testCopySkipsCheckpointedShards() {
+        DataCopyReaderDAO reader = newReader();
+        DataCopyWriterDAO writer = mock(DataCopyWriterDAO.class);
+        InMemoryCheckpoint checkpoint = new InMemoryCheckpoint();
+
+        Iterator<ByteBufferRange> ranges = _source.scanIterator(null);
+        int firstShard = AstyanaxStorage.getShardId(ranges.next().getStart());
+        checkpoint.copied(firstShard);
+
+        new DefaultDataCopyDAO(mock(LifeCycleRegistry.class), writer, reader, 4).copy(_source, _dest, checkpoint, () -> {});
+
+        // The source has 16 shards, all but the one that was already copied are copied and checkpointed.
+        verify(reader, times(15)).getDeltasForRange(eq(_source), any());
+        verify(reader, times(15)).getHistoriesForRange(eq(_source), any());
+        verify(reader, never()).getDeltasForRange(eq(_source), argThat(range -> AstyanaxStorage.getShardId(range.getStart()) == firstShard));
+        assertEquals(checkpoint._copied.size(), 16);
+    }
+
+    @Test
+    public void testFailedShardNotCheckpointed() {
+        DataCopyReaderDAO reader = newReader();
+        DataCopyWriterDAO writer = mock(DataCopyWriterDAO.class);
+        InMemoryCheckpoint checkpoint = new InMemoryCheckpoint();
+
+        int failingShard = AstyanaxStorage.getShardId(_source.scanIterator(null).next().getStart());
+        Iterator<MigrationScanResult> failingRows = Iterators.singletonIterator(mock(MigrationScanResult.class));
+        doReturn(failingRows).when(reader).getDeltasForRange(eq(_source), argThat(range -> AstyanaxStorage.getShardId(range.getStart()) == failingShard));
+        doThrow(new IllegalStateException("Lost leadership")).when(writer).copyDeltasToDestination(eq(failingRows), eq(_dest), any());
+
+        try {
+            new DefaultDataCopyDAO(mock(LifeCycleRegistry.class), writer, reader, 1).copy(_source, _dest, checkpoint, () -> {});
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals(e.getMessage(), "Lost leadership");
+        }
+        assertFalse(checkpoint.isCopied(failingShard));
+    }
+
+    private DataCopyReaderDAO newReader() {
+        DataCopyReaderDAO reader = mock(DataCopyReaderDAO.class);
+        doReturn(Collections.emptyIterator()).when(reader).getDeltasForRange(any(), any());
+        doReturn(Collections.emptyIterator()).when(reader).getHistoriesForRange(any(), any());
+        return reader;
+    }
+
+    private static AstyanaxStorage newStorage(long uuid) {
+        return new AstyanaxStorage(uuid, 4, true, "ugc_global:ugc", Suppliers.ofInstance(mock(Placement.class)));
+    }
+
+    private static class InMemoryCheckpoint implements DataCopyCheckpoint {
+        private final Set<Integer> _copied = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public boolean isCopied(int shardId) {
+            return _copied.contains(shardId);
+        }
+
+        @Override
+        public void copied(int shardId) {
+            _copied.add(shardId);
+        }
+    }
+}
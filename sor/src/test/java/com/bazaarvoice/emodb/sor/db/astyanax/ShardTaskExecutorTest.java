@@ -0,0 +1,125 @@
+package com.bazaarvoice.emodb.sor.db.astyanax;
+
+import com.bazaarvoice.emodb.common.dropwizard.lifecycle.LifeCycleRegistry;
+import com.bazaarvoice.emodb.table.db.astyanax.AstyanaxStorage;
+import com.bazaarvoice.emodb.table.db.astyanax.Placement;
+import com.google.common.base.Suppliers;
+import io.dropwizard.lifecycle.ExecutorServiceManager;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class ShardTaskExecutorTest {
+
+    private final AstyanaxStorage _storage = new AstyanaxStorage(1234L, 4, true, "ugc_global:ugc",
+            Suppliers.ofInstance(mock(Placement.class)));
+
+    @Test
+    public void testRunsEveryShard() throws Exception {
+        ShardTaskExecutor executor = new ShardTaskExecutor(mock(LifeCycleRegistry.class), "test-%d", 4);
+
+        Set<Integer> shards = ConcurrentHashMap.newKeySet();
+        executor.forEachShard(_storage, shardId -> false, (shardId, keyRange) -> shards.add(shardId));
+
+        assertEquals(shards.size(), 16);
+    }
+
+    @Test
+    public void testNoShardsStartedAfterFailure() throws Exception {
+        ShardTaskExecutor executor = new ShardTaskExecutor(mock(LifeCycleRegistry.class), "test-%d", 1);
+
+        AtomicInteger attempts = new AtomicInteger();
+        try {
+            executor.forEachShard(_storage, shardId -> false, (shardId, keyRange) -> {
+                attempts.incrementAndGet();
+                throw new IllegalStateException("Lost leadership");
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals(e.getMessage(), "Lost leadership");
+        }
+        // With a single thread the remaining shards are all queued behind the failure and skip themselves
+        assertEquals(attempts.get(), 1);
+    }
+
+    @Test
+    public void testNoShardsStartedAfterError() throws Exception {
+        ShardTaskExecutor executor = new ShardTaskExecutor(mock(LifeCycleRegistry.class), "test-%d", 1);
+
+        AtomicInteger attempts = new AtomicInteger();
+        try {
+            executor.forEachShard(_storage, shardId -> false, (shardId, keyRange) -> {
+                attempts.incrementAndGet();
+                throw new AssertionError("Unexpected state");
+            });
+            fail();
+        } catch (AssertionError e) {
+            assertEquals(e.getMessage(), "Unexpected state");
+        }
+        assertEquals(attempts.get(), 1);
+    }
+
+    @Test
+    public void testInterruptCancelsRemainingShards() throws Exception {
+        ShardTaskExecutor executor = new ShardTaskExecutor(mock(LifeCycleRegistry.class), "test-%d", 1);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+
+        Thread caller = new Thread(() -> {
+            try {
+                executor.forEachShard(_storage, shardId -> false, (shardId, keyRange) -> {
+                    attempts.incrementAndGet();
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+            } catch (Throwable t) {
+                thrown.set(t);
+            }
+        });
+        caller.start();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        // The caller returns as soon as it is interrupted, even though the first shard is still running
+        caller.interrupt();
+        caller.join(TimeUnit.SECONDS.toMillis(10));
+        assertTrue(thrown.get() instanceof InterruptedException);
+
+        // Once the running shard finishes the cancelled shards are never started.  The single thread runs tasks in
+        // order, so by the time a second pass completes every cancelled shard has been passed over.
+        release.countDown();
+        executor.forEachShard(_storage, shardId -> false, (shardId, keyRange) -> {});
+        assertEquals(attempts.get(), 1);
+    }
+
+    @Test(expectedExceptions = RejectedExecutionException.class)
+    public void testPoolStoppedWithLifeCycle() throws Exception {
+        LifeCycleRegistry lifeCycle = mock(LifeCycleRegistry.class);
+        ShardTaskExecutor executor = new ShardTaskExecutor(lifeCycle, "test-%d", 2);
+
+        ArgumentCaptor<ExecutorServiceManager> managed = ArgumentCaptor.forClass(ExecutorServiceManager.class);
+        verify(lifeCycle).manage(managed.capture());
+        managed.getValue().stop();
+
+        executor.forEachShard(_storage, shardId -> false, (shardId, keyRange) -> {});
+    }
+}
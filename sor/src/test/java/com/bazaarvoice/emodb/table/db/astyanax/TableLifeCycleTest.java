@@ -291,7 +291,7 @@ public class TableLifeCycleTest {
 
             // Did the purge method get called?
             ArgumentCaptor<AstyanaxStorage> storageCapture = ArgumentCaptor.forClass(AstyanaxStorage.class);
-            verify(usDataPurgeDAO).purge(storageCapture.capture(), Mockito.any());
+            verify(usDataPurgeDAO).purge(storageCapture.capture(), Mockito.any(), Mockito.any());
             assertTrue(storageCapture.getValue().hasUUID(getStorage(table, uuid).getUuid()));
             verifyNoMoreInteractions(usDataCopyDAO, usDataPurgeDAO);
         }
@@ -374,6 +374,59 @@ public class TableLifeCycleTest {
         }
     }
 
+    @Test
+    public void testPurgeResumesFromCheckpoint()
+            throws Exception {
+        InMemoryDataStore backingStore = newBackingStore(new MetricRegistry());
+        Date fct = new Date(0);
+        AstyanaxTableDAO tableDAO = newTableDAO(backingStore, DC_US, mock(DataCopyDAO.class), mock(DataPurgeDAO.class), fct);
+        tableDAO.create(TABLE, newOptions(PL_US), ImmutableMap.<String, Object>of("space", "test"), newAudit());
+        registerTableEventListeners(backingStore);
+        String uuid = requireNonNull(tableDAO.readTableJson(TABLE, true).getUuidString());
+        tableDAO.drop(TABLE, newAudit());
+
+        // Pretend the drop occurred long enough ago that it's time to do the purge.
+        Instant droppedAt = getStorage(tableDAO.readTableJson(TABLE, false), uuid).getTransitionedTimestamp(DROPPED)
+                .minus(AstyanaxTableDAO.DROP_TO_PURGE_1);
+        patchTableJsonTimestamp(backingStore, TABLE, format("storage.%s.droppedAt", uuid), droppedAt);
+        fct.setTime(droppedAt.toEpochMilli() + 1);
+
+        // The first attempt waits for table event listeners to acknowledge the drop.
+        DataPurgeDAO usDataPurgeDAO = mock(DataPurgeDAO.class);
+        AstyanaxTableDAO usTableDAO = newTableDAO(backingStore, DC_US, mock(DataCopyDAO.class), usDataPurgeDAO, fct);
+        try {
+            usTableDAO.performDataMaintenance(TABLE, mock(Runnable.class));
+            fail();
+        } catch (PendingTableEventsException e) {
+            // Expected
+        }
+        assertReadyTableEventPresent(backingStore, DC_US, TABLE, uuid, DROP);
+
+        // The purge completes one shard and then fails.
+        Mockito.doAnswer(invocation -> {
+            ((DataPurgeCheckpoint) invocation.getArguments()[1]).purged(3);
+            throw new IllegalStateException("Maintenance scheduler has lost leadership.");
+        }).when(usDataPurgeDAO).purge(Mockito.any(), Mockito.any(), Mockito.any());
+        try {
+            usTableDAO.performDataMaintenance(TABLE, mock(Runnable.class));
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        assertNull(getStorage(tableDAO.readTableJson(TABLE, false), uuid).getTransitionedTimestamp(PURGED_1));
+
+        // The retry skips the shard that was already purged.
+        usDataPurgeDAO = mock(DataPurgeDAO.class);
+        usTableDAO = newTableDAO(backingStore, DC_US, mock(DataCopyDAO.class), usDataPurgeDAO, fct);
+        usTableDAO.performDataMaintenance(TABLE, mock(Runnable.class));
+
+        ArgumentCaptor<DataPurgeCheckpoint> checkpoint = ArgumentCaptor.forClass(DataPurgeCheckpoint.class);
+        verify(usDataPurgeDAO).purge(Mockito.any(), checkpoint.capture(), Mockito.any());
+        assertTrue(checkpoint.getValue().isPurged(3));
+        assertFalse(checkpoint.getValue().isPurged(4));
+        assertEquals(getStorage(tableDAO.readTableJson(TABLE, false), uuid).getState(), PURGED_1);
+    }
+
     @Test
     public void testDropFacade()
             throws Exception {
@@ -502,7 +555,7 @@ public class TableLifeCycleTest {
 
             // Did the purge method get called?
             ArgumentCaptor<AstyanaxStorage> storageCapture = ArgumentCaptor.forClass(AstyanaxStorage.class);
-            verify(usDataPurgeDAO).purge(storageCapture.capture(), Mockito.any());
+            verify(usDataPurgeDAO).purge(storageCapture.capture(), Mockito.any(), Mockito.any());
             assertTrue(storageCapture.getValue().hasUUID(facade.getUuid()));
             verifyNoMoreInteractions(usDataCopyDAO, usDataPurgeDAO);
         }
@@ -809,7 +862,7 @@ public class TableLifeCycleTest {
             // Did we copy to the right place?
             ArgumentCaptor<AstyanaxStorage> src = ArgumentCaptor.forClass(AstyanaxStorage.class);
             ArgumentCaptor<AstyanaxStorage> dest = ArgumentCaptor.forClass(AstyanaxStorage.class);
-            verify(usDataCopyDAO).copy(src.capture(), dest.capture(), Mockito.any());
+            verify(usDataCopyDAO).copy(src.capture(), dest.capture(), Mockito.any(), Mockito.any());
             assertTrue(src.getValue().hasUUID(table.getMasterStorage().getUuid()));
             assertTrue(dest.getValue().hasUUID(table.getMasterStorage().getMoveTo().getUuid()));
             assertEquals(src.getValue().getPlacement().getName(), PL_US);
@@ -10,6 +10,7 @@ import com.bazaarvoice.emodb.sor.api.WriteConsistency;
 import com.bazaarvoice.emodb.sor.delta.Delta;
 
 import javax.annotation.Nullable;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.UUID;
@@ -28,5 +29,11 @@ public interface TableBackingStore {
 
     Map<String, Object> get(String table, String key, ReadConsistency consistency);
 
+    /**
+     * Returns the content of each key in a single batch, in no particular order.  Missing keys are returned as
+     * deleted content.
+     */
+    Iterator<Map<String, Object>> multiGet(String table, Collection<String> keys, ReadConsistency consistency);
+
     Iterator<Map<String, Object>> scan(String table, @Nullable String fromKeyExclusive, LimitCounter limit, ReadConsistency consistency);
 }
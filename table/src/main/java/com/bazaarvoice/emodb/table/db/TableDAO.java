@@ -14,6 +14,7 @@ import com.bazaarvoice.emodb.sor.api.UnpublishedDatabusEventType;
 import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Optional;
@@ -56,6 +57,22 @@ public interface TableDAO {
      */
     Table get(String name) throws UnknownTableException;
 
+    /**
+     * Returns the correct table/facade for the current data center for each of the named tables.  Tables which
+     * don't exist are omitted from the result.  Implementations should look up the tables in bulk where possible.
+     */
+    default Map<String, Table> getAll(Collection<String> names) {
+        Map<String, Table> tables = new HashMap<>();
+        for (String name : names) {
+            try {
+                tables.put(name, get(name));
+            } catch (UnknownTableException e) {
+                // Omit unknown tables
+            }
+        }
+        return tables;
+    }
+
     Table getByUuid(long uuid) throws UnknownTableException, DroppedTableException;
 
     Collection<String> getTablePlacements(boolean includeInternal, boolean localOnly);
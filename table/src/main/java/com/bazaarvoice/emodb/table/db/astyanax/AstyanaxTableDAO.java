@@ -29,7 +29,8 @@ import com.bazaarvoice.emodb.sor.api.UnpublishedDatabusEventType;
 import com.bazaarvoice.emodb.sor.api.Update;
 import com.bazaarvoice.emodb.sor.api.WriteConsistency;
 import com.bazaarvoice.emodb.sor.condition.Condition;
-import com.bazaarvoice.emodb.sor.condition.eval.ConditionEvaluator;
+import com.bazaarvoice.emodb.sor.condition.eval.ConditionCompiler;
+import com.bazaarvoice.emodb.sor.condition.eval.ConditionMatcher;
 import com.bazaarvoice.emodb.sor.delta.Delta;
 import com.bazaarvoice.emodb.sor.delta.Deltas;
 import com.bazaarvoice.emodb.sor.uuid.TimeUUIDs;
@@ -825,7 +826,38 @@ public class AstyanaxTableDAO implements TableDAO, MaintenanceDAO, StashTableDAO
                 .set("_uuid", storage.getUuidString())
                 .set("_placement", storage.getPlacement())
                 .build());
-        _dataPurgeDAO.purge(newAstyanaxStorage(storage, json.getTable()), rateLimitedProgress);
+        _dataPurgeDAO.purge(newAstyanaxStorage(storage, json.getTable()), newPurgeCheckpoint(json, storage, iteration),
+                rateLimitedProgress);
+    }
+
+    /**
+     * Returns a checkpoint that records purged shards on the dropped storage so a purge that's interrupted resumes
+     * with the shards that remain.  Each iteration is tracked separately since the second iteration must revisit
+     * every shard to catch stragglers.
+     */
+    private DataPurgeCheckpoint newPurgeCheckpoint(final TableJson json, final Storage storage, final int iteration) {
+        final Set<Integer> purgedShards = storage.getPurgedShards(iteration);
+        if (!purgedShards.isEmpty()) {
+            _log.info("Resuming purge for table '{}' and table uuid '{}' with {} shards already purged.",
+                    json.getTable(), storage.getUuidString(), purgedShards.size());
+        }
+        return new DataPurgeCheckpoint() {
+            @Override
+            public boolean isPurged(int shardId) {
+                return purgedShards.contains(shardId);
+            }
+
+            @Override
+            public void purged(int shardId) {
+                Audit audit = new AuditBuilder()
+                        .set("_op", "doPurgeShard" + iteration)
+                        .set("_uuid", storage.getUuidString())
+                        .set("_shard", shardId)
+                        .build();
+                // Like copy checkpoints, only the purge itself reads these so caches aren't invalidated.
+                updateTableMetadata(json.getTable(), json.newPurgeShardPurged(storage, iteration, shardId), audit, null);
+            }
+        };
     }
 
     /**
@@ -1054,7 +1086,39 @@ public class AstyanaxTableDAO implements TableDAO, MaintenanceDAO, StashTableDAO
                 .set("_destUuid", dest.getUuidString())
                 .set("_destPlacement", dest.getPlacement())
                 .build());
-        _dataCopyDAO.copy(newAstyanaxStorage(src, json.getTable()), newAstyanaxStorage(dest, json.getTable()), rateLimitedProgress);
+        _dataCopyDAO.copy(newAstyanaxStorage(src, json.getTable()), newAstyanaxStorage(dest, json.getTable()),
+                newCopyCheckpoint(json, src, dest), rateLimitedProgress);
+    }
+
+    /**
+     * Returns a checkpoint that records copied shards on the destination storage so a copy that's interrupted, for
+     * example by a restart or loss of leadership, resumes with the shards that remain instead of starting over.
+     */
+    private DataCopyCheckpoint newCopyCheckpoint(final TableJson json, final Storage src, final Storage dest) {
+        final Set<Integer> copiedShards = dest.getCopiedShards(src);
+        if (!copiedShards.isEmpty()) {
+            _log.info("Resuming copy for table '{}' from {} with {} shards already copied.",
+                    json.getTable(), src.getUuidString(), copiedShards.size());
+        }
+        return new DataCopyCheckpoint() {
+            @Override
+            public boolean isCopied(int shardId) {
+                return copiedShards.contains(shardId);
+            }
+
+            @Override
+            public void copied(int shardId) {
+                Audit audit = new AuditBuilder()
+                        .set("_op", "doCopyShard")
+                        .set("_uuid", src.getUuidString())
+                        .set("_destUuid", dest.getUuidString())
+                        .set("_shard", shardId)
+                        .build();
+                // Only the copy itself reads checkpoints, and it always runs in the same data center, so there's
+                // no need to write globally or invalidate table caches.
+                updateTableMetadata(json.getTable(), json.newMoveShardCopied(src, dest, shardId), audit, null);
+            }
+        };
     }
 
     private void movePromote(TableJson json, Storage mirror) {
@@ -1154,6 +1218,32 @@ public class AstyanaxTableDAO implements TableDAO, MaintenanceDAO, StashTableDAO
         return table;
     }
 
+    @Override
+    public Map<String, Table> getAll(Collection<String> names) {
+        Map<String, Table> tables = Maps.newHashMapWithExpectedSize(names.size());
+        List<String> keys = Lists.newArrayListWithCapacity(names.size());
+        for (String name : names) {
+            Table table = loadBootstrapTable(name);
+            if (table != null) {
+                tables.put(name, table);
+            } else {
+                keys.add(name);
+            }
+        }
+
+        if (!keys.isEmpty()) {
+            // Read the metadata for the remaining tables from the DataStore in a single batch
+            Iterator<Map<String, Object>> jsonIter = _backingStore.multiGet(_systemTable, keys, ReadConsistency.STRONG);
+            while (jsonIter.hasNext()) {
+                Table table = tableFromJson(new TableJson(jsonIter.next()));
+                if (table != null) {
+                    tables.put(table.getName(), table);
+                }
+            }
+        }
+        return tables;
+    }
+
     @Override
     public Table getByUuid(long uuid)
             throws UnknownTableException, DroppedTableException {
@@ -1518,6 +1608,8 @@ public class AstyanaxTableDAO implements TableDAO, MaintenanceDAO, StashTableDAO
         // Since we need to snapshot the TableJson call the backing store directly.
         final Iterator<Map<String, Object>> tableIter =
                 _backingStore.scan(_systemTable, null, LimitCounter.max(), ReadConsistency.STRONG);
+        // The same condition is evaluated against every table, so compile it once
+        final ConditionMatcher blackListTableMatcher = ConditionCompiler.compile(blackListTableCondition);
 
         while (tableIter.hasNext()) {
             TableJson tableJson = new TableJson(tableIter.next());
@@ -1527,7 +1619,7 @@ public class AstyanaxTableDAO implements TableDAO, MaintenanceDAO, StashTableDAO
                 String placementName = readStorage.getPlacement().getName();
                 if (placements.contains(placementName)) {
                     // don't add the token ranges for the table mentioned in the blackList condition.
-                    if (!isTableBlacklisted(table, blackListTableCondition)) {
+                    if (!isTableBlacklisted(table, blackListTableMatcher)) {
                         _stashTableDao.addTokenRangesForTable(stashId, readStorage, tableJson);
                     }
                 }
@@ -1620,8 +1712,12 @@ public class AstyanaxTableDAO implements TableDAO, MaintenanceDAO, StashTableDAO
 
     @VisibleForTesting
     static boolean isTableBlacklisted(Table table, Condition blackListTableCondition) {
+        return isTableBlacklisted(table, ConditionCompiler.compile(blackListTableCondition));
+    }
+
+    private static boolean isTableBlacklisted(Table table, ConditionMatcher blackListTableMatcher) {
         Map<String, Object> tableAttributes = table.getAttributes();
-        return ConditionEvaluator.eval(blackListTableCondition, tableAttributes, new TableFilterIntrinsics(table));
+        return blackListTableMatcher.matches(tableAttributes, new TableFilterIntrinsics(table));
     }
 
     /*
@@ -0,0 +1,13 @@
+package com.bazaarvoice.emodb.table.db.astyanax;
+
+/**
+ * Tracks which shards of a source storage have been copied by {@link DataCopyDAO#copy}.
+ */
+public interface DataCopyCheckpoint {
+
+    /** Returns true if the shard was copied by a previous, interrupted attempt and may be skipped. */
+    boolean isCopied(int shardId);
+
+    /** Records that every row in the shard has been copied. */
+    void copied(int shardId);
+}
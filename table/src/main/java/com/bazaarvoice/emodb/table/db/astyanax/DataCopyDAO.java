@@ -1,5 +1,11 @@
 package com.bazaarvoice.emodb.table.db.astyanax;
 
 public interface DataCopyDAO {
-    void copy(AstyanaxStorage source, AstyanaxStorage dest, Runnable progress);
+    /**
+     * Copies all data in {@code source} to {@code dest}, one source shard at a time.  Shards the checkpoint reports
+     * as already copied are skipped, and the checkpoint is notified as each remaining shard completes so an
+     * interrupted copy resumes where it left off.  Shards may be copied concurrently, so the checkpoint and
+     * {@code progress} must be thread-safe.
+     */
+    void copy(AstyanaxStorage source, AstyanaxStorage dest, DataCopyCheckpoint checkpoint, Runnable progress);
 }
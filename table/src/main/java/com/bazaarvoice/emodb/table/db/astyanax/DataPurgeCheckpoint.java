@@ -0,0 +1,25 @@
+package com.bazaarvoice.emodb.table.db.astyanax;
+
+/**
+ * Tracks which shards of a storage have been purged by {@link DataPurgeDAO#purge}.
+ */
+public interface DataPurgeCheckpoint {
+
+    /** A checkpoint that records nothing, for purges which always cover every shard. */
+    DataPurgeCheckpoint NONE = new DataPurgeCheckpoint() {
+        @Override
+        public boolean isPurged(int shardId) {
+            return false;
+        }
+
+        @Override
+        public void purged(int shardId) {
+        }
+    };
+
+    /** Returns true if the shard was purged by a previous, interrupted attempt and may be skipped. */
+    boolean isPurged(int shardId);
+
+    /** Records that every row in the shard has been deleted. */
+    void purged(int shardId);
+}
@@ -1,5 +1,10 @@
 package com.bazaarvoice.emodb.table.db.astyanax;
 
 public interface DataPurgeDAO {
-    void purge(AstyanaxStorage storage, Runnable progress);
+    /**
+     * Deletes all data in {@code storage}, one shard at a time.  Shards the checkpoint reports as already purged are
+     * skipped, and the checkpoint is notified as each remaining shard completes so an interrupted purge resumes where
+     * it left off.  Shards may be purged concurrently, so the checkpoint and {@code progress} must be thread-safe.
+     */
+    void purge(AstyanaxStorage storage, DataPurgeCheckpoint checkpoint, Runnable progress);
 }
@@ -7,9 +7,12 @@ import com.google.common.collect.Ordering;
 
 import java.time.Instant;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static com.bazaarvoice.emodb.table.db.astyanax.RowKeyUtils.LEGACY_SHARDS_LOG2;
@@ -108,6 +111,16 @@ class Storage extends JsonMap implements Comparable<Storage> {
      */
     static final Attribute<Boolean> IS_PLACEMENT_MOVE = Attribute.create("placementMove");
 
+    /**
+     * Storage-level map of source table uuid to the shards of that source which have been copied into this mirror.
+     */
+    static final Attribute<Map<String, Map<String, Object>>> COPIED_SHARDS = Attribute.create("copiedShards");
+
+    /**
+     * Storage-level map of purge iteration to the shards of this dropped storage which that iteration has purged.
+     */
+    static final Attribute<Map<String, Map<String, Object>>> PURGED_SHARDS = Attribute.create("purgedShards");
+
     private final String _uuid;
     private final boolean _masterPrimary;
     private List<Storage> _group;
@@ -233,6 +246,33 @@ class Storage extends JsonMap implements Comparable<Storage> {
         return hasTransitioned(StorageState.MIRROR_EXPIRED);
     }
 
+    /**
+     * Returns the ids of the shards of {@code source} that a previous copy into this mirror already completed.
+     */
+    Set<Integer> getCopiedShards(Storage source) {
+        return getShards(COPIED_SHARDS, source.getUuidString());
+    }
+
+    /**
+     * Returns the ids of the shards of this dropped storage that a previous attempt at the purge iteration deleted.
+     */
+    Set<Integer> getPurgedShards(int iteration) {
+        return getShards(PURGED_SHARDS, Integer.toString(iteration));
+    }
+
+    private Set<Integer> getShards(Attribute<Map<String, Map<String, Object>>> attribute, String key) {
+        Map<String, Map<String, Object>> shardsByKey = get(attribute);
+        Map<String, Object> shards = shardsByKey != null ? shardsByKey.get(key) : null;
+        if (shards == null) {
+            return Collections.emptySet();
+        }
+        Set<Integer> shardIds = new HashSet<>();
+        for (String shardId : shards.keySet()) {
+            shardIds.add(Integer.parseInt(shardId));
+        }
+        return shardIds;
+    }
+
     UUID getPromotionId() {
         String promotionId = get(PROMOTION_ID);
         return promotionId != null ? UUID.fromString(promotionId) : null;
@@ -281,6 +281,7 @@ class TableJson extends JsonMap {
                                 .update(StorageState.MIRROR_CONSISTENT.getMarkerAttribute().key(), consistentMarker)
                                 .remove(Storage.MOVE_TO.key())
                                 .remove(Storage.PROMOTION_ID.key())
+                                .remove(Storage.COPIED_SHARDS.key())
                                 .remove(StorageState.PRIMARY.getMarkerAttribute().key())
                                 .remove(StorageState.MIRROR_EXPIRING.getMarkerAttribute().key())
                                 .remove(StorageState.MIRROR_EXPIRED.getMarkerAttribute().key())
@@ -321,6 +322,36 @@ class TableJson extends JsonMap {
                 .build();
     }
 
+    Delta newMoveShardCopied(Storage src, Storage dest, int shardId) {
+        // Uses conditional deltas to avoid accidentally creating/resurrecting storage objects.
+        return Deltas.mapBuilder()
+                .updateIfExists(STORAGE.key(), Deltas.mapBuilder()
+                        .updateIfExists(dest.getUuidString(), Deltas.mapBuilder()
+                                .update(Storage.COPIED_SHARDS.key(), Deltas.mapBuilder()
+                                        .update(src.getUuidString(), Deltas.mapBuilder()
+                                                .put(Integer.toString(shardId), now())
+                                                .build())
+                                        .build())
+                                .build())
+                        .build())
+                .build();
+    }
+
+    Delta newPurgeShardPurged(Storage storage, int iteration, int shardId) {
+        // Uses conditional deltas to avoid accidentally creating/resurrecting storage objects.
+        return Deltas.mapBuilder()
+                .updateIfExists(STORAGE.key(), Deltas.mapBuilder()
+                        .updateIfExists(storage.getUuidString(), Deltas.mapBuilder()
+                                .update(Storage.PURGED_SHARDS.key(), Deltas.mapBuilder()
+                                        .update(Integer.toString(iteration), Deltas.mapBuilder()
+                                                .put(Integer.toString(shardId), now())
+                                                .build())
+                                        .build())
+                                .build())
+                        .build())
+                .build();
+    }
+
     Delta newNextState(String storageUuid, StorageState state, Object markerValue) {
         if (markerValue instanceof Instant) {
             markerValue = TimestampAttribute.format((Instant) markerValue);
@@ -13,24 +13,35 @@ import com.datastax.driver.core.VersionNumber;
 import com.datastax.driver.core.exceptions.NoHostAvailableException;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.management.AttributeNotFoundException;
 import javax.management.InstanceNotFoundException;
 import javax.management.MBeanException;
 import javax.management.MalformedObjectNameException;
 import javax.management.ObjectName;
 import javax.management.ReflectionException;
+import java.io.Closeable;
 import java.io.IOException;
+import java.net.InetAddress;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static java.lang.String.format;
 
-public class ClusterHintsPoller {
+public class ClusterHintsPoller implements Closeable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ClusterHintsPoller.class);
 
@@ -49,6 +60,25 @@ public class ClusterHintsPoller {
     protected static final String OLDEST_HINT_QUERY_FORMAT = "SELECT hint_id FROM hints WHERE target_id IN (%s) ORDER BY hint_id ASC LIMIT 1";
 
     /**
+     * Maximum number of hosts polled at the same time.  Each poll is one or two small queries or a JMX call, so this
+     * mainly bounds the number of connections opened at once on large rings.
+     */
+    private static final int MAX_CONCURRENT_POLLS = 16;
+
+    private final ExecutorService _executor = Executors.newFixedThreadPool(MAX_CONCURRENT_POLLS,
+            new ThreadFactoryBuilder().setNameFormat("ClusterHintsPoller-%d").setDaemon(true).build());
+
+    /**
+     * Releases the threads used to poll hosts.  The poller can't be used once closed.
+     */
+    @Override
+    public void close() {
+        _executor.shutdown();
+    }
+
+    /**
+     * Polls every host in the ring concurrently.  A host that can't be polled is reported as a failure without
+     * affecting the results for the other hosts.
      * @return HintsPollerResult that has results from the HintsPoller for the entire ring
      */
     public HintsPollerResult getOldestHintsInfo(Session session) {
@@ -58,95 +88,115 @@ public class ClusterHintsPoller {
         LOGGER.debug("Connected to cluster: '{}'\n", clusterName);
         Metadata metadata = cluster.getMetadata();
 
+        Map<Host, Future<Optional<Long>>> futures = new LinkedHashMap<>();
+        for (Host host : metadata.getAllHosts()) {
+            futures.put(host, _executor.submit(() -> getOldestHint(session, clusterName, host)));
+        }
+
+        for (Map.Entry<Host, Future<Optional<Long>>> entry : futures.entrySet()) {
+            InetAddress address = entry.getKey().getAddress();
+            Optional<Long> oldestHint;
+            try {
+                oldestHint = entry.getValue().get();
+            } catch (ExecutionException e) {
+                throw Throwables.propagate(e.getCause());
+            } catch (InterruptedException e) {
+                throw Throwables.propagate(e);
+            }
+            if (oldestHint != null) {
+                hintsPollerResult.setHintsResult(address, oldestHint);
+            } else {
+                hintsPollerResult.setHostWithFailure(address);
+            }
+        }
+
+        return hintsPollerResult;
+    }
+
+    /**
+     * Returns the timestamp of the oldest hint on the host, an absent optional if the host has no hints, or null if
+     * the host couldn't be polled.
+     */
+    @Nullable
+    private Optional<Long> getOldestHint(Session session, String clusterName, Host host) {
+        LOGGER.debug("Looking for hints on host: '{}'\n", host.getAddress());
+
         // Support for the min() aggregate function was only added from CQL 3.3.0 and C* 2.0.17 uses 3.1.7:
         // String hintIdsQuery = "SELECT min(hint_id) AS old_hint_id FROM hints";
 
         // ORDER BY is only supported when the partition key is restricted by an EQ or an IN. So, we cannot run the below query.
         // String hintIdsQuery = "SELECT hint_id FROM hints ORDER BY hint_id ASC LIMIT 1";
 
-        for (Host host : metadata.getAllHosts()) {
-            LOGGER.debug("Looking for hints on host: '{}'\n", host.getAddress());
-
-            VersionNumber cassandraVersion = host.getCassandraVersion();
-            // TODO rewrite to use org.apache.cassandra.metrics:type=HintsService during C* 3.11 migration
-            if (CASSANDRA_VERSION_3_0_0.compareTo(cassandraVersion) <= 0) {
-                try (JmxClient jmxClient = new JmxClient(host.getAddress().getHostName(), DEFAULT_CASSANDRA_JMX_PORT)) {
-                    ObjectName name = new ObjectName("org.apache.cassandra.metrics:type=Storage,name=TotalHintsInProgress");
-                    long hintsInProgressCount = (Long) jmxClient.getAttribute(name, "Count");
-                    if (hintsInProgressCount > 0) {
-                        LOGGER.debug("In progress hints found on host: {}", host.getAddress());
-                        hintsPollerResult.setHostWithFailure(host.getAddress());
-                    } else {
-                        hintsPollerResult.setHintsResult(host.getAddress(), Optional.empty());
-                    }
-                } catch (IOException | MalformedObjectNameException | AttributeNotFoundException | InstanceNotFoundException | MBeanException | ReflectionException e) {
-                    LOGGER.warn("Couldn't fetch Hints JMX metrics on host: '{}'\n{}", host.getAddress(), e.getMessage());
-                    // This means we were not able to check the hints on this host - host may be down or a connection problem.
-                    // If so, just return null - hints on other hosts doesn't matter.
-                    return hintsPollerResult.setHostWithFailure(host.getAddress());
-                }
-            } else {
-                long startTime = System.currentTimeMillis();
-
-                // To bypass the restriction for this version of CQL, we query the targetIds first and pass them in a IN for the hints query.
-                // We could also get all the Node names from the cluster's metadata and just pass them as TargetIds for the IN condition in the hints query.
-                ResultSet targetIdsResult;
-                try {
-                    targetIdsResult = session.execute(new SelectedHostStatement(new SimpleStatement(DISTINCT_TARGET_IDS_QUERY), host));
-                } catch (NoHostAvailableException ex) {
-                    LOGGER.warn("Couldn't run the target Ids query on host: '{}'\n", host.getAddress());
-                    // This means we were not able to check the hints on this host - host may be down or a connection problem.
-                    // If so, just return null - hints on other hosts doesn't matter.
-                    return hintsPollerResult.setHostWithFailure(host.getAddress());
-                }
-                List<UUID> targetIds = new ArrayList<>();
-                for (Row row : targetIdsResult) {
-                    targetIds.add(row.getUUID("target_id"));
-                }
-                // If no targetIDs are found, then it means there are not hints on the node. No need to query for oldest hint.
-                if (targetIds.isEmpty()) {
-                    LOGGER.debug("Cassandra cluster: '{}', Node: '{}',  NO hints", clusterName, host);
-                    hintsPollerResult.setHintsResult(host.getAddress(), Optional.empty());
-                    continue;
+        VersionNumber cassandraVersion = host.getCassandraVersion();
+        // TODO rewrite to use org.apache.cassandra.metrics:type=HintsService during C* 3.11 migration
+        if (CASSANDRA_VERSION_3_0_0.compareTo(cassandraVersion) <= 0) {
+            try (JmxClient jmxClient = new JmxClient(host.getAddress().getHostName(), DEFAULT_CASSANDRA_JMX_PORT)) {
+                ObjectName name = new ObjectName("org.apache.cassandra.metrics:type=Storage,name=TotalHintsInProgress");
+                long hintsInProgressCount = (Long) jmxClient.getAttribute(name, "Count");
+                if (hintsInProgressCount > 0) {
+                    LOGGER.debug("In progress hints found on host: {}", host.getAddress());
+                    return null;
                 }
+                return Optional.empty();
+            } catch (IOException | MalformedObjectNameException | AttributeNotFoundException | InstanceNotFoundException | MBeanException | ReflectionException e) {
+                LOGGER.warn("Couldn't fetch Hints JMX metrics on host: '{}'\n{}", host.getAddress(), e.getMessage());
+                // This means we were not able to check the hints on this host - host may be down or a connection problem.
+                return null;
+            }
+        }
 
-                String hintIdsQuery = format(OLDEST_HINT_QUERY_FORMAT, Joiner.on(",").join(targetIds));
-                ResultSet hintIdsResult;
-                try {
-                    hintIdsResult = session.execute(new SelectedHostStatement(new SimpleStatement(hintIdsQuery), host));
-                } catch (NoHostAvailableException ex) {
-                    LOGGER.warn("Couldn't run the hint Ids query on host: '{}'\n", host.getAddress());
-                    // This means we were not able check the hints on this host - host may be down or a connection problem.
-                    // If so, just return null - hints on other hosts doesn't matter.
-                    return hintsPollerResult.setHostWithFailure(host.getAddress());
-                }
+        long startTime = System.currentTimeMillis();
+
+        // To bypass the restriction for this version of CQL, we query the targetIds first and pass them in a IN for the hints query.
+        // We could also get all the Node names from the cluster's metadata and just pass them as TargetIds for the IN condition in the hints query.
+        ResultSet targetIdsResult;
+        try {
+            targetIdsResult = session.execute(new SelectedHostStatement(new SimpleStatement(DISTINCT_TARGET_IDS_QUERY), host));
+        } catch (NoHostAvailableException ex) {
+            LOGGER.warn("Couldn't run the target Ids query on host: '{}'\n", host.getAddress());
+            // This means we were not able to check the hints on this host - host may be down or a connection problem.
+            return null;
+        }
+        List<UUID> targetIds = new ArrayList<>();
+        for (Row row : targetIdsResult) {
+            targetIds.add(row.getUUID("target_id"));
+        }
+        // If no targetIDs are found, then it means there are not hints on the node. No need to query for oldest hint.
+        if (targetIds.isEmpty()) {
+            LOGGER.debug("Cassandra cluster: '{}', Node: '{}',  NO hints", clusterName, host);
+            return Optional.empty();
+        }
 
-                Row oldestHintId;
-                if ((oldestHintId = hintIdsResult.one()) == null) {
-                    // It is possible that by this time all hints were cleared, and we returned nothing
-                    LOGGER.debug("Cassandra cluster: '{}', Node: '{}',  NO hints", clusterName, host);
-                    hintsPollerResult.setHintsResult(host.getAddress(), Optional.empty());
-                    continue;
-                }
+        String hintIdsQuery = format(OLDEST_HINT_QUERY_FORMAT, Joiner.on(",").join(targetIds));
+        ResultSet hintIdsResult;
+        try {
+            hintIdsResult = session.execute(new SelectedHostStatement(new SimpleStatement(hintIdsQuery), host));
+        } catch (NoHostAvailableException ex) {
+            LOGGER.warn("Couldn't run the hint Ids query on host: '{}'\n", host.getAddress());
+            // This means we were not able check the hints on this host - host may be down or a connection problem.
+            return null;
+        }
 
-                UUID oldHintTimeUUID = oldestHintId.getUUID("hint_id");
+        Row oldestHintId;
+        if ((oldestHintId = hintIdsResult.one()) == null) {
+            // It is possible that by this time all hints were cleared, and we returned nothing
+            LOGGER.debug("Cassandra cluster: '{}', Node: '{}',  NO hints", clusterName, host);
+            return Optional.empty();
+        }
 
-                long stopTime = System.currentTimeMillis();
-                long elapsedTime = stopTime - startTime;
-                LOGGER.debug("Time taken to execute query: " + elapsedTime);
+        UUID oldHintTimeUUID = oldestHintId.getUUID("hint_id");
 
-                if (oldHintTimeUUID != null) {
-                    long timeInMillis = TimeUUIDs.getTimeMillis(oldHintTimeUUID);
-                    LOGGER.debug("Cassandra cluster: '{}', Node: '{}', Oldest hint time: '{}'", clusterName, host, timeInMillis);
+        long stopTime = System.currentTimeMillis();
+        long elapsedTime = stopTime - startTime;
+        LOGGER.debug("Time taken to execute query: " + elapsedTime);
 
-                    hintsPollerResult.setHintsResult(host.getAddress(), Optional.of(timeInMillis));
-                } else {
-                    LOGGER.debug("Cassandra cluster: '{}', Node: '{}',  NO hints", clusterName, host);
-                    hintsPollerResult.setHintsResult(host.getAddress(), Optional.empty());
-                }
-            }
+        if (oldHintTimeUUID == null) {
+            LOGGER.debug("Cassandra cluster: '{}', Node: '{}',  NO hints", clusterName, host);
+            return Optional.empty();
         }
 
-        return hintsPollerResult;
+        long timeInMillis = TimeUUIDs.getTimeMillis(oldHintTimeUUID);
+        LOGGER.debug("Cassandra cluster: '{}', Node: '{}', Oldest hint time: '{}'", clusterName, host, timeInMillis);
+        return Optional.of(timeInMillis);
     }
 }
@@ -76,6 +76,8 @@ public class HintsPollerManager implements Managed {
             leaderService.stopAsync();
             leaderService.awaitTerminated();
         }
+        // The pollers have stopped, so nothing else will use the poller's threads
+        _clusterHintsPoller.close();
     }
 
     public List<LeaderService> getLeaderServices(final Map<String, ValueStore<Long>> timestampCache,
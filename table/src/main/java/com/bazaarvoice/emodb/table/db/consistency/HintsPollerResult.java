@@ -49,6 +49,13 @@ public class HintsPollerResult {
         return Optional.of(Collections.min(hostsWithHints.values()));
     }
 
+    /**
+     * @return the oldest hint's timestamp for each host that was polled successfully, absent if it has no hints.
+     */
+    public Map<InetAddress, Optional<Long>> getHintsInfo() {
+        return Collections.unmodifiableMap(_hintsInfo);
+    }
+
     public Set<InetAddress> getHostFailure() {
         return _hostFailure;
     }
@@ -6,6 +6,8 @@ import com.codahale.metrics.MetricRegistry;
 import com.datastax.driver.core.Session;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
 import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.AbstractScheduledService;
 import org.slf4j.Logger;
@@ -13,6 +15,8 @@ import org.slf4j.LoggerFactory;
 
 import java.net.InetAddress;
 import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -22,12 +26,24 @@ import static java.util.Objects.requireNonNull;
 /**
  * Polls to check if there are any hinted handoffs in any of the nodes in the SoR cluster
  * <p/>
- * HintsPoller is a single process in the EmoDB cluster. Polls the cassandra cluster every 5 minutes.
+ * HintsPoller is a single process in the EmoDB cluster.  It polls the cassandra cluster every 10 seconds while any
+ * node has hints, so the full consistency timestamp moves forward soon after the hints are delivered, and backs off
+ * to once a minute while the cluster is clean.
+ * <p/>
+ * Each node's consistency watermark is tracked separately: a node reporting no hints is consistent up to the time of
+ * the poll, a node with hints is consistent up to its oldest hint.  A node that can't be polled keeps the watermark
+ * from its last successful poll, which remains valid since hints written later are newer, so one unreachable node
+ * holds the timestamp back instead of preventing every update.
  */
 public class HintsPollerService extends AbstractScheduledService {
     private static final Logger _log = LoggerFactory.getLogger(HintsPollerService.class);
 
-    private static final Duration POLL_INTERVAL = Duration.ofMinutes(5);
+    @VisibleForTesting
+    protected static final Duration MIN_POLL_INTERVAL = Duration.ofSeconds(10);
+
+    // Full consistency includes a minimum lag of several minutes, so polling a clean cluster more often wouldn't help
+    @VisibleForTesting
+    protected static final Duration MAX_POLL_INTERVAL = Duration.ofMinutes(1);
 
     @VisibleForTesting
     protected static final Duration CASSANDRA_RPC_TIMEOUT = Duration.ofSeconds(10);
@@ -37,6 +53,8 @@ public class HintsPollerService extends AbstractScheduledService {
     private final Session _cqlSession;
     @VisibleForTesting
     protected Set<InetAddress> _hosts = Sets.newHashSet();
+    private final Map<InetAddress, Long> _watermarks = Maps.newHashMap();
+    private volatile Duration _pollInterval = Duration.ZERO;
 
     private final ClusterHintsPoller _clusterHintsPoller;
 
@@ -52,9 +70,19 @@ public class HintsPollerService extends AbstractScheduledService {
         return _timestamp;
     }
 
+    @VisibleForTesting
+    protected Duration getPollInterval() {
+        return _pollInterval;
+    }
+
     @Override
     protected Scheduler scheduler() {
-        return Scheduler.newFixedDelaySchedule(0, POLL_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+        return new CustomScheduler() {
+            @Override
+            protected Schedule getNextSchedule() {
+                return new Schedule(_pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        };
     }
 
     @Override
@@ -74,36 +102,52 @@ public class HintsPollerService extends AbstractScheduledService {
         //   time_no_hints_reported - 2 * rpc_timeout_in_ms (property in cassandra for rpc timeouts)
         // Where rpc_timeout_in_ms is configured to 10 seconds.
         // Ideally, we would get this value by querying Cassandra instead of hard-coding it here.
-        long timestamp = System.currentTimeMillis() - (CASSANDRA_RPC_TIMEOUT.toMillis() * 2);
+        long pollTimestamp = System.currentTimeMillis() - (CASSANDRA_RPC_TIMEOUT.toMillis() * 2);
 
         HintsPollerResult oldestHintsInfo = _clusterHintsPoller.getOldestHintsInfo(_cqlSession);
 
-        // If we were not able to run the hints query on any node, then
-        // we don't want to update the Full Consistency Timestamp (FCT).
-        Joiner joiner = Joiner.on(",");
-        if (!oldestHintsInfo.areAllHostsPolling()) {
-            _log.warn("Host {} is failing the polling request.", oldestHintsInfo.getHostFailure().iterator().next());
-            return;
-        }
-
         // Cache the hosts and log when a change is observed
+        Joiner joiner = Joiner.on(",");
         Set<InetAddress> hostsPolled = oldestHintsInfo.getAllPolledHosts();
         if (!_hosts.equals(hostsPolled)) {
             _log.info("Ring for {} is updated. Total nodes: {}. Newly added nodes are: {}; Nodes that left are: {}",
                     _clusterName,
                     hostsPolled.size(), joiner.join(Sets.difference(hostsPolled, _hosts)),
                     joiner.join(Sets.difference(_hosts, hostsPolled)));
-            _hosts = hostsPolled;
+            _hosts = Sets.newHashSet(hostsPolled);
+        }
+
+        // Move the watermark of every host that was polled successfully.  Hosts that failed keep their last watermark.
+        _watermarks.keySet().retainAll(hostsPolled);
+        boolean hintsFound = false;
+        for (Map.Entry<InetAddress, Optional<Long>> entry : oldestHintsInfo.getHintsInfo().entrySet()) {
+            Optional<Long> oldestHint = entry.getValue();
+            hintsFound |= oldestHint.isPresent();
+            _watermarks.put(entry.getKey(),
+                    oldestHint.map(hintTimestamp -> hintTimestamp - (CASSANDRA_RPC_TIMEOUT.toMillis() * 2)).orElse(pollTimestamp));
         }
 
-        // Get oldest hint from the ring. Note an absent optional means there are no hints
-        Optional<Long> oldestHintTimeInRing = oldestHintsInfo.getOldestHintTimestamp();
+        // Poll again soon while hints exist or hosts are failing, otherwise back off
+        _pollInterval = hintsFound || !oldestHintsInfo.areAllHostsPolling() ?
+                MIN_POLL_INTERVAL :
+                Ordering.natural().min(MAX_POLL_INTERVAL, Ordering.natural().max(MIN_POLL_INTERVAL, _pollInterval.multipliedBy(2)));
 
-        // If there are any hints, take the oldest hint timestamp else go with the current timestamp
-        if (oldestHintTimeInRing.isPresent()) {
-            timestamp = oldestHintTimeInRing.get() - (CASSANDRA_RPC_TIMEOUT.toMillis() * 2);
+        if (!oldestHintsInfo.areAllHostsPolling()) {
+            _log.warn("Hosts {} are failing the polling request.", joiner.join(oldestHintsInfo.getHostFailure()));
         }
 
+        // If a host has never been polled successfully then we don't want to update the Full Consistency Timestamp (FCT).
+        Set<InetAddress> hostsWithoutWatermark = Sets.difference(hostsPolled, _watermarks.keySet());
+        if (!hostsWithoutWatermark.isEmpty()) {
+            _log.warn("Host {} has not been polled successfully yet.", hostsWithoutWatermark.iterator().next());
+            return;
+        }
+        if (_watermarks.isEmpty()) {
+            return;
+        }
+
+        long timestamp = Collections.min(_watermarks.values());
+
         // Update ZooKeeper with the poll time.
         _timestamp.set(timestamp);
 
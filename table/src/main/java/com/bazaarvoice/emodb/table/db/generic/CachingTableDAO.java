@@ -2,6 +2,7 @@ package com.bazaarvoice.emodb.table.db.generic;
 
 import com.bazaarvoice.emodb.cachemgr.api.CacheRegistry;
 import com.bazaarvoice.emodb.common.api.impl.LimitCounter;
+import com.bazaarvoice.emodb.common.dropwizard.lifecycle.LifeCycleRegistry;
 import com.bazaarvoice.emodb.common.dropwizard.time.ClockTicker;
 import com.bazaarvoice.emodb.sor.api.Audit;
 import com.bazaarvoice.emodb.sor.api.FacadeExistsException;
@@ -18,10 +19,22 @@ import com.bazaarvoice.emodb.table.db.Table;
 import com.bazaarvoice.emodb.table.db.TableDAO;
 import com.bazaarvoice.emodb.table.db.TableSet;
 import com.codahale.metrics.annotation.Timed;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.inject.Inject;
+import io.dropwizard.lifecycle.ExecutorServiceManager;
 
 import javax.annotation.Nullable;
 import java.time.Clock;
@@ -30,8 +43,13 @@ import java.time.Instant;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import static java.lang.String.format;
@@ -42,27 +60,45 @@ import static java.util.Objects.requireNonNull;
  * is that servers must globally coordinate changes to table metadata because the consequences of using out-of-date
  * cached table metadata are pretty severe.
  * <p>
+ * Tables which are in use are reloaded in the background before their cached metadata expires, so callers don't
+ * block on reloading the metadata for every table they touch each time the cache expires.  Background reloads and
+ * {@link #getAll(Collection)} read the metadata for many tables at once.
+ * <p>
  * This class assumes that create/drop operations are protected/wrapped by {@link MutexTableDAO}.
  */
 public class CachingTableDAO implements TableDAO {
     // If a table is unknown cache that for a much shorter time to minimize the effect of invalidation delays
     public static final Duration UNKNOWN_TABLE_RELOAD_DURATION = Duration.ofSeconds(2);
     public static final Duration CACHE_DURATION = Duration.ofMinutes(10);
+    // Tables accessed after this long are reloaded in the background while the cached metadata is still returned
+    public static final Duration REFRESH_DURATION = Duration.ofMinutes(8);
+
+    private static final int MAX_BULK_LOAD_SIZE = 100;
 
     private final TableDAO _delegate;
     private final LoadingCache<String, TableCacheEntry> _tableCache;
     private final Clock _clock;
+    private final Executor _refreshExecutor;
+    private final Map<String, SettableFuture<TableCacheEntry>> _pendingRefreshes = Maps.newHashMap();
+    private boolean _refreshScheduled;
 
     @Inject
     public CachingTableDAO(@CachingTableDAODelegate TableDAO delegate,
                            @CachingTableDAORegistry CacheRegistry cacheRegistry,
-                           Clock clock) {
+                           Clock clock, LifeCycleRegistry lifeCycle) {
+        this(delegate, cacheRegistry, clock, defaultRefreshExecutor(lifeCycle));
+    }
+
+    @VisibleForTesting
+    CachingTableDAO(TableDAO delegate, CacheRegistry cacheRegistry, Clock clock, Executor refreshExecutor) {
         _delegate = requireNonNull(delegate, "delegate");
         _clock = requireNonNull(clock, "clock");
+        _refreshExecutor = requireNonNull(refreshExecutor, "refreshExecutor");
 
         // The table cache maps table names to AstyanaxTable objects.
         _tableCache = CacheBuilder.newBuilder()
                 .ticker(ClockTicker.getTicker(clock))
+                .refreshAfterWrite(REFRESH_DURATION.toMillis(), TimeUnit.MILLISECONDS)
                 .expireAfterWrite(CACHE_DURATION.toMillis(), TimeUnit.MILLISECONDS)
                 .recordStats()
                 .build(new CacheLoader<String, TableCacheEntry>() {
@@ -72,13 +108,90 @@ public class CachingTableDAO implements TableDAO {
                         try {
                             return new TableCacheEntry(_delegate.get(name));
                         } catch (UnknownTableException e) {
-                            return new TableCacheEntry(_clock.instant().plus(UNKNOWN_TABLE_RELOAD_DURATION));
+                            return newUnknownTableEntry();
                         }
                     }
+
+                    @Override
+                    public Map<String, TableCacheEntry> loadAll(Iterable<? extends String> names)
+                            throws Exception {
+                        return loadTables(names);
+                    }
+
+                    @Override
+                    public ListenableFuture<TableCacheEntry> reload(String name, TableCacheEntry oldEntry) {
+                        return scheduleRefresh(name);
+                    }
                 });
         cacheRegistry.register("tables", _tableCache, true);
     }
 
+    private static Executor defaultRefreshExecutor(LifeCycleRegistry lifeCycle) {
+        String nameFormat = "CachingTableDAO Refresh-%d";
+        ExecutorService executor = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat(nameFormat).setDaemon(true).build());
+        lifeCycle.manage(new ExecutorServiceManager(executor, io.dropwizard.util.Duration.seconds(5), nameFormat));
+        return executor;
+    }
+
+    private TableCacheEntry newUnknownTableEntry() {
+        return new TableCacheEntry(_clock.instant().plus(UNKNOWN_TABLE_RELOAD_DURATION));
+    }
+
+    /**
+     * Loads the metadata for the given tables from the delegate in batches.
+     */
+    private Map<String, TableCacheEntry> loadTables(Iterable<? extends String> names) {
+        Map<String, TableCacheEntry> entries = Maps.newHashMap();
+        for (List<? extends String> batch : Iterables.partition(names, MAX_BULK_LOAD_SIZE)) {
+            Map<String, Table> tables = _delegate.getAll(ImmutableList.<String>copyOf(batch));
+            for (String name : batch) {
+                Table table = tables.get(name);
+                entries.put(name, table != null ? new TableCacheEntry(table) : newUnknownTableEntry());
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Queues a table to be reloaded in the background.  All tables queued while a reload is pending are reloaded
+     * together, so a burst of refreshes, such as when the tables touched by a fanout all become due, results in
+     * a few bulk loads instead of one load per table.
+     */
+    private ListenableFuture<TableCacheEntry> scheduleRefresh(String name) {
+        SettableFuture<TableCacheEntry> future;
+        boolean schedule;
+        synchronized (_pendingRefreshes) {
+            future = _pendingRefreshes.get(name);
+            if (future == null) {
+                future = SettableFuture.create();
+                _pendingRefreshes.put(name, future);
+            }
+            schedule = !_refreshScheduled;
+            _refreshScheduled = true;
+        }
+        if (schedule) {
+            _refreshExecutor.execute(this::refreshPendingTables);
+        }
+        return future;
+    }
+
+    private void refreshPendingTables() {
+        Map<String, SettableFuture<TableCacheEntry>> pending;
+        synchronized (_pendingRefreshes) {
+            pending = ImmutableMap.copyOf(_pendingRefreshes);
+            _pendingRefreshes.clear();
+            _refreshScheduled = false;
+        }
+        try {
+            Map<String, TableCacheEntry> entries = loadTables(pending.keySet());
+            pending.forEach((name, future) -> future.set(entries.get(name)));
+        } catch (Throwable t) {
+            // The cache keeps returning the previously loaded entries, and tries again on the next access
+            pending.values().forEach(future -> future.setException(t));
+        }
+    }
+
     @Override
     public Iterator<Table> list(@Nullable String fromNameExclusive, LimitCounter limit) {
         return _delegate.list(fromNameExclusive, limit);
@@ -198,6 +311,41 @@ public class CachingTableDAO implements TableDAO {
         return table;
     }
 
+    @Override
+    public Map<String, Table> getAll(Collection<String> names) {
+        Map<String, TableCacheEntry> entries;
+        try {
+            entries = Maps.newHashMap(_tableCache.getAll(names));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+
+        // Reload any unknown tables whose unknown table expiration time has passed, as in getTableFromCache()
+        Instant now = _clock.instant();
+        List<String> reload = Lists.newArrayList();
+        for (Map.Entry<String, TableCacheEntry> entry : entries.entrySet()) {
+            if (entry.getValue().table == null && now.isAfter(entry.getValue().unknownTableReloadTime)) {
+                reload.add(entry.getKey());
+            }
+        }
+        if (!reload.isEmpty()) {
+            _tableCache.invalidateAll(reload);
+            try {
+                entries.putAll(_tableCache.getAll(reload));
+            } catch (ExecutionException | UncheckedExecutionException e) {
+                throw Throwables.propagate(e.getCause());
+            }
+        }
+
+        Map<String, Table> tables = Maps.newHashMapWithExpectedSize(entries.size());
+        for (Map.Entry<String, TableCacheEntry> entry : entries.entrySet()) {
+            if (entry.getValue().table != null) {
+                tables.put(entry.getKey(), entry.getValue().table);
+            }
+        }
+        return tables;
+    }
+
     @Override
     public Table getByUuid(long uuid)
             throws UnknownTableException, DroppedTableException {
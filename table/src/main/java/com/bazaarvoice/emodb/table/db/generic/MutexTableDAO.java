@@ -191,6 +191,11 @@ public class MutexTableDAO implements TableDAO {
         return _delegate.get(name);
     }
 
+    @Override
+    public Map<String, Table> getAll(Collection<String> names) {
+        return _delegate.getAll(names);
+    }
+
     @Override
     public Table getByUuid(long uuid)
             throws UnknownTableException, DroppedTableException {
@@ -64,7 +64,7 @@ public class ClusterHintsPollerTest {
         when(node3.getCassandraVersion()).thenReturn(CASSANDRA_VERSION_2_2_19);
 
         when(mockSession.getCluster()).thenReturn(mockCluster);
-        // The first node queried is down
+        // All the nodes are down
         when(mockSession.execute(any(Statement.class))).thenThrow(new NoHostAvailableException(ImmutableMap.of()));
 
         when(mockMetadata.getAllHosts()).thenReturn(ImmutableSet.of(node1, node2, node3));
@@ -72,7 +72,9 @@ public class ClusterHintsPollerTest {
 
         // Make sure HintsPollerResult fails
         assertFalse(actualResult.areAllHostsPolling(), "Result should show hosts failing");
-        assertEquals(actualResult.getHostFailure(), ImmutableSet.of(InetAddress.getByName("127.0.0.1")), "Node 1 should return with host failure");
+        // Every host is polled independently, so each unreachable host is reported
+        assertEquals(actualResult.getHostFailure(), ImmutableSet.of(InetAddress.getByName("127.0.0.1"),
+                InetAddress.getByName("127.0.0.2"), InetAddress.getByName("127.0.0.3")), "All nodes should return with host failure");
     }
 
     @Test
@@ -94,14 +96,16 @@ public class ClusterHintsPollerTest {
         when(node3.getCassandraVersion()).thenReturn(CASSANDRA_VERSION_3_0_0);
 
         when(mockSession.getCluster()).thenReturn(mockCluster);
-        // The first node queried is down
+        // All the nodes are down
 
         when(mockMetadata.getAllHosts()).thenReturn(ImmutableSet.of(node1, node2, node3));
         HintsPollerResult actualResult = clusterHintsPoller.getOldestHintsInfo(mockSession);
 
         // Make sure HintsPollerResult fails
         assertFalse(actualResult.areAllHostsPolling(), "Result should show hosts failing");
-        assertEquals(actualResult.getHostFailure(), ImmutableSet.of(InetAddress.getByName("127.0.0.1")), "Node 1 should return with host failure");
+        // Every host is polled independently, so each unreachable host is reported
+        assertEquals(actualResult.getHostFailure(), ImmutableSet.of(InetAddress.getByName("127.0.0.1"),
+                InetAddress.getByName("127.0.0.2"), InetAddress.getByName("127.0.0.3")), "All nodes should return with host failure");
     }
 
     /**
@@ -0,0 +1,33 @@
+package com.bazaarvoice.emodb.table.db.consistency;
+
+import com.bazaarvoice.emodb.common.dropwizard.leader.LeaderServiceTask;
+import com.bazaarvoice.emodb.common.dropwizard.lifecycle.LifeCycleRegistry;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.net.HostAndPort;
+import org.apache.curator.framework.CuratorFramework;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class HintsPollerManagerTest {
+
+    @Test
+    public void testPollerClosedWhenManagerStops() throws Exception {
+        LifeCycleRegistry lifeCycle = mock(LifeCycleRegistry.class);
+        ClusterHintsPoller clusterHintsPoller = mock(ClusterHintsPoller.class);
+
+        HintsPollerManager manager = new HintsPollerManager(lifeCycle, ImmutableMap.of(), mock(CuratorFramework.class),
+                HostAndPort.fromParts("localhost", 8080), ImmutableMap.of(), clusterHintsPoller,
+                mock(LeaderServiceTask.class), new MetricRegistry());
+        verify(lifeCycle).manage(manager);
+
+        manager.start();
+        verify(clusterHintsPoller, never()).close();
+
+        manager.stop();
+        verify(clusterHintsPoller).close();
+    }
+}
@@ -110,6 +110,69 @@ public class HintsPollerServiceTest {
         hintsPollerService.pollForHints();
     }
 
+    @Test
+    public void testPollForHintsKeepsWatermarkOfFailedNode()
+            throws Exception {
+        ClusterHintsPoller clusterHintsPoller = mock(ClusterHintsPoller.class);
+
+        long oldestHint = System.currentTimeMillis() - 60000;
+        long laterHint = oldestHint + 30000;
+        when(clusterHintsPoller.getOldestHintsInfo(_session))
+                .thenReturn(new HintsPollerResult()
+                        .setHintsResult(InetAddress.getByName("127.0.0.1"), Optional.of(oldestHint))
+                        .setHintsResult(InetAddress.getByName("127.0.0.2"), Optional.of(laterHint)))
+                .thenReturn(new HintsPollerResult()
+                        .setHostWithFailure(InetAddress.getByName("127.0.0.1"))
+                        .setHintsResult(InetAddress.getByName("127.0.0.2"), Optional.empty()))
+                .thenReturn(new HintsPollerResult()
+                        .setHintsResult(InetAddress.getByName("127.0.0.1"), Optional.empty())
+                        .setHintsResult(InetAddress.getByName("127.0.0.2"), Optional.empty()));
+
+        ValueStore<Long> timestamp = new TestValueStore<>();
+        HintsPollerService hintsPollerService = new HintsPollerService("emo-cluster", timestamp, _session, clusterHintsPoller, new MetricRegistry());
+        long rpcTimeouts = HintsPollerService.CASSANDRA_RPC_TIMEOUT.toMillis() * 2;
+
+        hintsPollerService.pollForHints();
+        assertEquals((long) timestamp.get(), oldestHint - rpcTimeouts);
+
+        // The first node can't be polled, so the timestamp is held back by the watermark from its last successful poll
+        hintsPollerService.pollForHints();
+        assertEquals((long) timestamp.get(), oldestHint - rpcTimeouts);
+
+        // Once the first node is polled again the timestamp moves up to the poll time
+        long baseTime = System.currentTimeMillis() - rpcTimeouts;
+        hintsPollerService.pollForHints();
+        assertTrue(baseTime <= timestamp.get(), "Hints polled time was not updated correctly");
+    }
+
+    @Test
+    public void testPollIntervalBacksOffWhileNoHintsAreFound()
+            throws Exception {
+        ClusterHintsPoller clusterHintsPoller = mock(ClusterHintsPoller.class);
+
+        HintsPollerResult noHints = new HintsPollerResult()
+                .setHintsResult(InetAddress.getByName("127.0.0.1"), Optional.empty());
+        HintsPollerResult hints = new HintsPollerResult()
+                .setHintsResult(InetAddress.getByName("127.0.0.1"), Optional.of(System.currentTimeMillis()));
+        when(clusterHintsPoller.getOldestHintsInfo(_session)).thenReturn(noHints);
+
+        HintsPollerService hintsPollerService = new HintsPollerService("emo-cluster", new TestValueStore<>(), _session, clusterHintsPoller, new MetricRegistry());
+
+        hintsPollerService.pollForHints();
+        assertEquals(hintsPollerService.getPollInterval(), HintsPollerService.MIN_POLL_INTERVAL);
+        hintsPollerService.pollForHints();
+        assertEquals(hintsPollerService.getPollInterval(), HintsPollerService.MIN_POLL_INTERVAL.multipliedBy(2));
+        for (int i = 0; i < 10; i++) {
+            hintsPollerService.pollForHints();
+        }
+        assertEquals(hintsPollerService.getPollInterval(), HintsPollerService.MAX_POLL_INTERVAL);
+
+        // As soon as hints are found polling speeds up again
+        when(clusterHintsPoller.getOldestHintsInfo(_session)).thenReturn(hints);
+        hintsPollerService.pollForHints();
+        assertEquals(hintsPollerService.getPollInterval(), HintsPollerService.MIN_POLL_INTERVAL);
+    }
+
     private static class TestValueStore<T> implements ValueStore<T> {
         private volatile T _value = null;
 
@@ -5,6 +5,8 @@ import com.bazaarvoice.emodb.sor.api.UnknownTableException;
 import com.bazaarvoice.emodb.table.db.Table;
 import com.bazaarvoice.emodb.table.db.TableDAO;
 import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import org.mockito.ArgumentCaptor;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
@@ -13,14 +15,20 @@ import org.testng.annotations.Test;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Queue;
 
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 public class CachingTableDAOTest {
@@ -29,6 +37,7 @@ public class CachingTableDAOTest {
     private Instant _now;
     private CachingTableDAO _cachingTableDAO;
     private LoadingCache _cache;
+    private Queue<Runnable> _refreshTasks;
 
     @BeforeMethod
     public void setUp() {
@@ -40,7 +49,8 @@ public class CachingTableDAOTest {
         when(clock.millis()).then(ignore -> _now.toEpochMilli());
 
         CacheRegistry cacheRegistry = mock(CacheRegistry.class);
-        _cachingTableDAO = new CachingTableDAO(_delegate, cacheRegistry, clock);
+        _refreshTasks = new ArrayDeque<>();
+        _cachingTableDAO = new CachingTableDAO(_delegate, cacheRegistry, clock, _refreshTasks::add);
 
         ArgumentCaptor<LoadingCache> argumentCaptor = ArgumentCaptor.forClass(LoadingCache.class);
         verify(cacheRegistry).register(eq("tables"), argumentCaptor.capture(), eq(true));
@@ -66,19 +76,69 @@ public class CachingTableDAOTest {
         table = _cachingTableDAO.get("table");
         assertSame(table, firstResponse);
 
-        // 1 millisecond prior to cache invalidation
-        _now = _now.plus(Duration.ofMinutes(9).minusMillis(1));
+        // 1 millisecond prior to cache refresh
+        _now = _now.plus(Duration.ofMinutes(7).minusMillis(1));
         table = _cachingTableDAO.get("table");
         assertSame(table, firstResponse);
 
-        // 1 millisecond after cache invalidation
-        _now = _now.plus(Duration.ofMillis(2));
+        // 1 millisecond after cache expiration, table wasn't accessed in between so it wasn't refreshed
+        _now = _now.plus(Duration.ofMinutes(2).plusMillis(2));
         table = _cachingTableDAO.get("table");
         assertSame(table, secondResponse);
+        assertTrue(_refreshTasks.isEmpty());
 
         verify(_delegate, times(2)).get("table");
     }
 
+    @Test
+    public void testTableRefreshedInBackground() throws Exception {
+        Table table1a = mock(Table.class);
+        Table table1b = mock(Table.class);
+        Table table2a = mock(Table.class);
+        Table table2b = mock(Table.class);
+
+        when(_delegate.getAll(anyCollection())).thenReturn(ImmutableMap.of("table1", table1a, "table2", table2a));
+        assertEquals(_cachingTableDAO.getAll(ImmutableList.of("table1", "table2")),
+                ImmutableMap.of("table1", table1a, "table2", table2a));
+
+        // After the refresh time the cached tables are still returned while both are reloaded together
+        _now = _now.plus(Duration.ofMinutes(8).plusMillis(1));
+        when(_delegate.getAll(anyCollection())).thenReturn(ImmutableMap.of("table1", table1b, "table2", table2b));
+        assertSame(_cachingTableDAO.get("table1"), table1a);
+        assertSame(_cachingTableDAO.get("table2"), table2a);
+        assertEquals(_refreshTasks.size(), 1);
+        _refreshTasks.remove().run();
+
+        assertSame(_cachingTableDAO.get("table1"), table1b);
+        assertSame(_cachingTableDAO.get("table2"), table2b);
+
+        // Tables in use are refreshed again instead of expiring
+        _now = _now.plus(Duration.ofMinutes(8).plusMillis(1));
+        assertSame(_cachingTableDAO.get("table1"), table1b);
+        assertEquals(_refreshTasks.size(), 1);
+
+        verify(_delegate, times(2)).getAll(anyCollection());
+    }
+
+    @Test
+    public void testGetAllOmitsUnknownTables() throws Exception {
+        Table table = mock(Table.class);
+
+        when(_delegate.getAll(anyCollection())).thenReturn(ImmutableMap.of("table1", table));
+        assertEquals(_cachingTableDAO.getAll(ImmutableList.of("table1", "table2")), ImmutableMap.of("table1", table));
+
+        // Both the known and unknown table are cached
+        assertEquals(_cachingTableDAO.getAll(ImmutableList.of("table1", "table2")), ImmutableMap.of("table1", table));
+        assertFalse(_cachingTableDAO.exists("table2"));
+
+        // After the unknown table reload time only the unknown table is reloaded
+        _now = _now.plus(Duration.ofSeconds(2).plusMillis(1));
+        assertEquals(_cachingTableDAO.getAll(ImmutableList.of("table1", "table2")), ImmutableMap.of("table1", table));
+
+        verify(_delegate, times(2)).getAll(anyCollection());
+        verify(_delegate).getAll(ImmutableList.of("table2"));
+    }
+
     @Test
     public void testTableInvalidation() throws Exception {
         Table firstResponse = mock(Table.class);
@@ -25,9 +25,12 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
@@ -172,6 +175,105 @@ public class BlockFileTableSetTest {
         }
     }
 
+    @Test
+    public void testConcurrentLoadOfSameTable() throws Exception {
+        Map<Long, InMemoryTable> tableMap = Maps.newHashMap();
+        tableMap.put(0L, createTestTableForUuid(0));
+        final AtomicInteger loadCount = new AtomicInteger();
+        TestTableSerializer serializer = new TestTableSerializer(tableMap) {
+            @Override
+            public Set<Long> loadAndSerialize(long uuid, OutputStream out)
+                    throws IOException, UnknownTableException, DroppedTableException {
+                loadCount.incrementAndGet();
+                return super.loadAndSerialize(uuid, out);
+            }
+        };
+
+        try (BlockFileTableSet snapshot = new BlockFileTableSet(serializer)) {
+            final CountDownLatch latch = new CountDownLatch(10);
+            List<Thread> threads = Lists.newArrayListWithCapacity(10);
+            for (int t=0; t < 10; t++) {
+                threads.add(new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        latch.countDown();
+                        try {
+                            latch.await();
+                        } catch (InterruptedException e) {
+                            throw Throwables.propagate(e);
+                        }
+                        validateTable(0, snapshot.getByUuid(0));
+                    }
+                }));
+            }
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            // Every thread received the same table from a single load
+            assertEquals(loadCount.get(), 1);
+        }
+    }
+
+    @Test
+    public void testConcurrentLoadThroughDifferentUuids() throws Exception {
+        // Each load of the table produces a distinguishable copy, so lookups through different UUIDs can be compared
+        final AtomicInteger loadCount = new AtomicInteger();
+        TestTableSerializer serializer = new TestTableSerializer(ImmutableMap.<Long, InMemoryTable>of()) {
+            @Override
+            public Set<Long> loadAndSerialize(long uuid, OutputStream out)
+                    throws IOException, UnknownTableException, DroppedTableException {
+                ObjectOutputStream objectOut = new ObjectOutputStream(out);
+                objectOut.writeObject("table_0");
+                objectOut.writeObject("placement0");
+                objectOut.writeObject(ImmutableMap.<String, Object>of("load", loadCount.incrementAndGet()));
+                objectOut.flush();
+                return ImmutableSet.of(0L, 1L, 2L, 3L);
+            }
+        };
+
+        for (int attempt=0; attempt < 20; attempt++) {
+            try (BlockFileTableSet snapshot = new BlockFileTableSet(serializer)) {
+                final CountDownLatch latch = new CountDownLatch(8);
+                final List<Table> tables = Collections.synchronizedList(Lists.<Table>newArrayList());
+                List<Thread> threads = Lists.newArrayListWithCapacity(8);
+                for (int t=0; t < 8; t++) {
+                    final long uuid = t % 4;
+                    threads.add(new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            latch.countDown();
+                            try {
+                                latch.await();
+                            } catch (InterruptedException e) {
+                                throw Throwables.propagate(e);
+                            }
+                            tables.add(snapshot.getByUuid(uuid));
+                        }
+                    }));
+                }
+                for (Thread thread : threads) {
+                    thread.start();
+                }
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+
+                // Every lookup, concurrent or subsequent, must return the same copy regardless of the UUID used
+                for (long uuid=0; uuid < 4; uuid++) {
+                    tables.add(snapshot.getByUuid(uuid));
+                }
+                assertEquals(tables.size(), 12);
+                for (Table table : tables) {
+                    assertEquals(table.getAttributes(), tables.get(0).getAttributes());
+                }
+            }
+        }
+    }
+
     @Test
     public void testUnknownAndDroppedTable() throws Exception {
        try (BlockFileTableSet snapshot = new BlockFileTableSet(new TestTableSerializer(ImmutableMap.<Long, InMemoryTable>of()))) {
@@ -286,7 +388,7 @@ public class BlockFileTableSetTest {
             tableMap.put(uuid, createTestTableForUuid(uuid));
         }
 
-        return new BlockFileTableSet(new TestTableSerializer(tableMap), 50000, 20);
+        return new BlockFileTableSet(new TestTableSerializer(tableMap), 50000);
     }
 
     private void validateTable(long uuid, Table table) {
@@ -1,6 +1,7 @@
 package com.bazaarvoice.emodb.auth.apikey;
 
 import com.bazaarvoice.emodb.auth.identity.AuthIdentityReader;
+import com.bazaarvoice.emodb.auth.permissions.MatchingPermission;
 import com.bazaarvoice.emodb.auth.permissions.PermissionIDs;
 import com.bazaarvoice.emodb.auth.permissions.PermissionReader;
 import com.bazaarvoice.emodb.auth.shiro.AnonymousCredentialsMatcher;
@@ -9,9 +10,9 @@ import com.bazaarvoice.emodb.auth.shiro.InvalidatableCacheManager;
 import com.bazaarvoice.emodb.auth.shiro.PrincipalWithRoles;
 import com.bazaarvoice.emodb.auth.shiro.RolePermissionSet;
 import com.bazaarvoice.emodb.auth.shiro.SimpleRolePermissionSet;
-import com.bazaarvoice.emodb.auth.shiro.ValidatingCacheManager;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Lists;
 import org.apache.shiro.authc.AuthenticationException;
 import org.apache.shiro.authc.AuthenticationInfo;
@@ -32,7 +33,6 @@ import javax.annotation.Nullable;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
-import java.util.Objects;
 import java.util.Set;
 
 import static java.util.Objects.requireNonNull;
@@ -41,6 +41,7 @@ public class ApiKeyRealm extends AuthorizingRealm {
 
     private static final String DEFAULT_ROLES_CACHE_SUFFIX = ".rolesCache";
     private static final String DEFAULT_ID_AUTHORIZATION_CACHE_SUFFIX = ".idAuthorizationCache";
+    private static final String DEFAULT_DECISION_CACHE_SUFFIX = ".decisionCache";
 
     private final Logger _log = LoggerFactory.getLogger(getClass());
 
@@ -59,9 +60,12 @@ public class ApiKeyRealm extends AuthorizingRealm {
     private Cache<String, RolePermissionSet> _rolesCache;
     // Cache for authorization info by user's ID.
     private Cache<String, AuthorizationInfo> _idAuthorizationCache;
+    // Cache for whether a set of roles is permitted a permission.
+    private Cache<String, Boolean> _decisionCache;
 
     private String _rolesCacheName;
     private String _idAuthorizationCacheName;
+    private String _decisionCacheName;
 
     public ApiKeyRealm(String name, CacheManager cacheManager, AuthIdentityReader<ApiKey> authIdentityReader,
                        PermissionReader permissionReader, @Nullable String anonymousId) {
@@ -76,7 +80,7 @@ public class ApiKeyRealm extends AuthorizingRealm {
         setAuthenticationTokenClass(ApiKeyAuthenticationToken.class);
         setPermissionResolver(permissionReader.getPermissionResolver());
         setRolePermissionResolver(createRolePermissionResolver());
-        setCacheManager(prepareCacheManager(cacheManager));
+        setCacheManager(cacheManager);
         setAuthenticationCachingEnabled(true);
         setAuthorizationCachingEnabled(true);
 
@@ -88,84 +92,6 @@ public class ApiKeyRealm extends AuthorizingRealm {
         _log.debug("Clearing of caches for realm {} is {}", name, _clearCaches ? "enabled" : "disabled");
     }
 
-    /**
-     * If necessary, wraps the raw cache manager with a validating facade.
-     */
-    private CacheManager prepareCacheManager(CacheManager cacheManager) {
-        if (cacheManager == null || !(cacheManager instanceof InvalidatableCacheManager)) {
-            return cacheManager;
-        }
-
-        return new ValidatingCacheManager(cacheManager) {
-            @Nullable
-            @Override
-            protected CacheValidator<?, ?> getCacheValidatorForCache(String name) {
-                String cacheName = getAuthenticationCacheName();
-                if (cacheName != null && name.equals(cacheName)) {
-                    return new ValidatingCacheManager.CacheValidator<Object, AuthenticationInfo>(Object.class, AuthenticationInfo.class) {
-                        @Override
-                        public boolean isCurrentValue(Object key, AuthenticationInfo value) {
-                            String id;
-                            if (AnonymousToken.isAnonymousPrincipal(key)) {
-                                if (_anonymousId == null) {
-                                    return false;
-                                }
-                                id = _anonymousId;
-                            } else {
-                                // For all non-anonymous users "key" is an API key
-                                id = (String) key;
-                            }
-
-                            AuthenticationInfo authenticationInfo = getUncachedAuthenticationInfoForKey(id);
-                            return Objects.equals(authenticationInfo, value);
-                        }
-                    };
-                }
-
-                cacheName = getAuthorizationCacheName();
-                if (cacheName != null && name.equals(cacheName)) {
-                    return new ValidatingCacheManager.CacheValidator<Object, AuthorizationInfo>(Object.class, AuthorizationInfo.class) {
-                        @Override
-                        public boolean isCurrentValue(Object key, AuthorizationInfo value) {
-                            // Key is always a principal collection
-                            PrincipalCollection principalCollection = (PrincipalCollection) key;
-                            AuthorizationInfo authorizationInfo = getUncachedAuthorizationInfoFromPrincipals(principalCollection);
-                            // Only the roles are used for authorization
-                            return authorizationInfo != null && authorizationInfo.getRoles().equals(value.getRoles());
-                        }
-                    };
-                }
-
-                cacheName = getIdAuthorizationCacheName();
-                if (cacheName != null && name.equals(cacheName)) {
-                    return new ValidatingCacheManager.CacheValidator<String, AuthorizationInfo>(String.class, AuthorizationInfo.class) {
-                        @Override
-                        public boolean isCurrentValue(String key, AuthorizationInfo value) {
-                            // Key is the identity's ID
-                            AuthorizationInfo authorizationInfo = getUncachedAuthorizationInfoById(key);
-                            // Only the roles are used for authorization
-                            return authorizationInfo != null && authorizationInfo.getRoles().equals(value.getRoles());
-                        }
-                    };
-                }
-
-                cacheName = getRolesCacheName();
-                if (cacheName != null && name.equals(cacheName)) {
-                    return new ValidatingCacheManager.CacheValidator<String, RolePermissionSet>(String.class, RolePermissionSet.class) {
-                        @Override
-                        public boolean isCurrentValue(String key, RolePermissionSet value) {
-                            // The key is the role name
-                            Set<Permission> currentPermissions = _permissionReader.getPermissions(PermissionIDs.forRole(key));
-                            return value.permissions().equals(currentPermissions);
-                        }
-                    };
-                }
-
-                return null;
-            }
-        };
-    }
-
     @Override
     protected void onInit() {
         super.onInit();
@@ -173,6 +99,8 @@ public class ApiKeyRealm extends AuthorizingRealm {
         getAvailableRolesCache();
         // Create a cache for IDs
         getAvailableIdAuthorizationCache();
+        // Create a cache for authorization decisions
+        getAvailableDecisionCache();
     }
 
     /**
@@ -273,6 +201,7 @@ public class ApiKeyRealm extends AuthorizingRealm {
         // Set reasonable defaults for the role and ID authorization caches.
         _rolesCacheName = name + DEFAULT_ROLES_CACHE_SUFFIX;
         _idAuthorizationCacheName = name + DEFAULT_ID_AUTHORIZATION_CACHE_SUFFIX;
+        _decisionCacheName = name + DEFAULT_DECISION_CACHE_SUFFIX;
     }
 
     public String getRolesCacheName() {
@@ -316,6 +245,22 @@ public class ApiKeyRealm extends AuthorizingRealm {
         return _idAuthorizationCache;
     }
 
+    public String getDecisionCacheName() {
+        return _decisionCacheName;
+    }
+
+    protected Cache<String, Boolean> getAvailableDecisionCache() {
+        if (getCacheManager() == null) {
+            return null;
+        }
+
+        if (_decisionCache == null) {
+            String cacheName = getDecisionCacheName();
+            _decisionCache = getCacheManager().getCache(cacheName);
+        }
+        return _decisionCache;
+    }
+
     private RolePermissionResolver createRolePermissionResolver() {
         return new RolePermissionResolver() {
             @Override
@@ -332,10 +277,14 @@ public class ApiKeyRealm extends AuthorizingRealm {
         if (role == null) {
             return null;
         }
+        return getRolePermissionSet(role).permissions();
+    }
+
+    private RolePermissionSet getRolePermissionSet(String role) {
         Cache<String, RolePermissionSet> cache = getAvailableRolesCache();
 
         if (cache == null) {
-            return _permissionReader.getPermissions(PermissionIDs.forRole(role));
+            return new SimpleRolePermissionSet(_permissionReader.getPermissions(PermissionIDs.forRole(role)));
         }
 
         RolePermissionSet rolePermissionSet = cache.get(role);
@@ -346,7 +295,63 @@ public class ApiKeyRealm extends AuthorizingRealm {
             cache.put(role, rolePermissionSet);
         }
 
-        return rolePermissionSet.permissions();
+        return rolePermissionSet;
+    }
+
+    /**
+     * Override the parent method to only evaluate the role permissions which may imply the permission and to memoize
+     * the decision by role set and permission.  The decision cache is invalidated along with the role and identity
+     * caches, so decisions are only memoized if they don't depend on anything else, such as table metadata.
+     */
+    @Override
+    protected boolean isPermitted(Permission permission, AuthorizationInfo info) {
+        Collection<String> roles = info.getRoles();
+        if (roles == null || !(permission instanceof MatchingPermission) ||
+                (info.getStringPermissions() != null && !info.getStringPermissions().isEmpty()) ||
+                (info.getObjectPermissions() != null && !info.getObjectPermissions().isEmpty())) {
+            return super.isPermitted(permission, info);
+        }
+
+        Cache<String, Boolean> decisionCache = getAvailableDecisionCache();
+        String key = null;
+        if (decisionCache != null) {
+            key = getDecisionCacheKey(roles, permission);
+            Boolean permitted = decisionCache.get(key);
+            if (permitted != null) {
+                return permitted;
+            }
+        }
+
+        boolean permitted = false;
+        boolean deterministic = true;
+
+        evaluate:
+        for (String role : roles) {
+            for (Permission candidate : getRolePermissionSet(role).getPermissionsWhichMayImply(permission)) {
+                boolean candidateDeterministic = candidate instanceof MatchingPermission &&
+                        ((MatchingPermission) candidate).isDeterministic();
+                if (candidate.implies(permission)) {
+                    permitted = true;
+                    deterministic = candidateDeterministic;
+                    break evaluate;
+                }
+                deterministic &= candidateDeterministic;
+            }
+        }
+
+        if (decisionCache != null && deterministic) {
+            decisionCache.put(key, permitted);
+        }
+        return permitted;
+    }
+
+    private String getDecisionCacheKey(Collection<String> roles, Permission permission) {
+        // Prefix the role count and each role's length so no two distinct role sets and permissions share a key
+        StringBuilder key = new StringBuilder().append(roles.size()).append(':');
+        for (String role : ImmutableSortedSet.copyOf(roles)) {
+            key.append(role.length()).append(':').append(role);
+        }
+        return key.append(permission).toString();
     }
 
     /**
@@ -114,6 +114,8 @@ import com.bazaarvoice.emodb.web.throttling.AdHocThrottleControlTask;
 import com.bazaarvoice.emodb.web.throttling.AdHocThrottleManager;
 import com.bazaarvoice.emodb.web.throttling.AdHocThrottleMapStore;
 import com.bazaarvoice.emodb.web.throttling.BlackListIpValueStore;
+import com.bazaarvoice.emodb.web.throttling.DataStoreUpdateDemand;
+import com.bazaarvoice.emodb.web.throttling.DataStoreUpdateDemandMapStore;
 import com.bazaarvoice.emodb.web.throttling.DataStoreUpdateThrottle;
 import com.bazaarvoice.emodb.web.throttling.DataStoreUpdateThrottleControlTask;
 import com.bazaarvoice.emodb.web.throttling.DataStoreUpdateThrottleManager;
@@ -121,6 +123,7 @@ import com.bazaarvoice.emodb.web.throttling.DataStoreUpdateThrottleMapStore;
 import com.bazaarvoice.emodb.web.throttling.DataStoreUpdateThrottler;
 import com.bazaarvoice.emodb.web.throttling.IpBlacklistControlTask;
 import com.bazaarvoice.emodb.web.throttling.ZkAdHocThrottleSerializer;
+import com.bazaarvoice.emodb.web.throttling.ZkDataStoreUpdateDemandSerializer;
 import com.bazaarvoice.emodb.web.throttling.ZkDataStoreUpdateThrottleSerializer;
 import com.bazaarvoice.emodb.web.util.ZKNamespaces;
 import com.bazaarvoice.megabus.MegabusApplicationId;
@@ -743,6 +746,12 @@ public class EmoModule extends AbstractModule {
             CuratorFramework webCurator = withComponentNamespace(curator, "web");
             return lifeCycle.manage(new ZkMapStore<>(webCurator, "/sor-update-throttles", new ZkDataStoreUpdateThrottleSerializer()));
         }
+
+        @Provides @Singleton @DataStoreUpdateDemandMapStore
+        MapStore<DataStoreUpdateDemand> provideDataStoreUpdateDemandMapStore(@Global CuratorFramework curator, LifeCycleRegistry lifeCycle) {
+            CuratorFramework webCurator = withComponentNamespace(curator, "web");
+            return lifeCycle.manage(new ZkMapStore<>(webCurator, "/sor-update-throttle-demand", new ZkDataStoreUpdateDemandSerializer()));
+        }
     }
 
     private class PluginsSetup extends AbstractModule {
@@ -26,6 +26,7 @@ import com.bazaarvoice.emodb.web.ddl.CreateKeyspacesCommand;
 import com.bazaarvoice.emodb.web.ddl.DdlConfiguration;
 import com.bazaarvoice.emodb.web.jersey.ExceptionMappers;
 import com.bazaarvoice.emodb.web.jersey.ServerErrorResponseMetricsFilter;
+import com.bazaarvoice.emodb.web.jersey.SmileMessageBodyWriter;
 import com.bazaarvoice.emodb.web.jersey.UnbufferedStreamFilter;
 import com.bazaarvoice.emodb.web.jersey.UnbufferedStreamResourceFilterFactory;
 import com.bazaarvoice.emodb.web.megabus.resource.MegabusResource1;
@@ -184,6 +185,9 @@ public class EmoService extends Application<EmoConfiguration> {
             environment.jersey().register(mapperType);
         }
 
+        // Allow resources to respond with Smile to clients which accept it
+        environment.jersey().register(new SmileMessageBodyWriter());
+
         // Configure support for streaming JSON responses without long delays due to buffering
         //noinspection unchecked
         environment.jersey().getResourceConfig().getResourceFilterFactories().add(new UnbufferedStreamResourceFilterFactory());
@@ -20,7 +20,8 @@ import com.bazaarvoice.emodb.sor.condition.MapCondition;
 import com.bazaarvoice.emodb.sor.condition.NotCondition;
 import com.bazaarvoice.emodb.sor.condition.OrCondition;
 import com.bazaarvoice.emodb.sor.condition.PartitionCondition;
-import com.bazaarvoice.emodb.sor.condition.eval.ConditionEvaluator;
+import com.bazaarvoice.emodb.sor.condition.eval.ConditionCompiler;
+import com.bazaarvoice.emodb.sor.condition.eval.ConditionMatcher;
 import com.bazaarvoice.emodb.sor.condition.eval.SubsetEvaluator;
 import com.bazaarvoice.emodb.web.auth.Permissions;
 import com.google.common.collect.ImmutableMap;
@@ -68,11 +69,14 @@ abstract public class TableConditionPart extends EmoMatchingPart {
     private final static String UNUSED = "unused";
 
     private final Condition _condition;
+    private final ConditionMatcher _matcher;
     private final boolean _requiresTableMetadata;
 
     public TableConditionPart(Condition condition) {
         _condition = requireNonNull(condition, "condition");
         _requiresTableMetadata = condition.visit(_requiresMetadataVisitor, null);
+        // Permissions are cached and evaluated for every table access, so compile the condition once up front
+        _matcher = ConditionCompiler.compile(condition);
     }
 
     @Nullable
@@ -115,7 +119,7 @@ abstract public class TableConditionPart extends EmoMatchingPart {
     }
 
     private boolean evaluate(AuthorizationIntrinsics intrinsics, Map<String, ?> attributes) {
-        return ConditionEvaluator.eval(_condition, attributes, intrinsics);
+        return _matcher.matches(attributes, intrinsics);
     }
 
     @Override
@@ -143,6 +147,12 @@ abstract public class TableConditionPart extends EmoMatchingPart {
         return true;
     }
 
+    @Override
+    public boolean isDeterministic() {
+        // Table metadata can change at any time, so only conditions which don't use it are deterministic
+        return !_requiresTableMetadata;
+    }
+
     protected final static class PlacementAndAttributes {
         private final String placement;
         private final Map<String, ?> attributes;
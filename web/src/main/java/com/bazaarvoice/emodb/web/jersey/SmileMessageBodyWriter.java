@@ -0,0 +1,55 @@
+package com.bazaarvoice.emodb.web.jersey;
+
+import com.bazaarvoice.emodb.common.json.JsonHelper;
+import com.bazaarvoice.emodb.web.util.EmoServiceObjectMapperFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+/**
+ * Jersey writer for responses encoded as Smile, a binary equivalent of JSON which is more compact and faster to parse.
+ * Resources opt in by listing {@link JsonHelper#SMILE_MEDIA_TYPE} along with JSON in their {@code @Produces}
+ * annotation; clients which don't explicitly accept Smile continue to receive JSON.
+ */
+@Provider
+@Produces (JsonHelper.SMILE_MEDIA_TYPE)
+public class SmileMessageBodyWriter implements MessageBodyWriter<Object> {
+
+    private final ObjectMapper _mapper = EmoServiceObjectMapperFactory.build(new SmileFactory())
+            // Jersey owns the entity stream
+            .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        // Pre-encoded content is written as-is by Jersey's own providers
+        return !StreamingOutput.class.isAssignableFrom(type) &&
+                !InputStream.class.isAssignableFrom(type) &&
+                type != byte[].class &&
+                type != String.class;
+    }
+
+    @Override
+    public long getSize(Object value, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(Object value, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                        MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
+            throws IOException, WebApplicationException {
+        _mapper.writeValue(entityStream, value);
+    }
+}
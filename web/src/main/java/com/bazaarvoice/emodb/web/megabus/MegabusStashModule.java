@@ -64,6 +64,7 @@ public class MegabusStashModule extends PrivateModule {
 
         bind(ScanCountListener.class).to(MetricsScanCountListener.class).asEagerSingleton();
 
+        bind(MegabusBootConfiguration.class).toInstance(_config);
         bind(String.class).annotatedWith(ScanStatusTable.class).toInstance(_config.getScanStatusTable());
         bind(Integer.class).annotatedWith(MaxConcurrentScans.class).toInstance(_config.getScanThreadCount());
 
@@ -6,7 +6,9 @@ import com.bazaarvoice.emodb.web.scanner.ScanDestination;
 import com.bazaarvoice.emodb.web.scanner.ScanOptions;
 import com.bazaarvoice.emodb.web.scanner.ScanUploader;
 import com.bazaarvoice.emodb.web.scanner.scanstatus.ScanStatus;
+import com.bazaarvoice.megabus.MegabusBootConfiguration;
 import com.bazaarvoice.megabus.MegabusBootDAO;
+import com.bazaarvoice.megabus.MegabusBootProgress;
 import com.google.inject.Inject;
 import java.net.URI;
 
@@ -16,11 +18,13 @@ public class StashMegabusBootDAO implements MegabusBootDAO {
 
     private final ScanUploader _scanUploader;
     private final DataTools _dataTools;
+    private final MegabusBootConfiguration _bootConfiguration;
 
     @Inject
-    public StashMegabusBootDAO(ScanUploader scanUploader, DataTools dataTools) {
+    public StashMegabusBootDAO(ScanUploader scanUploader, DataTools dataTools, MegabusBootConfiguration bootConfiguration) {
         _scanUploader = requireNonNull(scanUploader);
         _dataTools = requireNonNull(dataTools);
+        _bootConfiguration = requireNonNull(bootConfiguration);
     }
 
     @Override
@@ -28,6 +32,10 @@ public class StashMegabusBootDAO implements MegabusBootDAO {
         ScanOptions scanOptions = new ScanOptions(_dataTools.getTablePlacements(false, true));
         scanOptions.setTemporalEnabled(false);
         scanOptions.setOnlyScanLiveRanges(false);
+        // Each split's progress is persisted in the scan status table and the splits are claimed from a shared queue
+        // by every megabus server, so smaller splits with higher concurrency spread the boot across the cluster.
+        scanOptions.setRangeScanSplitSize(_bootConfiguration.getRangeScanSplitSize());
+        scanOptions.setMaxConcurrentSubRangeScans(_bootConfiguration.getMaxConcurrentSubRangeScans());
         scanOptions.addDestination(ScanDestination.to(URI.create("kafka://" + topic.getName())));
 
         _scanUploader.scanAndUpload(applicationId, scanOptions).start();
@@ -52,4 +60,24 @@ public class StashMegabusBootDAO implements MegabusBootDAO {
 
         return BootStatus.IN_PROGRESS;
     }
+
+    @Override
+    public void resumeBoot(String applicationId) {
+        _scanUploader.resumeScan(applicationId);
+    }
+
+    @Override
+    public MegabusBootProgress getBootProgress(String applicationId) {
+        ScanStatus status = _scanUploader.getStatus(applicationId);
+
+        if (status == null) {
+            return null;
+        }
+
+        int activeSplits = status.getActiveScanRanges().size();
+        int completeSplits = status.getCompleteScanRanges().size();
+        int totalSplits = status.getPendingScanRanges().size() + activeSplits + completeSplits;
+
+        return new MegabusBootProgress(totalSplits, activeSplits, completeSplits, status.getStartTime().toInstant());
+    }
 }
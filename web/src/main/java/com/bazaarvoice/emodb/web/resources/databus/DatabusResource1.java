@@ -2,6 +2,7 @@ package com.bazaarvoice.emodb.web.resources.databus;
 
 import com.bazaarvoice.emodb.auth.jersey.Authenticated;
 import com.bazaarvoice.emodb.auth.jersey.Subject;
+import com.bazaarvoice.emodb.common.json.JsonHelper;
 import com.bazaarvoice.emodb.common.json.LoggingIterator;
 import com.bazaarvoice.emodb.databus.api.Event;
 import com.bazaarvoice.emodb.databus.api.EventViews;
@@ -43,6 +44,7 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import java.time.Instant;
 import java.util.Date;
@@ -189,6 +191,7 @@ public class DatabusResource1 {
 
     @GET
     @Path ("{subscription}/peek")
+    @Produces ({MediaType.APPLICATION_JSON, JsonHelper.SMILE_MEDIA_TYPE})
     @RequiresPermissions ("databus|poll|{subscription}")
     @Timed (name = "bv.emodb.databus.DatabusResource1.peek", absolute = true)
     @ApiOperation (value = "Peek operation.",
@@ -199,16 +202,18 @@ public class DatabusResource1 {
                          @PathParam ("subscription") String subscription,
                          @QueryParam ("limit") @DefaultValue ("10") IntParam limit,
                          @QueryParam ("includeTags") @DefaultValue ("false") BooleanParam includeTags,
+                         @Context Request jaxrsRequest,
                          @Authenticated Subject subject) {
         // For backwards compatibility with older clients only include tags if explicitly requested
         // (default is false).
-        PeekOrPollResponseHelper helper = getPeekOrPollResponseHelper(includeTags.get());
+        PeekOrPollResponseHelper helper = getPeekOrPollResponseHelper(includeTags.get(), jaxrsRequest);
         Iterator<Event> events = getClient(partitioned).peek(subject, subscription, limit.get());
-        return Response.ok().entity(helper.asEntity(events)).build();
+        return Response.ok().type(helper.getMediaType()).entity(helper.asEntity(events)).build();
     }
 
     @GET
     @Path ("{subscription}/poll")
+    @Produces ({MediaType.APPLICATION_JSON, JsonHelper.SMILE_MEDIA_TYPE})
     @RequiresPermissions ("databus|poll|{subscription}")
     @ApiOperation (value = "poll operation.",
             notes = "Returns a Response.",
@@ -221,16 +226,19 @@ public class DatabusResource1 {
                          @QueryParam ("ignoreLongPoll") @DefaultValue ("false") BooleanParam ignoreLongPoll,
                          @QueryParam ("includeTags") @DefaultValue ("false") BooleanParam includeTags,
                          @Context HttpServletRequest request,
+                         @Context Request jaxrsRequest,
                          @Authenticated Subject subject) {
         // For backwards compatibility with older clients only include tags if explicitly requested
         // (default is false).
-        PeekOrPollResponseHelper helper = getPeekOrPollResponseHelper(includeTags.get());
+        PeekOrPollResponseHelper helper = getPeekOrPollResponseHelper(includeTags.get(), jaxrsRequest);
         return _poller.poll(subject, getClient(partitioned), subscription, claimTtl.get(), limit.get(), request,
                 ignoreLongPoll.get(), helper);
     }
 
-    private PeekOrPollResponseHelper getPeekOrPollResponseHelper(boolean includeTags) {
-        return includeTags ? _helperWithTags : _helperContentOnly;
+    private PeekOrPollResponseHelper getPeekOrPollResponseHelper(boolean includeTags, Request jaxrsRequest) {
+        PeekOrPollResponseHelper helper = includeTags ? _helperWithTags : _helperContentOnly;
+        // Respond with Smile if the client prefers it, otherwise JSON
+        return helper.withMediaType(PeekOrPollResponseHelper.selectMediaType(jaxrsRequest));
     }
 
     @POST
@@ -281,6 +281,7 @@ public class DatabusResourcePoller {
                 // If ignoreLongPoll == true or we have no executor services to schedule long-polling on then always
                 // return a response, even if it's empty. Alternatively, if we have data to return - return it!
                 response = Response.ok()
+                        .type(helper.getMediaType())
                         .header(POLL_DATABUS_EMPTY_HEADER, String.valueOf(!result.hasMoreEvents()))
                         .entity(helper.asEntity(result.getEventIterator()))
                         .build();
@@ -309,6 +310,7 @@ public class DatabusResourcePoller {
         boolean jobsScheduled = false;
 
         try {
+            // Long polls keep the connection alive with whitespace, so they always respond with JSON
             ctx.getResponse().setContentType("application/json");
             //  We can't know at this point if the queue will be fully drained or not, so base the "databus empty"
             // header on whether the original empty poll had more results.  Worst case the caller has a single false empty
@@ -3,7 +3,11 @@ package com.bazaarvoice.emodb.web.resources.databus;
 import com.bazaarvoice.emodb.common.json.JsonHelper;
 import com.bazaarvoice.emodb.databus.api.EventViews;
 
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.Variant;
+import java.util.List;
 
 import static java.util.Objects.requireNonNull;
 
@@ -11,18 +15,58 @@ import static java.util.Objects.requireNonNull;
  * Helper class used by peek and poll operations.  This class ensures that the events returned are serialized
  * including only those attributes expected by the caller.  In particular, it only includes event tags if the
  * caller explicitly requested to include tags.
+ *
+ * Events are written as JSON unless the helper was created for Smile using {@link #withMediaType(MediaType)}.
  */
 public class PeekOrPollResponseHelper {
 
+    public static final MediaType SMILE_TYPE = MediaType.valueOf(JsonHelper.SMILE_MEDIA_TYPE);
+
+    // The request's "Accept" header decides between the two, so a client which lists Smile first or gives it a higher
+    // quality gets Smile.  Listing JSON first only breaks ties the header leaves open, such as "*/*" or no header.
+    private static final List<Variant> JSON_OR_SMILE = Variant.mediaTypes(MediaType.APPLICATION_JSON_TYPE, SMILE_TYPE).add().build();
+
     private final JsonHelper.JsonWriterWithViewHelper _json;
+    private final MediaType _mediaType;
 
     public PeekOrPollResponseHelper(final Class<? extends EventViews.ContentOnly> view) {
         requireNonNull(view, "view");
         _json = JsonHelper.withView(view);
+        _mediaType = MediaType.APPLICATION_JSON_TYPE;
+    }
+
+    private PeekOrPollResponseHelper(JsonHelper.JsonWriterWithViewHelper json, MediaType mediaType) {
+        _json = json;
+        _mediaType = mediaType;
+    }
+
+    /**
+     * Returns the media type, JSON or Smile, that best matches the request's "Accept" header.  JSON is returned if
+     * the header accepts both equally or accepts neither.
+     */
+    public static MediaType selectMediaType(Request request) {
+        Variant variant = request.selectVariant(JSON_OR_SMILE);
+        return variant != null ? variant.getMediaType() : MediaType.APPLICATION_JSON_TYPE;
+    }
+
+    /**
+     * Returns a helper which writes events using the same view as this helper in the provided media type.
+     */
+    public PeekOrPollResponseHelper withMediaType(MediaType mediaType) {
+        MediaType responseType = SMILE_TYPE.equals(mediaType) ? SMILE_TYPE : MediaType.APPLICATION_JSON_TYPE;
+        return responseType.equals(_mediaType) ? this : new PeekOrPollResponseHelper(_json, responseType);
+    }
+
+    /**
+     * Returns the media type of the entities returned by {@link #asEntity(Object)}.
+     */
+    public MediaType getMediaType() {
+        return _mediaType;
     }
 
     /**
-     * Returns a JSON helper that can be used to serialize events using the proper view.
+     * Returns a JSON helper that can be used to serialize events using the proper view.  This always writes JSON,
+     * regardless of the helper's media type.
      */
     public JsonHelper.JsonWriterWithViewHelper getJson() {
         return _json;
@@ -32,6 +76,9 @@ public class PeekOrPollResponseHelper {
      * Returns an object that can be serialized as a response entity to output the event list using the proper view.
      */
     public StreamingOutput asEntity(final Object events) {
+        if (SMILE_TYPE.equals(_mediaType)) {
+            return out -> _json.writeSmile(out, events);
+        }
         return out -> _json.writeJson(out, events);
     }
 }
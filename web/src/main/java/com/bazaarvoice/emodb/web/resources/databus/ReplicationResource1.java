@@ -1,7 +1,9 @@
 package com.bazaarvoice.emodb.web.resources.databus;
 
+import com.bazaarvoice.emodb.common.json.JsonHelper;
 import com.bazaarvoice.emodb.databus.repl.ReplicationEvent;
 import com.bazaarvoice.emodb.databus.repl.ReplicationSource;
+import com.bazaarvoice.emodb.web.jersey.params.SecondsParam;
 import com.bazaarvoice.emodb.web.resources.SuccessResponse;
 import com.codahale.metrics.annotation.Timed;
 import io.dropwizard.jersey.params.IntParam;
@@ -48,4 +50,21 @@ public class ReplicationResource1 {
         _replicationSource.delete(channel, messageIds);
         return SuccessResponse.instance();
     }
+
+    /**
+     * Acknowledges the events in the request body and claims the next batch of events in a single round trip.
+     * Responds with Smile if the client accepts it.
+     */
+    @POST
+    @Path("{channel}/poll")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, JsonHelper.SMILE_MEDIA_TYPE})
+    @RequiresPermissions("system|replicate_databus")
+    @Timed(name = "bv.emodb.databus.ReplicationResource1.poll", absolute = true)
+    public List<ReplicationEvent> poll(@PathParam("channel") String channel,
+                                       @QueryParam("ttl") @DefaultValue("120") SecondsParam claimTtl,
+                                       @QueryParam("limit") @DefaultValue("100") IntParam limit,
+                                       List<String> ackMessageIds) {
+        return _replicationSource.poll(channel, claimTtl.get(), limit.get(), ackMessageIds);
+    }
 }
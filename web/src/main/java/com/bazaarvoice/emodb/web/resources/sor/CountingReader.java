@@ -0,0 +1,50 @@
+package com.bazaarvoice.emodb.web.resources.sor;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reader which counts the characters read from the wrapped reader.
+ */
+class CountingReader extends FilterReader {
+    private long _count;
+
+    CountingReader(Reader in) {
+        super(in);
+    }
+
+    long getCount() {
+        return _count;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int c = super.read();
+        if (c != -1) {
+            _count++;
+        }
+        return c;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        int n = super.read(cbuf, off, len);
+        if (n > 0) {
+            _count += n;
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        _count += skipped;
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+}
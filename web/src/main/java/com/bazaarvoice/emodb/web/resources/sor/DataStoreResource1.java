@@ -3,6 +3,7 @@ package com.bazaarvoice.emodb.web.resources.sor;
 import com.bazaarvoice.emodb.auth.jersey.Authenticated;
 import com.bazaarvoice.emodb.auth.jersey.Subject;
 import com.bazaarvoice.emodb.common.api.UnauthorizedException;
+import com.bazaarvoice.emodb.common.json.JsonHelper;
 import com.bazaarvoice.emodb.common.json.JsonStreamingArrayParser;
 import com.bazaarvoice.emodb.common.json.LoggingIterator;
 import com.bazaarvoice.emodb.common.json.OrderedJson;
@@ -42,6 +43,7 @@ import com.codahale.metrics.annotation.Timed;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.base.Strings;
+import com.google.common.base.Utf8;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
@@ -49,6 +51,7 @@ import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.PeekingIterator;
 import com.google.common.collect.Sets;
+import com.google.common.io.CountingInputStream;
 import io.dropwizard.jersey.params.AbstractParam;
 import io.dropwizard.jersey.params.BooleanParam;
 import io.dropwizard.jersey.params.IntParam;
@@ -68,6 +71,7 @@ import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
@@ -75,6 +79,7 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
@@ -93,6 +98,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.LongSupplier;
 import java.util.regex.Pattern;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -360,6 +366,7 @@ public class DataStoreResource1 {
      */
     @GET
     @Path ("{table}/{key}")
+    @Produces ({MediaType.APPLICATION_JSON, JsonHelper.SMILE_MEDIA_TYPE})
     @RequiresPermissions ("sor|read|{table}")
     @Timed (name = "bv.emodb.sor.DataStoreResource1.get", absolute = true)
     @ApiOperation (value = "Retrieves the current version of a piece of content from the data store.",
@@ -380,6 +387,7 @@ public class DataStoreResource1 {
      */
     @GET
     @Path ("{table}/{key}/timeline")
+    @Produces ({MediaType.APPLICATION_JSON, JsonHelper.SMILE_MEDIA_TYPE})
     @RequiresPermissions ("sor|read|{table}")
     @Timed (name = "bv.emodb.sor.DataStoreResource1.getTimeline", absolute = true)
     @ApiOperation (value = "Retrieves all recorded history for a piece of content in the data store.",
@@ -411,6 +419,7 @@ public class DataStoreResource1 {
      */
     @GET
     @Path ("{table}")
+    @Produces ({MediaType.APPLICATION_JSON, JsonHelper.SMILE_MEDIA_TYPE})
     @RequiresPermissions ("sor|read|{table}")
     @Unbuffered
     @Timed (name = "bv.emodb.sor.DataStoreResource1.scan", absolute = true)
@@ -461,8 +470,9 @@ public class DataStoreResource1 {
      */
     @GET
     @Path ("_split/{table}/{split}")
+    @Produces ({MediaType.APPLICATION_JSON, JsonHelper.SMILE_MEDIA_TYPE})
     @RequiresPermissions ("sor|read|{table}")
-    @ThrottleConcurrentRequests (maxRequests = 550)
+    @ThrottleConcurrentRequests (maxRequests = 550, adaptive = true)
     @Unbuffered
     @Timed (name = "bv.emodb.sor.DataStoreResource1.getSplit", absolute = true)
     @ApiOperation (value = "Retrieves a list of content items in a particular table split.",
@@ -494,6 +504,7 @@ public class DataStoreResource1 {
      */
     @GET
     @Path ("_multiget")
+    @Produces ({MediaType.APPLICATION_JSON, JsonHelper.SMILE_MEDIA_TYPE})
     @Timed (name = "bv.emodb.sor.DataStoreResource1.multiGet", absolute = true)
     @ApiOperation (value = "Retrieves a list of content items for the specified comma-delimited coordinates.",
             notes = "Retrieves a list of content items for the specified comma-delimited coordinates.",
@@ -551,9 +562,13 @@ public class DataStoreResource1 {
                                    @QueryParam ("consistency") @DefaultValue ("STRONG") WriteConsistencyParam consistency,
                                    @QueryParam ("tag") List<String> tags,
                                    @QueryParam ("debug") BooleanParam debug,
+                                   @HeaderParam (HttpHeaders.CONTENT_LENGTH) @Nullable Integer contentLength,
                                    @Authenticated Subject subject) {
         Set<String> tagsSet = (tags == null) ? ImmutableSet.of() : Sets.newHashSet(tags);
-        return doUpdate(table, key, changeIdParam, Deltas.literal(json), auditParam, consistency, debug, false, subject, tagsSet);
+        Delta delta = Deltas.literal(json);
+        // The body has already been parsed, so only measure the delta when the client didn't send its length
+        int bytes = contentLength != null ? contentLength : delta.size();
+        return doUpdate(table, key, changeIdParam, delta, bytes, auditParam, consistency, debug, false, subject, tagsSet);
     }
 
     /**
@@ -582,7 +597,7 @@ public class DataStoreResource1 {
                                                 @QueryParam ("debug") BooleanParam debug,
                                                 @Authenticated Subject subject) {
         Set<String> tagsSet = (tags == null) ? ImmutableSet.of() : Sets.newHashSet(tags);
-        return doUpdate(table, key, changeIdParam, Deltas.literal(json), auditParam, consistency, debug, true, subject, tagsSet);
+        return doUpdate(table, key, changeIdParam, Deltas.literal(json), 0, auditParam, consistency, debug, true, subject, tagsSet);
     }
 
     /**
@@ -612,8 +627,8 @@ public class DataStoreResource1 {
                                   @Authenticated Subject subject) {
         checkArgument(!Strings.isNullOrEmpty(deltaString), "Missing required JSON delta request entity.");
         Set<String> tagsSet = (tags == null) ? ImmutableSet.of() : Sets.newHashSet(tags);
-        return doUpdate(table, key, changeIdParam, new DeltaParam(deltaString).get(), auditParam, consistency, debug,
-                false, subject, tagsSet);
+        return doUpdate(table, key, changeIdParam, new DeltaParam(deltaString).get(), Utf8.encodedLength(deltaString),
+                auditParam, consistency, debug, false, subject, tagsSet);
     }
 
     /**
@@ -643,7 +658,7 @@ public class DataStoreResource1 {
                                         @Authenticated Subject subject) {
         checkArgument(!Strings.isNullOrEmpty(deltaString), "Missing required JSON delta request entity.");
         Set<String> tagsSet = (tags == null) ? ImmutableSet.of() : Sets.newHashSet(tags);
-        return doUpdate(table, key, changeIdParam, new DeltaParam(deltaString).get(), auditParam, consistency, debug,
+        return doUpdate(table, key, changeIdParam, new DeltaParam(deltaString).get(), 0, auditParam, consistency, debug,
                 true, subject, tagsSet);
     }
 
@@ -667,7 +682,7 @@ public class DataStoreResource1 {
                                   @QueryParam ("debug") BooleanParam debug,
                                   @Authenticated Subject subject) {
         Set<String> tagsSet = (tags == null) ? ImmutableSet.of() : Sets.newHashSet(tags);
-        return doUpdate(table, key, changeIdParam, Deltas.delete(), auditParam, consistency, debug, false, subject, tagsSet);
+        return doUpdate(table, key, changeIdParam, Deltas.delete(), 0, auditParam, consistency, debug, false, subject, tagsSet);
     }
 
     /**
@@ -690,13 +705,14 @@ public class DataStoreResource1 {
                                                @QueryParam ("debug") BooleanParam debug,
                                                @Authenticated Subject subject) {
         Set<String> tagsSet = (tags == null) ? ImmutableSet.of() : Sets.newHashSet(tags);
-        return doUpdate(table, key, changeIdParam, Deltas.delete(), auditParam, consistency, debug, true, subject, tagsSet);
+        return doUpdate(table, key, changeIdParam, Deltas.delete(), 0, auditParam, consistency, debug, true, subject, tagsSet);
     }
 
     private SuccessResponse doUpdate(String table,
                                      String key,
                                      TimeUUIDParam changeIdParam,
                                      Delta delta,
+                                     int bytes,
                                      AuditParam auditParam,
                                      WriteConsistencyParam consistency,
                                      BooleanParam debug,
@@ -707,7 +723,7 @@ public class DataStoreResource1 {
 
         // Perform the update
         Iterable<Update> updates = asSubjectSafeUpdateIterable(Collections.singletonList(new Update(table, key,
-                changeId, delta, audit, consistency.get())).iterator(), subject, facade);
+                changeId, delta, audit, consistency.get())).iterator(), () -> bytes, subject, facade);
         if (facade) {
             _dataStore.updateAllForFacade(updates, tags);
         } else {
@@ -750,7 +766,9 @@ public class DataStoreResource1 {
                                      @QueryParam ("tag") List<String> tags,
                                      @Authenticated Subject subject) {
         Set<String> tagsSet = (tags == null) ? ImmutableSet.of() : Sets.newHashSet(tags);
-        Iterable<Update> updates = asSubjectSafeUpdateIterable(new JsonStreamingArrayParser<>(in, Update.class), subject, false);
+        CountingInputStream countingIn = new CountingInputStream(in);
+        Iterable<Update> updates = asSubjectSafeUpdateIterable(new JsonStreamingArrayParser<>(countingIn, Update.class),
+                countingIn::getCount, subject, false);
         _dataStore.updateAll(updates, tagsSet);
         return SuccessResponse.instance();
     }
@@ -771,7 +789,7 @@ public class DataStoreResource1 {
     public SuccessResponse updateAllForFacade(InputStream in, @QueryParam ("tag") List<String> tags,
                                               @Authenticated Subject subject) {
         Set<String> tagsSet = (tags == null) ? ImmutableSet.of() : Sets.newHashSet(tags);
-        Iterable<Update> updates = asSubjectSafeUpdateIterable(new JsonStreamingArrayParser<>(in, Update.class), subject, true);
+        Iterable<Update> updates = asSubjectSafeUpdateIterable(new JsonStreamingArrayParser<>(in, Update.class), () -> 0, subject, true);
         _dataStore.updateAllForFacade(updates, tagsSet);
         return SuccessResponse.instance();
     }
@@ -834,8 +852,9 @@ public class DataStoreResource1 {
                                                  BooleanParam facade, Subject subject) {
         final Audit audit = getRequired(auditParam, "audit");
         final WriteConsistency consistency = consistencyParam.get();
+        final CountingReader countingIn = new CountingReader(in);
 
-        Iterator<Update> updates = Iterators.transform(Deltas.fromStream(in), new Function<Delta, Update>() {
+        Iterator<Update> updates = Iterators.transform(Deltas.fromStream(countingIn), new Function<Delta, Update>() {
             @Override
             public Update apply(Delta delta) {
                 String table = tableParam.isPresent() ? tableParam.get() : extractKey(delta, Intrinsic.TABLE, String.class);
@@ -851,10 +870,10 @@ public class DataStoreResource1 {
         });
 
         if (facade != null && facade.get()) {
-            _dataStore.updateAllForFacade(asSubjectSafeUpdateIterable(updates, subject, true));
+            _dataStore.updateAllForFacade(asSubjectSafeUpdateIterable(updates, countingIn::getCount, subject, true));
         } else {
             // Parse and iterate through the deltas such that we never hold all the deltas in memory at once.
-            _dataStore.updateAll(asSubjectSafeUpdateIterable(updates, subject, false));
+            _dataStore.updateAll(asSubjectSafeUpdateIterable(updates, countingIn::getCount, subject, false));
         }
 
         return SuccessResponse.instance();
@@ -864,11 +883,18 @@ public class DataStoreResource1 {
      * Takes an update stream from a subject and performs the following actions on it:
      * 1. Checks that the subject has permission to update the record being updated
      * 2. Applies any active rate limiting for updates by the subject
+     *
+     * {@code bytesRead} returns the number of request body bytes read so far, and each update is charged the bytes read
+     * since the previous one.  Parsers read ahead, so within a stream bytes are charged in buffer-sized steps, but the
+     * total charged matches what was read from the body.
      */
-    private Iterable<Update> asSubjectSafeUpdateIterable(Iterator<Update> updates, final Subject subject, final boolean isFacade) {
+    private Iterable<Update> asSubjectSafeUpdateIterable(Iterator<Update> updates, final LongSupplier bytesRead,
+                                                         final Subject subject, final boolean isFacade) {
         return Iterables.filter(
                 OneTimeIterable.wrap(updates),
                 new Predicate<Update>() {
+                    private long _bytesCharged;
+
                     @Override
                     public boolean apply(Update update) {
                         NamedResource resource = new NamedResource(update.getTable());
@@ -886,7 +912,9 @@ public class DataStoreResource1 {
                         // Facades are a unique case used internally for shoveling data across data centers, so don't rate
                         // limit facade updates.
                         if (!isFacade) {
-                            _updateThrottle.beforeUpdate(subject.getId());
+                            long read = bytesRead.getAsLong();
+                            _updateThrottle.beforeUpdate(subject.getId(), (int) Math.min(read - _bytesCharged, Integer.MAX_VALUE));
+                            _bytesCharged = read;
                         }
 
                         return true;
@@ -1043,12 +1071,14 @@ public class DataStoreResource1 {
         return iterator;
     }
 
-    private static FilteredJsonStreamingOutput<Map<String, Object>> deletedContentFilteringStream(Iterator<Map<String, Object>> iterator, long limit) {
-        return new FilteredJsonStreamingOutput<Map<String, Object>>(iterator, limit) {
+    private static Response deletedContentFilteringStream(Iterator<Map<String, Object>> iterator, long limit) {
+        // The filtered stream keeps the connection alive with whitespace, which only JSON allows, so this response is
+        // always JSON even if the client would also accept Smile.
+        return Response.ok(new FilteredJsonStreamingOutput<Map<String, Object>>(iterator, limit) {
             @Override
             public boolean include(Map<String, Object> value) {
                 return !Intrinsic.isDeleted(value);
             }
-        };
+        }, MediaType.APPLICATION_JSON_TYPE).build();
     }
 }
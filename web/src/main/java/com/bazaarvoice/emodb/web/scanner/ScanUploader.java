@@ -15,6 +15,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.google.inject.Inject;
@@ -284,6 +285,37 @@ public class ScanUploader {
         return status;
     }
 
+    /**
+     * Restarts a canceled scan.  Ranges which completed before the scan was canceled are kept, and every other range,
+     * including any which were active at the time, is returned to pending and scanned again.  This allows a long
+     * running scan to recover from a failure without redoing the work it had already finished.
+     */
+    public ScanStatus resumeScan(String scanId) {
+        ScanStatus status = _scanStatusDAO.getScanStatus(scanId);
+        if (status == null || !status.isCanceled() || status.getCompleteTime() != null) {
+            return status;
+        }
+
+        List<ScanRangeStatus> pendingScanRanges = Lists.newArrayList();
+        for (ScanRangeStatus incomplete : Iterables.concat(status.getPendingScanRanges(), status.getActiveScanRanges())) {
+            pendingScanRanges.add(new ScanRangeStatus(incomplete.getTaskId(), incomplete.getPlacement(), incomplete.getScanRange(),
+                    incomplete.getBatchId(), incomplete.getBlockedByBatchId(), incomplete.getConcurrencyId()));
+        }
+
+        ScanStatus resumedStatus = new ScanStatus(scanId, status.getOptions(), status.isTableSnapshotCreated(), false,
+                status.getStartTime(), pendingScanRanges, ImmutableList.of(), status.getCompleteScanRanges());
+
+        _log.info("Resuming scan {} with {} of {} ranges remaining", scanId, pendingScanRanges.size(),
+                pendingScanRanges.size() + status.getCompleteScanRanges().size());
+
+        _scanStatusDAO.updateScanStatus(resumedStatus);
+
+        // Notify the workflow that the remaining ranges can be started
+        _scanWorkflow.scanStatusUpdated(scanId);
+
+        return resumedStatus;
+    }
+
     public ScanStatus getStatus(String id) {
         return _scanStatusDAO.getScanStatus(id);
     }
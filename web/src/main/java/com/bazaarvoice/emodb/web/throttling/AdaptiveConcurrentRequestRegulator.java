@@ -0,0 +1,355 @@
+package com.bazaarvoice.emodb.web.throttling;
+
+import com.bazaarvoice.emodb.auth.apikey.ApiKeyRequest;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Maps;
+import com.sun.jersey.spi.container.ContainerRequest;
+
+import javax.annotation.Nullable;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Implementation of {@link ConcurrentRequestRegulator} whose concurrency limit adapts to observed latency instead of
+ * being fixed.  The limit starts at the maximum and, after every window of completed requests, is moved towards
+ * {@code limit * gradient + sqrt(limit)} where the gradient is the ratio of the long-term average latency to the
+ * latency in the last window, capped to [0.5, 1].  Rising latency, the first sign the server is saturated, shrinks the
+ * limit; when latency recovers the {@code sqrt(limit)} headroom lets the limit climb back towards the maximum.
+ * <p>
+ * Requests which arrive when the limit has been reached wait briefly in a queue before being rejected with a 503.
+ * Waiting requests are grouped by API key and a freed slot goes to the waiting client with the fewest requests in
+ * flight.  While another client is waiting no single client may hold more than {@link #MAX_CLIENT_SHARE} of the limit.
+ * This keeps a client issuing many long requests, such as a parallel scan, from starving clients issuing occasional
+ * short requests, while a client with the server to itself may still use the entire limit.
+ * <p>
+ * Like {@link DefaultConcurrentRequestRegulator}, the permit acquired is stored as a property on the request so exactly
+ * what was acquired is released.
+ */
+public class AdaptiveConcurrentRequestRegulator implements ConcurrentRequestRegulator {
+
+    /** Maximum fraction of the limit a single client may hold while other clients are waiting to be admitted. */
+    @VisibleForTesting
+    static final double MAX_CLIENT_SHARE = 0.75;
+
+    private static final int WINDOW_SIZE = 50;
+    private static final long MAX_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+    /** Latency may grow by up to this factor over the long-term average before the limit is reduced. */
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double LONG_TERM_DECAY = 0.05;
+
+    private final String _permitProperty;
+    private final int _minLimit;
+    private final int _maxLimit;
+    private final long _maxQueueNanos;
+    private final Ticker _ticker;
+    private final Meter _throttlingMeter;
+    private final Histogram _queueTime;
+
+    private final ReentrantLock _lock = new ReentrantLock();
+    /** Waiting requests by client, in the order each client first started waiting. */
+    private final Map<String, Deque<Waiter>> _waiting = Maps.newLinkedHashMap();
+    private final Map<String, Integer> _inFlightByClient = Maps.newHashMap();
+    private double _limit;
+    private int _inFlight;
+    private int _queued;
+
+    // Latency window state
+    private int _windowCount;
+    private long _windowTotalNanos;
+    private long _windowStartNanos;
+    private int _windowMaxInFlight;
+    private double _longTermNanos;
+
+    public AdaptiveConcurrentRequestRegulator(String permitProperty, int minConcurrentRequests, int maxConcurrentRequests,
+                                              long maxQueueTime, TimeUnit maxQueueTimeUnit, @Nullable Meter throttlingMeter,
+                                              @Nullable MetricRegistry metricRegistry, @Nullable String metricName) {
+        this(permitProperty, minConcurrentRequests, maxConcurrentRequests, maxQueueTime, maxQueueTimeUnit,
+                throttlingMeter, metricRegistry, metricName, Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    AdaptiveConcurrentRequestRegulator(String permitProperty, int minConcurrentRequests, int maxConcurrentRequests,
+                                       long maxQueueTime, TimeUnit maxQueueTimeUnit, @Nullable Meter throttlingMeter,
+                                       @Nullable MetricRegistry metricRegistry, @Nullable String metricName,
+                                       Ticker ticker) {
+        checkArgument(!Strings.isNullOrEmpty(permitProperty), "Permit property cannot be null or empty");
+        checkArgument(minConcurrentRequests > 0, "Min concurrent requests must be positive");
+        checkArgument(maxConcurrentRequests >= minConcurrentRequests, "Max concurrent requests cannot be less than min");
+        checkArgument(maxQueueTime >= 0, "Max queue time cannot be negative");
+        _permitProperty = permitProperty;
+        _minLimit = minConcurrentRequests;
+        _maxLimit = maxConcurrentRequests;
+        _maxQueueNanos = maxQueueTimeUnit.toNanos(maxQueueTime);
+        _ticker = ticker;
+        _limit = maxConcurrentRequests;
+        _windowStartNanos = ticker.read();
+        _throttlingMeter = throttlingMeter;
+
+        if (metricRegistry != null && metricName != null) {
+            _queueTime = metricRegistry.histogram(MetricRegistry.name("bv.emodb.web", "Throttle", metricName, "queue-micros"));
+            register(metricRegistry, MetricRegistry.name("bv.emodb.web", "Throttle", metricName, "limit"), (Gauge<Integer>) this::getLimit);
+            register(metricRegistry, MetricRegistry.name("bv.emodb.web", "Throttle", metricName, "in-flight"), (Gauge<Integer>) this::getInFlight);
+            register(metricRegistry, MetricRegistry.name("bv.emodb.web", "Throttle", metricName, "queued"), (Gauge<Integer>) this::getQueued);
+        } else {
+            _queueTime = null;
+        }
+    }
+
+    private static void register(MetricRegistry metricRegistry, String name, Metric metric) {
+        // Replace rather than fail if the same endpoint is registered more than once, such as in tests
+        metricRegistry.remove(name);
+        metricRegistry.register(name, metric);
+    }
+
+    @Override
+    public void throttle(ContainerRequest request) {
+        String client = getClient(request);
+        long start = _ticker.read();
+
+        _lock.lock();
+        try {
+            if (_waiting.isEmpty() && canAdmit(client)) {
+                admit(client);
+            } else if (!awaitAdmission(client, start)) {
+                reject(request);
+            }
+        } finally {
+            _lock.unlock();
+        }
+
+        if (_queueTime != null) {
+            _queueTime.update(TimeUnit.NANOSECONDS.toMicros(_ticker.read() - start));
+        }
+        request.getProperties().put(_permitProperty, new Permit(client, _ticker.read()));
+    }
+
+    @Override
+    public void release(ContainerRequest request) {
+        Permit permit = (Permit) request.getProperties().remove(_permitProperty);
+        if (permit == null) {
+            return;
+        }
+        long now = _ticker.read();
+
+        _lock.lock();
+        try {
+            _inFlight -= 1;
+            _inFlightByClient.compute(permit._client, (client, count) -> count == null || count <= 1 ? null : count - 1);
+            recordLatency(now - permit._startNanos, now);
+            dispatch();
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /** Returns the current concurrency limit. */
+    public int getLimit() {
+        _lock.lock();
+        try {
+            return (int) _limit;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        _lock.lock();
+        try {
+            return _inFlight;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    public int getQueued() {
+        _lock.lock();
+        try {
+            return _queued;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the request is admitted by {@link #dispatch()} or the maximum queue time passes.  Returns false if the
+     * request wasn't admitted.  Must be called while holding the lock.
+     */
+    private boolean awaitAdmission(String client, long start) {
+        // Don't queue more requests than could be admitted at once
+        if (_queued >= (int) _limit) {
+            return false;
+        }
+
+        Waiter waiter = new Waiter(_lock.newCondition());
+        _waiting.computeIfAbsent(client, ignore -> new ArrayDeque<>()).add(waiter);
+        _queued += 1;
+        // Other clients may be waiting only because they've reached their share, in which case this request can run now
+        dispatch();
+        try {
+            long remaining = _maxQueueNanos - (_ticker.read() - start);
+            while (!waiter._admitted && remaining > 0) {
+                remaining = waiter._condition.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!waiter._admitted) {
+            Deque<Waiter> waiters = _waiting.get(client);
+            waiters.remove(waiter);
+            if (waiters.isEmpty()) {
+                _waiting.remove(client);
+            }
+            _queued -= 1;
+        }
+        return waiter._admitted;
+    }
+
+    /** Admits waiting requests while there are free permits.  Must be called while holding the lock. */
+    private void dispatch() {
+        while (!_waiting.isEmpty()) {
+            // Prefer the client with the fewest requests in flight.  Ties go to the client which has waited longest.
+            String next = null;
+            int nextInFlight = Integer.MAX_VALUE;
+            for (String client : _waiting.keySet()) {
+                int inFlight = _inFlightByClient.getOrDefault(client, 0);
+                if (inFlight < nextInFlight && canAdmit(client)) {
+                    next = client;
+                    nextInFlight = inFlight;
+                }
+            }
+            if (next == null) {
+                return;
+            }
+
+            Deque<Waiter> waiters = _waiting.get(next);
+            Waiter waiter = waiters.remove();
+            if (waiters.isEmpty()) {
+                _waiting.remove(next);
+            } else {
+                // Move the client to the back so clients with equal counts take turns
+                _waiting.remove(next);
+                _waiting.put(next, waiters);
+            }
+            _queued -= 1;
+            admit(next);
+            waiter._admitted = true;
+            waiter._condition.signal();
+        }
+    }
+
+    private boolean canAdmit(String client) {
+        int limit = (int) _limit;
+        if (_inFlight >= limit) {
+            return false;
+        }
+        if (!isOtherClientWaiting(client)) {
+            // Nobody else wants a permit, so there's no one to leave room for
+            return true;
+        }
+        int clientLimit = Math.max(1, (int) Math.ceil(limit * MAX_CLIENT_SHARE));
+        return _inFlightByClient.getOrDefault(client, 0) < clientLimit;
+    }
+
+    private boolean isOtherClientWaiting(String client) {
+        return _waiting.size() > (_waiting.containsKey(client) ? 1 : 0);
+    }
+
+    private void admit(String client) {
+        _inFlight += 1;
+        _inFlightByClient.merge(client, 1, Integer::sum);
+        _windowMaxInFlight = Math.max(_windowMaxInFlight, _inFlight);
+    }
+
+    /** Updates the limit once per window of completed requests.  Must be called while holding the lock. */
+    private void recordLatency(long latencyNanos, long now) {
+        _windowCount += 1;
+        _windowTotalNanos += latencyNanos;
+        if (_windowCount < WINDOW_SIZE && now - _windowStartNanos < MAX_WINDOW_NANOS) {
+            return;
+        }
+
+        double shortTermNanos = (double) _windowTotalNanos / _windowCount;
+        int maxInFlight = _windowMaxInFlight;
+        _windowCount = 0;
+        _windowTotalNanos = 0;
+        _windowStartNanos = now;
+        _windowMaxInFlight = _inFlight;
+
+        if (_longTermNanos == 0) {
+            _longTermNanos = shortTermNanos;
+            return;
+        }
+        _longTermNanos = _longTermNanos * (1 - LONG_TERM_DECAY) + shortTermNanos * LONG_TERM_DECAY;
+        // If latency has been high for so long it looks normal, drift down so the long-term average stays meaningful
+        if (_longTermNanos / shortTermNanos > 2) {
+            _longTermNanos *= 0.95;
+        }
+
+        // Don't grow the limit if demand didn't come close to it; there's no evidence the server can handle more
+        if (maxInFlight < _limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * _longTermNanos / shortTermNanos));
+        double newLimit = _limit * gradient + Math.sqrt(_limit);
+        newLimit = _limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        double previousLimit = _limit;
+        _limit = Math.max(_minLimit, Math.min(_maxLimit, newLimit));
+        if (_limit > previousLimit) {
+            // More requests can run now
+            dispatch();
+        }
+    }
+
+    private void reject(ContainerRequest request) {
+        if (_throttlingMeter != null) {
+            _throttlingMeter.mark();
+        }
+        String response = String.format("Too many concurrent requests for %s. Try again later.", request.getPath());
+        throw new WebApplicationException(Response.status(Response.Status.SERVICE_UNAVAILABLE).entity(response).build());
+    }
+
+    private static String getClient(ContainerRequest request) {
+        String apiKey = request.getHeaderValue(ApiKeyRequest.AUTHENTICATION_HEADER);
+        if (Strings.isNullOrEmpty(apiKey)) {
+            apiKey = request.getQueryParameters().getFirst(ApiKeyRequest.AUTHENTICATION_PARAM);
+        }
+        return Strings.nullToEmpty(apiKey);
+    }
+
+    private static class Waiter {
+        private final Condition _condition;
+        private boolean _admitted;
+
+        private Waiter(Condition condition) {
+            _condition = condition;
+        }
+    }
+
+    private static class Permit {
+        private final String _client;
+        private final long _startNanos;
+
+        private Permit(String client, long startNanos) {
+            _client = client;
+            _startNanos = startNanos;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.bazaarvoice.emodb.web.throttling;
+
+import java.time.Instant;
+
+/**
+ * Recent rate at which a single server received updates from an API key with a cluster-wide
+ * {@link DataStoreUpdateThrottle}.  Each server publishes its demand so every server can compute its share of the
+ * cluster-wide limit.
+ */
+public class DataStoreUpdateDemand {
+
+    private final double _updatesPerSecond;
+    private final double _bytesPerSecond;
+    private final Instant _reportTime;
+
+    public DataStoreUpdateDemand(double updatesPerSecond, double bytesPerSecond, Instant reportTime) {
+        _updatesPerSecond = updatesPerSecond;
+        _bytesPerSecond = bytesPerSecond;
+        _reportTime = reportTime;
+    }
+
+    public double getUpdatesPerSecond() {
+        return _updatesPerSecond;
+    }
+
+    public double getBytesPerSecond() {
+        return _bytesPerSecond;
+    }
+
+    public Instant getReportTime() {
+        return _reportTime;
+    }
+}
@@ -6,20 +6,30 @@ import java.util.Objects;
 import static java.util.Objects.hash;
 
 /**
- * Throttle for updates to the DataStore.  This consists of two attributes:
+ * Throttle for updates to the DataStore.  This consists of the following attributes:
  * <ol>
  *     <li>The rate limit in terms of updates per second.</li>
  *     <li>A expiration time after which the rate limit will no longer be enforced.</li>
+ *     <li>An optional rate limit in terms of delta bytes per second, or 0 if only updates are limited.</li>
+ *     <li>Whether the limits apply to each instance or are shared by every instance in the local data center.</li>
  * </ol>
  */
 public class DataStoreUpdateThrottle {
 
     private final double _rateLimit;
     private final Instant _expirationTime;
+    private final double _byteRateLimit;
+    private final boolean _clusterWide;
 
     public DataStoreUpdateThrottle(double rateLimit, Instant expirationTime) {
+        this(rateLimit, expirationTime, 0, false);
+    }
+
+    public DataStoreUpdateThrottle(double rateLimit, Instant expirationTime, double byteRateLimit, boolean clusterWide) {
         _rateLimit = rateLimit;
         _expirationTime = expirationTime;
+        _byteRateLimit = byteRateLimit;
+        _clusterWide = clusterWide;
     }
 
     public double getRateLimit() {
@@ -30,6 +40,14 @@ public class DataStoreUpdateThrottle {
         return _expirationTime;
     }
 
+    public double getByteRateLimit() {
+        return _byteRateLimit;
+    }
+
+    public boolean isClusterWide() {
+        return _clusterWide;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -40,11 +58,13 @@ public class DataStoreUpdateThrottle {
         }
         DataStoreUpdateThrottle that = (DataStoreUpdateThrottle) o;
         return that._rateLimit == _rateLimit &&
-                Objects.equals(_expirationTime, that._expirationTime);
+                Objects.equals(_expirationTime, that._expirationTime) &&
+                that._byteRateLimit == _byteRateLimit &&
+                that._clusterWide == _clusterWide;
     }
 
     @Override
     public int hashCode() {
-        return hash(_rateLimit, _expirationTime);
+        return hash(_rateLimit, _expirationTime, _byteRateLimit, _clusterWide);
     }
 }
@@ -28,11 +28,17 @@ import static java.util.Objects.requireNonNull;
  * Updates made internally by EmoDB, such as during a purge operation, or as a consequence of another action, such as
  * by creating a table, are not rate limited by this task.
  *
- * Whether per API key or instance wide all rate limits are expressed and enforced at the instance level.  There is no way
- * to specify a global rate limit across the entire cluster.  If an API key is rate limited to 200 wps and there are 4
- * instances in the cluster then, assuming the API key is maximally utilizing all four instances, it can achieve an
- * aggregate 800 wps across the cluster.  If a fifth server is added to the cluster its maximum throughput rises to
- * 1,000 wps.
+ * By default, whether per API key or instance wide, rate limits are expressed and enforced at the instance level.  If an
+ * API key is rate limited to 200 wps and there are 4 instances in the cluster then, assuming the API key is maximally
+ * utilizing all four instances, it can achieve an aggregate 800 wps across the cluster.  If a fifth server is added to
+ * the cluster its maximum throughput rises to 1,000 wps.  With "scope=cluster" the limit is instead shared by every
+ * instance in the local data center, each instance enforcing a share of the limit in proportion to the updates it is
+ * receiving for the API key.  Shares are rebalanced every few seconds, so the aggregate rate may briefly exceed the
+ * limit as load moves between instances.
+ *
+ * In addition to the number of updates a throttle can limit the size of the updates with the "bytes" parameter, the
+ * maximum rate in bytes per second of the deltas written.  This is useful for API keys which write a modest number of
+ * very large deltas.  Either limit may be used without the other.
  *
  * Throttles are applied only within the local data center.  For example, rate limiting an API key in us-east-1 will
  * have no effect on throttling writes in eu-west-1.  This task would have to be called on a server in each data center
@@ -40,7 +46,7 @@ import static java.util.Objects.requireNonNull;
  * server in the local data center.
  *
  * All throttles must expire after a specific duration.  If none is provided the default is 24 hours.  To remove all
- * throttling for an API key set the rate limit to 0.  Note that it is not possible to completely block update access
+ * throttling for an API key set both the rate limit and the byte limit to 0.  Note that it is not possible to completely block update access
  * using this task, but it can be set remarkably low, such as to 0.1 (1 update every 10 seconds).
  *
  * API keys are expressed using their IDs, not the private keys.  Using this task with a key and not the key's ID will
@@ -56,10 +62,13 @@ import static java.util.Objects.requireNonNull;
  *     # Set an instance wide throttle
  *     curl -s -XPOST 'localhost:8081/tasks/sor-api-update-throttle?id=*&limit=500&duration=PT30M'
  *
+ *     # Limit an API key to 1,000 updates and 5MB of deltas per second across the entire local data center
+ *     curl -s -XPOST 'localhost:8081/tasks/sor-api-update-throttle?id=ID03&limit=1000&bytes=5000000&scope=cluster'
+ *
  *     # Remove a throttle
  *      curl -s -XPOST 'localhost:8081/tasks/sor-api-update-throttle?id=ID02&limit=0'
  *
- *     # List all throttled endpoints
+ *     # List all throttled endpoints and the updates received by this instance from each recently active API key
  *      curl -s -XPOST 'localhost:8081/tasks/sor-api-update-throttle'
  *
  *     # Clear all throttled endpoints
@@ -96,6 +105,27 @@ public class DataStoreUpdateThrottleControlTask extends Task {
             throw new IllegalArgumentException("At most one limit parameter is permitted");
         }
 
+        double byteLimit = 0;
+        values = parameters.get("bytes");
+        if (values.size() == 1) {
+            byteLimit = Double.parseDouble(values.iterator().next());
+        } else if (values.size() > 1) {
+            throw new IllegalArgumentException("At most one bytes parameter is permitted");
+        }
+
+        boolean clusterWide = false;
+        values = parameters.get("scope");
+        if (values.size() == 1) {
+            String scope = values.iterator().next();
+            if ("cluster".equals(scope)) {
+                clusterWide = true;
+            } else if (!"instance".equals(scope)) {
+                throw new IllegalArgumentException("Scope must be either \"instance\" or \"cluster\"");
+            }
+        } else if (values.size() > 1) {
+            throw new IllegalArgumentException("At most one scope parameter is permitted");
+        }
+
         boolean throttlesChanged = false;
 
         if (parameters.keySet().contains("clear")) {
@@ -108,9 +138,10 @@ public class DataStoreUpdateThrottleControlTask extends Task {
 
         if (!parameters.get("id").isEmpty()) {
             DataStoreUpdateThrottle throttle = null;
-            if (limit > 0) {
-                throttle = new DataStoreUpdateThrottle(limit, Instant.now().plus(expiryDuration));
-                out.printf("Applying throttled rate limit %f expires at %s:\n", limit, throttle.getExpirationTime());
+            if (limit > 0 || byteLimit > 0) {
+                throttle = new DataStoreUpdateThrottle(limit, Instant.now().plus(expiryDuration), byteLimit, clusterWide);
+                out.printf("Applying throttled %s rate limit %s expires at %s:\n",
+                        clusterWide ? "cluster" : "instance", describe(throttle), throttle.getExpirationTime());
             } else {
                 out.printf("Removing throttles:\n");
             }
@@ -146,9 +177,39 @@ public class DataStoreUpdateThrottleControlTask extends Task {
             String apiKey = entry.getKey();
             DataStoreUpdateThrottle throttle = entry.getValue();
 
-            out.printf("- %s (limit %f expires at %s)\n", apiKey, throttle.getRateLimit(), throttle.getExpirationTime());
+            out.printf("- %s (%s %s expires at %s)\n", apiKey, throttle.isClusterWide() ? "cluster" : "instance",
+                    describe(throttle), throttle.getExpirationTime());
+        }
+
+        Map<String, Double> localRateLimits = _throttleManager.getLocalRateLimits();
+        if (!localRateLimits.isEmpty()) {
+            out.println();
+            out.println("Update rates currently permitted on this instance:\n");
+            for (Map.Entry<String, Double> entry : localRateLimits.entrySet()) {
+                out.printf("- %s (limit %f)\n", entry.getKey(), entry.getValue());
+            }
+        }
+
+        out.println();
+        out.println("Updates received by this instance:\n");
+        for (Map.Entry<String, DataStoreUpdateThrottleManager.Consumption> entry : _throttleManager.getConsumption().entrySet()) {
+            out.printf("- %s (%d updates, %d bytes)\n", entry.getKey(), entry.getValue().getUpdates(), entry.getValue().getBytes());
         }
 
         out.println();
     }
+
+    private String describe(DataStoreUpdateThrottle throttle) {
+        StringBuilder description = new StringBuilder();
+        if (throttle.getRateLimit() > 0) {
+            description.append(String.format("limit %f", throttle.getRateLimit()));
+        }
+        if (throttle.getByteRateLimit() > 0) {
+            if (description.length() > 0) {
+                description.append(", ");
+            }
+            description.append(String.format("bytes %f", throttle.getByteRateLimit()));
+        }
+        return description.toString();
+    }
 }
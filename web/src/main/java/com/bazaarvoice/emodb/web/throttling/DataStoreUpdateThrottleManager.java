@@ -1,21 +1,37 @@
 package com.bazaarvoice.emodb.web.throttling;
 
+import com.bazaarvoice.emodb.common.dropwizard.guice.SelfHostAndPort;
+import com.bazaarvoice.emodb.common.dropwizard.lifecycle.LifeCycleRegistry;
 import com.bazaarvoice.emodb.common.zookeeper.store.ChangeType;
 import com.bazaarvoice.emodb.common.zookeeper.store.MapStore;
 import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import com.google.common.net.HostAndPort;
 import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
+import io.dropwizard.lifecycle.ExecutorServiceManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -33,6 +49,13 @@ import static java.util.Objects.requireNonNull;
  * the active throttles in ZooKeeper, and a listener updates the local throttles to match the ZooKeeper state.  For this
  * reason there is a slight propagation delay between updating the rate limit locally and it being enforced throughout
  * the data center, including on the local instance.
+ * <p>
+ * Throttles are normally enforced independently by each instance.  A cluster-wide throttle is instead shared by every
+ * instance in the local data center: every {@link #LEASE_PERIOD} each instance publishes the rate at which it has been
+ * receiving updates for the throttle to a second {@link MapStore} and leases itself a share of the limit in proportion
+ * to its part of the total demand.  Each instance keeps a small minimum share so an instance which starts receiving
+ * updates isn't blocked outright until its next lease, which means the aggregate rate can exceed the limit by a small
+ * amount while load shifts.
  */
 public class DataStoreUpdateThrottleManager implements DataStoreUpdateThrottler {
 
@@ -45,22 +68,81 @@ public class DataStoreUpdateThrottleManager implements DataStoreUpdateThrottler
      */
     public static final String INSTANCE_RATE_LIMIT_KEY = "*";
 
+    /** How often each instance publishes its demand and recomputes its share of cluster-wide throttles. */
+    private static final Duration LEASE_PERIOD = Duration.ofSeconds(5);
+    /** Demand reported longer ago than this is from an instance which is no longer receiving updates. */
+    private static final Duration STALE_DEMAND = Duration.ofSeconds(30);
+    /** Demand reported longer ago than this is from an instance which has likely stopped, so it is deleted. */
+    private static final Duration ABANDONED_DEMAND = Duration.ofMinutes(10);
+    /** Fraction of an even split of a cluster-wide limit which every instance keeps regardless of its demand. */
+    private static final double MIN_SHARE = 0.1;
+
     private final Logger _log = LoggerFactory.getLogger(DataStoreUpdateThrottleManager.class);
 
     private final Clock _clock;
     private final MapStore<DataStoreUpdateThrottle> _currentRateLimits;
+    private final MapStore<DataStoreUpdateDemand> _demand;
+    private final String _selfId;
     private volatile ExpiringRateLimiter _instanceRateLimit = null;
     private final ConcurrentMap<String, ExpiringRateLimiter> _rateLimitByApiKey = Maps.newConcurrentMap();
+    private final LoadingCache<String, Consumption> _consumptionByApiKey;
     private final Histogram _throttleWaitTimeMs;
+    private final Meter _updates;
+    private final Meter _updateBytes;
+
+    /**
+     * Creates a manager which doesn't coordinate with other instances.  Cluster-wide throttles are enforced as if they
+     * were instance throttles.
+     */
+    public DataStoreUpdateThrottleManager(MapStore<DataStoreUpdateThrottle> currentRateLimits,
+                                          Clock clock, MetricRegistry metricRegistry) {
+        this(currentRateLimits, null, null, clock, metricRegistry);
+    }
 
     @Inject
     public DataStoreUpdateThrottleManager(@DataStoreUpdateThrottleMapStore MapStore<DataStoreUpdateThrottle> currentRateLimits,
+                                          @DataStoreUpdateDemandMapStore MapStore<DataStoreUpdateDemand> demand,
+                                          @SelfHostAndPort HostAndPort self, LifeCycleRegistry lifeCycle,
                                           Clock clock, MetricRegistry metricRegistry) {
+        this(currentRateLimits, requireNonNull(demand, "demand"), requireNonNull(self, "self").toString(), clock, metricRegistry);
+
+        String nameFormat = "sor-update-throttle-lease-%d";
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat(nameFormat).setDaemon(true).build());
+        lifeCycle.manage(new ExecutorServiceManager(executor, io.dropwizard.util.Duration.seconds(1), nameFormat));
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                renewLeases();
+            } catch (Throwable t) {
+                _log.warn("Failed to renew cluster-wide update throttle leases", t);
+            }
+        }, LEASE_PERIOD.toMillis(), LEASE_PERIOD.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @VisibleForTesting
+    DataStoreUpdateThrottleManager(MapStore<DataStoreUpdateThrottle> currentRateLimits,
+                                   @Nullable MapStore<DataStoreUpdateDemand> demand, @Nullable String selfId,
+                                   Clock clock, MetricRegistry metricRegistry) {
         _currentRateLimits = currentRateLimits;
+        _demand = demand;
+        _selfId = selfId;
         _clock = clock;
         _currentRateLimits.addListener((key, changeType) -> onRateLimitChanged(fromZKPath(key), changeType));
 
+        // Track consumption for recently active API keys so operators can see which keys are worth throttling
+        _consumptionByApiKey = CacheBuilder.newBuilder()
+                .expireAfterAccess(1, TimeUnit.HOURS)
+                .maximumSize(10000)
+                .build(new CacheLoader<String, Consumption>() {
+                    @Override
+                    public Consumption load(String id) throws Exception {
+                        return new Consumption();
+                    }
+                });
+
         _throttleWaitTimeMs = metricRegistry.histogram(MetricRegistry.name("bv.emodb.web", "Throttle", "throttled-sor-update-ms"));
+        _updates = metricRegistry.meter(MetricRegistry.name("bv.emodb.web", "Throttle", "sor-updates"));
+        _updateBytes = metricRegistry.meter(MetricRegistry.name("bv.emodb.web", "Throttle", "sor-update-bytes"));
     }
 
     public void updateAPIKeyRateLimit(String id, DataStoreUpdateThrottle throttle) {
@@ -92,17 +174,49 @@ public class DataStoreUpdateThrottleManager implements DataStoreUpdateThrottler
                 .collect(Collectors.toMap(e -> fromZKPath(e.getKey()), Map.Entry::getValue));
     }
 
+    /**
+     * Returns the update rate this instance currently permits for each active throttle.  For cluster-wide throttles
+     * this is the instance's share of the limit.
+     */
+    public Map<String, Double> getLocalRateLimits() {
+        ImmutableMap.Builder<String, Double> builder = ImmutableMap.builder();
+        ExpiringRateLimiter instanceRateLimit = _instanceRateLimit;
+        if (instanceRateLimit != null && instanceRateLimit._rateLimiter != null) {
+            builder.put(INSTANCE_RATE_LIMIT_KEY, instanceRateLimit._rateLimiter.getRate());
+        }
+        for (Map.Entry<String, ExpiringRateLimiter> entry : _rateLimitByApiKey.entrySet()) {
+            if (entry.getValue()._rateLimiter != null) {
+                builder.put(entry.getKey(), entry.getValue()._rateLimiter.getRate());
+            }
+        }
+        return builder.build();
+    }
+
+    /** Returns the updates and bytes received by this instance for each recently active API key. */
+    public Map<String, Consumption> getConsumption() {
+        return ImmutableMap.copyOf(_consumptionByApiKey.asMap());
+    }
+
     @Override
     public void beforeUpdate(String id) {
+        beforeUpdate(id, 0);
+    }
+
+    @Override
+    public void beforeUpdate(String id, int bytes) {
         requireNonNull(id, "Rate limiting of SOR updates should only be applied to API requests with an API key");
 
+        _consumptionByApiKey.getUnchecked(id).record(bytes);
+        _updates.mark();
+        _updateBytes.mark(bytes);
+
         double millisWaited = 0;
         double maybeSecondsWaited;
 
         // First, apply instance rate limit
         ExpiringRateLimiter rateLimiter = _instanceRateLimit;
         if (rateLimiter != null) {
-            if ((maybeSecondsWaited = rateLimiter.rateLimit()) != -1) {
+            if ((maybeSecondsWaited = rateLimiter.rateLimit(bytes)) != -1) {
                 millisWaited = maybeSecondsWaited * 1000.0;
             } else {
                 synchronized (this) {
@@ -120,7 +234,7 @@ public class DataStoreUpdateThrottleManager implements DataStoreUpdateThrottler
         // Next apply API Key rate limit
         rateLimiter = _rateLimitByApiKey.get(id);
         if (rateLimiter != null) {
-            if ((maybeSecondsWaited = rateLimiter.rateLimit()) != -1) {
+            if ((maybeSecondsWaited = rateLimiter.rateLimit(bytes)) != -1) {
                 millisWaited += maybeSecondsWaited * 1000.0;
             } else {
                 // Same as with the instance throttle we accept an edge race condition so we can clear expired throttles.
@@ -135,6 +249,75 @@ public class DataStoreUpdateThrottleManager implements DataStoreUpdateThrottler
         }
     }
 
+    /**
+     * Publishes this instance's demand for each cluster-wide throttle and adjusts the local rate limiters to this
+     * instance's share of each limit.
+     */
+    @VisibleForTesting
+    void renewLeases() throws Exception {
+        if (_demand == null) {
+            return;
+        }
+        Instant now = _clock.instant();
+        Map<String, DataStoreUpdateDemand> allDemand = ImmutableMap.copyOf(_demand.getAll());
+
+        Map<String, ExpiringRateLimiter> clusterWide = Maps.newHashMap();
+        ExpiringRateLimiter instanceRateLimit = _instanceRateLimit;
+        if (instanceRateLimit != null && instanceRateLimit._throttle.isClusterWide()) {
+            clusterWide.put(INSTANCE_RATE_LIMIT_ZK_KEY, instanceRateLimit);
+        }
+        for (Map.Entry<String, ExpiringRateLimiter> entry : _rateLimitByApiKey.entrySet()) {
+            if (entry.getValue()._throttle.isClusterWide()) {
+                clusterWide.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        for (Map.Entry<String, ExpiringRateLimiter> entry : clusterWide.entrySet()) {
+            String id = entry.getKey();
+            ExpiringRateLimiter rateLimiter = entry.getValue();
+            DataStoreUpdateDemand localDemand = rateLimiter.sampleDemand(now);
+            _demand.set(toDemandKey(_selfId, id), localDemand);
+
+            // Sum the demand from every instance which has recently reported for this throttle, including this one
+            double totalUpdates = localDemand.getUpdatesPerSecond();
+            double totalBytes = localDemand.getBytesPerSecond();
+            int instances = 1;
+            for (Map.Entry<String, DataStoreUpdateDemand> demandEntry : allDemand.entrySet()) {
+                String[] hostAndId = fromDemandKey(demandEntry.getKey());
+                DataStoreUpdateDemand demand = demandEntry.getValue();
+                if (hostAndId != null && hostAndId[1].equals(id) && !hostAndId[0].equals(_selfId) &&
+                        demand.getReportTime().plus(STALE_DEMAND).isAfter(now)) {
+                    totalUpdates += demand.getUpdatesPerSecond();
+                    totalBytes += demand.getBytesPerSecond();
+                    instances += 1;
+                }
+            }
+
+            rateLimiter.lease(
+                    share(localDemand.getUpdatesPerSecond(), totalUpdates, instances),
+                    share(localDemand.getBytesPerSecond(), totalBytes, instances));
+        }
+
+        // Clean up demand reported by instances which have stopped and for throttles this instance no longer has
+        for (Map.Entry<String, DataStoreUpdateDemand> demandEntry : allDemand.entrySet()) {
+            String[] hostAndId = fromDemandKey(demandEntry.getKey());
+            boolean abandoned = !demandEntry.getValue().getReportTime().plus(ABANDONED_DEMAND).isAfter(now);
+            boolean ours = hostAndId != null && hostAndId[0].equals(_selfId) && !clusterWide.containsKey(hostAndId[1]);
+            if (abandoned || ours) {
+                _demand.remove(demandEntry.getKey());
+            }
+        }
+    }
+
+    /** Returns the fraction of a cluster-wide limit this instance should use given its demand. */
+    private static double share(double localDemand, double totalDemand, int instances) {
+        double evenSplit = 1.0 / instances;
+        if (totalDemand <= 0) {
+            return evenSplit;
+        }
+        return Math.max(MIN_SHARE * evenSplit, localDemand / totalDemand);
+    }
+
     private void onRateLimitChanged(String key, ChangeType changeType) {
         if (INSTANCE_RATE_LIMIT_KEY.equals(key)) {
             onInstanceRateLimitChanged(changeType == ChangeType.REMOVE);
@@ -149,9 +332,9 @@ public class DataStoreUpdateThrottleManager implements DataStoreUpdateThrottler
         if (removed || rateLimit == null) {
             _instanceRateLimit = null;
         } else if (_instanceRateLimit == null) {
-            _instanceRateLimit = new ExpiringRateLimiter(createRateLimiter(rateLimit.getRateLimit()), rateLimit.getExpirationTime());
+            _instanceRateLimit = new ExpiringRateLimiter(rateLimit);
         } else {
-            _instanceRateLimit = _instanceRateLimit.updated(rateLimit.getRateLimit(), rateLimit.getExpirationTime());
+            _instanceRateLimit = _instanceRateLimit.updated(rateLimit);
         }
     }
 
@@ -163,9 +346,9 @@ public class DataStoreUpdateThrottleManager implements DataStoreUpdateThrottler
         } else {
             _rateLimitByApiKey.compute(id, (s, rateLimiter) -> {
                 if (rateLimiter == null) {
-                    return new ExpiringRateLimiter(createRateLimiter(rateLimit.getRateLimit()), rateLimit.getExpirationTime());
+                    return new ExpiringRateLimiter(rateLimit);
                 } else {
-                    return rateLimiter.updated(rateLimit.getRateLimit(), rateLimit.getExpirationTime());
+                    return rateLimiter.updated(rateLimit);
                 }
             });
         }
@@ -181,41 +364,122 @@ public class DataStoreUpdateThrottleManager implements DataStoreUpdateThrottler
         return INSTANCE_RATE_LIMIT_ZK_KEY.equals(path) ? INSTANCE_RATE_LIMIT_KEY : path;
     }
 
+    private static String toDemandKey(String host, String zkPath) {
+        return host + "~" + zkPath;
+    }
+
+    @Nullable
+    private static String[] fromDemandKey(String key) {
+        int separator = key.indexOf('~');
+        return separator > 0 ? new String[] {key.substring(0, separator), key.substring(separator + 1)} : null;
+    }
+
     private final class ExpiringRateLimiter {
+        final DataStoreUpdateThrottle _throttle;
         final RateLimiter _rateLimiter;
-        final Instant _expirationTime;
+        final RateLimiter _byteRateLimiter;
+        // Updates and bytes received while this throttle was active, used to compute demand for cluster-wide throttles
+        final LongAdder _updates = new LongAdder();
+        final LongAdder _bytes = new LongAdder();
+        long _lastUpdates;
+        long _lastBytes;
+        Instant _lastSample;
+
+        ExpiringRateLimiter(DataStoreUpdateThrottle throttle) {
+            this(throttle,
+                    throttle.getRateLimit() > 0 ? createRateLimiter(throttle.getRateLimit()) : null,
+                    throttle.getByteRateLimit() > 0 ? createRateLimiter(throttle.getByteRateLimit()) : null);
+        }
 
-        ExpiringRateLimiter(RateLimiter rateLimiter, Instant expirationTime) {
+        private ExpiringRateLimiter(DataStoreUpdateThrottle throttle, RateLimiter rateLimiter, RateLimiter byteRateLimiter) {
+            _throttle = throttle;
             _rateLimiter = rateLimiter;
-            _expirationTime = expirationTime;
+            _byteRateLimiter = byteRateLimiter;
+            _lastSample = _clock.instant();
         }
 
         /**
          * Applies the rate limiter if it has not expired.
          * @return The number of seconds spent waiting due to rate limiting, or -1 if the rate limit was inactive.
          */
-        double rateLimit() {
-            if (isActive()) {
-                return _rateLimiter.acquire();
-            } else {
+        double rateLimit(int bytes) {
+            if (!isActive()) {
                 return -1;
             }
+            _updates.increment();
+            _bytes.add(bytes);
+            double secondsWaited = 0;
+            if (_rateLimiter != null) {
+                secondsWaited += _rateLimiter.acquire();
+            }
+            if (_byteRateLimiter != null && bytes > 0) {
+                secondsWaited += _byteRateLimiter.acquire(bytes);
+            }
+            return secondsWaited;
         }
 
         boolean isActive() {
-            return _clock.instant().isBefore(_expirationTime);
+            return _clock.instant().isBefore(_throttle.getExpirationTime());
         }
 
-        ExpiringRateLimiter updated(double newRate, Instant expirationTime) {
-            // If only the expiration time is changing don't adjust the rate limiter
-            if (_rateLimiter.getRate() == newRate) {
-                return new ExpiringRateLimiter(_rateLimiter, expirationTime);
+        ExpiringRateLimiter updated(DataStoreUpdateThrottle throttle) {
+            // If only the expiration time is changing don't adjust the rate limiters
+            if (_throttle.getRateLimit() == throttle.getRateLimit() &&
+                    _throttle.getByteRateLimit() == throttle.getByteRateLimit() &&
+                    _throttle.isClusterWide() == throttle.isClusterWide()) {
+                ExpiringRateLimiter updated = new ExpiringRateLimiter(throttle, _rateLimiter, _byteRateLimiter);
+                updated._lastSample = _lastSample;
+                updated._updates.add(_updates.sum() - _lastUpdates);
+                updated._bytes.add(_bytes.sum() - _lastBytes);
+                return updated;
             } else {
-                return new ExpiringRateLimiter(createRateLimiter(newRate), expirationTime);
+                return new ExpiringRateLimiter(throttle);
+            }
+        }
+
+        /** Returns the rate of updates received since the previous sample.  Only called by the lease thread. */
+        DataStoreUpdateDemand sampleDemand(Instant now) {
+            double seconds = Math.max(Duration.between(_lastSample, now).toMillis(), 1) / 1000.0;
+            long updates = _updates.sum();
+            long bytes = _bytes.sum();
+            DataStoreUpdateDemand demand = new DataStoreUpdateDemand(
+                    (updates - _lastUpdates) / seconds, (bytes - _lastBytes) / seconds, now);
+            _lastUpdates = updates;
+            _lastBytes = bytes;
+            _lastSample = now;
+            return demand;
+        }
+
+        /** Sets the local rate limiters to the given fractions of the cluster-wide limits. */
+        void lease(double updateShare, double byteShare) {
+            if (_rateLimiter != null) {
+                _rateLimiter.setRate(_throttle.getRateLimit() * updateShare);
+            }
+            if (_byteRateLimiter != null) {
+                _byteRateLimiter.setRate(_throttle.getByteRateLimit() * byteShare);
             }
         }
     }
 
+    /** Cumulative updates received by this instance from a single API key. */
+    public static class Consumption {
+        private final LongAdder _updates = new LongAdder();
+        private final LongAdder _bytes = new LongAdder();
+
+        private void record(int bytes) {
+            _updates.increment();
+            _bytes.add(bytes);
+        }
+
+        public long getUpdates() {
+            return _updates.sum();
+        }
+
+        public long getBytes() {
+            return _bytes.sum();
+        }
+    }
+
     /**
      * Simple method to create a rate limiter.  It is exposed as a protected method to allow unit tests to override
      * to enable introspecting rate limit calls.
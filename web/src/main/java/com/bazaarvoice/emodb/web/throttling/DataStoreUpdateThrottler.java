@@ -14,4 +14,15 @@ public interface DataStoreUpdateThrottler {
      * @param id The ID of the API key making the update request.
      */
     void beforeUpdate(String id);
+
+    /**
+     * Same as {@link #beforeUpdate(String)} but also counts the bytes of request body read for the update against any
+     * active byte rate limit.
+     *
+     * @param id The ID of the API key making the update request.
+     * @param bytes The number of request body bytes read for the update.
+     */
+    default void beforeUpdate(String id, int bytes) {
+        beforeUpdate(id);
+    }
 }
@@ -8,8 +8,20 @@ import static java.lang.annotation.RetentionPolicy.RUNTIME;
 
 /**
  * Annotation for identifying an API call that needs to be throttled by number of concurrent requests.
+ * <p>
+ * By default the limit is fixed at {@link #maxRequests()} and requests over the limit are rejected immediately.  Set
+ * {@link #adaptive()} to true for a limit which adapts to observed latency between {@link #minRequests()} and
+ * {@link #maxRequests()}, where requests over the limit wait up to {@link #maxQueueMillis()} before being rejected.
+ * See {@link AdaptiveConcurrentRequestRegulator}.  {@link #minRequests()} and {@link #maxQueueMillis()} only apply
+ * to adaptive limits.
  */
 @Target({ METHOD }) @Retention(RUNTIME)
 public @interface ThrottleConcurrentRequests {
     int maxRequests();
+
+    int minRequests() default 10;
+
+    long maxQueueMillis() default 250;
+
+    boolean adaptive() default false;
 }
@@ -9,6 +9,7 @@ import com.sun.jersey.spi.container.ResourceFilterFactory;
 
 import javax.annotation.Nullable;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This factory checks for @ThrottleConcurrentRequests attribute on methods,
@@ -18,9 +19,11 @@ public class ThrottlingFilterFactory implements ResourceFilterFactory {
 
     private final static String SEMAPHORE_PROPERTY = ThrottlingFilterFactory.class.getName() + ".semaphore";
 
+    private final MetricRegistry _metricRegistry;
     private final Meter _meter;
 
     public ThrottlingFilterFactory(@Nullable MetricRegistry metricRegistry) {
+        _metricRegistry = metricRegistry;
         if (metricRegistry != null) {
             _meter = metricRegistry.meter(MetricRegistry.name("bv.emodb.web", "Throttle", "throttled-requests"));
         } else {
@@ -32,10 +35,19 @@ public class ThrottlingFilterFactory implements ResourceFilterFactory {
     public List<ResourceFilter> create(AbstractMethod abstractMethod) {
         List<ResourceFilter> resourceFilters = Lists.newArrayList();
         if (abstractMethod.isAnnotationPresent(ThrottleConcurrentRequests.class)) {
-            int maxRequests = abstractMethod.getAnnotation(ThrottleConcurrentRequests.class).maxRequests();
+            ThrottleConcurrentRequests throttle = abstractMethod.getAnnotation(ThrottleConcurrentRequests.class);
+            ConcurrentRequestRegulator regulator;
+            if (throttle.adaptive() && throttle.maxRequests() > 0) {
+                String metricName = abstractMethod.getResource().getResourceClass().getSimpleName() + "." +
+                        abstractMethod.getMethod().getName();
+                regulator = new AdaptiveConcurrentRequestRegulator(SEMAPHORE_PROPERTY,
+                        Math.min(throttle.minRequests(), throttle.maxRequests()), throttle.maxRequests(),
+                        throttle.maxQueueMillis(), TimeUnit.MILLISECONDS, _meter, _metricRegistry, metricName);
+            } else {
+                regulator = new DefaultConcurrentRequestRegulator(SEMAPHORE_PROPERTY, throttle.maxRequests(), _meter);
+            }
             InstanceConcurrentRequestRegulatorSupplier regulatorSupplier =
-                    new InstanceConcurrentRequestRegulatorSupplier(
-                            new DefaultConcurrentRequestRegulator(SEMAPHORE_PROPERTY, maxRequests, _meter));
+                    new InstanceConcurrentRequestRegulatorSupplier(regulator);
             resourceFilters.add(new ConcurrentRequestsThrottlingFilter(regulatorSupplier));
         }
         return resourceFilters;
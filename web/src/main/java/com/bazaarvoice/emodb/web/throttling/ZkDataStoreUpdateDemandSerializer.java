@@ -0,0 +1,29 @@
+package com.bazaarvoice.emodb.web.throttling;
+
+import com.bazaarvoice.emodb.common.zookeeper.store.ZkValueSerializer;
+
+import java.time.Instant;
+
+/**
+ * Simple serializer for storing {@link DataStoreUpdateDemand} reports in ZooKeeper.
+ */
+public class ZkDataStoreUpdateDemandSerializer implements ZkValueSerializer<DataStoreUpdateDemand> {
+
+    @Override
+    public String toString(DataStoreUpdateDemand value) {
+        return String.format("%.4f,%.4f,%s", value.getUpdatesPerSecond(), value.getBytesPerSecond(), value.getReportTime());
+    }
+
+    @Override
+    public DataStoreUpdateDemand fromString(String string) {
+        if (string == null) {
+            return null;
+        }
+
+        String[] parts = string.split(",");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Update demand cannot be parsed: " + string);
+        }
+        return new DataStoreUpdateDemand(Double.parseDouble(parts[0]), Double.parseDouble(parts[1]), Instant.parse(parts[2]));
+    }
+}
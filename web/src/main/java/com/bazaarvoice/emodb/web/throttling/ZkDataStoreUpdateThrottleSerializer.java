@@ -5,13 +5,21 @@ import com.bazaarvoice.emodb.common.zookeeper.store.ZkValueSerializer;
 import java.time.Instant;
 
 /**
- * Simple serializer for storing {@link DataStoreUpdateThrottle} configurations in ZooKeeper.
+ * Simple serializer for storing {@link DataStoreUpdateThrottle} configurations in ZooKeeper.  The byte rate limit and
+ * cluster-wide flag are only written when set so throttles which use neither remain readable by older servers.
  */
 public class ZkDataStoreUpdateThrottleSerializer implements ZkValueSerializer<DataStoreUpdateThrottle> {
 
+    private static final String CLUSTER = "cluster";
+    private static final String INSTANCE = "instance";
+
     @Override
     public String toString(DataStoreUpdateThrottle value) {
-        return String.format("%.8f,%s", value.getRateLimit(), value.getExpirationTime());
+        if (value.getByteRateLimit() == 0 && !value.isClusterWide()) {
+            return String.format("%.8f,%s", value.getRateLimit(), value.getExpirationTime());
+        }
+        return String.format("%.8f,%s,%.8f,%s", value.getRateLimit(), value.getExpirationTime(),
+                value.getByteRateLimit(), value.isClusterWide() ? CLUSTER : INSTANCE);
     }
 
     @Override
@@ -20,12 +28,17 @@ public class ZkDataStoreUpdateThrottleSerializer implements ZkValueSerializer<Da
             return null;
         }
 
-        int comma = string.indexOf(',');
-        if (comma <= 0) {
+        String[] parts = string.split(",");
+        if (parts.length != 2 && parts.length != 4) {
             throw new IllegalArgumentException("Rate limit value cannot be parsed: " + string);
         }
-        double rateLimit = Double.parseDouble(string.substring(0, comma));
-        Instant expirationTime = Instant.parse(string.substring(comma+1));
-        return new DataStoreUpdateThrottle(rateLimit, expirationTime);
+        double rateLimit = Double.parseDouble(parts[0]);
+        Instant expirationTime = Instant.parse(parts[1]);
+        if (parts.length == 2) {
+            return new DataStoreUpdateThrottle(rateLimit, expirationTime);
+        }
+        double byteRateLimit = Double.parseDouble(parts[2]);
+        boolean clusterWide = CLUSTER.equals(parts[3]);
+        return new DataStoreUpdateThrottle(rateLimit, expirationTime, byteRateLimit, clusterWide);
     }
 }
@@ -3,6 +3,7 @@ package com.bazaarvoice.emodb.auth.apikey;
 import com.bazaarvoice.emodb.auth.identity.AuthIdentityManager;
 import com.bazaarvoice.emodb.auth.identity.CacheManagingAuthIdentityManager;
 import com.bazaarvoice.emodb.auth.identity.InMemoryAuthIdentityManager;
+import com.bazaarvoice.emodb.auth.permissions.MatchingPermission;
 import com.bazaarvoice.emodb.auth.permissions.MatchingPermissionResolver;
 import com.bazaarvoice.emodb.auth.permissions.PermissionIDs;
 import com.bazaarvoice.emodb.auth.permissions.PermissionManager;
@@ -160,8 +161,9 @@ public class ApiKeyRealmTest {
         Collection<Permission> resultPerms = _underTest.getRolePermissions("role");
         assertEquals(resultPerms.iterator().next(), p1, "should have the first permission we added");
         assertEquals(cache.size(), 1, "side effect: cache has one element");
+        // Without an invalidation the cached permissions are used
         resultPerms = _underTest.getRolePermissions("role");
-        assertEquals(resultPerms.iterator().next(), p2, "should have the last permission we added");
+        assertEquals(resultPerms.iterator().next(), p1, "should still have the cached permission");
         assertEquals(cache.size(), 1, "side effect: cache has one element");
     }
 
@@ -193,18 +195,19 @@ public class ApiKeyRealmTest {
         when(p1.toString()).thenReturn("p1");
         final Permission p2 = mock(Permission.class);
         when(p2.toString()).thenReturn("p2");
+        // The cache is flushed while the first, now stale, permissions are being loaded
         when(_permissionManager.getPermissions(PermissionIDs.forRole("role")))
-                .thenReturn(Sets.newHashSet(p1))
                 .thenAnswer(new Answer<Set<Permission>>() {
                     @Override
                     public Set<Permission> answer(InvocationOnMock invocationOnMock) throws Throwable {
                         cache.clear();
-                        return Sets.newHashSet(p2);
+                        return Sets.newHashSet(p1);
                     }
                 })
                 .thenReturn(Sets.newHashSet(p2));
         Permission resultPerm = _underTest.getRolePermissions("role").iterator().next();
         assertEquals(resultPerm, p1, "should have permission p1");
+        assertNull(cache.get("role"), "Stale value for role should not have been cached");
         resultPerm = _underTest.getRolePermissions("role").iterator().next();
         assertEquals(resultPerm, p2, "should have permission p2");
         resultPerm = _underTest.getRolePermissions("role").iterator().next();
@@ -257,6 +260,30 @@ public class ApiKeyRealmTest {
         assertTrue(_underTest.hasPermissionById(id, positivePermission));
     }
 
+    @Test
+    public void testMemoizedPermissionCheck() {
+        _authIdentityManager.createIdentity("apikey0", new ApiKeyModification().addRoles("role0"));
+        when(_permissionManager.getPermissions(PermissionIDs.forRole("role0")))
+                .thenReturn(ImmutableSet.of(new MatchingPermission("sor|update|table1")));
+
+        PrincipalCollection principals = _underTest.getAuthenticationInfo(new ApiKeyAuthenticationToken("apikey0")).getPrincipals();
+        assertTrue(_underTest.isPermitted(principals, new MatchingPermission("sor|update|table1")));
+        assertFalse(_underTest.isPermitted(principals, new MatchingPermission("sor|update|table2")));
+        assertFalse(_underTest.isPermitted(principals, new MatchingPermission("blob|update|table1")));
+
+        // Verify both grants and denials were memoized
+        Cache<String, Boolean> decisionCache = _underTest.getAvailableDecisionCache();
+        assertEquals(decisionCache.size(), 3);
+
+        // Verify the memoized decisions are discarded when the permissions change
+        when(_permissionManager.getPermissions(PermissionIDs.forRole("role0")))
+                .thenReturn(ImmutableSet.of(new MatchingPermission("sor|update|table2")));
+        ((InvalidatableCacheManager) _underTest.getCacheManager()).invalidateAll();
+        assertEquals(decisionCache.size(), 0);
+        assertFalse(_underTest.isPermitted(principals, new MatchingPermission("sor|update|table1")));
+        assertTrue(_underTest.isPermitted(principals, new MatchingPermission("sor|update|table2")));
+    }
+
     @Test
     public void testCachedPermissionCheckByInvalidId() {
         // Verify permission is not granted to a non-existing ID
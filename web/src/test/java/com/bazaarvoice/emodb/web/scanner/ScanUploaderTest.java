@@ -96,6 +96,7 @@ import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import java.util.zip.GZIPInputStream;
 
 import static java.lang.String.format;
@@ -118,6 +119,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
@@ -799,6 +801,44 @@ public class ScanUploaderTest {
         verifyNoMoreInteractions(scanStatusDAO, scanWorkflow);
     }
 
+    @Test
+    public void testResumeCanceledScan() {
+        ScanOptions options = new ScanOptions(ImmutableList.of("p0"));
+        ScanRangeStatus completeTask = new ScanRangeStatus(0, "p0", ScanRange.create(ByteBuffer.wrap(new byte[]{0x00}), ByteBuffer.wrap(new byte[]{0x01})),
+                0, Optional.empty(), Optional.empty());
+        ScanRangeStatus activeTask = new ScanRangeStatus(1, "p0", ScanRange.create(ByteBuffer.wrap(new byte[]{0x02}), ByteBuffer.wrap(new byte[]{0x03})),
+                0, Optional.empty(), Optional.empty());
+        ScanRangeStatus pendingTask = new ScanRangeStatus(2, "p0", ScanRange.create(ByteBuffer.wrap(new byte[]{0x04}), ByteBuffer.wrap(new byte[]{0x05})),
+                0, Optional.empty(), Optional.empty());
+
+        for (ScanRangeStatus status : ImmutableList.of(completeTask, activeTask)) {
+            status.setScanQueuedTime(new Date());
+            status.setScanStartTime(new Date());
+        }
+        completeTask.setScanCompleteTime(new Date());
+
+        ScanStatusDAO scanStatusDAO = new InMemoryScanStatusDAO();
+        scanStatusDAO.updateScanStatus(new ScanStatus("id", options, true, false, new Date(),
+                ImmutableList.of(pendingTask), ImmutableList.of(activeTask), ImmutableList.of(completeTask)));
+        scanStatusDAO.setCanceled("id");
+
+        ScanWorkflow scanWorkflow = mock(ScanWorkflow.class);
+        ScanUploader scanUploader = new ScanUploader(mock(DataTools.class), scanWorkflow, scanStatusDAO, mock(StashStateListener.class), new InMemoryCompactionControlSource(), mock(DataCenters.class));
+        scanUploader.resumeScan("id");
+
+        ScanStatus resumed = scanStatusDAO.getScanStatus("id");
+        assertFalse(resumed.isCanceled());
+        assertFalse(resumed.isDone());
+        assertEquals(resumed.getCompleteScanRanges().stream().map(ScanRangeStatus::getTaskId).collect(Collectors.toList()), ImmutableList.of(0));
+        assertTrue(resumed.getActiveScanRanges().isEmpty());
+        assertEquals(resumed.getPendingScanRanges().stream().map(ScanRangeStatus::getTaskId).sorted().collect(Collectors.toList()), ImmutableList.of(1, 2));
+        for (ScanRangeStatus pending : resumed.getPendingScanRanges()) {
+            assertNull(pending.getScanQueuedTime());
+        }
+        verify(scanWorkflow).scanStatusUpdated("id");
+        verifyNoMoreInteractions(scanWorkflow);
+    }
+
     private ArgumentMatcher<StashMetadata> matchesScan(final String scanId) {
         return new ArgumentMatcher<StashMetadata>() {
             @Override
@@ -0,0 +1,170 @@
+package com.bazaarvoice.emodb.web.throttling;
+
+import com.bazaarvoice.emodb.auth.apikey.ApiKeyRequest;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.sun.jersey.spi.container.ContainerRequest;
+import org.testng.annotations.Test;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class AdaptiveConcurrentRequestRegulatorTest {
+
+    @Test
+    public void testLimitAdaptsToLatency() {
+        AtomicLong now = new AtomicLong();
+        AdaptiveConcurrentRequestRegulator regulator = newRegulator(10, 100, 0, now);
+        assertEquals(regulator.getLimit(), 100);
+
+        // Establish the baseline latency
+        runWindow(regulator, now, TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(regulator.getLimit(), 100);
+
+        // Latency jumps, so the limit should drop and keep dropping while latency stays high
+        int previousLimit = regulator.getLimit();
+        for (int i = 0; i < 5; i++) {
+            runWindow(regulator, now, TimeUnit.MILLISECONDS.toNanos(100));
+            assertTrue(regulator.getLimit() < previousLimit, "Limit should decrease: " + regulator.getLimit());
+            assertTrue(regulator.getLimit() >= 10);
+            previousLimit = regulator.getLimit();
+        }
+
+        // Once latency recovers the limit climbs back to the maximum
+        for (int i = 0; i < 50; i++) {
+            runWindow(regulator, now, TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        assertEquals(regulator.getLimit(), 100);
+    }
+
+    @Test
+    public void testLoneClientMayUseWholeLimit() {
+        AdaptiveConcurrentRequestRegulator regulator = newRegulator(4, 4, 0, new AtomicLong());
+
+        // With no other client waiting there's no reason to hold permits back
+        for (int i = 0; i < 4; i++) {
+            regulator.throttle(newRequest("scanner"));
+        }
+        assertEquals(regulator.getInFlight(), 4);
+        assertThrottled(regulator, newRequest("scanner"));
+        assertThrottled(regulator, newRequest("interactive"));
+    }
+
+    @Test
+    public void testClientShareWhileOtherClientsWait() throws Exception {
+        AdaptiveConcurrentRequestRegulator regulator = newRegulator(4, 4, TimeUnit.SECONDS.toMillis(30), null);
+
+        List<ContainerRequest> scans = Lists.newArrayList();
+        for (int i = 0; i < 4; i++) {
+            ContainerRequest scan = newRequest("scanner");
+            regulator.throttle(scan);
+            scans.add(scan);
+        }
+
+        // Both clients queue for a permit, the scanner first
+        ContainerRequest scan = newRequest("scanner");
+        Thread scanThread = new Thread(() -> regulator.throttle(scan));
+        scanThread.start();
+        awaitQueued(regulator, 1);
+        ContainerRequest interactive = newRequest("interactive");
+        Thread interactiveThread = new Thread(() -> regulator.throttle(interactive));
+        interactiveThread.start();
+        awaitQueued(regulator, 2);
+
+        // The first freed permit goes to the interactive client even though the scanner queued first, since the
+        // scanner already holds its share of 3.  Once nobody else is waiting the scanner may go back to 4.
+        regulator.release(scans.remove(0));
+        interactiveThread.join(TimeUnit.SECONDS.toMillis(10));
+        assertEquals(regulator.getQueued(), 1);
+        regulator.release(scans.remove(0));
+        scanThread.join(TimeUnit.SECONDS.toMillis(10));
+        assertEquals(regulator.getQueued(), 0);
+        assertEquals(regulator.getInFlight(), 4);
+
+        regulator.release(interactive);
+        regulator.throttle(newRequest("scanner"));
+        assertEquals(regulator.getInFlight(), 4);
+    }
+
+    @Test
+    public void testQueuedRequestAdmittedOnRelease() throws Exception {
+        AdaptiveConcurrentRequestRegulator regulator = newRegulator(1, 1, TimeUnit.SECONDS.toMillis(30), null);
+
+        ContainerRequest first = newRequest("first");
+        regulator.throttle(first);
+
+        ContainerRequest second = newRequest("second");
+        Thread thread = new Thread(() -> regulator.throttle(second));
+        thread.start();
+
+        // Wait for the second request to queue, then free the only permit
+        awaitQueued(regulator, 1);
+        regulator.release(first);
+
+        thread.join(TimeUnit.SECONDS.toMillis(10));
+        assertEquals(regulator.getQueued(), 0);
+        assertEquals(regulator.getInFlight(), 1);
+        regulator.release(second);
+        assertEquals(regulator.getInFlight(), 0);
+    }
+
+    private void awaitQueued(AdaptiveConcurrentRequestRegulator regulator, int queued) throws InterruptedException {
+        for (int i = 0; i < 100 && regulator.getQueued() < queued; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(regulator.getQueued(), queued);
+    }
+
+    private void runWindow(AdaptiveConcurrentRequestRegulator regulator, AtomicLong now, long latencyNanos) {
+        // Use all the permits so the regulator sees enough demand to adjust the limit
+        List<ContainerRequest> requests = Lists.newArrayList();
+        int limit = regulator.getLimit();
+        for (int i = 0; i < limit; i++) {
+            ContainerRequest request = newRequest("client" + (i % 2));
+            regulator.throttle(request);
+            requests.add(request);
+        }
+        now.addAndGet(latencyNanos);
+        for (ContainerRequest request : requests) {
+            regulator.release(request);
+        }
+    }
+
+    private void assertThrottled(AdaptiveConcurrentRequestRegulator regulator, ContainerRequest request) {
+        try {
+            regulator.throttle(request);
+            fail("Request should have been throttled");
+        } catch (WebApplicationException e) {
+            assertEquals(e.getResponse().getStatus(), Response.Status.SERVICE_UNAVAILABLE.getStatusCode());
+        }
+    }
+
+    private AdaptiveConcurrentRequestRegulator newRegulator(int min, int max, long maxQueueMillis, AtomicLong now) {
+        Ticker ticker = now != null ? new Ticker() {
+            @Override
+            public long read() {
+                return now.get();
+            }
+        } : Ticker.systemTicker();
+        return new AdaptiveConcurrentRequestRegulator("permit", min, max, maxQueueMillis, TimeUnit.MILLISECONDS,
+                null, null, null, ticker);
+    }
+
+    private ContainerRequest newRequest(String apiKey) {
+        ContainerRequest request = mock(ContainerRequest.class);
+        when(request.getProperties()).thenReturn(Maps.newHashMap());
+        when(request.getHeaderValue(ApiKeyRequest.AUTHENTICATION_HEADER)).thenReturn(apiKey);
+        when(request.getPath()).thenReturn("sor/1/_split/table/split");
+        return request;
+    }
+}
@@ -0,0 +1,136 @@
+package com.bazaarvoice.emodb.web.throttling;
+
+import com.bazaarvoice.emodb.sor.core.test.InMemoryMapStore;
+import com.codahale.metrics.MetricRegistry;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+public class DataStoreUpdateThrottleManagerTest {
+
+    private AtomicReference<Instant> _now;
+    private InMemoryMapStore<DataStoreUpdateThrottle> _throttles;
+    private InMemoryMapStore<DataStoreUpdateDemand> _demand;
+    private DataStoreUpdateThrottleManager _host1;
+    private DataStoreUpdateThrottleManager _host2;
+
+    @BeforeMethod
+    public void setUp() {
+        _now = new AtomicReference<>(Instant.parse("2020-01-01T00:00:00Z"));
+        Clock clock = mock(Clock.class);
+        when(clock.instant()).thenAnswer(invocation -> _now.get());
+
+        _throttles = new InMemoryMapStore<>();
+        _demand = new InMemoryMapStore<>();
+        _host1 = new DataStoreUpdateThrottleManager(_throttles, _demand, "host1:8080", clock, new MetricRegistry());
+        _host2 = new DataStoreUpdateThrottleManager(_throttles, _demand, "host2:8080", clock, new MetricRegistry());
+    }
+
+    @Test
+    public void testClusterWideLimitSharedByDemand() throws Exception {
+        _host1.updateAPIKeyRateLimit("key", new DataStoreUpdateThrottle(1000, _now.get().plus(Duration.ofHours(1)), 0, true));
+
+        // Until demand is known each host enforces the full limit
+        assertEquals(_host1.getLocalRateLimits().get("key"), 1000.0, 0.01);
+        assertEquals(_host2.getLocalRateLimits().get("key"), 1000.0, 0.01);
+
+        // Host 1 receives three times as many updates as host 2
+        for (int round = 0; round < 2; round++) {
+            update(_host1, "key", 30);
+            update(_host2, "key", 10);
+            _now.set(_now.get().plusSeconds(5));
+            _host1.renewLeases();
+            _host2.renewLeases();
+        }
+
+        assertEquals(_host1.getLocalRateLimits().get("key"), 750.0, 0.01);
+        assertEquals(_host2.getLocalRateLimits().get("key"), 250.0, 0.01);
+    }
+
+    @Test
+    public void testIdleHostKeepsMinimumShare() throws Exception {
+        _host1.updateAPIKeyRateLimit("key", new DataStoreUpdateThrottle(1000, _now.get().plus(Duration.ofHours(1)), 0, true));
+
+        _host1.renewLeases();
+        update(_host2, "key", 50);
+        _now.set(_now.get().plusSeconds(5));
+        _host2.renewLeases();
+        _host1.renewLeases();
+
+        // Host 1 received no updates so it keeps only a small fraction of an even split
+        assertEquals(_host1.getLocalRateLimits().get("key"), 50.0, 0.01);
+        assertEquals(_host2.getLocalRateLimits().get("key"), 1000.0, 0.01);
+    }
+
+    @Test
+    public void testStaleDemandIgnoredAndRemoved() throws Exception {
+        _host1.updateAPIKeyRateLimit("key", new DataStoreUpdateThrottle(1000, _now.get().plus(Duration.ofHours(1)), 0, true));
+
+        update(_host2, "key", 10);
+        _now.set(_now.get().plusSeconds(5));
+        _host2.renewLeases();
+
+        // Host 2 stops reporting, so after a minute host 1 no longer shares the limit with it
+        _now.set(_now.get().plusSeconds(60));
+        _host1.renewLeases();
+        assertEquals(_host1.getLocalRateLimits().get("key"), 1000.0, 0.01);
+        assertEquals(_demand.keySet().size(), 2);
+
+        _now.set(_now.get().plus(Duration.ofMinutes(10)));
+        _host1.renewLeases();
+        assertFalse(_demand.keySet().contains("host2:8080~key"));
+    }
+
+    @Test
+    public void testInstanceLimitNotLeased() throws Exception {
+        _host1.updateAPIKeyRateLimit("*", new DataStoreUpdateThrottle(1000, _now.get().plus(Duration.ofHours(1))));
+
+        update(_host1, "key", 10);
+        _now.set(_now.get().plusSeconds(5));
+        _host1.renewLeases();
+
+        assertEquals(_host1.getLocalRateLimits().get("*"), 1000.0, 0.01);
+        assertEquals(_demand.keySet().size(), 0);
+    }
+
+    @Test
+    public void testConsumption() {
+        _host1.beforeUpdate("key1", 100);
+        _host1.beforeUpdate("key1", 50);
+        _host1.beforeUpdate("key2");
+
+        assertEquals(_host1.getConsumption().get("key1").getUpdates(), 2);
+        assertEquals(_host1.getConsumption().get("key1").getBytes(), 150);
+        assertEquals(_host1.getConsumption().get("key2").getUpdates(), 1);
+        assertEquals(_host1.getConsumption().get("key2").getBytes(), 0);
+    }
+
+    @Test
+    public void testSerializerCompatibility() {
+        ZkDataStoreUpdateThrottleSerializer serializer = new ZkDataStoreUpdateThrottleSerializer();
+        Instant expiration = Instant.parse("2020-01-01T00:00:00Z");
+
+        // Throttles without the new settings keep the original format
+        DataStoreUpdateThrottle throttle = new DataStoreUpdateThrottle(10, expiration);
+        assertEquals(serializer.toString(throttle), "10.00000000,2020-01-01T00:00:00Z");
+        assertEquals(serializer.fromString(serializer.toString(throttle)), throttle);
+
+        throttle = new DataStoreUpdateThrottle(10, expiration, 5000, true);
+        assertEquals(serializer.fromString(serializer.toString(throttle)), throttle);
+    }
+
+    private void update(DataStoreUpdateThrottleManager manager, String id, int count) {
+        for (int i = 0; i < count; i++) {
+            manager.beforeUpdate(id);
+        }
+    }
+}